@@ -0,0 +1,42 @@
+package com.suffix_tree.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+
+/**
+ *  Runs the benchmarks with the GC profiler always on, so every result comes with its allocation
+ *  rate. Arguments are the usual JMH ones, e.g. a regular expression to pick the benchmarks,
+ *  -p corpus=quijote to fix a parameter or -l to list the benchmarks without running them.
+ *
+ *  @version 1.0
+ *
+ */
+public class BenchmarkRunner {
+
+    /**
+     * @param args JMH command line options
+     */
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        CommandLineOptions options = new CommandLineOptions(args);
+        if (options.shouldHelp()) {
+            options.showHelp();
+            return;
+        }
+
+        Runner runner = new Runner(new OptionsBuilder()
+                .parent(options)
+                .addProfiler(GCProfiler.class)
+                .build());
+        if (options.shouldList() || options.shouldListWithParams()) {
+            runner.list();
+        } else {
+            runner.run();
+        }
+    }
+}
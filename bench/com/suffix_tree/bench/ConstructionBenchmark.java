@@ -0,0 +1,69 @@
+package com.suffix_tree.bench;
+
+import com.suffix_tree.Main;
+import com.suffix_tree.index.FMIndex;
+import com.suffix_tree.index.SuffixArrayIndex;
+import com.suffix_tree.index.TextIndex;
+import com.suffix_tree.tree.CompactSuffixTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Time to build every index over every corpus, in a fresh JVM per fork so the heap left by one
+ *  build does not slow the next. N squared construction is measured apart, it only fits small texts.
+ *
+ *  @version 1.0
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 2, jvmArgsAppend = {"-Xmx4g", "-Xss16m"})
+public class ConstructionBenchmark {
+
+    @Param({"NLGN", "UKKONEN", "PARALLEL", "ARRAY", "FM"})
+    public String mode;
+
+    @Param({"constantinopla", "quijote", "quijote2", "quijote3", "quijote_long", "words", "all",
+            "random-100000", "random-1000000"})
+    public String corpus;
+
+    private String[] words;
+
+    @Setup(Level.Trial)
+    public void load() {
+        words = Corpora.load(corpus);
+    }
+
+    @Benchmark
+    public TextIndex build() {
+        return build(mode, words);
+    }
+
+    /**
+     * @param mode construction algorithm of the tree, or ARRAY or FM for the other engines
+     * @param words from which index is built
+     * @return index built
+     */
+    static TextIndex build(String mode, String[] words) {
+        return switch (mode) {
+            case "ARRAY" -> new SuffixArrayIndex(words);
+            case "FM" -> new FMIndex(words);
+            default -> new CompactSuffixTree(words, Main.AlgorithmFeatures.valueOf(mode));
+        };
+    }
+}
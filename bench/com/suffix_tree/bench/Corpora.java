@@ -0,0 +1,127 @@
+package com.suffix_tree.bench;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ *  Corpora used by the benchmarks: the files in resources/, all of them together as a multi word
+ *  corpus, and random words of a given size.
+ *
+ *  Names are a file of resources/, "all" for every file of the corpus as a word of its own, or
+ *  "random-n" for a random word of n letters. Files are normalised like Main does, and random words
+ *  always come from the same seed, so every run measures the same input.
+ *
+ *  @version 1.0
+ *
+ */
+final class Corpora {
+
+    // Directory with the corpus files, resources/ of the working directory by default
+    private static final Path DIRECTORY = Path.of(System.getProperty("corpus.dir", "resources"));
+
+    // Files of the corpus used as words by "all"
+    private static final String[] FILES = {"constantinopla", "quijote", "quijote2", "quijote3", "quijote_long", "words"};
+
+    private static final long SEED = 0x5EED;
+
+    private Corpora() {
+    }
+
+    /**
+     * @param name of the corpus
+     * @return words of the corpus
+     */
+    static String[] load(String name) {
+        if (name.startsWith("random-")) {
+            return new String[]{random(Integer.parseInt(name.substring("random-".length())), SEED)};
+        }
+        if (name.equals("all")) {
+            String[] words = new String[FILES.length];
+            for (int i = 0; i < FILES.length; i++) {
+                words[i] = read(FILES[i]);
+            }
+            return words;
+        }
+        return new String[]{read(name)};
+    }
+
+    /**
+     * @param name of the file in the corpus directory
+     * @return alphanumeric characters of the file in lower case
+     */
+    private static String read(String name) {
+        try {
+            String content = Files.readString(DIRECTORY.resolve(name), StandardCharsets.UTF_8);
+            return content.replaceAll("[^a-zA-Z0-9áéíóúÁÉÍÓÚ]+", "").toLowerCase();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Corpus file not found, run from the repository root or set -Dcorpus.dir", ex);
+        }
+    }
+
+    /**
+     * @param n number of letters
+     * @param seed of the generator
+     * @return word of n random lower case letters
+     */
+    static String random(int n, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder(n);
+        for (int i = 0; i < n; i++) {
+            sb.append((char) ('a' + random.nextInt(26)));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Patterns that appear in the words, taken at random positions
+     * @param words of the corpus
+     * @param count number of patterns
+     * @param length of every pattern
+     * @return patterns found in the words
+     */
+    static String[] hits(String[] words, int count, int length) {
+        Random random = new Random(SEED);
+        String[] patterns = new String[count];
+        for (int i = 0; i < count; i++) {
+            String word = words[random.nextInt(words.length)];
+            int start = random.nextInt(Math.max(1, word.length() - length));
+            patterns[i] = word.substring(start, Math.min(word.length(), start + length));
+        }
+        return patterns;
+    }
+
+    /**
+     * Patterns made of letters of the corpus that do not appear in it: a hit whose last letter is
+     * replaced by one that never follows the rest
+     * @param words of the corpus
+     * @param count number of patterns
+     * @param length of every pattern
+     * @return patterns not found in the words
+     */
+    static String[] misses(String[] words, int count, int length) {
+        String[] hits = hits(words, count, length);
+        String[] patterns = new String[count];
+        for (int i = 0; i < count; i++) {
+            String prefix = hits[i].substring(0, hits[i].length() - 1);
+            patterns[i] = prefix + "#";
+            for (char c = 'a'; c <= 'z'; c++) {
+                if (!contains(words, prefix + c)) {
+                    patterns[i] = prefix + c;
+                    break;
+                }
+            }
+        }
+        return patterns;
+    }
+
+    private static boolean contains(String[] words, String pattern) {
+        for (String word : words) {
+            if (word.contains(pattern)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,53 @@
+package com.suffix_tree.bench;
+
+import com.suffix_tree.Main;
+import com.suffix_tree.tree.CompactSuffixTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Time of the parallel construction with 1 to 8 threads, to see how it scales. The suffix array,
+ *  the grafts of the buckets under the root and the child index take one thread whatever the
+ *  threads given, see the phases in CompactSuffixTree.buildTimes().
+ *
+ *  @version 1.0
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 2, jvmArgsAppend = {"-Xmx4g", "-Xss16m"})
+public class ParallelConstructionBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"quijote_long", "all", "random-1000000"})
+    public String corpus;
+
+    private String[] words;
+
+    @Setup(Level.Trial)
+    public void load() {
+        words = Corpora.load(corpus);
+    }
+
+    @Benchmark
+    public CompactSuffixTree build() {
+        return new CompactSuffixTree(words, Main.AlgorithmFeatures.PARALLEL, threads, CompactSuffixTree.DEFAULT_KMER);
+    }
+}
@@ -0,0 +1,52 @@
+package com.suffix_tree.bench;
+
+import com.suffix_tree.Main;
+import com.suffix_tree.tree.CompactSuffixTree;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Time of the N squared construction, on the texts it can build before running out of memory. The
+ *  same texts are built with N lg n as a reference.
+ *
+ *  @version 1.0
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xmx4g", "-Xss16m"})
+public class QuadraticConstructionBenchmark {
+
+    @Param({"N2", "NLGN"})
+    public String mode;
+
+    @Param({"constantinopla", "random-1000", "random-5000"})
+    public String corpus;
+
+    private String[] words;
+
+    @Setup(Level.Trial)
+    public void load() {
+        words = Corpora.load(corpus);
+    }
+
+    @Benchmark
+    public CompactSuffixTree build() {
+        return new CompactSuffixTree(words, Main.AlgorithmFeatures.valueOf(mode));
+    }
+}
@@ -0,0 +1,108 @@
+package com.suffix_tree.bench;
+
+import com.suffix_tree.Main;
+import com.suffix_tree.index.TextIndex;
+import com.suffix_tree.tree.CompactSuffixTree;
+import com.suffix_tree.words.WordSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Latency of a single search, for patterns found in the corpus and patterns that are not. TREE is
+ *  the tree itself, which reuses its stacks between queries, and FROZEN its read only view; the
+ *  throughput of many threads sharing an index is in SearchThroughputBenchmark, without TREE.
+ *
+ *  @version 1.0
+ *
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xmx4g", "-Xss16m"})
+public class SearchBenchmark {
+
+    // Patterns of every kind cycled through by the benchmarks
+    static final int PATTERNS = 1024;
+
+    @Param({"TREE", "FROZEN", "ARRAY", "FM"})
+    public String engine;
+
+    @Param({"quijote_long", "all", "random-1000000"})
+    public String corpus;
+
+    @Param({"4", "16"})
+    public int length;
+
+    private TextIndex index;
+
+    private String[] hits;
+
+    private String[] misses;
+
+    @Setup(Level.Trial)
+    public void build() {
+        String[] words = Corpora.load(corpus);
+        index = index(engine, words);
+        hits = Corpora.hits(words, PATTERNS, length);
+        misses = Corpora.misses(words, PATTERNS, length);
+    }
+
+    /**
+     * @param engine TREE, FROZEN or an engine of ConstructionBenchmark
+     * @param words of the corpus
+     * @return index searched by the benchmarks
+     */
+    static TextIndex index(String engine, String[] words) {
+        return switch (engine) {
+            case "TREE" -> new CompactSuffixTree(words, Main.AlgorithmFeatures.UKKONEN);
+            case "FROZEN" -> new CompactSuffixTree(words, Main.AlgorithmFeatures.UKKONEN).freeze();
+            default -> ConstructionBenchmark.build(engine, words);
+        };
+    }
+
+    /**
+     *  Position in the pattern list of every thread
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next() {
+            next = (next + 1) & (PATTERNS - 1);
+            return next;
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public WordSet searchHitLatency(Cursor cursor) {
+        return index.search(hits[cursor.next()]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public WordSet searchMissLatency(Cursor cursor) {
+        return index.search(misses[cursor.next()]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public int countHitLatency(Cursor cursor) {
+        return index.count(hits[cursor.next()]);
+    }
+}
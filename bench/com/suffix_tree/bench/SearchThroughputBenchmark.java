@@ -0,0 +1,73 @@
+package com.suffix_tree.bench;
+
+import com.suffix_tree.index.TextIndex;
+import com.suffix_tree.words.WordSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ *  Throughput of all the threads searching one shared index, for patterns found in the corpus and
+ *  patterns that are not. Only the engines safe to query from many threads at once are measured:
+ *  the tree through its frozen view, never the tree itself.
+ *
+ *  @version 1.0
+ *
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(value = 2, jvmArgsAppend = {"-Xmx4g", "-Xss16m"})
+public class SearchThroughputBenchmark {
+
+    @Param({"FROZEN", "ARRAY", "FM"})
+    public String engine;
+
+    @Param({"quijote_long", "all", "random-1000000"})
+    public String corpus;
+
+    @Param({"4", "16"})
+    public int length;
+
+    private TextIndex index;
+
+    private String[] hits;
+
+    private String[] misses;
+
+    @Setup(Level.Trial)
+    public void build() {
+        String[] words = Corpora.load(corpus);
+        index = SearchBenchmark.index(engine, words);
+        hits = Corpora.hits(words, SearchBenchmark.PATTERNS, length);
+        misses = Corpora.misses(words, SearchBenchmark.PATTERNS, length);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(Threads.MAX)
+    public WordSet searchHitThroughput(SearchBenchmark.Cursor cursor) {
+        return index.search(hits[cursor.next()]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(Threads.MAX)
+    public WordSet searchMissThroughput(SearchBenchmark.Cursor cursor) {
+        return index.search(misses[cursor.next()]);
+    }
+}
@@ -0,0 +1,18 @@
+/**
+ *  JMH benchmarks for the construction and query paths, kept out of src/ so the program does not
+ *  depend on JMH.
+ *
+ *  They compile against the classes of src/ plus jmh-core and jmh-generator-annprocess (1.37),
+ *  with the annotation processor enabled, as bench/pom.xml does, and run from the repository root
+ *  so resources/ is found:
+ *
+ *      mvn -f bench/pom.xml package
+ *      java -jar target/bench/benchmarks.jar [JMH options]
+ *
+ *  BenchmarkRunner adds the GC profiler to every run (gc.alloc.rate.norm is the bytes allocated per
+ *  operation). The corpora are described in Corpora.
+ *
+ *  @version 1.0
+ *
+ */
+package com.suffix_tree.bench;
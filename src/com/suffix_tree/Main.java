@@ -1,16 +1,47 @@
 package com.suffix_tree;
 
+import com.suffix_tree.index.ApproximateMatch;
+import com.suffix_tree.index.BatchSearch;
+import com.suffix_tree.index.Distance;
+import com.suffix_tree.index.FMIndex;
+import com.suffix_tree.index.Occurrence;
+import com.suffix_tree.index.SharedSegment;
+import com.suffix_tree.index.SuffixArrayIndex;
+import com.suffix_tree.index.TextIndex;
+import com.suffix_tree.index.WildcardPattern;
+import com.suffix_tree.metrics.IndexMetrics;
+import com.suffix_tree.metrics.MeteredIndex;
+import com.suffix_tree.text.Normalizer;
+import com.suffix_tree.text.NormalizingReader;
+import com.suffix_tree.text.SymbolText;
+import com.suffix_tree.text.TextLoader;
 import com.suffix_tree.tree.CompactSuffixTree;
+import com.suffix_tree.tree.FrozenSuffixTree;
+import com.suffix_tree.tree.IndexFile;
+import com.suffix_tree.tree.OutOfCoreBuilder;
 import com.suffix_tree.utils.RandomGenerator;
+import com.suffix_tree.utils.Timer;
+import com.suffix_tree.words.WordSet;
 
+import javax.management.JMException;
 import java.io.*;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
 import java.util.Scanner;
-import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.IntStream;
 
 import static com.suffix_tree.utils.Output.printComparingTable;
-import static com.suffix_tree.utils.Output.printMaximals;
+import static com.suffix_tree.utils.Output.printFrequent;
+import static com.suffix_tree.utils.Output.printRepeats;
+import static com.suffix_tree.utils.Output.printSegments;
 import static java.lang.System.*;
 
 /**
@@ -29,40 +60,89 @@ public class Main {
      * Strategies for tree construction
      */
     public enum AlgorithmFeatures {
-        N2, NLGN
+        N2, NLGN, UKKONEN, PARALLEL
+    }
+
+    /**
+     * Structures available to index the words
+     */
+    public enum Engine {
+        TREE, ARRAY, FM
     }
 
     private static boolean getLongest = false;
     private static boolean getMaximals = false;
+    private static boolean getSupermaximals = false;
+    private static int minLength = 1;
+    private static int minOccurrences = 2;
+    private static int top = 0;
+    private static int minDocuments = 1;
     private static boolean time = false;
     private static boolean caseSensitive = false;
     private static String treeWord = "";
     private static final ArrayList<String> words = new ArrayList<>();
     private static final ArrayList<String> files = new ArrayList<>();
+    private static final ArrayList<Path> inputs = new ArrayList<>();
     private static AlgorithmFeatures feature = AlgorithmFeatures.NLGN;
+    private static Engine engine = Engine.TREE;
+    private static int sampleRate = FMIndex.DEFAULT_SAMPLE_RATE;
+    private static int threads = Runtime.getRuntime().availableProcessors();
+    private static int kmer = CompactSuffixTree.DEFAULT_KMER;
+    private static boolean diskBuild = false;
+    private static int memory = (int) (OutOfCoreBuilder.DEFAULT_MEMORY >> 20);
+    private static String saveFile = null;
+    private static String loadFile = null;
+    private static String batchFile = null;
+    private static String compareFile = null;
+    private static int locateLimit = 0;
+    private static int errors = 0;
+    private static Distance distance = Distance.LEVENSHTEIN;
+    private static String metricsFile = null;
+    private static IndexMetrics metrics = null;
+    private static long textLength = 0;
 
     /**
      * Prints instructions of use
      */
     private static void printUsage() {
-        out.println("./com.suffix_tree.Main [-h] [-time] [-cost] [-longest] [-maximals] [-random] [-file] ");
+        out.println("./com.suffix_tree.Main [-h] [-time] [-cost] [-memory] [-threads] [-kmer] [-engine] [-sample] [-save] [-load] [-batch] [-locate] [-errors] [-distance] [-metrics] [-longest] [-maximals] [-supermaximals] [-min_length] [-min_occurrences] [-top] [-min_documents] [-compare] [-random] [-file] ");
         out.println("""
                 This program builds the corresponding compacted suffix tree for a word or a bunch of words.
                 Tree are created from multiple files, words found on a specified file, or with a random word,
                 if file or random not supplied a prompt will ask for a word to create the tree.
-                There are two available implementations: n squared cost and logarithmic.\s
+                There are three available implementations: n squared cost, logarithmic and Ukkonen's linear algorithm.\s
                 Once created, tree is ready to look for as many patterns as user wants to.
-                For a single word tree there are available two features: longest repeated substring and list of maximals
+                With the tree engine patterns may use ? for any character, [abc], [a-z] or [^abc] for a class
+                and *{m,n} for a gap of m to n characters, e.g. c[ao]s?*{0,3}o.
+                Repeats are found across all the words: longest repeated substring, maximal and supermaximal repeats.
                 Visualization of Ukkonen's algorithm step by step, visit the next webpage: http://brenden.github.io/ukkonen-animation/
                 All credits to: Brenden Kokoszka. Git user: https://github.com/brenden""");
         out.println("Available options:");
-        out.println("\t-time: prints a comparision table of tree's construction time, n squared vs n log n.");
-        out.println("\t-cost <STRING>: n2 or nlgn tree construction, nlgn by default.");
+        out.println("\t-time: prints a comparision table of tree's construction time, n squared vs n log n vs Ukkonen.");
+        out.println("\t-cost <STRING>: n2, nlgn, ukkonen, parallel or disk tree construction, nlgn by default. disk builds trees larger than the memory straight to the -save file, or to a temporary one.");
+        out.println("\t-memory <INTEGER>: megabytes of memory the disk construction may use, the text being mapped from a file, " + (OutOfCoreBuilder.DEFAULT_MEMORY >> 20) + " by default.");
+        out.println("\t-threads <INTEGER>: threads used by the parallel construction, all the processors by default.");
+        out.println("\t-kmer <INTEGER>: length of the prefixes the parallel construction splits suffixes by, " + CompactSuffixTree.DEFAULT_KMER + " by default.");
+        out.println("\t-engine <STRING>: tree, array (suffix array, much less memory) or fm (compressed, less memory than the text), tree by default.");
+        out.println("\t-sample <INTEGER>: distance between sampled positions of the fm engine, larger is smaller and slower, " + FMIndex.DEFAULT_SAMPLE_RATE + " by default.");
+        out.println("\t-save <STRING>: write the tree to an index file once it is built.");
+        out.println("\t-load <STRING>: query a tree from an index file instead of building it, no other input needed.");
+        out.println("\t-batch <STRING>: search every pattern in a file, one per line, on -threads threads instead of asking for them.");
+        out.println("\t-locate <INTEGER>: print where the pattern appears, up to n occurrences.");
+        out.println("\t-errors <INTEGER>: look for the patterns typed with up to n errors, only with the tree engine. Patterns with wildcards are matched exactly.");
+        out.println("\t-distance <STRING>: hamming (replaced characters) or levenshtein (also inserted and deleted) errors, levenshtein by default.");
+        out.println("\t-metrics <STRING>: publish sizes, phase timings and query latencies through JMX and write them as JSON to a file at exit.");
         out.println("\t-longest: get the longest repeated substring.");
-        out.println("\t-case_sensitive: to make difference between upper and lower case letters. To be effective it has to be passed before -file argument.");
-        out.println("\t-maximals: get all maximal repetitions in the string.");
+        out.println("\t-case_sensitive: to make difference between upper and lower case letters.");
+        out.println("\t-maximals: get all maximal repetitions in the words, printed as they are found.");
+        out.println("\t-supermaximals: get the maximal repetitions that do not appear inside other ones.");
+        out.println("\t-min_length <INTEGER>: shortest maximal or supermaximal repetition printed, 1 by default.");
+        out.println("\t-min_occurrences <INTEGER>: fewest occurrences of the maximal or supermaximal repetitions printed, 2 by default.");
+        out.println("\t-top <INTEGER>: get the n most frequent substrings at least -min_length long, only with the tree engine.");
+        out.println("\t-min_documents <INTEGER>: fewest words the most frequent substrings appear in, 1 by default.");
+        out.println("\t-compare <STRING>: stream a UTF-8 file against the words and print, for every word, the longest segment of the file found in it at least -min_length long, only with the tree engine.");
         out.println("\t-random <INTEGER>: generate a random word with n characters.");
-        out.println("\t-file <INTEGER> [<STRING>]+: number of files to read from, -1 to read all the files.");
+        out.println("\t-file <INTEGER> [<STRING>]+: number of files to read from, -1 to read all the files. Files are UTF-8, read on -threads threads.");
         out.println("\t-h: this helpful message.");
         out.println();
     }
@@ -81,9 +161,73 @@ public class Main {
         }
         out.println();
 
+        if (metricsFile != null) startMetrics();
+
+        TextIndex index;
+        int numberOfWords;
+        if (loadFile != null) {
+            FrozenSuffixTree frozen = loadIndex(loadFile);
+            files.clear();
+            files.addAll(frozen.files());
+            numberOfWords = frozen.words();
+            index = frozen;
+        } else {
+            index = buildIndex();
+            numberOfWords = inputs.size() + words.size();
+        }
+        if (metrics != null) metrics.describe(index, numberOfWords, textLength);
+
+        if (batchFile != null) searchBatch(index, batchFile);
+        else searchPatterns(metered(index));
+
+        if (getLongest) out.println("Longest repeated substring: " + index.getLongestSubstring() + "\n");
+        if ((getMaximals || getSupermaximals) && index instanceof FMIndex) {
+            System.out.println("Repeats not available with the fm engine, try tree or array.");
+        } else {
+            if (getMaximals) printRepeats(index, index.maximalRepeats(minLength, minOccurrences), "maximal");
+            if (getSupermaximals) {
+                printRepeats(index, index.supermaximalRepeats(minLength, minOccurrences), "supermaximal");
+            }
+        }
+        if (top > 0) {
+            try {
+                printFrequent(index, index.mostFrequent(top, minLength, minDocuments));
+            } catch (UnsupportedOperationException ex) {
+                System.out.println("Most frequent substrings only available with the tree engine, try -engine tree.");
+            }
+        }
+        if (compareFile != null) compare(metered(index), compareFile);
+    }
+
+    /**
+     * Stream a file against the index, normalised like the words, and print the longest segment of it
+     * found in every word
+     * @param index over the words
+     * @param filename of the UTF-8 file compared
+     */
+    private static void compare(TextIndex index, String filename) {
+        List<SharedSegment> segments;
+        try (Reader reader = new NormalizingReader(new BufferedReader(new InputStreamReader(
+                Files.newInputStream(Path.of(filename)), StandardCharsets.UTF_8)), Normalizer.of(caseSensitive))) {
+            segments = index.matchingStatistics(reader, minLength, null);
+        } catch (IOException ex) {
+            err.println("File could not be compared: " + ex.getMessage());
+            return;
+        } catch (UnsupportedOperationException ex) {
+            System.out.println("Comparison only available with the tree engine, try -engine tree.");
+            return;
+        }
+        printSegments(index, segments, files);
+    }
+
+    /**
+     * Read the words if they were not given and build the index with the chosen engine
+     * @return index over all the words
+     */
+    private static TextIndex buildIndex() {
         Scanner keyboard = new Scanner(in);
 
-        if (treeWord.equals("") && words.isEmpty()) {
+        if (treeWord.equals("") && words.isEmpty() && inputs.isEmpty()) {
             out.print("Enter text: ");
             treeWord = keyboard.nextLine();
             treeWord = removeSpecialChars(treeWord);
@@ -91,27 +235,160 @@ public class Main {
             out.println();
         }
 
-        if (time) printComparingTable(words);
+        Timer timer = Timer.start();
+        SymbolText text = readText();
+        textLength = text.length();
+        phase("read", timer);
+        if (time) printComparingTable(text);
 
 
-        out.println("Creating tree.");
+        out.println(switch (engine) {
+            case TREE -> "Creating tree.";
+            case ARRAY -> "Creating suffix array.";
+            case FM -> "Creating FM-index.";
+        });
 
-        CompactSuffixTree compactTree = null;
+        TextIndex index = null;
+        timer.reset();
         try {
-            compactTree = new CompactSuffixTree(words.toArray(new String [0]), feature);
+            index = switch (engine) {
+                case TREE -> diskBuild ? buildOnDisk(text) : new CompactSuffixTree(text, feature, threads, kmer);
+                case ARRAY -> new SuffixArrayIndex(text);
+                case FM -> new FMIndex(text, sampleRate);
+            };
         } catch (OutOfMemoryError ex) {
-            System.out.println("Exceeded limit in garbage collector " + feature.toString() +", try shorter texts.");
+            System.out.println("Exceeded limit in garbage collector " + ((engine == Engine.TREE) ? feature : engine)
+                    + ((engine == Engine.TREE) ? ", try shorter texts or -cost disk." : ", try shorter texts."));
             exit(-1);
         }
+        phase("build", timer);
 
-        searchPatterns(compactTree);
+        if (saveFile != null && !(index instanceof FrozenSuffixTree)) {
+            if (index instanceof CompactSuffixTree tree) {
+                try {
+                    IndexFile.save(tree, files, Path.of(saveFile));
+                    out.println("Index saved to " + saveFile);
+                } catch (IOException ex) {
+                    err.println("Index could not be saved: " + ex.getMessage());
+                }
+            } else {
+                System.out.println("Only trees can be saved, try -engine tree.");
+            }
+            phase("save", timer);
+        }
+        return index;
+    }
 
-        if (words.size() > 1 && (getLongest || getMaximals)) {
-            System.out.println("Longest substring and maximals only available with one word tree.");
-        } else {
-            if (getLongest) out.println("Longest repeated substring: " + compactTree.getLongestSubstring() + "\n");
-            if (getMaximals) printMaximals(compactTree.getMaximals());
+    /**
+     * Build the tree straight to the file given with -save, or to a temporary one, and map it
+     * @param text with all the words
+     * @return tree queried in place over the file
+     */
+    private static FrozenSuffixTree buildOnDisk(SymbolText text) {
+        try {
+            Path path;
+            if (saveFile != null) {
+                path = Path.of(saveFile);
+            } else {
+                path = Files.createTempFile("suffix-tree-", ".idx");
+                path.toFile().deleteOnExit();
+            }
+            OutOfCoreBuilder.build(text, files, path, (long) memory << 20);
+            if (saveFile != null) out.println("Index saved to " + saveFile);
+            return IndexFile.load(path);
+        } catch (IOException | IllegalStateException ex) {
+            err.println("Index could not be built: " + ex.getMessage());
+            exit(-1);
+            return null;
+        }
+    }
+
+    /**
+     * Read the files given with -file, several at a time, followed by the words given otherwise. The
+     * disk construction streams them to a file of symbols instead, next to the index file.
+     * @return text with all the words, files first so word indexes match the list of files
+     */
+    private static SymbolText readText() {
+        if (engine == Engine.TREE && diskBuild) {
+            try {
+                Path directory = (saveFile != null) ? Path.of(saveFile).toAbsolutePath().getParent()
+                        : Path.of(System.getProperty("java.io.tmpdir"));
+                Path symbols = Files.createTempFile(directory, "suffix-tree-", ".symbols");
+                symbols.toFile().deleteOnExit();
+                return TextLoader.map(inputs, words, Normalizer.of(caseSensitive), symbols);
+            } catch (IOException ex) {
+                err.println("Files could not be read: " + ex.getMessage());
+                exit(-1);
+            }
+        }
+
+        List<CharBuffer> texts = List.of();
+        try {
+            texts = TextLoader.readAll(inputs, Normalizer.of(caseSensitive), threads);
+        } catch (IOException ex) {
+            err.println("Files could not be read: " + ex.getMessage());
+            exit(-1);
         }
+
+        long length = 0;
+        for (CharBuffer text : texts) length += text.remaining() + 1;
+        for (String word : words) length += word.length() + 1;
+
+        SymbolText.Builder builder = new SymbolText.Builder((int) Math.min(length, Integer.MAX_VALUE - 8));
+        for (CharBuffer text : texts) builder.addWord(text);
+        for (String word : words) builder.addWord(word);
+        return builder.build();
+    }
+
+    /**
+     * Map a tree saved with -save
+     * @param filename of the index file
+     * @return tree queried in place over the file
+     */
+    private static FrozenSuffixTree loadIndex(String filename) {
+        try {
+            Timer timer = Timer.start();
+            FrozenSuffixTree tree = IndexFile.load(Path.of(filename));
+            textLength = tree.textLength();
+            phase("load", timer);
+            out.println("Index loaded from " + filename);
+            return tree;
+        } catch (IOException ex) {
+            err.println("Index could not be loaded: " + ex.getMessage());
+            exit(-1);
+            return null;
+        }
+    }
+
+    /**
+     * Publish the metrics of the index through JMX and write them to the file given with -metrics at exit
+     */
+    private static void startMetrics() {
+        metrics = new IndexMetrics((loadFile != null) ? "frozen" : engine.name().toLowerCase());
+        try {
+            metrics.register();
+        } catch (JMException ex) {
+            err.println("Metrics could not be published: " + ex.getMessage());
+        }
+        metrics.dumpAtExit(Path.of(metricsFile));
+    }
+
+    /**
+     * Record the time taken by a phase of the run if metrics are on
+     * @param name of the phase
+     * @param timer started with the phase, started again for the next one
+     */
+    private static void phase(String name, Timer timer) {
+        if (metrics != null) metrics.phase(name, timer.time());
+        timer.reset();
+    }
+
+    /**
+     * @param index where patterns are looked in
+     * @return index recording the latencies of its queries if metrics are on, the same index if not
+     */
+    private static TextIndex metered(TextIndex index) {
+        return (metrics != null) ? new MeteredIndex(index, metrics) : index;
     }
 
     /**
@@ -126,13 +403,49 @@ public class Main {
                     switch (args[i]) {
                         case "n2" -> feature = AlgorithmFeatures.N2;
                         case "nlgn" -> feature = AlgorithmFeatures.NLGN;
-                        default -> System.out.println("Feature not available. Try: n2 or nlgn.");
+                        case "ukkonen" -> feature = AlgorithmFeatures.UKKONEN;
+                        case "parallel" -> feature = AlgorithmFeatures.PARALLEL;
+                        case "disk" -> diskBuild = true;
+                        default -> System.out.println("Feature not available. Try: n2, nlgn, ukkonen, parallel or disk.");
                     }
                 }
+                case "-memory" -> memory = parsePositive(args[++i], memory);
+                case "-threads" -> threads = parsePositive(args[++i], threads);
+                case "-kmer" -> kmer = parsePositive(args[++i], kmer);
+                case "-engine" -> {
+                    ++i;
+                    switch (args[i]) {
+                        case "tree" -> engine = Engine.TREE;
+                        case "array" -> engine = Engine.ARRAY;
+                        case "fm" -> engine = Engine.FM;
+                        default -> System.out.println("Engine not available. Try: tree, array or fm.");
+                    }
+                }
+                case "-sample" -> sampleRate = parsePositive(args[++i], sampleRate);
+                case "-save" -> saveFile = args[++i];
+                case "-load" -> loadFile = args[++i];
+                case "-batch" -> batchFile = args[++i];
+                case "-locate" -> locateLimit = parsePositive(args[++i], locateLimit);
+                case "-errors" -> errors = parsePositive(args[++i], errors);
+                case "-distance" -> {
+                    ++i;
+                    switch (args[i]) {
+                        case "hamming" -> distance = Distance.HAMMING;
+                        case "levenshtein" -> distance = Distance.LEVENSHTEIN;
+                        default -> System.out.println("Distance not available. Try: hamming or levenshtein.");
+                    }
+                }
+                case "-metrics" -> metricsFile = args[++i];
                 case "-case_sensitive" -> caseSensitive = true;
                 case "-time" -> time = true;
                 case "-longest" -> getLongest = true;
                 case "-maximals" -> getMaximals = true;
+                case "-supermaximals" -> getSupermaximals = true;
+                case "-min_length" -> minLength = parsePositive(args[++i], minLength);
+                case "-min_occurrences" -> minOccurrences = parsePositive(args[++i], minOccurrences);
+                case "-top" -> top = parsePositive(args[++i], top);
+                case "-min_documents" -> minDocuments = parsePositive(args[++i], minDocuments);
+                case "-compare" -> compareFile = args[++i];
                 case "-random" -> {
                     ++i;
                     try {
@@ -150,7 +463,10 @@ public class Main {
                         while (number > 0) {
                             ++i;
                             String filename = args[i];
-                            words.add(readFile(filename));
+                            if (Files.isRegularFile(Path.of(filename))) {
+                                files.add(filename);
+                                inputs.add(Path.of(filename));
+                            } else System.out.println("File does not exist");
                             --number;
                         }
 
@@ -168,30 +484,19 @@ public class Main {
     }
 
     /**
-     * Read alphanumeric words from file [filename]
-     * @param filename file where words are
-     * @return list with all words read
+     * @param arg option value
+     * @param current value kept if the option is not a positive integer
+     * @return value of the option
      */
-    private static String readFile(String filename){
-        StringBuilder sb = new StringBuilder();
-        File f = new File(filename);
-        if (f.exists()) {
-            files.add(filename);
-            Scanner s;
-            try {
-                s = new Scanner(f);
-
-                while (s.hasNext()) {
-                    String word = removeSpecialChars(s.next());
-                    sb.append(word);
-                }
-                s.close();
-            }
-            catch (Exception ex) {
-                err.println("Trace: " + Arrays.toString(ex.getStackTrace()) + ". Message: " + ex.getMessage());
-            }
-        } else System.out.println("File does not exist");
-        return sb.toString();
+    private static int parsePositive(String arg, int current) {
+        try {
+            int value = Integer.parseInt(arg);
+            if (value > 0) return value;
+            err.println("Value must be positive: " + arg);
+        } catch (NumberFormatException e) {
+            err.println(e.getMessage());
+        }
+        return current;
     }
 
     /**
@@ -200,38 +505,205 @@ public class Main {
      * @return word without special characters
      */
     private static String removeSpecialChars(String s) {
-        if (caseSensitive) {
-            return s.replaceAll("[^a-zA-Z0-9áéíóúÁÉÍÓÚ]+","");
+        return Normalizer.of(caseSensitive).normalize(s);
+    }
+
+    /**
+     * @param filename file with a pattern
+     * @return pattern read from the file, empty if it cannot be read
+     */
+    private static String readPattern(String filename) {
+        try {
+            return TextLoader.read(Path.of(filename), Normalizer.of(caseSensitive)).toString();
+        } catch (IOException ex) {
+            err.println("Pattern could not be read: " + ex.getMessage());
+            return "";
         }
-        else return s.replaceAll("[^a-zA-Z0-9áéíóúÁÉÍÓÚ]+","").toLowerCase();
     }
 
     /**
      * Search patterns until end condition satisfies
-     * @param tree compacted tree where patterns ae looked in
+     * @param tree index where patterns ae looked in
      */
-    private static void searchPatterns(CompactSuffixTree tree) {
+    private static void searchPatterns(TextIndex tree) {
         Scanner keyboard = new Scanner(in);
         out.print("Enter pattern (0 to exit): ");
         String pattern = keyboard.nextLine();
         File f = new File(pattern);
-        String patternSearch = (f.exists()) ? removeSpecialChars(readFile(pattern)) : removeSpecialChars(pattern);
-
-        while(!patternSearch.equals("0")){
-            Set<Integer> listOfTexts = tree.search(tree.root, patternSearch, 0);
-            if (listOfTexts.isEmpty()) System.out.println("Pattern not found in tree\n");
-            else {
-                StringBuilder sb = new StringBuilder("Pattern found in text/s\n");
-                if (!files.isEmpty()) {
-                    for (int index : listOfTexts) {
-                        sb.append(files.get(index)).append('\n');
-                    }
+        if (f.exists()) pattern = readPattern(pattern);
+
+        // Patterns with wildcards keep their metacharacters, literal ones are normalised
+        while (WildcardPattern.isWildcard(pattern) || !removeSpecialChars(pattern).equals("0")) {
+            if (WildcardPattern.isWildcard(pattern)) searchWildcard(tree, pattern);
+            else if (errors > 0) searchApproximate(tree, removeSpecialChars(pattern));
+            else searchExact(tree, removeSpecialChars(pattern));
+            out.print("Enter pattern (0 to exit): ");
+            pattern = keyboard.nextLine();
+        }
+    }
+
+    /**
+     * Search a pattern and print where it was found
+     * @param tree index where the pattern is looked in
+     * @param patternSearch to be looked for
+     */
+    private static void searchExact(TextIndex tree, String patternSearch) {
+        WordSet listOfTexts = tree.search(patternSearch);
+        if (listOfTexts.isEmpty()) System.out.println("Pattern not found in tree\n");
+        else {
+            StringBuilder sb = new StringBuilder("Pattern found " + tree.count(patternSearch) + " times in text/s\n");
+            if (!files.isEmpty()) {
+                for (int index : listOfTexts) {
+                    sb.append(files.get(index)).append('\n');
+                }
+            }
+            if (locateLimit > 0) {
+                sb.append("Occurrences (text:offset):");
+                tree.occurrences(patternSearch).limit(locateLimit).forEach(o -> sb.append(' ')
+                        .append(files.isEmpty() ? String.valueOf(o.word()) : files.get(o.word()))
+                        .append(':').append(o.offset()));
+                sb.append('\n');
+            }
+            out.println(sb);
+        }
+    }
+
+    /**
+     * Search a pattern with wildcards, classes or gaps and print where it was found
+     * @param index where the pattern is looked in
+     * @param pattern typed by the user
+     */
+    private static void searchWildcard(TextIndex index, String pattern) {
+        WildcardPattern query;
+        int[] positions;
+        try {
+            query = WildcardPattern.parse(pattern, Normalizer.of(caseSensitive));
+            positions = index.locateWildcard(query);
+        } catch (IllegalArgumentException ex) {
+            System.out.println(ex.getMessage() + "\n");
+            return;
+        } catch (UnsupportedOperationException ex) {
+            System.out.println("Wildcards only available with the tree engine, try -engine tree.\n");
+            return;
+        }
+        if (positions.length == 0) {
+            System.out.println("Pattern not found in tree\n");
+            return;
+        }
+
+        StringBuilder sb = new StringBuilder("Pattern found " + positions.length + " times in text/s\n");
+        if (!files.isEmpty()) appendFiles(sb, index, Arrays.stream(positions));
+        if (locateLimit > 0) {
+            sb.append("Occurrences (text:offset):");
+            for (int i = 0; i < Math.min(locateLimit, positions.length); i++) {
+                Occurrence o = index.occurrenceAt(positions[i]);
+                sb.append(' ').append(files.isEmpty() ? String.valueOf(o.word()) : files.get(o.word()))
+                        .append(':').append(o.offset());
+            }
+            sb.append('\n');
+        }
+        out.println(sb);
+    }
+
+    /**
+     * Search a pattern with up to -errors errors and print where it was found
+     * @param index where the pattern is looked in
+     * @param pattern to be looked for
+     */
+    private static void searchApproximate(TextIndex index, String pattern) {
+        List<ApproximateMatch> matches;
+        try {
+            matches = index.locateApproximate(pattern, errors, distance);
+        } catch (UnsupportedOperationException ex) {
+            System.out.println("Search with errors only available with the tree engine, try -engine tree.\n");
+            return;
+        }
+        if (matches.isEmpty()) {
+            System.out.println("Pattern not found in tree with up to " + errors + " errors\n");
+            return;
+        }
+
+        StringBuilder sb = new StringBuilder("Pattern found " + matches.size() + " times with up to " + errors
+                + " errors in text/s\n");
+        if (!files.isEmpty()) appendFiles(sb, index, matches.stream().mapToInt(ApproximateMatch::position));
+        if (locateLimit > 0) {
+            sb.append("Occurrences (text:offset:errors):");
+            for (ApproximateMatch match : matches.subList(0, Math.min(locateLimit, matches.size()))) {
+                Occurrence o = index.occurrenceAt(match.position());
+                sb.append(' ').append(files.isEmpty() ? String.valueOf(o.word()) : files.get(o.word()))
+                        .append(':').append(o.offset()).append(':').append(match.errors());
+            }
+            sb.append('\n');
+        }
+        out.println(sb);
+    }
+
+    /**
+     * Append the files of the words holding some positions, each once and in the order of the words
+     * @param sb where the names are appended
+     * @param index where the positions were found
+     * @param positions in the text
+     */
+    private static void appendFiles(StringBuilder sb, TextIndex index, IntStream positions) {
+        BitSet words = new BitSet();
+        positions.forEach(position -> words.set(index.occurrenceAt(position).word()));
+        words.stream().forEach(word -> sb.append(files.get(word)).append('\n'));
+    }
+
+    /**
+     * Search all the patterns of a file at once, spread over several threads
+     * @param index where patterns are looked in
+     * @param filename file with a pattern per line
+     */
+    private static void searchBatch(TextIndex index, String filename) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(Path.of(filename), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            err.println("Patterns could not be read: " + ex.getMessage());
+            return;
+        }
+
+        // Literal patterns are searched together so they share prefixes, the ones with wildcards apart
+        ArrayList<String> patterns = new ArrayList<>();
+        ArrayList<WildcardPattern> wildcards = new ArrayList<>();
+        ArrayList<Boolean> isWildcard = new ArrayList<>();
+        for (String line : lines) {
+            if (WildcardPattern.isWildcard(line)) {
+                try {
+                    wildcards.add(WildcardPattern.parse(line, Normalizer.of(caseSensitive)));
+                    isWildcard.add(true);
+                } catch (IllegalArgumentException ex) {
+                    err.println(ex.getMessage());
+                }
+            } else if (!removeSpecialChars(line).isEmpty()) {
+                patterns.add(removeSpecialChars(line));
+                isWildcard.add(false);
+            }
+        }
+
+        // Trees are copied to a read only view that threads can share
+        TextIndex shared = (index instanceof CompactSuffixTree tree) ? tree.freeze(files) : index;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            BatchSearch batch = new BatchSearch(metered(shared), executor);
+            List<WordSet> results = batch.search(patterns);
+            List<WordSet> wildcardResults = batch.searchWildcard(wildcards);
+            int literal = 0, wildcard = 0;
+            for (boolean next : isWildcard) {
+                StringBuilder sb = new StringBuilder(next ? wildcards.get(wildcard).toString() : patterns.get(literal))
+                        .append(':');
+                for (int word : next ? wildcardResults.get(wildcard++) : results.get(literal++)) {
+                    sb.append(' ').append(files.isEmpty() ? String.valueOf(word) : files.get(word));
                 }
                 out.println(sb);
             }
-            out.print("Enter pattern (0 to exit): ");
-            pattern = keyboard.nextLine();
-            patternSearch = removeSpecialChars(pattern);
+        } catch (UnsupportedOperationException ex) {
+            System.out.println("Wildcards only available with the tree engine, try -engine tree.");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdown();
         }
     }
 }
@@ -0,0 +1,15 @@
+package com.suffix_tree.index;
+
+/**
+ *  Substring of the words within the error budget of an approximate search, with the fewest errors
+ *  found for its starting position.
+ *
+ *  @param position where the substring starts in the text
+ *  @param length number of characters of the substring
+ *  @param errors distance between the substring and the pattern
+ *
+ *  @version 1.0
+ *
+ */
+public record ApproximateMatch(int position, int length, int errors) {
+}
@@ -0,0 +1,134 @@
+package com.suffix_tree.index;
+
+import com.suffix_tree.utils.PatternSort;
+import com.suffix_tree.words.WordSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ *  Search of many patterns at once, split in tasks run by an executor over one shared index.
+ *
+ *  The index must be safe to be queried from many threads: the suffix array, the FM-index and the
+ *  frozen view of a tree are. Any executor can be used, a fixed pool sized to the processors or,
+ *  from Java 21 on, one running a virtual thread per task.
+ *
+ *  @version 1.0
+ *
+ */
+public class BatchSearch {
+
+    // Patterns searched by every task, so short queries do not pay a task each
+    private static final int PATTERNS_PER_TASK = 64;
+
+    private final TextIndex index;
+
+    private final ExecutorService executor;
+
+    /**
+     * Constructor for the batch search
+     * @param index shared by all the tasks
+     * @param executor running the tasks, it is not shut down here
+     */
+    public BatchSearch(TextIndex index, ExecutorService executor) {
+        this.index = index;
+        this.executor = executor;
+    }
+
+    /**
+     * @param patterns to be looked for
+     * @return set of the words of every pattern, in the order of the patterns
+     * @throws InterruptedException if interrupted while waiting for the tasks
+     */
+    public List<WordSet> search(List<String> patterns) throws InterruptedException {
+        // Every task gets a run of sorted patterns, so the index can share their prefixes
+        int[] order = PatternSort.order(patterns);
+
+        WordSet[] results = new WordSet[order.length];
+        ArrayList<Callable<Void>> tasks = new ArrayList<>();
+        for (int from = 0; from < order.length; from += PATTERNS_PER_TASK) {
+            int first = from, last = Math.min(from + PATTERNS_PER_TASK, order.length);
+            tasks.add(() -> {
+                ArrayList<String> run = new ArrayList<>(last - first);
+                for (int i = first; i < last; i++) {
+                    run.add(patterns.get(order[i]));
+                }
+                List<WordSet> found = index.searchAll(run);
+                for (int i = first; i < last; i++) {
+                    results[order[i]] = found.get(i - first);
+                }
+                return null;
+            });
+        }
+        await(tasks);
+        return Arrays.asList(results);
+    }
+
+    /**
+     * @param patterns to be looked for
+     * @return number of times every pattern appears, in the order of the patterns
+     * @throws InterruptedException if interrupted while waiting for the tasks
+     */
+    public List<Integer> count(List<String> patterns) throws InterruptedException {
+        return apply(patterns, index::count);
+    }
+
+    /**
+     * @param patterns with wildcards, classes and gaps
+     * @return set of the words of every pattern, in the order of the patterns
+     * @throws InterruptedException if interrupted while waiting for the tasks
+     */
+    public List<WordSet> searchWildcard(List<WildcardPattern> patterns) throws InterruptedException {
+        return apply(patterns, index::searchWildcard);
+    }
+
+    /**
+     * Run a query for every pattern
+     * @param patterns to be looked for
+     * @param query run for every pattern, safe to be called from many threads
+     * @return result of every pattern, in the order of the patterns
+     * @throws InterruptedException if interrupted while waiting for the tasks
+     */
+    public <P, R> List<R> apply(List<P> patterns, Function<P, R> query) throws InterruptedException {
+        Object[] results = new Object[patterns.size()];
+        ArrayList<Callable<Void>> tasks = new ArrayList<>();
+        for (int from = 0; from < patterns.size(); from += PATTERNS_PER_TASK) {
+            int first = from, last = Math.min(from + PATTERNS_PER_TASK, patterns.size());
+            tasks.add(() -> {
+                for (int i = first; i < last; i++) {
+                    results[i] = query.apply(patterns.get(i));
+                }
+                return null;
+            });
+        }
+
+        await(tasks);
+
+        @SuppressWarnings("unchecked")
+        List<R> list = (List<R>) Arrays.asList(results);
+        return list;
+    }
+
+    /**
+     * Run some tasks and wait for all of them, rethrowing the first failure
+     * @param tasks to be run
+     * @throws InterruptedException if interrupted while waiting for the tasks
+     */
+    private void await(List<Callable<Void>> tasks) throws InterruptedException {
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof RuntimeException cause) throw cause;
+                if (ex.getCause() instanceof Error cause) throw cause;
+                throw new IllegalStateException(ex.getCause());
+            }
+        }
+    }
+}
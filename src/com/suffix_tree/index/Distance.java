@@ -0,0 +1,14 @@
+package com.suffix_tree.index;
+
+/**
+ *  Ways of counting the errors between a pattern and a substring of the words in approximate search.
+ *
+ *  @version 1.0
+ *
+ */
+public enum Distance {
+    // Characters replaced, the substring is as long as the pattern
+    HAMMING,
+    // Characters replaced, inserted or deleted
+    LEVENSHTEIN
+}
@@ -0,0 +1,261 @@
+package com.suffix_tree.index;
+
+import com.suffix_tree.text.SymbolText;
+import com.suffix_tree.words.WordSet;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.stream.IntStream;
+
+/**
+ *  Compressed index over a set of words made of the Burrows-Wheeler transform of their text and a
+ *  sample of its suffix array (FM-index, by Ferragina and Manzini).
+ *
+ *  The transform is kept in a wavelet matrix, taking as many bits per symbol as the alphabet needs
+ *  plus the rank counts, so the text itself is not stored. Patterns are counted by backward search.
+ *  Their positions are found walking back in the text from every match until a sampled position is
+ *  reached: one of every sampleRate positions is sampled, as well as the first one of every word, so
+ *  the walk never has to step over a terminator.
+ *
+ *  @version 1.0
+ *
+ */
+public class FMIndex implements TextIndex {
+
+    // Sample rate used when none is given
+    public static final int DEFAULT_SAMPLE_RATE = 32;
+
+    // Symbol standing for the sentinel and every terminator in the transform
+    private static final int END = 0;
+
+    // Symbol preceding every suffix of the text, characters are 1 + their code
+    private final WaveletMatrix bwt;
+
+    // Number of suffixes starting with a symbol smaller than every symbol
+    private final int[] smaller;
+
+    // Symbol of every character in the text, END for the characters not present
+    private final int[] symbols;
+
+    // Suffixes whose position is sampled and their positions, in suffix order
+    private final RankBitVector sampled;
+    private final int[] samples;
+
+    // Position of the terminator of every word
+    private final int[] terminators;
+
+    // Longest repeated substring, found while the longest common prefixes are available
+    private final String longest;
+
+    private final int sampleRate;
+
+    /**
+     * Constructor with the default sample rate
+     * @param words from which index is built
+     */
+    public FMIndex(String[] words) {
+        this(words, DEFAULT_SAMPLE_RATE);
+    }
+
+    /**
+     * Constructor for the FM-index
+     * @param words from which index is built
+     * @param sampleRate distance between sampled positions, larger rates take less memory and
+     *                   locate slower
+     */
+    public FMIndex(String[] words, int sampleRate) {
+        this(new SymbolText(words), sampleRate);
+    }
+
+    /**
+     * Constructor for the FM-index over a text already laid out
+     * @param text with all the words, not kept by the index
+     * @param sampleRate distance between sampled positions, larger rates take less memory and
+     *                   locate slower
+     */
+    public FMIndex(SymbolText text, int sampleRate) {
+        if (sampleRate < 1) throw new IllegalArgumentException("Sample rate must be positive: " + sampleRate);
+        this.sampleRate = sampleRate;
+
+        int n = text.length();
+        int[] ranks = SuffixArrays.ranks(text);
+        int[] sa = SuffixArrays.build(ranks, SuffixArrays.alphabetSize(text));
+        longest = longestRepeat(text, ranks, sa);
+
+        int maxChar = text.maxCharacter();
+        symbols = new int[maxChar + 1];
+        for (int c = 0; c <= maxChar; c++) {
+            symbols[c] = text.code(c) + 1;
+        }
+
+        terminators = new int[text.words()];
+        for (int w = 0; w < terminators.length; w++) {
+            terminators[w] = text.terminatorOf(w);
+        }
+
+        // Transform and samples, suffixes starting a word are preceded by END
+        int[] transform = new int[n + 1];
+        long[] marks = RankBitVector.words(n + 1);
+        int sampleCount = 0;
+        for (int i = 0; i <= n; i++) {
+            int position = sa[i];
+            int previous = (position == 0) ? -1 : text.codeAt(position - 1);
+            transform[i] = (previous < 0) ? END : 1 + previous;
+            if (transform[i] == END || position % sampleRate == 0) {
+                RankBitVector.set(marks, i);
+                sampleCount++;
+            }
+        }
+        sampled = new RankBitVector(marks, n + 1);
+        samples = new int[sampleCount];
+        for (int i = 0, j = 0; i <= n; i++) {
+            if (sampled.get(i)) samples[j++] = sa[i];
+        }
+
+        int alphabet = text.alphabetSize() + 1;
+        smaller = new int[alphabet + 1];
+        for (int symbol : transform) {
+            smaller[symbol + 1]++;
+        }
+        for (int c = 1; c <= alphabet; c++) {
+            smaller[c] += smaller[c - 1];
+        }
+
+        bwt = new WaveletMatrix(transform, 32 - Integer.numberOfLeadingZeros(alphabet - 1));
+    }
+
+    /**
+     * @param text with all the words
+     * @param ranks of the symbols of the text
+     * @param sa suffix array of the ranks
+     * @return longest prefix shared by two suffixes
+     */
+    private static String longestRepeat(SymbolText text, int[] ranks, int[] sa) {
+        int[] lcp = SuffixArrays.lcp(ranks, sa);
+        int best = 0, index = -1;
+        for (int i = 1; i < lcp.length; i++) {
+            if (lcp[i] > best) {
+                best = lcp[i];
+                index = i;
+            }
+        }
+        return (index < 0) ? "" : text.substring(sa[index], sa[index] + best);
+    }
+
+    /**
+     * Backward search of a pattern
+     * @param pattern to be looked for
+     * @return first and last (exclusive) suffixes starting with the pattern, null if there are none
+     */
+    private int[] range(String pattern) {
+        if (pattern.isEmpty()) return null;
+
+        int first = 0, last = sampled.length();
+        for (int k = pattern.length() - 1; k >= 0 && first < last; k--) {
+            char c = pattern.charAt(k);
+            int symbol = (c < symbols.length) ? symbols[c] : END;
+            if (symbol == END) return null;
+            first = smaller[symbol] + bwt.rank(symbol, first);
+            last = smaller[symbol] + bwt.rank(symbol, last);
+        }
+        return (first < last) ? new int[]{first, last} : null;
+    }
+
+    /**
+     * Walk back in the text until a sampled suffix is found
+     * @param suffix index in suffix order
+     * @return position where the suffix starts
+     */
+    private int position(int suffix) {
+        int steps = 0;
+        while (!sampled.get(suffix)) {
+            int symbol = bwt.access(suffix);
+            suffix = smaller[symbol] + bwt.rank(symbol, suffix);
+            steps++;
+        }
+        return samples[sampled.rank1(suffix)] + steps;
+    }
+
+    @Override
+    public WordSet search(String pattern) {
+        int[] range = range(pattern);
+        if (range == null) return WordSet.empty();
+        if (terminators.length == 1) return WordSet.of(0);
+
+        int[] words = new int[range[1] - range[0]];
+        for (int i = range[0]; i < range[1]; i++) {
+            int word = Arrays.binarySearch(terminators, position(i));
+            words[i - range[0]] = -word - 1;
+        }
+        return WordSet.of(words);
+    }
+
+    @Override
+    public int count(String pattern) {
+        int[] range = range(pattern);
+        return (range == null) ? 0 : range[1] - range[0];
+    }
+
+    @Override
+    public int[] locate(String pattern) {
+        int[] range = range(pattern);
+        if (range == null) return new int[0];
+
+        int[] positions = new int[range[1] - range[0]];
+        for (int i = range[0]; i < range[1]; i++) {
+            positions[i - range[0]] = position(i);
+        }
+        Arrays.sort(positions);
+        return positions;
+    }
+
+    /**
+     * Every position is found walking back in the text to a sampled one, only when it is consumed
+     * @param pattern to be looked for
+     * @return positions of the pattern in the order of their suffixes
+     */
+    @Override
+    public PrimitiveIterator.OfInt positions(String pattern) {
+        int[] range = range(pattern);
+        if (range == null) return IntStream.empty().iterator();
+        return IntStream.range(range[0], range[1]).map(this::position).iterator();
+    }
+
+    @Override
+    public Occurrence occurrenceAt(int position) {
+        int word = -Arrays.binarySearch(terminators, position) - 1;
+        if (word < 0) word = -word - 1; // A terminator belongs to the word it ends
+        return new Occurrence(word, (word == 0) ? position : position - terminators[word - 1] - 1);
+    }
+
+    @Override
+    public String getLongestSubstring() {
+        return longest;
+    }
+
+    /**
+     * Maximal repetitions need the longest common prefixes, which this index does not keep
+     * @throws UnsupportedOperationException always
+     */
+    @Override
+    public List<String> getMaximals() {
+        throw new UnsupportedOperationException("Maximals are not available in the FM-index");
+    }
+
+    /**
+     * @return distance between sampled positions
+     */
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * @return bytes taken by the transform, the samples and the tables
+     */
+    @Override
+    public long bytes() {
+        return bwt.bytes() + sampled.bytes() + 4L * (samples.length + smaller.length + symbols.length
+                + terminators.length);
+    }
+}
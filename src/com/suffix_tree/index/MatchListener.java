@@ -0,0 +1,20 @@
+package com.suffix_tree.index;
+
+/**
+ *  Receiver of the matching statistics of a query text, told about every position of the query in
+ *  order as soon as its longest match is known.
+ *
+ *  @version 1.0
+ *
+ */
+@FunctionalInterface
+public interface MatchListener {
+
+    /**
+     * @param position in the query, counting only the characters kept
+     * @param length characters of the longest prefix of the query from the position found in the
+     *          words, 0 if its first character is not in any of them
+     * @param document word holding that prefix, -1 if the length is 0
+     */
+    void match(long position, int length, int document);
+}
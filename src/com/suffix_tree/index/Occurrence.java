@@ -0,0 +1,13 @@
+package com.suffix_tree.index;
+
+/**
+ *  Place where a pattern appears: the word and the offset of its first character inside the word.
+ *
+ *  @param word index of the word
+ *  @param offset position inside the word
+ *
+ *  @version 1.0
+ *
+ */
+public record Occurrence(int word, int offset) {
+}
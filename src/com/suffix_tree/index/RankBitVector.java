@@ -0,0 +1,101 @@
+package com.suffix_tree.index;
+
+/**
+ *  Fixed sequence of bits answering in constant time how many ones come before a position.
+ *
+ *  The count of ones before every block of 512 bits is stored apart, so a query adds that count to
+ *  the ones of at most eight words of the block. The counts take one sixteenth of the bits.
+ *
+ *  @version 1.0
+ *
+ */
+final class RankBitVector {
+
+    // Words of 64 bits in every block with a stored count
+    private static final int WORDS_PER_BLOCK = 8;
+
+    // Bits, the first one is the lowest bit of the first word
+    private final long[] bits;
+
+    // Ones before every block
+    private final int[] blockRanks;
+
+    private final int length;
+
+    /**
+     * Constructor for the rank structure over some bits, which must not change afterwards
+     * @param bits words of 64 bits
+     * @param length number of bits used
+     */
+    RankBitVector(long[] bits, int length) {
+        this.bits = bits;
+        this.length = length;
+        blockRanks = new int[bits.length / WORDS_PER_BLOCK + 1];
+        int ones = 0;
+        for (int i = 0; i < bits.length; i++) {
+            if (i % WORDS_PER_BLOCK == 0) blockRanks[i / WORDS_PER_BLOCK] = ones;
+            ones += Long.bitCount(bits[i]);
+        }
+        if (bits.length % WORDS_PER_BLOCK == 0) blockRanks[bits.length / WORDS_PER_BLOCK] = ones;
+    }
+
+    /**
+     * @param length number of bits
+     * @return words to hold that many bits
+     */
+    static long[] words(int length) {
+        return new long[(length + 63) >>> 6];
+    }
+
+    /**
+     * @param bits words of 64 bits
+     * @param i position of the bit to be set
+     */
+    static void set(long[] bits, int i) {
+        bits[i >>> 6] |= 1L << i;
+    }
+
+    /**
+     * @return number of bits
+     */
+    int length() {
+        return length;
+    }
+
+    /**
+     * @param i position
+     * @return true if the bit at i is one
+     */
+    boolean get(int i) {
+        return (bits[i >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * @param i position, up to length() included
+     * @return number of ones before i
+     */
+    int rank1(int i) {
+        int word = i >>> 6;
+        int ones = blockRanks[word / WORDS_PER_BLOCK];
+        for (int w = word & -WORDS_PER_BLOCK; w < word; w++) {
+            ones += Long.bitCount(bits[w]);
+        }
+        if ((i & 63) != 0) ones += Long.bitCount(bits[word] & ((1L << i) - 1));
+        return ones;
+    }
+
+    /**
+     * @param i position, up to length() included
+     * @return number of zeros before i
+     */
+    int rank0(int i) {
+        return i - rank1(i);
+    }
+
+    /**
+     * @return bytes taken by the bits and the counts
+     */
+    long bytes() {
+        return 8L * bits.length + 4L * blockRanks.length;
+    }
+}
@@ -0,0 +1,15 @@
+package com.suffix_tree.index;
+
+/**
+ *  Substring repeated in the words, given by one of its occurrences instead of a copy of its
+ *  characters, see TextIndex.textOf.
+ *
+ *  @param position where one of its occurrences starts in the text
+ *  @param length number of characters
+ *  @param occurrences number of times it appears in all the words
+ *
+ *  @version 1.0
+ *
+ */
+public record Repeat(int position, int length, int occurrences) {
+}
@@ -0,0 +1,15 @@
+package com.suffix_tree.index;
+
+/**
+ *  Longest segment of a query text matched in a document by the matching statistics of the query.
+ *
+ *  @param document word the segment was matched in
+ *  @param queryPosition where the segment starts in the query, counting only the characters kept
+ *  @param textPosition where the segment appears inside the document, as an offset in the text
+ *  @param length number of characters of the segment
+ *
+ *  @version 1.0
+ *
+ */
+public record SharedSegment(int document, long queryPosition, int textPosition, int length) {
+}
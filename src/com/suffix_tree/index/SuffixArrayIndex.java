@@ -0,0 +1,361 @@
+package com.suffix_tree.index;
+
+import com.suffix_tree.text.SymbolText;
+import com.suffix_tree.utils.IntStack;
+import com.suffix_tree.words.WordSet;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ *  Index over a set of words made of a suffix array and its longest common prefix array.
+ *
+ *  It answers the same queries as the compacted suffix tree with a fraction of its memory: four
+ *  bytes per symbol for the suffix array and one for the longest common prefixes, whose few values
+ *  over 254 are kept apart. Both arrays are built in linear time.
+ *
+ *  @version 1.0
+ *
+ */
+public class SuffixArrayIndex implements TextIndex {
+
+    // Integers in a frame of an open interval while walking the intervals
+    private static final int FRAME = 5;
+
+    // Largest longest common prefix stored directly in the byte array
+    private static final int MAX_INLINE_LCP = 254;
+
+    // Shared text with all the words
+    private final SymbolText text;
+
+    // Starting positions of all the suffixes in lexicographic order
+    private final int[] sa;
+
+    // Longest common prefix of every suffix with the previous one, MAX_INLINE_LCP + 1 if it is larger
+    private final byte[] lcp;
+
+    // Indexes in the suffix array with larger longest common prefixes, sorted, and their values
+    private final int[] overflowIndexes;
+    private final int[] overflowValues;
+
+    /**
+     * Constructor for the suffix array index
+     * @param words from which index is built
+     */
+    public SuffixArrayIndex(String[] words) {
+        this(new SymbolText(words));
+    }
+
+    /**
+     * Constructor for the suffix array index over a text already laid out
+     * @param text with all the words, shared with the index
+     */
+    public SuffixArrayIndex(SymbolText text) {
+        this.text = text;
+        int n = text.length();
+
+        // Terminators sort before characters and in the order of their words
+        int[] ranks = SuffixArrays.ranks(text);
+        int[] withSentinel = SuffixArrays.build(ranks, SuffixArrays.alphabetSize(text));
+        int[] fullLcp = SuffixArrays.lcp(ranks, withSentinel);
+
+        sa = Arrays.copyOfRange(withSentinel, 1, n + 1);
+        lcp = new byte[n];
+        int overflow = 0;
+        for (int i = 0; i < n; i++) {
+            if (fullLcp[i + 1] > MAX_INLINE_LCP) overflow++;
+        }
+        overflowIndexes = new int[overflow];
+        overflowValues = new int[overflow];
+        for (int i = 0, j = 0; i < n; i++) {
+            int value = fullLcp[i + 1];
+            if (value > MAX_INLINE_LCP) {
+                overflowIndexes[j] = i;
+                overflowValues[j++] = value;
+                value = MAX_INLINE_LCP + 1;
+            }
+            lcp[i] = (byte) value;
+        }
+    }
+
+    /**
+     * @param i index in the suffix array
+     * @return longest common prefix of the suffix at i with the previous one
+     */
+    private int lcp(int i) {
+        int value = lcp[i] & 0xFF;
+        return (value <= MAX_INLINE_LCP) ? value : overflowValues[Arrays.binarySearch(overflowIndexes, i)];
+    }
+
+    /**
+     * Compare a suffix with a pattern, looking only at as many symbols as the pattern has
+     * @param position where the suffix starts
+     * @param pattern ranks of the characters of the pattern
+     * @return negative, zero or positive if the suffix is smaller, starts with or is greater than the pattern
+     */
+    private int compare(int position, int[] pattern) {
+        for (int k = 0; k < pattern.length; k++) {
+            if (position + k >= text.length()) return -1;
+            int difference = SuffixArrays.rank(text, text.symbolAt(position + k)) - pattern[k];
+            if (difference != 0) return difference;
+        }
+        return 0;
+    }
+
+    /**
+     * @param pattern to be looked for
+     * @return first and last (exclusive) indexes in the suffix array of the suffixes starting with the
+     *          pattern, null if it has characters that are not in the text
+     */
+    int[] range(String pattern) {
+        int[] ranks = new int[pattern.length()];
+        for (int k = 0; k < ranks.length; k++) {
+            int code = text.code(pattern.charAt(k));
+            if (code < 0) return null;
+            ranks[k] = 1 + text.words() + code;
+        }
+
+        int low = 0, high = sa.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(sa[mid], ranks) < 0) low = mid + 1;
+            else high = mid;
+        }
+        int first = low;
+        high = sa.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(sa[mid], ranks) <= 0) low = mid + 1;
+            else high = mid;
+        }
+        return new int[]{first, low};
+    }
+
+    @Override
+    public WordSet search(String pattern) {
+        int[] range = range(pattern);
+        if (pattern.isEmpty() || range == null || range[0] == range[1]) return WordSet.empty();
+
+        int[] words = new int[range[1] - range[0]];
+        for (int i = range[0]; i < range[1]; i++) {
+            words[i - range[0]] = text.wordOf(sa[i]);
+        }
+        return WordSet.of(words);
+    }
+
+    @Override
+    public int count(String pattern) {
+        int[] range = range(pattern);
+        return (pattern.isEmpty() || range == null) ? 0 : range[1] - range[0];
+    }
+
+    @Override
+    public int[] locate(String pattern) {
+        int[] range = range(pattern);
+        if (pattern.isEmpty() || range == null) return new int[0];
+
+        int[] positions = Arrays.copyOfRange(sa, range[0], range[1]);
+        Arrays.sort(positions);
+        return positions;
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt positions(String pattern) {
+        int[] range = range(pattern);
+        if (pattern.isEmpty() || range == null) return IntStream.empty().iterator();
+        return Arrays.stream(sa, range[0], range[1]).iterator();
+    }
+
+    @Override
+    public Occurrence occurrenceAt(int position) {
+        int word = text.wordOf(position);
+        return new Occurrence(word, position - text.wordStart(word));
+    }
+
+    @Override
+    public String getLongestSubstring() {
+        int best = 0, index = -1;
+        for (int i = 1; i < sa.length; i++) {
+            int value = lcp(i);
+            if (value > best) {
+                best = value;
+                index = i;
+            }
+        }
+        return (index < 0) ? "" : text.substring(sa[index], sa[index] + best);
+    }
+
+    /**
+     * Maximal repetitions are the intervals of the suffix array sharing a common prefix (the internal
+     * nodes of the suffix tree) whose suffixes are not all preceded by the same symbol.
+     * @return list with all the maximals
+     */
+    @Override
+    public ArrayList<String> getMaximals() {
+        return maximalRepeats(1, 2).map(this::textOf).collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    @Override
+    public Stream<Repeat> maximalRepeats(int minLength, int minOccurrences) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                new Intervals(false, minLength, minOccurrences), Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public Stream<Repeat> supermaximalRepeats(int minLength, int minOccurrences) {
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(
+                new Intervals(true, minLength, minOccurrences), Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public String textOf(Repeat repeat) {
+        return text.substring(repeat.position(), repeat.position() + repeat.length());
+    }
+
+    /**
+     * @return bytes taken by the text and both arrays
+     */
+    @Override
+    public long bytes() {
+        return text.bytes() + 4L * sa.length + lcp.length + 4L * (overflowIndexes.length + overflowValues.length);
+    }
+
+    /**
+     *  Walk over the intervals of the suffix array sharing a common prefix, bottom up, with a stack of
+     *  the open ones. Intervals are closed as the longest common prefixes drop, a few at every step.
+     */
+    private class Intervals implements Iterator<Repeat> {
+
+        // Frames of open intervals: common prefix, first index, shared left symbol, whether the left
+        // symbols differ (-1 while the interval has no suffixes yet) and whether it has child intervals
+        private final IntStack stack = new IntStack();
+
+        // Repeats found in the last step and not returned yet
+        private final ArrayDeque<Repeat> found = new ArrayDeque<>();
+
+        private final boolean supermaximal;
+        private final int minLength;
+        private final int minOccurrences;
+
+        // Next index of the suffix array to be walked
+        private int i = 1;
+
+        /**
+         * Constructor for the walk
+         * @param supermaximal true to return only supermaximal repeats
+         * @param minLength fewest characters of the repeats returned
+         * @param minOccurrences fewest occurrences of the repeats returned
+         */
+        Intervals(boolean supermaximal, int minLength, int minOccurrences) {
+            this.supermaximal = supermaximal;
+            this.minLength = minLength;
+            this.minOccurrences = minOccurrences;
+            pushInterval(stack, 0, 0, 0, -1, 0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (found.isEmpty() && i <= sa.length) {
+                step();
+                i++;
+            }
+            return !found.isEmpty();
+        }
+
+        @Override
+        public Repeat next() {
+            if (!hasNext()) throw new NoSuchElementException();
+            return found.poll();
+        }
+
+        /**
+         * Add the suffix before i to the open intervals and close the ones the next prefix leaves
+         */
+        private void step() {
+            int leftSymbol = text.leftSymbol(sa[i - 1]);
+            int current = (i < sa.length) ? lcp(i) : 0;
+            int top = stack.size() - FRAME;
+
+            if (current > stack.get(top)) {
+                pushInterval(stack, current, i - 1, leftSymbol, 0, 0);
+                return;
+            }
+
+            mergeLeft(stack, top, leftSymbol, 0);
+            while (current < stack.get(stack.size() - FRAME)) {
+                int frame = stack.size() - FRAME;
+                int prefix = stack.get(frame), first = stack.get(frame + 1);
+                int symbol = stack.get(frame + 2), diverse = stack.get(frame + 3);
+                boolean leafOnly = stack.get(frame + 4) == 0;
+                stack.truncate(frame);
+
+                if (diverse == 1 && prefix >= minLength && i - first >= minOccurrences
+                        && (!supermaximal || leafOnly && distinctLeft(first, i))) {
+                    found.add(new Repeat(sa[first], prefix, i - first));
+                }
+
+                if (current <= stack.get(stack.size() - FRAME)) {
+                    mergeLeft(stack, stack.size() - FRAME, symbol, diverse);
+                    stack.set(stack.size() - FRAME + 4, 1);
+                } else {
+                    pushInterval(stack, current, first, symbol, diverse, 1);
+                }
+            }
+        }
+
+        /**
+         * @param from first index of the interval
+         * @param to last index of the interval, exclusive
+         * @return true if no two suffixes of the interval are preceded by the same symbol
+         */
+        private boolean distinctLeft(int from, int to) {
+            int[] symbols = new int[to - from];
+            for (int k = from; k < to; k++) {
+                symbols[k - from] = text.leftSymbol(sa[k]);
+            }
+            Arrays.sort(symbols);
+            for (int k = 1; k < symbols.length; k++) {
+                if (symbols[k] == symbols[k - 1]) return false;
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Open an interval of the suffix array
+     */
+    private static void pushInterval(IntStack stack, int prefix, int first, int leftSymbol, int diverse,
+                                     int children) {
+        stack.push(prefix);
+        stack.push(first);
+        stack.push(leftSymbol);
+        stack.push(diverse);
+        stack.push(children);
+    }
+
+    /**
+     * Join the left symbols of some suffixes to the ones of an open interval
+     * @param stack of open intervals
+     * @param frame where the interval starts in the stack
+     * @param leftSymbol shared by the suffixes being joined
+     * @param diverse 1 if the suffixes being joined do not share their left symbol
+     */
+    private static void mergeLeft(IntStack stack, int frame, int leftSymbol, int diverse) {
+        if (stack.get(frame + 3) == -1) {
+            stack.set(frame + 2, leftSymbol);
+            stack.set(frame + 3, diverse);
+        } else if (diverse == 1 || stack.get(frame + 2) != leftSymbol) {
+            stack.set(frame + 3, 1);
+        }
+    }
+}
@@ -0,0 +1,271 @@
+package com.suffix_tree.index;
+
+import com.suffix_tree.text.SymbolText;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ *  Linear time construction of suffix arrays (SA-IS, by Nong, Zhang and Chan) and of their longest
+ *  common prefix arrays (Kasai et al.), the latter also in ranges on several threads.
+ *
+ *  @version 1.0
+ *
+ */
+public final class SuffixArrays {
+
+    // Ranges of the text every thread computes prefixes for, and fewest positions in a range
+    private static final int RANGES_PER_THREAD = 4;
+    private static final int MIN_RANGE = 1 << 16;
+
+    private SuffixArrays() {
+    }
+
+    /**
+     * Ranks of the symbols of a text: the sentinel is 0, terminators come next in the order of their
+     * words and characters last in the order of their codes
+     * @param text with all the words
+     * @return rank of every symbol followed by the sentinel
+     */
+    public static int[] ranks(SymbolText text) {
+        int n = text.length();
+        int[] ranks = new int[n + 1];
+        int word = 0;
+        for (int i = 0; i < n; i++) {
+            int code = text.codeAt(i);
+            ranks[i] = (code >= 0) ? 1 + text.words() + code : 1 + word++;
+        }
+        return ranks;
+    }
+
+    /**
+     * @param text with all the words
+     * @param symbol of the text
+     * @return rank of the symbol
+     */
+    static int rank(SymbolText text, int symbol) {
+        return SymbolText.isTerminator(symbol) ? -symbol : 1 + text.words() + text.code(symbol);
+    }
+
+    /**
+     * @param text with all the words
+     * @return number of different ranks, sentinel included
+     */
+    public static int alphabetSize(SymbolText text) {
+        return 1 + text.words() + text.alphabetSize();
+    }
+
+    /**
+     * Suffix array of a text over an integer alphabet
+     * @param text symbols between 1 and alphabetSize - 1, followed by a single 0 acting as sentinel
+     * @param alphabetSize number of different symbols, sentinel included
+     * @return starting position of every suffix in lexicographic order, sentinel suffix first
+     */
+    public static int[] build(int[] text, int alphabetSize) {
+        int[] sa = new int[text.length];
+        sais(text, sa, text.length, alphabetSize);
+        return sa;
+    }
+
+    /**
+     * Longest common prefix of every suffix with the previous one in the suffix array
+     * @param text the suffix array was built for
+     * @param sa suffix array
+     * @return lcp[i] is the longest common prefix of sa[i - 1] and sa[i], lcp[0] is 0
+     */
+    public static int[] lcp(int[] text, int[] sa) {
+        int n = sa.length;
+        int[] rank = new int[n];
+        for (int i = 0; i < n; i++) {
+            rank[sa[i]] = i;
+        }
+        int[] lcp = new int[n];
+        kasai(text, sa, rank, lcp, 0, n);
+        return lcp;
+    }
+
+    /**
+     * Longest common prefix of every suffix with the previous one in the suffix array, computed on a
+     * pool in ranges of the text. Every range starts the scan from an empty prefix, so it only adds
+     * the comparisons of the prefix at its first position.
+     * @param text the suffix array was built for
+     * @param sa suffix array
+     * @param pool where the ranges are computed
+     * @return lcp[i] is the longest common prefix of sa[i - 1] and sa[i], lcp[0] is 0
+     */
+    public static int[] lcp(int[] text, int[] sa, ForkJoinPool pool) {
+        int n = sa.length;
+        int ranges = Math.min(pool.getParallelism() * RANGES_PER_THREAD, n / MIN_RANGE);
+        if (ranges <= 1) return lcp(text, sa);
+
+        int[] rank = new int[n];
+        int[] lcp = new int[n];
+        ArrayList<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int r = 0; r < ranges; r++) {
+            int from = (int) ((long) n * r / ranges), to = (int) ((long) n * (r + 1) / ranges);
+            tasks.add(pool.submit(() -> {
+                for (int i = from; i < to; i++) {
+                    rank[sa[i]] = i;
+                }
+            }));
+        }
+        tasks.forEach(ForkJoinTask::join);
+        tasks.clear();
+        for (int r = 0; r < ranges; r++) {
+            int from = (int) ((long) n * r / ranges), to = (int) ((long) n * (r + 1) / ranges);
+            tasks.add(pool.submit(() -> kasai(text, sa, rank, lcp, from, to)));
+        }
+        tasks.forEach(ForkJoinTask::join);
+        return lcp;
+    }
+
+    /**
+     * Kasai's scan of a range of the text: the prefix shared by a suffix and the one before it in the
+     * array is at least the prefix of the suffix one position before, less one
+     * @param text the suffix array was built for
+     * @param sa suffix array
+     * @param rank position of every suffix in the suffix array
+     * @param lcp where the prefixes of the suffixes of the range are written
+     * @param from first position of the range
+     * @param to last position of the range, exclusive
+     */
+    private static void kasai(int[] text, int[] sa, int[] rank, int[] lcp, int from, int to) {
+        int n = sa.length;
+        int h = 0;
+        for (int i = from; i < to; i++) {
+            if (rank[i] > 0) {
+                int j = sa[rank[i] - 1];
+                while (i + h < n && j + h < n && text[i + h] == text[j + h]) h++;
+                lcp[rank[i]] = h;
+                if (h > 0) h--;
+            } else {
+                h = 0;
+            }
+        }
+    }
+
+    /**
+     * Induced sorting of the suffixes of a text
+     * @param text ending with a unique smallest symbol
+     * @param sa where the suffix array is written
+     * @param n length of the text
+     * @param k size of the alphabet
+     */
+    private static void sais(int[] text, int[] sa, int n, int k) {
+        // Type of every suffix: true if it is smaller than the next one (S), false otherwise (L)
+        boolean[] types = new boolean[n];
+        types[n - 1] = true;
+        for (int i = n - 2; i >= 0; i--) {
+            types[i] = text[i] < text[i + 1] || (text[i] == text[i + 1] && types[i + 1]);
+        }
+
+        int[] buckets = new int[k];
+
+        // Sort LMS substrings
+        bucketEnds(text, buckets, n, k);
+        Arrays.fill(sa, 0, n, -1);
+        for (int i = 1; i < n; i++) {
+            if (isLms(types, i)) sa[--buckets[text[i]]] = i;
+        }
+        induce(text, sa, types, buckets, n, k);
+
+        // Compact sorted LMS substrings in the first half of the array
+        int n1 = 0;
+        for (int i = 0; i < n; i++) {
+            if (isLms(types, sa[i])) sa[n1++] = sa[i];
+        }
+
+        // Name LMS substrings, equal substrings get the same name
+        Arrays.fill(sa, n1, n, -1);
+        int name = 0, previous = -1;
+        for (int i = 0; i < n1; i++) {
+            int position = sa[i];
+            boolean different = false;
+            for (int d = 0; d < n; d++) {
+                if (previous == -1 || text[position + d] != text[previous + d]
+                        || types[position + d] != types[previous + d]) {
+                    different = true;
+                    break;
+                } else if (d > 0 && (isLms(types, position + d) || isLms(types, previous + d))) {
+                    break;
+                }
+            }
+            if (different) {
+                name++;
+                previous = position;
+            }
+            sa[n1 + position / 2] = name - 1;
+        }
+
+        int[] reduced = new int[n1];
+        for (int i = n1, j = 0; i < n; i++) {
+            if (sa[i] >= 0) reduced[j++] = sa[i];
+        }
+
+        // Sort the reduced problem, recursively if names are not unique yet
+        int[] reducedSa = new int[n1];
+        if (name < n1) {
+            sais(reduced, reducedSa, n1, name);
+        } else {
+            for (int i = 0; i < n1; i++) {
+                reducedSa[reduced[i]] = i;
+            }
+        }
+
+        // Induce the final order from the sorted LMS suffixes
+        for (int i = 1, j = 0; i < n; i++) {
+            if (isLms(types, i)) reduced[j++] = i;
+        }
+        bucketEnds(text, buckets, n, k);
+        Arrays.fill(sa, 0, n, -1);
+        for (int i = n1 - 1; i >= 0; i--) {
+            int position = reduced[reducedSa[i]];
+            sa[--buckets[text[position]]] = position;
+        }
+        induce(text, sa, types, buckets, n, k);
+    }
+
+    /**
+     * Induce L-type suffixes from left to right and then S-type suffixes from right to left
+     */
+    private static void induce(int[] text, int[] sa, boolean[] types, int[] buckets, int n, int k) {
+        bucketStarts(text, buckets, n, k);
+        for (int i = 0; i < n; i++) {
+            int j = sa[i] - 1;
+            if (j >= 0 && !types[j]) sa[buckets[text[j]]++] = j;
+        }
+        bucketEnds(text, buckets, n, k);
+        for (int i = n - 1; i >= 0; i--) {
+            int j = sa[i] - 1;
+            if (j >= 0 && types[j]) sa[--buckets[text[j]]] = j;
+        }
+    }
+
+    /**
+     * @return true if the suffix at position i is leftmost S-type
+     */
+    private static boolean isLms(boolean[] types, int i) {
+        return i > 0 && types[i] && !types[i - 1];
+    }
+
+    private static void bucketStarts(int[] text, int[] buckets, int n, int k) {
+        Arrays.fill(buckets, 0, k, 0);
+        for (int i = 0; i < n; i++) buckets[text[i]]++;
+        for (int i = 0, sum = 0; i < k; i++) {
+            int count = buckets[i];
+            buckets[i] = sum;
+            sum += count;
+        }
+    }
+
+    private static void bucketEnds(int[] text, int[] buckets, int n, int k) {
+        Arrays.fill(buckets, 0, k, 0);
+        for (int i = 0; i < n; i++) buckets[text[i]]++;
+        for (int i = 0, sum = 0; i < k; i++) {
+            sum += buckets[i];
+            buckets[i] = sum;
+        }
+    }
+}
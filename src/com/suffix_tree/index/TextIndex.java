@@ -0,0 +1,219 @@
+package com.suffix_tree.index;
+
+import com.suffix_tree.words.WordSet;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ *  Queries answered by every index built over a set of words, whatever its internal structure.
+ *
+ *  @version 1.0
+ *
+ */
+public interface TextIndex {
+
+    /**
+     * @param pattern to be looked for
+     * @return set of the words where the pattern was found, empty set if not found
+     */
+    WordSet search(String pattern);
+
+    /**
+     * @param patterns to be looked for
+     * @return set of the words of every pattern, in the order of the patterns
+     */
+    default List<WordSet> searchAll(List<String> patterns) {
+        ArrayList<WordSet> result = new ArrayList<>(patterns.size());
+        for (String pattern : patterns) {
+            result.add(search(pattern));
+        }
+        return result;
+    }
+
+    /**
+     * @param pattern to be looked for
+     * @return number of times the pattern appears in the words
+     */
+    int count(String pattern);
+
+    /**
+     * @param pattern to be looked for
+     * @return number of different words where the pattern appears
+     */
+    default int documentFrequency(String pattern) {
+        return search(pattern).size();
+    }
+
+    /**
+     * @param pattern to be looked for
+     * @return sorted positions where the pattern appears, as offsets in the text made of every word
+     *          followed by its terminator
+     */
+    int[] locate(String pattern);
+
+    /**
+     * Positions of a pattern found one at a time, as they are consumed
+     * @param pattern to be looked for
+     * @return positions where the pattern appears in no particular order, as offsets in the text made
+     *          of every word followed by its terminator
+     */
+    PrimitiveIterator.OfInt positions(String pattern);
+
+    /**
+     * @param position offset in the text made of every word followed by its terminator
+     * @return word the position belongs to and offset inside that word
+     */
+    Occurrence occurrenceAt(int position);
+
+    /**
+     * Occurrences of a pattern found lazily: limiting the stream or stopping at the first match
+     * leaves the rest unvisited
+     * @param pattern to be looked for
+     * @return stream of the occurrences in no particular order
+     */
+    default Stream<Occurrence> occurrences(String pattern) {
+        return StreamSupport.intStream(Spliterators.spliteratorUnknownSize(positions(pattern),
+                Spliterator.DISTINCT | Spliterator.NONNULL), false).mapToObj(this::occurrenceAt);
+    }
+
+    /**
+     * @param pattern to be looked for
+     * @param limit most occurrences returned
+     * @return up to limit occurrences of the pattern in no particular order
+     */
+    default List<Occurrence> occurrences(String pattern, int limit) {
+        ArrayList<Occurrence> result = new ArrayList<>(Math.min(limit, 1024));
+        PrimitiveIterator.OfInt positions = positions(pattern);
+        while (result.size() < limit && positions.hasNext()) {
+            result.add(occurrenceAt(positions.nextInt()));
+        }
+        return result;
+    }
+
+    /**
+     * @return longest repeated substring in the words
+     */
+    String getLongestSubstring();
+
+    /**
+     * @return all the maximal repetitions in the words
+     */
+    List<String> getMaximals();
+
+    /**
+     * @param pattern to be looked for
+     * @param k most errors allowed
+     * @param distance way errors are counted
+     * @return set of the words where the pattern was found with up to k errors
+     * @throws UnsupportedOperationException if the index cannot search with errors
+     */
+    default WordSet searchApproximate(String pattern, int k, Distance distance) {
+        throw new UnsupportedOperationException("Approximate search is not available in this index");
+    }
+
+    /**
+     * @param pattern to be looked for
+     * @param k most errors allowed
+     * @param distance way errors are counted
+     * @return matches with up to k errors, one for every position with its fewest errors, sorted by position
+     * @throws UnsupportedOperationException if the index cannot search with errors
+     */
+    default List<ApproximateMatch> locateApproximate(String pattern, int k, Distance distance) {
+        throw new UnsupportedOperationException("Approximate search is not available in this index");
+    }
+
+    /**
+     * @param pattern with wildcards, classes and gaps
+     * @return set of the words where the pattern was found
+     * @throws UnsupportedOperationException if the index cannot search with wildcards
+     */
+    default WordSet searchWildcard(WildcardPattern pattern) {
+        throw new UnsupportedOperationException("Wildcard search is not available in this index");
+    }
+
+    /**
+     * @param pattern with wildcards, classes and gaps
+     * @return sorted positions where the pattern starts, each once, as offsets in the text made of
+     *          every word followed by its terminator
+     * @throws UnsupportedOperationException if the index cannot search with wildcards
+     */
+    default int[] locateWildcard(WildcardPattern pattern) {
+        throw new UnsupportedOperationException("Wildcard search is not available in this index");
+    }
+
+    /**
+     * Maximal repeats are repeated substrings that cannot be extended to the left or to the right
+     * without losing an occurrence. The beginning and the end of every word count as different
+     * symbols, so repeats are found across all the words.
+     * @param minLength fewest characters of the repeats returned
+     * @param minOccurrences fewest occurrences of the repeats returned
+     * @return maximal repeats found as the index is walked, in no particular order
+     * @throws UnsupportedOperationException if the index cannot enumerate repeats
+     */
+    default Stream<Repeat> maximalRepeats(int minLength, int minOccurrences) {
+        throw new UnsupportedOperationException("Repeats are not available in this index");
+    }
+
+    /**
+     * Supermaximal repeats are maximal repeats that do not appear inside any other maximal repeat
+     * @param minLength fewest characters of the repeats returned
+     * @param minOccurrences fewest occurrences of the repeats returned
+     * @return supermaximal repeats found as the index is walked, in no particular order
+     * @throws UnsupportedOperationException if the index cannot enumerate repeats
+     */
+    default Stream<Repeat> supermaximalRepeats(int minLength, int minOccurrences) {
+        throw new UnsupportedOperationException("Repeats are not available in this index");
+    }
+
+    /**
+     * Substrings appearing the same times are represented by the longest of them
+     * @param k most substrings returned
+     * @param minLength fewest characters of the substrings returned
+     * @param minDocuments fewest words the substrings returned appear in, 1 or less for any
+     * @return up to k substrings appearing at least twice, most frequent first
+     * @throws UnsupportedOperationException if the index cannot rank substrings
+     */
+    default List<Repeat> mostFrequent(int k, int minLength, int minDocuments) {
+        throw new UnsupportedOperationException("Most frequent substrings are not available in this index");
+    }
+
+    /**
+     * @param repeat found by this index
+     * @return characters of the repeat
+     * @throws UnsupportedOperationException if the index cannot enumerate repeats
+     */
+    default String textOf(Repeat repeat) {
+        throw new UnsupportedOperationException("Repeats are not available in this index");
+    }
+
+    /**
+     * Matching statistics of a query: for every position of the query, the longest prefix starting
+     * there that appears in the words. The query is read once, in time linear in its length.
+     * @param query characters normalised like the words, read to its end but not closed
+     * @param minLength fewest characters of the segments in the summary, a short one makes every
+     *          position go through the words of its match
+     * @param listener told the statistics of every position in the order of the query, null for none
+     * @return for every word, the longest segment of the query matched in it, longest first
+     * @throws IOException if the query cannot be read
+     * @throws UnsupportedOperationException if the index cannot compute matching statistics
+     */
+    default List<SharedSegment> matchingStatistics(Reader query, int minLength, MatchListener listener)
+            throws IOException {
+        throw new UnsupportedOperationException("Matching statistics are not available in this index");
+    }
+
+    /**
+     * @return estimate of the bytes of memory taken by the index, -1 if it is not known
+     */
+    default long bytes() {
+        return -1;
+    }
+}
@@ -0,0 +1,104 @@
+package com.suffix_tree.index;
+
+/**
+ *  Sequence of small integers answering which value is at a position and how many times a value
+ *  appears before a position, both with one rank query per bit of the values.
+ *
+ *  Every level keeps one bit of every value, from the highest bit to the lowest, with the values
+ *  reordered at each level so the ones with a zero at the previous bit come first.
+ *
+ *  @version 1.0
+ *
+ */
+final class WaveletMatrix {
+
+    // One bit of every value per level, highest bit first
+    private final RankBitVector[] levels;
+
+    // Number of zeros at every level
+    private final int[] zeros;
+
+    /**
+     * Constructor for the matrix of a sequence
+     * @param values between 0 and 2^bitsPerValue - 1, they are reordered while building
+     * @param bitsPerValue number of levels
+     */
+    WaveletMatrix(int[] values, int bitsPerValue) {
+        int n = values.length;
+        levels = new RankBitVector[bitsPerValue];
+        zeros = new int[bitsPerValue];
+        int[] next = new int[n];
+
+        for (int level = 0; level < bitsPerValue; level++) {
+            int shift = bitsPerValue - 1 - level;
+            long[] bits = RankBitVector.words(n);
+            int zeroCount = 0;
+            for (int i = 0; i < n; i++) {
+                if (((values[i] >>> shift) & 1) != 0) RankBitVector.set(bits, i);
+                else zeroCount++;
+            }
+            levels[level] = new RankBitVector(bits, n);
+            zeros[level] = zeroCount;
+
+            // Stable partition for the next level, zeros first
+            int z = 0, o = zeroCount;
+            for (int i = 0; i < n; i++) {
+                if (((values[i] >>> shift) & 1) != 0) next[o++] = values[i];
+                else next[z++] = values[i];
+            }
+            int[] swap = values;
+            values = next;
+            next = swap;
+        }
+    }
+
+    /**
+     * @param i position
+     * @return value at i
+     */
+    int access(int i) {
+        int value = 0;
+        for (int level = 0; level < levels.length; level++) {
+            RankBitVector bits = levels[level];
+            if (bits.get(i)) {
+                value = (value << 1) | 1;
+                i = zeros[level] + bits.rank1(i);
+            } else {
+                value <<= 1;
+                i = bits.rank0(i);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @param value to be counted
+     * @param i position, up to the length of the sequence included
+     * @return number of times the value appears before i
+     */
+    int rank(int value, int i) {
+        int start = 0;
+        for (int level = 0; level < levels.length; level++) {
+            RankBitVector bits = levels[level];
+            if (((value >>> (levels.length - 1 - level)) & 1) != 0) {
+                start = zeros[level] + bits.rank1(start);
+                i = zeros[level] + bits.rank1(i);
+            } else {
+                start = bits.rank0(start);
+                i = bits.rank0(i);
+            }
+        }
+        return i - start;
+    }
+
+    /**
+     * @return bytes taken by all the levels
+     */
+    long bytes() {
+        long bytes = 4L * zeros.length;
+        for (RankBitVector level : levels) {
+            bytes += level.bytes();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,330 @@
+package com.suffix_tree.index;
+
+import com.suffix_tree.text.Normalizer;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+
+/**
+ *  Pattern with wildcards, character classes and bounded gaps, matched one symbol at a time.
+ *
+ *  The language is small: {@code ?} is any character, {@code [abc]}, {@code [a-z]} and {@code [^abc]}
+ *  are classes over the normalised alphabet, and {@code *{n}} or {@code *{m,n}} is a gap of m to n
+ *  characters. Every other character is normalised as the words are, so characters removed from the
+ *  words are removed from the pattern too.
+ *
+ *  The pattern is compiled to a sequence of positions, a gap of m to n characters being m positions
+ *  taking any character followed by n - m that can also be skipped. A set of positions is a state of
+ *  the match, kept as bits so a symbol moves all of them at once: bit i means the first i positions
+ *  were matched. Patterns are limited to MAX_POSITIONS positions, gaps included, so states stay small.
+ *  Instances are immutable and can be shared between threads.
+ *
+ *  @version 1.0
+ *
+ */
+public final class WildcardPattern {
+
+    // Characters of the pattern language, none of them kept by the normaliser
+    private static final String METACHARACTERS = "?*[";
+
+    // Characters with their own mask, all the normalised ones are below it
+    private static final int TABLE_SIZE = 256;
+
+    // Most positions of a pattern, every state takes a bit of each
+    public static final int MAX_POSITIONS = 4096;
+
+    // Mark of the positions taking more than one character
+    private static final int ANY = -1;
+
+    private final String source;
+
+    // Number of positions, the match is complete at bit size
+    private final int size;
+
+    // Fewest and most characters of a match
+    private final int minLength;
+    private final int maxLength;
+
+    // Positions taking every character below TABLE_SIZE, and any other character
+    private final long[][] masks;
+    private final long[] anyMask;
+
+    // Positions that can be skipped
+    private final long[] optional;
+
+    // Only character taken by every position, ANY if it takes more
+    private final int[] literals;
+
+    // State before any symbol is read
+    private final long[] start;
+
+    private WildcardPattern(String source, int size, int minLength, int maxLength,
+                            long[][] masks, long[] anyMask, long[] optional, int[] literals) {
+        this.source = source;
+        this.size = size;
+        this.minLength = minLength;
+        this.maxLength = maxLength;
+        this.masks = masks;
+        this.anyMask = anyMask;
+        this.optional = optional;
+        this.literals = literals;
+        start = newState();
+        start[0] = 1;
+        close(start);
+    }
+
+    /**
+     * @param pattern typed by the user
+     * @return true if the pattern uses the pattern language, false if it is a literal pattern
+     */
+    public static boolean isWildcard(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            if (METACHARACTERS.indexOf(pattern.charAt(i)) >= 0) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param pattern typed by the user
+     * @param normalizer of the characters of the words
+     * @return compiled pattern
+     * @throws IllegalArgumentException if the pattern is malformed, matches the empty string or has
+     *          more than MAX_POSITIONS positions
+     */
+    public static WildcardPattern parse(String pattern, Normalizer normalizer) {
+        // Characters taken by every position, null for any, and the positions that can be skipped
+        ArrayList<boolean[]> classes = new ArrayList<>();
+        BitSet skippable = new BitSet();
+        int minLength = 0;
+
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '?') {
+                classes.add(null);
+                minLength++;
+            } else if (c == '*') {
+                int close = pattern.indexOf('}', i);
+                if (i + 1 == pattern.length() || pattern.charAt(i + 1) != '{' || close < 0) {
+                    throw new IllegalArgumentException("Gaps must be bounded, e.g. *{0,3}: " + pattern);
+                }
+                int[] bounds = gap(pattern.substring(i + 2, close), pattern);
+                if (bounds[1] > MAX_POSITIONS - classes.size()) throw tooLong(pattern);
+                for (int j = 0; j < bounds[1]; j++) {
+                    if (j >= bounds[0]) skippable.set(classes.size());
+                    classes.add(null);
+                }
+                minLength += bounds[0];
+                i = close;
+            } else if (c == '[') {
+                int close = pattern.indexOf(']', i + 1);
+                if (close < 0) throw new IllegalArgumentException("Class not closed: " + pattern);
+                classes.add(characterClass(pattern.substring(i + 1, close), normalizer, pattern));
+                minLength++;
+                i = close;
+            } else {
+                char mapped = normalizer.map(c);
+                if (mapped == Normalizer.DROPPED) continue;
+                boolean[] single = new boolean[TABLE_SIZE];
+                single[mapped] = true;
+                classes.add(single);
+                minLength++;
+            }
+        }
+        if (minLength == 0) throw new IllegalArgumentException("Pattern matches the empty string: " + pattern);
+        if (classes.size() > MAX_POSITIONS) throw tooLong(pattern);
+
+        int size = classes.size();
+        int words = (size >>> 6) + 1;
+        long[][] masks = new long[TABLE_SIZE][words];
+        long[] anyMask = new long[words];
+        long[] optional = new long[words];
+        int[] literals = new int[size];
+        for (int position = 0; position < size; position++) {
+            long bit = 1L << position;
+            boolean[] accepted = classes.get(position);
+            if (accepted == null) anyMask[position >>> 6] |= bit;
+            for (int symbol = 0; symbol < TABLE_SIZE; symbol++) {
+                if (accepted == null || accepted[symbol]) masks[symbol][position >>> 6] |= bit;
+            }
+            if (skippable.get(position)) optional[position >>> 6] |= bit;
+            literals[position] = literal(accepted);
+        }
+        return new WildcardPattern(pattern, size, minLength, size, masks, anyMask, optional, literals);
+    }
+
+    /**
+     * @param pattern with too many positions
+     * @return exception telling the limit
+     */
+    private static IllegalArgumentException tooLong(String pattern) {
+        return new IllegalArgumentException("Patterns take at most " + MAX_POSITIONS + " characters, gaps included: " + pattern);
+    }
+
+    /**
+     * @param accepted characters taken by a position, null for any
+     * @return the only character taken, ANY if it takes more
+     */
+    private static int literal(boolean[] accepted) {
+        if (accepted == null) return ANY;
+        int literal = ANY;
+        for (int c = 0; c < accepted.length; c++) {
+            if (!accepted[c]) continue;
+            if (literal != ANY) return ANY;
+            literal = c;
+        }
+        return literal;
+    }
+
+    /**
+     * @param bounds inside the braces of a gap, n or m,n
+     * @param pattern the gap belongs to
+     * @return fewest and most characters of the gap
+     */
+    private static int[] gap(String bounds, String pattern) {
+        try {
+            int comma = bounds.indexOf(',');
+            int min = Integer.parseInt(((comma < 0) ? bounds : bounds.substring(0, comma)).trim());
+            int max = (comma < 0) ? min : Integer.parseInt(bounds.substring(comma + 1).trim());
+            if (min < 0 || max < min) throw new IllegalArgumentException("Gap bounds out of order: " + pattern);
+            return new int[]{min, max};
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Gap bounds must be integers, e.g. *{0,3}: " + pattern);
+        }
+    }
+
+    /**
+     * @param members characters between the brackets, with ranges like a-z and ^ first to negate them
+     * @param normalizer of the characters of the words
+     * @param pattern the class belongs to
+     * @return characters taken by the class, normalised
+     */
+    private static boolean[] characterClass(String members, Normalizer normalizer, String pattern) {
+        boolean negated = members.startsWith("^");
+        boolean[] accepted = new boolean[TABLE_SIZE];
+        for (int i = negated ? 1 : 0; i < members.length(); i++) {
+            char first = members.charAt(i), last = first;
+            if (i + 2 < members.length() && members.charAt(i + 1) == '-') {
+                last = members.charAt(i + 2);
+                if (last < first) throw new IllegalArgumentException("Range out of order: " + pattern);
+                i += 2;
+            }
+            for (char c = first; c <= last && c != Character.MAX_VALUE; c++) {
+                char mapped = normalizer.map(c);
+                if (mapped != Normalizer.DROPPED) accepted[mapped] = true;
+            }
+        }
+        if (negated) {
+            boolean[] complement = new boolean[TABLE_SIZE];
+            for (char c : normalizer.alphabet().toCharArray()) {
+                complement[c] = !accepted[c];
+            }
+            accepted = complement;
+        }
+        for (boolean member : accepted) {
+            if (member) return accepted;
+        }
+        throw new IllegalArgumentException("Class matches no character: " + pattern);
+    }
+
+    /**
+     * @return new state with no position matched
+     */
+    public long[] newState() {
+        return new long[(size >>> 6) + 1];
+    }
+
+    /**
+     * @return state before any symbol is read, it must not be modified
+     */
+    public long[] start() {
+        return start;
+    }
+
+    /**
+     * Move a state over a symbol
+     * @param from state before the symbol
+     * @param to state after the symbol, overwritten
+     * @param symbol read, negative for terminators
+     * @return true if some position is still matched, false if no match can go on
+     */
+    public boolean step(long[] from, long[] to, int symbol) {
+        if (symbol < 0) return false;
+        long[] mask = (symbol < TABLE_SIZE) ? masks[symbol] : anyMask;
+        long carry = 0, alive = 0;
+        for (int w = 0; w < to.length; w++) {
+            long moved = from[w] & mask[w];
+            to[w] = (moved << 1) | carry;
+            carry = moved >>> 63;
+            alive |= to[w];
+        }
+        if (alive != 0) close(to);
+        return alive != 0;
+    }
+
+    /**
+     * Add to a state the positions reached by skipping the optional ones
+     * @param state updated in place
+     */
+    private void close(long[] state) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            long carry = 0;
+            for (int w = 0; w < state.length; w++) {
+                long skipped = state[w] & optional[w];
+                long reached = (skipped << 1) | carry;
+                carry = skipped >>> 63;
+                if ((reached & ~state[w]) != 0) {
+                    state[w] |= reached;
+                    changed = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param state of the match, some position matched and the pattern not complete
+     * @return the only character that moves the state on, -1 if there are more, so a walk can look up
+     *          a single child instead of trying them all
+     */
+    public int next(long[] state) {
+        int next = ANY;
+        for (int w = 0; w < state.length; w++) {
+            for (long bits = state[w]; bits != 0; bits &= bits - 1) {
+                int position = (w << 6) + Long.numberOfTrailingZeros(bits);
+                if (position == size) continue;
+                int literal = literals[position];
+                if (literal == ANY || (next != ANY && literal != next)) return ANY;
+                next = literal;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * @param state of the match
+     * @return true if the whole pattern is matched
+     */
+    public boolean matches(long[] state) {
+        return (state[size >>> 6] & (1L << size)) != 0;
+    }
+
+    /**
+     * @return fewest characters of a match
+     */
+    public int minLength() {
+        return minLength;
+    }
+
+    /**
+     * @return most characters of a match
+     */
+    public int maxLength() {
+        return maxLength;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
@@ -0,0 +1,327 @@
+package com.suffix_tree.metrics;
+
+import com.suffix_tree.index.TextIndex;
+import com.suffix_tree.tree.CompactSuffixTree;
+import com.suffix_tree.tree.FrozenSuffixTree;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ *  Figures of an index and of the queries it answers: timings of the phases of the run and of the
+ *  construction, size of the structure, estimated memory and latency distributions of every kind of
+ *  query. They are published as an MXBean and can be written as JSON, e.g. when the program ends.
+ *
+ *  Latencies are recorded by MeteredIndex without allocating, so metrics can be left on. Everything
+ *  else is set once, when the index is built or loaded.
+ *
+ *  @version 1.0
+ *
+ */
+public class IndexMetrics implements IndexMetricsMXBean {
+
+    /**
+     * Kinds of queries whose latencies are recorded
+     */
+    public enum Query {
+        SEARCH, SEARCH_ALL, COUNT, DOCUMENT_FREQUENCY, LOCATE, SEARCH_APPROXIMATE, LOCATE_APPROXIMATE,
+        SEARCH_WILDCARD, LOCATE_WILDCARD, MATCHING_STATISTICS;
+
+        /**
+         * @return name of the query in the attributes and the dump, e.g. documentFrequency
+         */
+        public String key() {
+            StringBuilder sb = new StringBuilder();
+            for (String part : name().toLowerCase(Locale.ROOT).split("_")) {
+                sb.append(sb.length() == 0 ? part : Character.toUpperCase(part.charAt(0)) + part.substring(1));
+            }
+            return sb.toString();
+        }
+    }
+
+    // Percentiles given for every kind of query
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+
+    // Domain of the names the metrics are registered with
+    public static final String DOMAIN = "com.suffix_tree";
+
+    private final String engine;
+
+    // Latencies of every kind of query, by ordinal
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Query.values().length];
+
+    // Nanoseconds taken by every phase of the run and of the construction of the tree
+    private final LinkedHashMap<String, Long> phases = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Long> buildTimes = new LinkedHashMap<>();
+
+    // Size of the index, -1 until it is described
+    private volatile int words = -1;
+    private volatile long textLength = -1;
+    private volatile int nodes = -1;
+    private volatile int leaves = -1;
+    private volatile long bytes = -1;
+
+    /**
+     * Constructor for the metrics of an index
+     * @param engine structure of the index, e.g. tree
+     */
+    public IndexMetrics(String engine) {
+        this.engine = engine;
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * @param query kind of query
+     * @return latencies of that kind of query
+     */
+    public LatencyHistogram latency(Query query) {
+        return latencies[query.ordinal()];
+    }
+
+    /**
+     * Record the time taken by a phase of the run, added to the previous time if it ran before
+     * @param name of the phase, e.g. read
+     * @param nanos time taken in nanoseconds
+     */
+    public synchronized void phase(String name, long nanos) {
+        phases.merge(name, nanos, Long::sum);
+    }
+
+    /**
+     * Take the size of an index once it is built or loaded. Counting the nodes walks the whole tree.
+     * @param index built or loaded
+     * @param words number of words indexed
+     * @param textLength number of symbols of the text, terminators included
+     */
+    public synchronized void describe(TextIndex index, int words, long textLength) {
+        this.words = words;
+        this.textLength = textLength;
+        bytes = index.bytes();
+        if (index instanceof CompactSuffixTree tree) {
+            nodes = tree.nodeCount();
+            leaves = tree.leafCount();
+            buildTimes.putAll(tree.buildTimes());
+        } else if (index instanceof FrozenSuffixTree tree) {
+            nodes = tree.nodeCount();
+            leaves = tree.leafCount();
+        }
+    }
+
+    /**
+     * Publish the metrics in the platform MBean server
+     * @return name the metrics were registered with
+     * @throws JMException if they cannot be registered, e.g. the name is taken
+     */
+    public ObjectName register() throws JMException {
+        ObjectName name = new ObjectName(DOMAIN + ":type=IndexMetrics,engine=" + ObjectName.quote(engine));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+        return name;
+    }
+
+    /**
+     * Write the metrics to a file when the program ends, whatever the way it ends
+     * @param path of the file, replaced if it exists
+     */
+    public void dumpAtExit(Path path) {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                dump(path);
+            } catch (UncheckedIOException ex) {
+                System.err.println("Metrics could not be written: " + ex.getCause().getMessage());
+            }
+        }, "metrics-dump"));
+    }
+
+    /**
+     * @param path of the file with the metrics as JSON, replaced if it exists
+     */
+    public void dump(Path path) {
+        try {
+            Files.writeString(path, toJson(), StandardCharsets.UTF_8);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    @Override
+    public String getEngine() {
+        return engine;
+    }
+
+    @Override
+    public int getWords() {
+        return words;
+    }
+
+    @Override
+    public long getTextLength() {
+        return textLength;
+    }
+
+    @Override
+    public int getNodes() {
+        return nodes;
+    }
+
+    @Override
+    public int getEdges() {
+        return (nodes > 0) ? nodes - 1 : nodes;
+    }
+
+    @Override
+    public int getLeaves() {
+        return leaves;
+    }
+
+    @Override
+    public long getEstimatedBytes() {
+        return bytes;
+    }
+
+    @Override
+    public double getBytesPerCharacter() {
+        return (bytes >= 0 && textLength > 0) ? (double) bytes / textLength : -1;
+    }
+
+    @Override
+    public synchronized Map<String, Double> getPhaseMillis() {
+        return millis(phases);
+    }
+
+    @Override
+    public synchronized Map<String, Double> getBuildMillis() {
+        return millis(buildTimes);
+    }
+
+    /**
+     * @param nanos time of every phase in nanoseconds
+     * @return time of every phase in milliseconds, in the same order
+     */
+    private static Map<String, Double> millis(Map<String, Long> nanos) {
+        LinkedHashMap<String, Double> result = new LinkedHashMap<>();
+        nanos.forEach((name, time) -> result.put(name, time / 1e6));
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getQueryCounts() {
+        LinkedHashMap<String, Long> result = new LinkedHashMap<>();
+        for (Query query : Query.values()) {
+            result.put(query.key(), latency(query).count());
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Double> getLatencyMicros() {
+        LinkedHashMap<String, Double> result = new LinkedHashMap<>();
+        for (Query query : Query.values()) {
+            statistics(latency(query)).forEach((statistic, value) -> result.put(query.key() + '.' + statistic, value));
+        }
+        return result;
+    }
+
+    /**
+     * @param histogram latencies of a kind of query
+     * @return mean, percentiles and largest latency in microseconds
+     */
+    private static Map<String, Double> statistics(LatencyHistogram histogram) {
+        LinkedHashMap<String, Double> result = new LinkedHashMap<>();
+        result.put("mean", histogram.mean() / 1e3);
+        for (double percentile : PERCENTILES) {
+            String name = (percentile == Math.rint(percentile)) ? String.valueOf((int) percentile)
+                    : String.valueOf(percentile).replace(".", "");
+            result.put("p" + name, histogram.percentile(percentile) / 1e3);
+        }
+        result.put("max", histogram.max() / 1e3);
+        return result;
+    }
+
+    @Override
+    public void resetLatencies() {
+        for (LatencyHistogram histogram : latencies) {
+            histogram.reset();
+        }
+    }
+
+    /**
+     * @return all the metrics as a JSON object, sizes not known are left out
+     */
+    public synchronized String toJson() {
+        StringBuilder sb = new StringBuilder("{\n");
+        sb.append("  \"engine\": \"").append(engine).append("\",\n");
+        field(sb, "words", words);
+        field(sb, "textLength", textLength);
+        field(sb, "nodes", nodes);
+        field(sb, "edges", getEdges());
+        field(sb, "leaves", leaves);
+        field(sb, "estimatedBytes", bytes);
+        if (getBytesPerCharacter() >= 0) {
+            sb.append("  \"bytesPerCharacter\": ").append(number(getBytesPerCharacter())).append(",\n");
+        }
+        sb.append("  \"phaseMillis\": ");
+        object(sb, getPhaseMillis(), "  ");
+        sb.append(",\n  \"buildMillis\": ");
+        object(sb, getBuildMillis(), "  ");
+        sb.append(",\n  \"latencyMicros\": {");
+        String separator = "\n";
+        for (Query query : Query.values()) {
+            LatencyHistogram histogram = latency(query);
+            sb.append(separator).append("    \"").append(query.key()).append("\": {\"count\": ").append(histogram.count());
+            statistics(histogram).forEach((statistic, value) ->
+                    sb.append(", \"").append(statistic).append("\": ").append(number(value)));
+            sb.append('}');
+            separator = ",\n";
+        }
+        sb.append("\n  }\n}\n");
+        return sb.toString();
+    }
+
+    /**
+     * @param sb where the field is written
+     * @param name of the field
+     * @param value of the field, not written if it is negative
+     */
+    private static void field(StringBuilder sb, String name, long value) {
+        if (value >= 0) sb.append("  \"").append(name).append("\": ").append(value).append(",\n");
+    }
+
+    /**
+     * @param sb where the object is written
+     * @param values of the object, by name
+     * @param indent of the line the object starts in
+     */
+    private static void object(StringBuilder sb, Map<String, Double> values, String indent) {
+        if (values.isEmpty()) {
+            sb.append("{}");
+            return;
+        }
+        sb.append('{');
+        String separator = "\n";
+        for (Map.Entry<String, Double> entry : values.entrySet()) {
+            sb.append(separator).append(indent).append("  \"").append(entry.getKey()).append("\": ")
+                    .append(number(entry.getValue()));
+            separator = ",\n";
+        }
+        sb.append('\n').append(indent).append('}');
+    }
+
+    /**
+     * @param value to be written
+     * @return value with three decimals, as JSON expects it whatever the locale
+     */
+    private static String number(double value) {
+        return String.format(Locale.ROOT, "%.3f", value);
+    }
+}
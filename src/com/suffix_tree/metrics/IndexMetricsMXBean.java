@@ -0,0 +1,80 @@
+package com.suffix_tree.metrics;
+
+import java.util.Map;
+
+/**
+ *  Attributes of an index published through JMX, see IndexMetrics.
+ *
+ *  Sizes not known for the engine, e.g. nodes of a suffix array, are -1. Latencies are in
+ *  microseconds, under keys made of the query and the statistic, e.g. "search.p99".
+ *
+ *  @version 1.0
+ *
+ */
+public interface IndexMetricsMXBean {
+
+    /**
+     * @return structure of the index
+     */
+    String getEngine();
+
+    /**
+     * @return number of words indexed
+     */
+    int getWords();
+
+    /**
+     * @return number of symbols of the text, terminators included
+     */
+    long getTextLength();
+
+    /**
+     * @return number of nodes of the tree, root included
+     */
+    int getNodes();
+
+    /**
+     * @return number of edges of the tree
+     */
+    int getEdges();
+
+    /**
+     * @return number of leaves of the tree
+     */
+    int getLeaves();
+
+    /**
+     * @return estimate of the bytes of memory taken by the index
+     */
+    long getEstimatedBytes();
+
+    /**
+     * @return estimated bytes of the index for every symbol of the text
+     */
+    double getBytesPerCharacter();
+
+    /**
+     * @return milliseconds taken by every phase of the run, in the order they ran
+     */
+    Map<String, Double> getPhaseMillis();
+
+    /**
+     * @return milliseconds taken by every phase of the construction of the tree
+     */
+    Map<String, Double> getBuildMillis();
+
+    /**
+     * @return number of queries answered of every kind
+     */
+    Map<String, Long> getQueryCounts();
+
+    /**
+     * @return mean, percentiles and largest latency of every kind of query in microseconds
+     */
+    Map<String, Double> getLatencyMicros();
+
+    /**
+     * Forget the latencies recorded so far
+     */
+    void resetLatencies();
+}
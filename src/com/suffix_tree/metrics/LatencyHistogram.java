@@ -0,0 +1,129 @@
+package com.suffix_tree.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ *  Distribution of latencies in nanoseconds, kept as counts in buckets of logarithmic width.
+ *
+ *  Latencies under 2 * SUB_BUCKETS nanoseconds have a bucket each; every power of two above is split
+ *  in SUB_BUCKETS buckets of the same width, so a percentile is never off by more than 1 / SUB_BUCKETS
+ *  of its value. Every long fits in the fixed set of buckets.
+ *
+ *  Recording only updates atomic counters already allocated, so it can be done from any number of
+ *  threads without locks or garbage. Percentiles are read from a pass over the counts, which may
+ *  miss the latencies recorded while it runs.
+ *
+ *  @version 1.0
+ *
+ */
+public class LatencyHistogram {
+
+    // Buckets every power of two is split in, as a power of two
+    private static final int SUB_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    // Enough buckets for the largest long
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    // Latencies recorded in every bucket
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    // Number, sum and largest of the latencies recorded
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Add a latency to the distribution
+     * @param nanos latency in nanoseconds, negative values are taken as 0
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(bucketOf(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    /**
+     * @param value latency in nanoseconds, not negative
+     * @return bucket of the latency
+     */
+    private static int bucketOf(long value) {
+        if (value < 2 * SUB_BUCKETS) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    /**
+     * @param bucket index of the bucket
+     * @return largest latency in the bucket
+     */
+    private static long highestOf(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long top = bucket % SUB_BUCKETS + SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+
+    /**
+     * @return number of latencies recorded
+     */
+    public long count() {
+        return count.get();
+    }
+
+    /**
+     * @return largest latency recorded in nanoseconds, 0 if there are none
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * @return mean of the latencies recorded in nanoseconds, 0 if there are none
+     */
+    public double mean() {
+        long n = count.get();
+        return (n == 0) ? 0 : (double) total.get() / n;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return latency in nanoseconds under which that percentage of the latencies fall, rounded up
+     *          to the end of its bucket and never over the largest one, 0 if there are none
+     */
+    public long percentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long n = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            snapshot[b] = counts.get(b);
+            n += snapshot[b];
+        }
+        if (n == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(Math.min(Math.max(percentile, 0), 100) / 100 * n));
+        long seen = 0;
+        for (int b = 0; b < BUCKETS; b++) {
+            seen += snapshot[b];
+            if (seen >= rank) return Math.min(highestOf(b), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Forget every latency recorded
+     */
+    public void reset() {
+        for (int b = 0; b < BUCKETS; b++) {
+            counts.set(b, 0);
+        }
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+}
@@ -0,0 +1,200 @@
+package com.suffix_tree.metrics;
+
+import com.suffix_tree.index.ApproximateMatch;
+import com.suffix_tree.index.Distance;
+import com.suffix_tree.index.MatchListener;
+import com.suffix_tree.index.Occurrence;
+import com.suffix_tree.index.Repeat;
+import com.suffix_tree.index.SharedSegment;
+import com.suffix_tree.index.TextIndex;
+import com.suffix_tree.index.WildcardPattern;
+import com.suffix_tree.metrics.IndexMetrics.Query;
+import com.suffix_tree.words.WordSet;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.stream.Stream;
+
+/**
+ *  Index recording the latency of every query answered by another one in its metrics.
+ *
+ *  A query only adds two reads of the clock and the updates of a histogram, with nothing allocated,
+ *  and it is as safe to share between threads as the index it wraps. Positions are found lazily as
+ *  they are consumed, so they are not timed.
+ *
+ *  @version 1.0
+ *
+ */
+public class MeteredIndex implements TextIndex {
+
+    private final TextIndex index;
+
+    // Histograms of every kind of query, taken once so recording does not look them up
+    private final LatencyHistogram search;
+    private final LatencyHistogram searchAll;
+    private final LatencyHistogram count;
+    private final LatencyHistogram documentFrequency;
+    private final LatencyHistogram locate;
+    private final LatencyHistogram searchApproximate;
+    private final LatencyHistogram locateApproximate;
+    private final LatencyHistogram searchWildcard;
+    private final LatencyHistogram locateWildcard;
+    private final LatencyHistogram matchingStatistics;
+
+    /**
+     * Constructor for a metered index
+     * @param index answering the queries
+     * @param metrics where latencies are recorded
+     */
+    public MeteredIndex(TextIndex index, IndexMetrics metrics) {
+        this.index = index;
+        search = metrics.latency(Query.SEARCH);
+        searchAll = metrics.latency(Query.SEARCH_ALL);
+        count = metrics.latency(Query.COUNT);
+        documentFrequency = metrics.latency(Query.DOCUMENT_FREQUENCY);
+        locate = metrics.latency(Query.LOCATE);
+        searchApproximate = metrics.latency(Query.SEARCH_APPROXIMATE);
+        locateApproximate = metrics.latency(Query.LOCATE_APPROXIMATE);
+        searchWildcard = metrics.latency(Query.SEARCH_WILDCARD);
+        locateWildcard = metrics.latency(Query.LOCATE_WILDCARD);
+        matchingStatistics = metrics.latency(Query.MATCHING_STATISTICS);
+    }
+
+    /**
+     * @return index answering the queries
+     */
+    public TextIndex index() {
+        return index;
+    }
+
+    @Override
+    public WordSet search(String pattern) {
+        long start = System.nanoTime();
+        WordSet result = index.search(pattern);
+        search.record(System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public List<WordSet> searchAll(List<String> patterns) {
+        long start = System.nanoTime();
+        List<WordSet> result = index.searchAll(patterns);
+        searchAll.record(System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public int count(String pattern) {
+        long start = System.nanoTime();
+        int result = index.count(pattern);
+        count.record(System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public int documentFrequency(String pattern) {
+        long start = System.nanoTime();
+        int result = index.documentFrequency(pattern);
+        documentFrequency.record(System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public int[] locate(String pattern) {
+        long start = System.nanoTime();
+        int[] result = index.locate(pattern);
+        locate.record(System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public WordSet searchApproximate(String pattern, int k, Distance distance) {
+        long start = System.nanoTime();
+        WordSet result = index.searchApproximate(pattern, k, distance);
+        searchApproximate.record(System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public List<ApproximateMatch> locateApproximate(String pattern, int k, Distance distance) {
+        long start = System.nanoTime();
+        List<ApproximateMatch> result = index.locateApproximate(pattern, k, distance);
+        locateApproximate.record(System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public WordSet searchWildcard(WildcardPattern pattern) {
+        long start = System.nanoTime();
+        WordSet result = index.searchWildcard(pattern);
+        searchWildcard.record(System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public int[] locateWildcard(WildcardPattern pattern) {
+        long start = System.nanoTime();
+        int[] result = index.locateWildcard(pattern);
+        locateWildcard.record(System.nanoTime() - start);
+        return result;
+    }
+
+    /**
+     * The whole query is timed, reading it included
+     */
+    @Override
+    public List<SharedSegment> matchingStatistics(Reader query, int minLength, MatchListener listener)
+            throws IOException {
+        long start = System.nanoTime();
+        List<SharedSegment> result = index.matchingStatistics(query, minLength, listener);
+        matchingStatistics.record(System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt positions(String pattern) {
+        return index.positions(pattern);
+    }
+
+    @Override
+    public Occurrence occurrenceAt(int position) {
+        return index.occurrenceAt(position);
+    }
+
+    @Override
+    public String getLongestSubstring() {
+        return index.getLongestSubstring();
+    }
+
+    @Override
+    public List<String> getMaximals() {
+        return index.getMaximals();
+    }
+
+    @Override
+    public Stream<Repeat> maximalRepeats(int minLength, int minOccurrences) {
+        return index.maximalRepeats(minLength, minOccurrences);
+    }
+
+    @Override
+    public Stream<Repeat> supermaximalRepeats(int minLength, int minOccurrences) {
+        return index.supermaximalRepeats(minLength, minOccurrences);
+    }
+
+    @Override
+    public List<Repeat> mostFrequent(int k, int minLength, int minDocuments) {
+        return index.mostFrequent(k, minLength, minDocuments);
+    }
+
+    @Override
+    public String textOf(Repeat repeat) {
+        return index.textOf(repeat);
+    }
+
+    @Override
+    public long bytes() {
+        return index.bytes();
+    }
+}
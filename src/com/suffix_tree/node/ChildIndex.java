@@ -0,0 +1,125 @@
+package com.suffix_tree.node;
+
+import com.suffix_tree.text.SymbolText;
+
+import java.util.Arrays;
+
+import static com.suffix_tree.node.NodeStore.DENSE_FANOUT;
+import static com.suffix_tree.node.NodeStore.NIL;
+
+/**
+ *  Index to find the child of a node by the first symbol of its edge, built once the tree is complete.
+ *
+ *  Nodes with few children keep the codes of their first symbols sorted in a shared pool and are
+ *  looked up with a binary search. Nodes with many children, usually near the root, get a table
+ *  with an entry for every symbol of the alphabet. Children starting with a terminator are left
+ *  out, patterns never contain them.
+ *
+ *  @version 1.0
+ *
+ */
+public class ChildIndex {
+
+    // Text the edge labels refer to
+    private final SymbolText text;
+
+    // Start of the children of every node in the pools, or of its table for dense nodes
+    private final int[] offset;
+
+    // Number of children of every node in the pools, -1 for dense nodes
+    private final int[] count;
+
+    // Sorted codes of the first symbols and the children they lead to
+    private final int[] codes;
+    private final int[] children;
+
+    // Tables of the dense nodes, one after another
+    private final int[] tables;
+
+    /**
+     * Build the index for all the nodes in a store
+     * @param nodes of the tree
+     * @param text the edge labels refer to
+     */
+    public ChildIndex(NodeStore nodes, SymbolText text) {
+        this.text = text;
+        int size = nodes.size();
+        int alphabetSize = text.alphabetSize();
+        offset = new int[size];
+        count = new int[size];
+
+        // Count children to size the pools
+        int pooled = 0, tabled = 0;
+        for (int node = 0; node < size; node++) {
+            int fanout = 0;
+            for (int child = nodes.firstChild(node); child != NIL; child = nodes.nextSibling(child)) {
+                if (text.codeAt(nodes.begin(child)) >= 0) fanout++;
+            }
+            if (fanout >= DENSE_FANOUT) {
+                offset[node] = tabled;
+                count[node] = -1;
+                tabled += alphabetSize;
+            } else {
+                offset[node] = pooled;
+                count[node] = fanout;
+                pooled += fanout;
+            }
+        }
+
+        codes = new int[pooled];
+        children = new int[pooled];
+        tables = new int[tabled];
+        Arrays.fill(tables, NIL);
+
+        for (int node = 0; node < size; node++) {
+            int n = 0;
+            for (int child = nodes.firstChild(node); child != NIL; child = nodes.nextSibling(child)) {
+                int code = text.codeAt(nodes.begin(child));
+                if (code < 0) continue;
+                if (count[node] < 0) {
+                    tables[offset[node] + code] = child;
+                    continue;
+                }
+                // Insertion sort, nodes with few children only
+                int i = offset[node] + n++;
+                while (i > offset[node] && codes[i - 1] > code) {
+                    codes[i] = codes[i - 1];
+                    children[i] = children[i - 1];
+                    i--;
+                }
+                codes[i] = code;
+                children[i] = child;
+            }
+        }
+    }
+
+    /**
+     * @param node parent node
+     * @param symbol first symbol of the edge
+     * @return child found or NIL if there is none
+     */
+    public int child(int node, int symbol) {
+        int code = text.code(symbol);
+        if (code < 0) return NIL;
+
+        int start = offset[node];
+        int n = count[node];
+        if (n < 0) return tables[start + code];
+
+        int low = start, high = start + n - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (codes[mid] < code) low = mid + 1;
+            else if (codes[mid] > code) high = mid - 1;
+            else return children[mid];
+        }
+        return NIL;
+    }
+
+    /**
+     * @return bytes taken by the pools and the tables
+     */
+    public long bytes() {
+        return 4L * (offset.length + count.length + codes.length + children.length + tables.length);
+    }
+}
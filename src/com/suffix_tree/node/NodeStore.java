@@ -0,0 +1,368 @@
+package com.suffix_tree.node;
+
+import com.suffix_tree.text.SymbolText;
+import com.suffix_tree.words.WordSet;
+
+import java.util.Arrays;
+
+/**
+ *  Storage for the nodes of a compacted suffix tree as parallel primitive arrays indexed by node id.
+ *
+ *  Every array is split in chunks of the same size, so the store grows a chunk at a time and never
+ *  copies the nodes already stored. Children of a node are kept as a linked list: the node points to
+ *  its first child and every child to its next sibling. Nodes with many children also get a table
+ *  indexed by the code of the first symbol of every child, so they are found in constant time.
+ *
+ *  @version 1.0
+ *
+ */
+public class NodeStore {
+
+    // Id used for a missing node
+    public static final int NIL = -1;
+
+    // Flag if node is left diverse
+    public static final int LEFT_DIVERSE = 1;
+
+    // Children a node needs to get a table indexed by symbol
+    public static final int DENSE_FANOUT = 8;
+
+    // Nodes in every chunk, as a power of two
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    // Size of a reference to an object, as with compressed pointers
+    private static final int REFERENCE_BYTES = 4;
+
+    // Positions of the edge label in the shared text, both inclusive
+    private int[][] begin = new int[0][];
+    private int[][] end = new int[0][];
+
+    // Links between nodes
+    private int[][] firstChild = new int[0][];
+    private int[][] nextSibling = new int[0][];
+    private int[][] suffixLink = new int[0][];
+
+    // Position where the path from the root to the node starts
+    private int[][] indexStartPath = new int[0][];
+
+    private int[][] flags = new int[0][];
+
+    // Number of leaves under every node, filled once the tree is complete
+    private int[][] leafCount = new int[0][];
+
+    // Words every node belongs to
+    private WordSet[][] listOfWords = new WordSet[0][];
+
+    // Table of children by symbol code, only for the nodes with many children
+    private int[][][] childTables = new int[0][][];
+
+    // Number of nodes in the store
+    private int size = 0;
+
+    // Text the edge labels refer to
+    private final SymbolText text;
+
+    /**
+     * Constructor for an empty store
+     * @param text the edge labels refer to
+     */
+    public NodeStore(SymbolText text) {
+        this.text = text;
+    }
+
+    /**
+     * Add a new node without children to the store
+     * @param begin first position of the edge label
+     * @param end last position of the edge label
+     * @param indexStartPath position where the path of the node starts
+     * @return id of the new node
+     */
+    public int newNode(int begin, int end, int indexStartPath) {
+        int node = size;
+        if ((node & CHUNK_MASK) == 0) {
+            addChunk();
+        }
+        size++;
+
+        int chunk = node >>> CHUNK_BITS, offset = node & CHUNK_MASK;
+        this.begin[chunk][offset] = begin;
+        this.end[chunk][offset] = end;
+        this.indexStartPath[chunk][offset] = indexStartPath;
+        firstChild[chunk][offset] = NIL;
+        nextSibling[chunk][offset] = NIL;
+        suffixLink[chunk][offset] = NIL;
+        listOfWords[chunk][offset] = WordSet.empty();
+        return node;
+    }
+
+    /**
+     * Allocate one more chunk for every array
+     */
+    private void addChunk() {
+        int chunks = begin.length + 1;
+        begin = Arrays.copyOf(begin, chunks);
+        end = Arrays.copyOf(end, chunks);
+        firstChild = Arrays.copyOf(firstChild, chunks);
+        nextSibling = Arrays.copyOf(nextSibling, chunks);
+        suffixLink = Arrays.copyOf(suffixLink, chunks);
+        indexStartPath = Arrays.copyOf(indexStartPath, chunks);
+        flags = Arrays.copyOf(flags, chunks);
+        leafCount = Arrays.copyOf(leafCount, chunks);
+        listOfWords = Arrays.copyOf(listOfWords, chunks);
+        childTables = Arrays.copyOf(childTables, chunks);
+
+        int last = chunks - 1;
+        begin[last] = new int[CHUNK_SIZE];
+        end[last] = new int[CHUNK_SIZE];
+        firstChild[last] = new int[CHUNK_SIZE];
+        nextSibling[last] = new int[CHUNK_SIZE];
+        suffixLink[last] = new int[CHUNK_SIZE];
+        indexStartPath[last] = new int[CHUNK_SIZE];
+        flags[last] = new int[CHUNK_SIZE];
+        leafCount[last] = new int[CHUNK_SIZE];
+        listOfWords[last] = new WordSet[CHUNK_SIZE];
+        childTables[last] = new int[CHUNK_SIZE][];
+    }
+
+    /**
+     * @return number of nodes in the store
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Estimate of the memory taken by the store: the columns of every chunk allocated and the tables
+     * of children. Sets of words are shared by many nodes and only their references are counted.
+     * @return bytes taken by the store
+     */
+    public long bytes() {
+        long perNode = 8L * Integer.BYTES + 2L * REFERENCE_BYTES;
+        long bytes = (long) begin.length * CHUNK_SIZE * perNode;
+        for (int node = 0; node < size; node++) {
+            int[] table = childTables[node >>> CHUNK_BITS][node & CHUNK_MASK];
+            if (table != null) bytes += 4L * table.length;
+        }
+        return bytes;
+    }
+
+    public int begin(int node) {
+        return begin[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    public void setBegin(int node, int value) {
+        begin[node >>> CHUNK_BITS][node & CHUNK_MASK] = value;
+    }
+
+    public int end(int node) {
+        return end[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    public void setEnd(int node, int value) {
+        end[node >>> CHUNK_BITS][node & CHUNK_MASK] = value;
+    }
+
+    /**
+     * @param node id
+     * @return number of symbols in the edge label of the node
+     */
+    public int length(int node) {
+        return end(node) - begin(node) + 1;
+    }
+
+    /**
+     * @param node id, with the start of its path set
+     * @return number of symbols in the path from the root to the end of the node, 0 for the root
+     */
+    public int depth(int node) {
+        return end(node) - indexStartPath(node) + 1;
+    }
+
+    public int firstChild(int node) {
+        return firstChild[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    public int nextSibling(int node) {
+        return nextSibling[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    public int suffixLink(int node) {
+        return suffixLink[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    public void setSuffixLink(int node, int value) {
+        suffixLink[node >>> CHUNK_BITS][node & CHUNK_MASK] = value;
+    }
+
+    public int indexStartPath(int node) {
+        return indexStartPath[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    public void setIndexStartPath(int node, int value) {
+        indexStartPath[node >>> CHUNK_BITS][node & CHUNK_MASK] = value;
+    }
+
+    public boolean isLeftDiverse(int node) {
+        return (flags[node >>> CHUNK_BITS][node & CHUNK_MASK] & LEFT_DIVERSE) != 0;
+    }
+
+    public void setLeftDiverse(int node, boolean value) {
+        if (value) flags[node >>> CHUNK_BITS][node & CHUNK_MASK] |= LEFT_DIVERSE;
+        else flags[node >>> CHUNK_BITS][node & CHUNK_MASK] &= ~LEFT_DIVERSE;
+    }
+
+    public int leafCount(int node) {
+        return leafCount[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    public void setLeafCount(int node, int value) {
+        leafCount[node >>> CHUNK_BITS][node & CHUNK_MASK] = value;
+    }
+
+    public WordSet listOfWords(int node) {
+        return listOfWords[node >>> CHUNK_BITS][node & CHUNK_MASK];
+    }
+
+    public void setListOfWords(int node, WordSet value) {
+        listOfWords[node >>> CHUNK_BITS][node & CHUNK_MASK] = value;
+    }
+
+    /**
+     * @param node id
+     * @return true if the node has no children
+     */
+    public boolean isLeaf(int node) {
+        return firstChild(node) == NIL;
+    }
+
+    /**
+     * Child of a node whose edge starts with a given symbol. Terminators are never looked for: each one
+     * appears once in the text, so no edge starts with it before the leaf ending there is added.
+     * @param node parent node
+     * @param symbol first symbol of the edge
+     * @return child found or NIL if there is none
+     */
+    public int child(int node, int symbol) {
+        return childByCode(node, text.code(symbol));
+    }
+
+    /**
+     * @param node parent node
+     * @param position in the text of the first symbol of the edge
+     * @return child whose edge starts with the symbol at the position, NIL if there is none
+     */
+    public int childFor(int node, int position) {
+        return childByCode(node, text.codeAt(position));
+    }
+
+    /**
+     * @param node parent node
+     * @param code of the first symbol of the edge, -1 for terminators
+     * @return child found or NIL if there is none
+     */
+    private int childByCode(int node, int code) {
+        if (code < 0) return NIL;
+
+        int[] table = childTables[node >>> CHUNK_BITS][node & CHUNK_MASK];
+        if (table != null && code < table.length) return table[code];
+
+        int scanned = 0;
+        for (int child = firstChild(node); child != NIL; child = nextSibling(child)) {
+            if (text.codeAt(begin(child)) == code) return child;
+            scanned++;
+        }
+        if (scanned >= DENSE_FANOUT) {
+            buildChildTable(node);
+        }
+        return NIL;
+    }
+
+    /**
+     * Index the children of a node by the code of their first symbol
+     * @param node with many children
+     */
+    private void buildChildTable(int node) {
+        int[] table = new int[text.alphabetSize()];
+        Arrays.fill(table, NIL);
+        for (int child = firstChild(node); child != NIL; child = nextSibling(child)) {
+            int code = text.codeAt(begin(child));
+            if (code >= 0) table[code] = child;
+        }
+        childTables[node >>> CHUNK_BITS][node & CHUNK_MASK] = table;
+    }
+
+    /**
+     * Update the table of children of a node, if it has one
+     * @param parent node
+     * @param child whose first symbol gives the entry
+     * @param value for the entry
+     */
+    private void updateChildTable(int parent, int child, int value) {
+        int[] table = childTables[parent >>> CHUNK_BITS][parent & CHUNK_MASK];
+        if (table != null) {
+            int code = text.codeAt(begin(child));
+            if (code >= table.length) {
+                // Character appended to the text after the table was built, it is built again when needed
+                childTables[parent >>> CHUNK_BITS][parent & CHUNK_MASK] = null;
+            } else if (code >= 0) {
+                table[code] = value;
+            }
+        }
+    }
+
+    /**
+     * Add a child to a node, it becomes its first child
+     * @param parent node
+     * @param child node
+     */
+    public void addChild(int parent, int child) {
+        nextSibling[child >>> CHUNK_BITS][child & CHUNK_MASK] = firstChild(parent);
+        firstChild[parent >>> CHUNK_BITS][parent & CHUNK_MASK] = child;
+        updateChildTable(parent, child, child);
+    }
+
+    /**
+     * Put a node in the place of one of the children of a node, both edges must start with the same
+     * symbol
+     * @param parent node
+     * @param child to be replaced
+     * @param replacement node taking the place of the child
+     */
+    public void replaceChild(int parent, int child, int replacement) {
+        nextSibling[replacement >>> CHUNK_BITS][replacement & CHUNK_MASK] = nextSibling(child);
+        nextSibling[child >>> CHUNK_BITS][child & CHUNK_MASK] = NIL;
+        relink(parent, child, replacement);
+        updateChildTable(parent, replacement, replacement);
+    }
+
+    /**
+     * Remove one of the children of a node
+     * @param parent node
+     * @param child to be removed
+     */
+    public void removeChild(int parent, int child) {
+        relink(parent, child, nextSibling(child));
+        nextSibling[child >>> CHUNK_BITS][child & CHUNK_MASK] = NIL;
+        updateChildTable(parent, child, NIL);
+    }
+
+    /**
+     * Make the link pointing to a child of a node point to another one
+     * @param parent node
+     * @param child currently linked
+     * @param next node to be linked instead
+     */
+    private void relink(int parent, int child, int next) {
+        if (firstChild(parent) == child) {
+            firstChild[parent >>> CHUNK_BITS][parent & CHUNK_MASK] = next;
+            return;
+        }
+        int previous = firstChild(parent);
+        while (nextSibling(previous) != child) {
+            previous = nextSibling(previous);
+        }
+        nextSibling[previous >>> CHUNK_BITS][previous & CHUNK_MASK] = next;
+    }
+}
@@ -0,0 +1,93 @@
+package com.suffix_tree.text;
+
+/**
+ *  Normalisation of the characters of words and patterns: only letters a to z, digits and the
+ *  accented vowels are kept, in lower case unless the normaliser is case sensitive.
+ *
+ *  Every character is mapped through a table built once, instead of matching a regular expression
+ *  and lowering the case of every word.
+ *
+ *  @version 1.0
+ *
+ */
+public final class Normalizer {
+
+    // Characters kept, all of them below TABLE_SIZE
+    private static final String KEPT = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789áéíóúÁÉÍÓÚ";
+
+    private static final int TABLE_SIZE = 256;
+
+    // Character every character is mapped to, DROPPED for the ones removed
+    private final char[] table = new char[TABLE_SIZE];
+
+    // Mapping of the characters removed
+    public static final char DROPPED = 0;
+
+    // Different characters the kept ones are mapped to, in the order of KEPT
+    private final String alphabet;
+
+    private static final Normalizer CASE_SENSITIVE = new Normalizer(true);
+    private static final Normalizer CASE_INSENSITIVE = new Normalizer(false);
+
+    private Normalizer(boolean caseSensitive) {
+        for (int i = 0; i < KEPT.length(); i++) {
+            char c = KEPT.charAt(i);
+            table[c] = caseSensitive ? c : Character.toLowerCase(c);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < KEPT.length(); i++) {
+            char mapped = table[KEPT.charAt(i)];
+            if (sb.indexOf(String.valueOf(mapped)) < 0) sb.append(mapped);
+        }
+        alphabet = sb.toString();
+    }
+
+    /**
+     * @param caseSensitive true to keep upper case letters
+     * @return normaliser for the given case
+     */
+    public static Normalizer of(boolean caseSensitive) {
+        return caseSensitive ? CASE_SENSITIVE : CASE_INSENSITIVE;
+    }
+
+    /**
+     * @return every character a normalised word can hold, each once
+     */
+    public String alphabet() {
+        return alphabet;
+    }
+
+    /**
+     * @param c character to be normalised
+     * @return character it is mapped to, DROPPED if it is removed
+     */
+    public char map(char c) {
+        return (c < TABLE_SIZE) ? table[c] : DROPPED;
+    }
+
+    /**
+     * Normalise the characters of an array in place, moving the ones kept to the front
+     * @param chars characters to be normalised
+     * @param from first index, inclusive
+     * @param to last index, exclusive
+     * @return index past the last character kept
+     */
+    public int normalize(char[] chars, int from, int to) {
+        int kept = from;
+        for (int i = from; i < to; i++) {
+            char c = chars[i];
+            char mapped = (c < TABLE_SIZE) ? table[c] : DROPPED;
+            if (mapped != DROPPED) chars[kept++] = mapped;
+        }
+        return kept;
+    }
+
+    /**
+     * @param s word or pattern
+     * @return word with only the characters kept
+     */
+    public String normalize(String s) {
+        char[] chars = s.toCharArray();
+        return new String(chars, 0, normalize(chars, 0, chars.length));
+    }
+}
@@ -0,0 +1,74 @@
+package com.suffix_tree.text;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ *  Reader giving the characters of another one normalised like the words, the ones removed by the
+ *  normaliser being skipped, so a text can be streamed without being held in memory.
+ *
+ *  @version 1.0
+ *
+ */
+public class NormalizingReader extends FilterReader {
+
+    private final Normalizer normalizer;
+
+    /**
+     * Constructor for a normalising reader
+     * @param in reader of the characters as they are
+     * @param normalizer of the characters
+     */
+    public NormalizingReader(Reader in, Normalizer normalizer) {
+        super(in);
+        this.normalizer = normalizer;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int c;
+        do {
+            c = in.read();
+        } while (c >= 0 && normalizer.map((char) c) == Normalizer.DROPPED);
+        return (c < 0) ? -1 : normalizer.map((char) c);
+    }
+
+    /**
+     * Blocks until a character is kept or the reader ends, like any reader
+     */
+    @Override
+    public int read(char[] chars, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        while (true) {
+            int read = in.read(chars, off, len);
+            if (read < 0) return -1;
+            int kept = normalizer.normalize(chars, off, off + read) - off;
+            if (kept > 0) return kept;
+        }
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && read() >= 0) {
+            skipped++;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public void mark(int readAheadLimit) throws IOException {
+        throw new IOException("mark() not supported");
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("reset() not supported");
+    }
+}
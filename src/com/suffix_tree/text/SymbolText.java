@@ -0,0 +1,520 @@
+package com.suffix_tree.text;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ *  Text shared by all the nodes of a tree: every word concatenated and followed by its own
+ *  terminator. Nodes refer to it with offsets instead of keeping copies of their labels.
+ *
+ *  Terminators are negative symbols, different for every word, so they never match a character
+ *  nor each other.
+ *
+ *  Symbols are stored as dense codes of the characters of the text, one byte each while the text has
+ *  less than 256 different characters and an int each after that. Terminators are all stored as the
+ *  same code and told apart by their position, so symbolAt still gives every word its own one.
+ *
+ *  Codes follow the order of the characters when the text is built. Words can be appended later;
+ *  characters they bring in get the next codes, so the codes already given never change, but they
+ *  are no longer sorted like the characters.
+ *
+ *  A text written by a MappedBuilder keeps its symbols in a file mapped in memory instead of the heap,
+ *  for texts larger than the heap. Its alphabet is known before the words are written, and no word
+ *  can be appended afterwards.
+ *
+ *  @version 1.0
+ *
+ */
+public class SymbolText {
+
+    // Symbol preceding the first position of the text
+    public static final int NO_SYMBOL = Integer.MIN_VALUE;
+
+    // Largest number of symbols an array can hold
+    private static final int MAX_LENGTH = Integer.MAX_VALUE - 8;
+
+    // Largest alphabet stored in bytes, code + 1 of every character must fit in one
+    private static final int BYTE_ALPHABET = 255;
+
+    // Bytes of every segment a file of symbols is mapped in, a multiple of the bytes of an int
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+    // Code + 1 of every symbol, 0 for terminators, with room for words appended later. Only one of
+    // them is used: bytes while the alphabet is small and ints once it grows larger
+    private byte[] bytes;
+    private int[] ints;
+    private int length;
+
+    // Code + 1 of every symbol when they are in a file instead, one byte each or, when wide, an int
+    private MappedByteBuffer[] mapped;
+    private boolean wide;
+
+    // Position of the terminator of every word, with room for words appended later
+    private int[] terminators;
+    private int words;
+
+    // Dense code of every character in the text, -1 for the ones not present
+    private int[] codes;
+
+    // Character of every code + 1, -1 in the first entry, the one of the terminators
+    private int[] characters;
+
+    // Number of different characters in the text, terminators excluded
+    private int alphabetSize;
+
+    /**
+     * Constructor for the shared text
+     * @param words to be concatenated
+     */
+    public SymbolText(String[] words) {
+        this(capacity(words));
+        for (String word : words) {
+            addWord(word);
+        }
+        sortCodes();
+    }
+
+    /**
+     * Constructor for a text without words
+     * @param capacity number of symbols expected, terminators included
+     */
+    private SymbolText(int capacity) {
+        bytes = new byte[Math.max(capacity, 1)];
+        terminators = new int[4];
+        codes = new int[0];
+        characters = new int[]{-1};
+    }
+
+    /**
+     * @param words to be concatenated
+     * @return number of symbols of the text with all the words
+     */
+    private static int capacity(String[] words) {
+        long length = 0;
+        for (String word : words) {
+            length += word.length() + 1;
+        }
+        return (int) Math.min(length, MAX_LENGTH);
+    }
+
+    /**
+     * @return number of symbols in the text, terminators included
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Append a word followed by its terminator, the positions of the words already there do not change
+     * @param word characters of the word
+     * @return index of the new word
+     */
+    public int addWord(CharSequence word) {
+        if (mapped != null) throw new IllegalStateException("Words cannot be appended to a mapped text");
+        int n = word.length();
+        long needed = length + (long) n + 1;
+        if (needed > MAX_LENGTH) throw new IllegalArgumentException("Text too long: " + needed);
+        int capacity = (bytes != null) ? bytes.length : ints.length;
+        if (needed > capacity) {
+            capacity = (int) Math.min(MAX_LENGTH, Math.max(needed, 2L * capacity));
+            if (bytes != null) bytes = Arrays.copyOf(bytes, capacity);
+            else ints = Arrays.copyOf(ints, capacity);
+        }
+        if (words == terminators.length) {
+            terminators = Arrays.copyOf(terminators, 2 * words);
+        }
+
+        for (int i = 0; i < n; i++) {
+            char c = word.charAt(i);
+            int code = (c < codes.length) ? codes[c] : -1;
+            if (code < 0) code = newCode(c);
+            if (bytes != null) bytes[length++] = (byte) (code + 1);
+            else ints[length++] = code + 1;
+        }
+        terminators[words] = length;
+        if (bytes != null) bytes[length++] = 0;
+        else ints[length++] = 0;
+        return words++;
+    }
+
+    /**
+     * Give the next code to a character not in the text yet, moving the symbols to ints once the
+     * alphabet does not fit in bytes
+     * @param c new character
+     * @return code of the character
+     */
+    private int newCode(char c) {
+        if (c >= codes.length) {
+            int size = codes.length;
+            codes = Arrays.copyOf(codes, Math.max(c + 1, 2 * size));
+            Arrays.fill(codes, size, codes.length, -1);
+        }
+        int code = alphabetSize++;
+        codes[c] = code;
+        if (code + 1 == characters.length) {
+            characters = Arrays.copyOf(characters, 2 * characters.length);
+        }
+        characters[code + 1] = c;
+
+        if (bytes != null && alphabetSize > BYTE_ALPHABET) {
+            ints = new int[bytes.length];
+            for (int i = 0; i < length; i++) {
+                ints[i] = bytes[i] & 0xFF;
+            }
+            bytes = null;
+        }
+        return code;
+    }
+
+    /**
+     * Renumber the codes in the order of their characters, once all the words of a new text are in
+     */
+    private void sortCodes() {
+        int[] sorted = Arrays.copyOfRange(characters, 1, alphabetSize + 1);
+        Arrays.sort(sorted);
+
+        // New code + 1 of every old code + 1, terminators stay 0
+        int[] renamed = new int[alphabetSize + 1];
+        boolean changed = false;
+        for (int old = 1; old <= alphabetSize; old++) {
+            renamed[old] = Arrays.binarySearch(sorted, characters[old]) + 1;
+            changed |= renamed[old] != old;
+        }
+        if (!changed) return;
+
+        for (int code = 0; code < alphabetSize; code++) {
+            characters[code + 1] = sorted[code];
+            codes[sorted[code]] = code;
+        }
+        if (bytes != null) {
+            for (int i = 0; i < length; i++) {
+                bytes[i] = (byte) renamed[bytes[i] & 0xFF];
+            }
+        } else {
+            for (int i = 0; i < length; i++) {
+                ints[i] = renamed[ints[i]];
+            }
+        }
+    }
+
+    /**
+     * @param position in the text
+     * @return code + 1 of the symbol at the position, 0 for terminators
+     */
+    private int stored(int position) {
+        if (bytes != null) return bytes[position] & 0xFF;
+        if (ints != null) return ints[position];
+
+        long offset = wide ? 4L * position : position;
+        MappedByteBuffer segment = mapped[(int) (offset >>> SEGMENT_BITS)];
+        return wide ? segment.getInt((int) (offset & SEGMENT_MASK)) : segment.get((int) (offset & SEGMENT_MASK)) & 0xFF;
+    }
+
+    /**
+     * @param position in the text
+     * @return symbol at the given position
+     */
+    public int symbolAt(int position) {
+        int c = characters[stored(position)];
+        return (c >= 0) ? c : terminator(wordOf(position));
+    }
+
+    /**
+     * @param position in the text
+     * @return dense code of the symbol at the position, -1 for terminators
+     */
+    public int codeAt(int position) {
+        return stored(position) - 1;
+    }
+
+    /**
+     * Comparison of two symbols on their codes. Every terminator appears once, so two different
+     * positions never hold the same one.
+     * @param a position in the text
+     * @param b another position in the text
+     * @return true if both positions hold the same character
+     */
+    public boolean matches(int a, int b) {
+        int code = stored(a);
+        return code == stored(b) && code != 0;
+    }
+
+    /**
+     * @param position in the text
+     * @return symbol preceding the given position, NO_SYMBOL for the first one
+     */
+    public int leftSymbol(int position) {
+        return (position > 0) ? symbolAt(position - 1) : NO_SYMBOL;
+    }
+
+    /**
+     * @return number of different characters in the text, terminators excluded
+     */
+    public int alphabetSize() {
+        return alphabetSize;
+    }
+
+    /**
+     * @return largest character of the text, -1 if it has none
+     */
+    public int maxCharacter() {
+        int max = -1;
+        for (int code = 1; code <= alphabetSize; code++) {
+            max = Math.max(max, characters[code]);
+        }
+        return max;
+    }
+
+    /**
+     * @param symbol character or terminator
+     * @return dense code of the character, between 0 and alphabetSize() - 1, or -1 if it is not
+     *          in the text or it is a terminator
+     */
+    public int code(int symbol) {
+        return (symbol >= 0 && symbol < codes.length) ? codes[symbol] : -1;
+    }
+
+    /**
+     * @return number of words in the text
+     */
+    public int words() {
+        return words;
+    }
+
+    /**
+     * @return bytes taken by the symbols, with the room left for words appended later, and the tables
+     */
+    public long bytes() {
+        long symbols = (bytes != null) ? bytes.length : (ints != null) ? 4L * ints.length : wide ? 4L * length : length;
+        return symbols + 4L * (terminators.length + codes.length + characters.length);
+    }
+
+    /**
+     * @param word index of the word
+     * @return position where the word starts
+     */
+    public int wordStart(int word) {
+        return (word == 0) ? 0 : terminators[word - 1] + 1;
+    }
+
+    /**
+     * @param word index of the word
+     * @return position of the terminator of the word
+     */
+    public int terminatorOf(int word) {
+        return terminators[word];
+    }
+
+    /**
+     * @param position in the text
+     * @return index of the word the position belongs to
+     */
+    public int wordOf(int position) {
+        int low = 0, high = words - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (terminators[mid] < position) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * @param word index of the word
+     * @return terminator symbol of the word
+     */
+    public static int terminator(int word) {
+        return -(word + 1);
+    }
+
+    /**
+     * @param symbol to be checked
+     * @return true if the symbol ends a word
+     */
+    public static boolean isTerminator(int symbol) {
+        return symbol < 0;
+    }
+
+    /**
+     * @param begin first position, inclusive
+     * @param end last position, exclusive
+     * @return characters between both positions, terminators written as '$'
+     */
+    public String substring(int begin, int end) {
+        StringBuilder sb = new StringBuilder(end - begin);
+        for (int i = begin; i < end; i++) {
+            int c = characters[stored(i)];
+            sb.append((c >= 0) ? (char) c : '$');
+        }
+        return sb.toString();
+    }
+
+    /**
+     *  Writes words straight into the symbols of a text, so words read from files are not turned into
+     *  strings first. A builder builds a single text.
+     */
+    public static class Builder {
+
+        // Text being written, null once it is built
+        private SymbolText text;
+
+        /**
+         * Constructor for an empty builder
+         */
+        public Builder() {
+            this(16);
+        }
+
+        /**
+         * Constructor for an empty builder
+         * @param capacity number of symbols expected, terminators included
+         */
+        public Builder(int capacity) {
+            text = new SymbolText(capacity);
+        }
+
+        /**
+         * Append a word followed by its terminator
+         * @param word characters of the word
+         * @return this builder
+         */
+        public Builder addWord(CharSequence word) {
+            text.addWord(word);
+            return this;
+        }
+
+        /**
+         * @return number of words added
+         */
+        public int words() {
+            return text.words();
+        }
+
+        /**
+         * @return text with all the words added, the builder cannot be used afterwards
+         */
+        public SymbolText build() {
+            if (text == null) throw new IllegalStateException("Text already built");
+            SymbolText result = text;
+            text = null;
+            result.sortCodes();
+            return result;
+        }
+    }
+
+    /**
+     *  Writes the words of a text to a file of symbols, one at a time and in blocks of characters, and
+     *  maps the file once they are all written. The characters of the words must be given first, so
+     *  the codes are sorted and their width known before any symbol is written.
+     */
+    public static class MappedBuilder implements Closeable {
+
+        private final Path path;
+        private final DataOutputStream out;
+
+        // Text the symbols are written for, without them until it is built
+        private final SymbolText text;
+
+        // Symbols written so far, the ones of the current word included
+        private long length = 0;
+
+        /**
+         * Constructor for a builder writing a new file
+         * @param path of the file of symbols, replaced if it exists
+         * @param alphabet every character the words may hold, in any order
+         * @throws IOException if the file cannot be written
+         */
+        public MappedBuilder(Path path, CharSequence alphabet) throws IOException {
+            this.path = path;
+            text = new SymbolText(0);
+            text.bytes = null;
+            alphabet.chars().sorted().distinct().forEach(c -> text.newCode((char) c));
+            text.ints = null;
+            text.wide = text.alphabetSize > BYTE_ALPHABET;
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 1 << 16));
+        }
+
+        /**
+         * Append characters to the current word
+         * @param chars characters of the word
+         * @param from first index, inclusive
+         * @param to last index, exclusive
+         * @return this builder
+         * @throws IOException if the file cannot be written
+         */
+        public MappedBuilder append(char[] chars, int from, int to) throws IOException {
+            for (int i = from; i < to; i++) {
+                int code = text.code(chars[i]);
+                if (code < 0) throw new IllegalArgumentException("Character not in the alphabet: " + chars[i]);
+                write(code + 1);
+            }
+            return this;
+        }
+
+        /**
+         * End the current word with its terminator
+         * @return this builder
+         * @throws IOException if the file cannot be written
+         */
+        public MappedBuilder endWord() throws IOException {
+            if (text.words == text.terminators.length) {
+                text.terminators = Arrays.copyOf(text.terminators, 2 * text.words);
+            }
+            text.terminators[text.words++] = (int) length;
+            write(0);
+            return this;
+        }
+
+        /**
+         * @param stored code + 1 of the next symbol, 0 for a terminator
+         */
+        private void write(int stored) throws IOException {
+            if (length == MAX_LENGTH) {
+                throw new IOException("Text too long, at most " + MAX_LENGTH + " symbols can be indexed");
+            }
+            if (text.wide) out.writeInt(stored);
+            else out.writeByte(stored);
+            length++;
+        }
+
+        /**
+         * @return words ended so far
+         */
+        public int words() {
+            return text.words;
+        }
+
+        /**
+         * @return text with all the words ended, over the file mapped read only
+         * @throws IOException if the file cannot be mapped
+         */
+        public SymbolText build() throws IOException {
+            out.close();
+            long size = Files.size(path);
+            MappedByteBuffer[] segments = new MappedByteBuffer[(int) ((size + SEGMENT_MASK) >>> SEGMENT_BITS)];
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                for (int i = 0; i < segments.length; i++) {
+                    long start = (long) i << SEGMENT_BITS;
+                    segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, 1L << SEGMENT_BITS));
+                }
+            }
+            text.mapped = segments;
+            text.length = (int) length;
+            return text;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
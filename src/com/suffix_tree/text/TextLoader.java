@@ -0,0 +1,184 @@
+package com.suffix_tree.text;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ *  Reading of UTF-8 files as normalised words.
+ *
+ *  Files are read through a channel in blocks, decoded straight into the array holding the word and
+ *  normalised in place, so a file is never held as a string nor split in tokens. A UTF-8 file never
+ *  has more characters than bytes, so the array is sized once from the size of the file. Bytes that
+ *  are not valid UTF-8 are dropped like any other character not kept.
+ *
+ *  Texts larger than the heap are written to a file of symbols instead, see map, streaming every
+ *  file twice: once to find the characters kept and once to write their codes.
+ *
+ *  @version 1.0
+ *
+ */
+public final class TextLoader {
+
+    // Bytes read from the channel at a time
+    private static final int BLOCK_BYTES = 1 << 16;
+
+    private TextLoader() {
+    }
+
+    /**
+     * Write the words of many files, followed by other words, to a file of symbols and map it, so the
+     * heap never holds the text, whatever its size
+     * @param paths of UTF-8 files
+     * @param words added after the files as they are, not normalised
+     * @param normalizer of the characters of the files
+     * @param symbols file the symbols are written to, replaced if it exists
+     * @return text over the file mapped, the files first so word indexes match the list of files
+     * @throws IOException if any of the files cannot be read, the symbols cannot be written or the
+     *          text has more symbols than can be indexed
+     */
+    public static SymbolText map(List<Path> paths, List<String> words, Normalizer normalizer, Path symbols)
+            throws IOException {
+        char[] block = new char[BLOCK_BYTES];
+
+        // Characters kept, to give them their codes before writing any
+        boolean[] present = new boolean[Character.MAX_VALUE + 1];
+        for (Path path : paths) {
+            try (Reader reader = reader(path, normalizer)) {
+                for (int read = reader.read(block); read >= 0; read = reader.read(block)) {
+                    for (int i = 0; i < read; i++) present[block[i]] = true;
+                }
+            }
+        }
+        for (String word : words) {
+            for (int i = 0; i < word.length(); i++) present[word.charAt(i)] = true;
+        }
+        StringBuilder alphabet = new StringBuilder();
+        for (int c = 0; c < present.length; c++) {
+            if (present[c]) alphabet.append((char) c);
+        }
+
+        try (SymbolText.MappedBuilder builder = new SymbolText.MappedBuilder(symbols, alphabet)) {
+            for (Path path : paths) {
+                try (Reader reader = reader(path, normalizer)) {
+                    for (int read = reader.read(block); read >= 0; read = reader.read(block)) {
+                        builder.append(block, 0, read);
+                    }
+                }
+                builder.endWord();
+            }
+            for (String word : words) {
+                builder.append(word.toCharArray(), 0, word.length()).endWord();
+            }
+            return builder.build();
+        }
+    }
+
+    /**
+     * @param path of a UTF-8 file
+     * @param normalizer of the characters
+     * @return reader of the characters kept, bytes not valid UTF-8 dropped
+     * @throws IOException if the file cannot be opened
+     */
+    private static Reader reader(Path path, Normalizer normalizer) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        return new NormalizingReader(new InputStreamReader(Channels.newInputStream(channel), decoder), normalizer);
+    }
+
+    /**
+     * @param path of a UTF-8 file
+     * @param normalizer of the characters
+     * @return characters kept, between position and limit of the buffer
+     * @throws IOException if the file cannot be read
+     */
+    public static CharBuffer read(Path path, Normalizer normalizer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE - 8) {
+                throw new IOException("Files over 2 GB are not supported: " + path);
+            }
+            char[] chars = new char[(int) channel.size()];
+            CharBuffer out = CharBuffer.wrap(chars);
+            ByteBuffer in = ByteBuffer.allocate(BLOCK_BYTES);
+            CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+            // Characters of the file normalised so far
+            int kept = 0;
+            boolean endOfInput = false;
+            while (!endOfInput) {
+                endOfInput = channel.read(in) < 0;
+                in.flip();
+                CoderResult result = decoder.decode(in, out, endOfInput);
+                if (endOfInput) result = decoder.flush(out);
+                if (result.isError() || result.isOverflow()) result.throwException();
+                in.compact();
+
+                kept = normalizer.normalize(chars, kept, out.position());
+                out.position(kept);
+            }
+            return out.flip();
+        }
+    }
+
+    /**
+     * Read many files at once, every file on a thread of its own up to the given number of threads
+     * @param paths of UTF-8 files
+     * @param normalizer of the characters
+     * @param threads largest number of files read at the same time
+     * @return characters kept of every file, in the order of the paths
+     * @throws IOException if any of the files cannot be read
+     */
+    public static List<CharBuffer> readAll(List<Path> paths, Normalizer normalizer, int threads) throws IOException {
+        if (paths.size() <= 1 || threads <= 1) {
+            ArrayList<CharBuffer> result = new ArrayList<>(paths.size());
+            for (Path path : paths) {
+                result.add(read(path, normalizer));
+            }
+            return result;
+        }
+
+        ArrayList<Callable<CharBuffer>> tasks = new ArrayList<>(paths.size());
+        for (Path path : paths) {
+            tasks.add(() -> read(path, normalizer));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, paths.size()));
+        try {
+            ArrayList<CharBuffer> result = new ArrayList<>(paths.size());
+            for (Future<CharBuffer> future : executor.invokeAll(tasks)) {
+                result.add(future.get());
+            }
+            return result;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading files", ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof IOException cause) throw cause;
+            if (ex.getCause() instanceof RuntimeException cause) throw cause;
+            if (ex.getCause() instanceof Error cause) throw cause;
+            throw new IllegalStateException(ex.getCause());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.suffix_tree.tree;
+
+import com.suffix_tree.index.ApproximateMatch;
+import com.suffix_tree.index.Distance;
+import com.suffix_tree.utils.IntStack;
+import com.suffix_tree.words.WordSet;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ *  Search of a pattern with up to k errors, walking the tree depth first with its own explicit stack
+ *  and one row of a dynamic programming table for every symbol of the current path.
+ *
+ *  Every path from the root is the beginning of some suffixes, so a match of the whole pattern
+ *  against the first symbols of a path is a match starting at every leaf below. With Hamming
+ *  distance the row is just the mismatches so far. With Levenshtein distance it is the distance from
+ *  every prefix of the pattern to the path, kept only in a band of 2k + 1 cells around the diagonal,
+ *  as cells further away already exceed k. Rows never decrease going down, so a path is left as soon
+ *  as the smallest cell of its row cannot improve on the best match already found above.
+ *
+ *  Paths stop at the terminators, so matches never cross from a word to the next.
+ *
+ *  @version 1.0
+ *
+ */
+final class ApproximateSearch {
+
+    private final TreeView tree;
+
+    /**
+     * @param tree searched
+     */
+    ApproximateSearch(TreeView tree) {
+        this.tree = tree;
+    }
+
+    /**
+     * @param pattern to be looked for
+     * @param k most errors allowed
+     * @param distance way errors are counted
+     * @return words where the pattern appears with up to k errors
+     */
+    WordSet search(String pattern, int k, Distance distance) {
+        IntStack found = find(pattern, k, distance);
+        WordSet words = WordSet.empty();
+        for (int i = 0; i < found.size(); i += 3) {
+            words = words.union(tree.wordsOf(found.get(i)));
+        }
+        return words;
+    }
+
+    /**
+     * @param pattern to be looked for
+     * @param k most errors allowed
+     * @param distance way errors are counted
+     * @return matches of the pattern with up to k errors, one for every starting position with its
+     *          fewest errors and then its shortest length, sorted by position
+     */
+    List<ApproximateMatch> locate(String pattern, int k, Distance distance) {
+        IntStack found = find(pattern, k, distance);
+        HashMap<Integer, ApproximateMatch> best = new HashMap<>();
+        IntStack leaves = new IntStack();
+        for (int i = 0; i < found.size(); i += 3) {
+            int length = found.get(i + 1), errors = found.get(i + 2);
+            leaves.push(found.get(i));
+            while (!leaves.isEmpty()) {
+                int node = leaves.pop();
+                if (!tree.isLeaf(node)) {
+                    tree.pushChildren(node, leaves);
+                    continue;
+                }
+                ApproximateMatch match = new ApproximateMatch(tree.pathStart(node), length, errors);
+                best.merge(match.position(), match, (a, b) ->
+                        (a.errors() < b.errors() || a.errors() == b.errors() && a.length() <= b.length()) ? a : b);
+            }
+        }
+        ArrayList<ApproximateMatch> result = new ArrayList<>(best.values());
+        result.sort(Comparator.comparingInt(ApproximateMatch::position));
+        return result;
+    }
+
+    /**
+     * Walk the paths that stay within the error budget
+     * @param pattern to be looked for
+     * @param k most errors allowed
+     * @param distance way errors are counted
+     * @return node below every match, length of the path matched and errors, three integers each;
+     *          a path gives a new match only if it has fewer errors than the ones above it
+     */
+    private IntStack find(String pattern, int k, Distance distance) {
+        IntStack found = new IntStack();
+        int m = pattern.length();
+        if (m == 0 || k < 0) return found;
+
+        boolean hamming = distance == Distance.HAMMING;
+        int maxDepth = hamming ? m : m + k;
+        int infinity = k + 1;
+
+        // Row of every depth of the current path: mismatches, or the band of cells j from
+        // depth - k - 1 to depth + k + 1 of the distances, cell j at j - depth + k + 1
+        int[][] rows = new int[maxDepth + 1][hamming ? 1 : 2 * k + 3];
+        if (!hamming) {
+            for (int j = 0; j <= Math.min(m, k + 1); j++) {
+                rows[0][j + k + 1] = Math.min(j, infinity);
+            }
+        }
+
+        // Frames: node, depth where its edge starts and fewest errors of the matches above it
+        IntStack stack = new IntStack();
+        IntStack children = new IntStack();
+        pushFrames(tree.root(), 0, infinity, stack, children);
+
+        while (!stack.isEmpty()) {
+            int best = stack.pop(), depth = stack.pop(), node = stack.pop();
+            int begin = tree.begin(node), length = tree.length(node);
+            boolean open = true;
+
+            for (int i = 0; i < length && open; i++) {
+                int symbol = tree.symbolAt(begin + i);
+                if (symbol < 0 || depth == maxDepth) {
+                    open = false;
+                    break;
+                }
+                depth++;
+
+                int errors, min;
+                if (hamming) {
+                    min = rows[depth - 1][0] + ((pattern.charAt(depth - 1) == symbol) ? 0 : 1);
+                    rows[depth][0] = min;
+                    errors = (depth == m) ? min : infinity;
+                } else {
+                    min = levenshteinRow(rows[depth - 1], rows[depth], depth, symbol, pattern, k);
+                    errors = (depth >= m - k) ? rows[depth][m - depth + k + 1] : infinity;
+                }
+
+                if (errors < best) {
+                    found.push(node);
+                    found.push(depth);
+                    found.push(errors);
+                    best = errors;
+                }
+                if (min >= best) open = false;
+            }
+
+            if (open && !tree.isLeaf(node)) pushFrames(node, depth, best, stack, children);
+        }
+        return found;
+    }
+
+    /**
+     * @param node whose children are pushed
+     * @param depth of the path of the node
+     * @param best fewest errors of the matches on the path of the node
+     * @param stack of frames
+     * @param children scratch stack
+     */
+    private void pushFrames(int node, int depth, int best, IntStack stack, IntStack children) {
+        children.clear();
+        tree.pushChildren(node, children);
+        for (int i = 0; i < children.size(); i++) {
+            stack.push(children.get(i));
+            stack.push(depth);
+            stack.push(best);
+        }
+    }
+
+    /**
+     * Fill the band of the row of a depth from the one above it
+     * @param previous band of the row of depth - 1
+     * @param current band of the row of depth, filled
+     * @param depth number of symbols of the path
+     * @param symbol last symbol of the path
+     * @param pattern looked for
+     * @param k most errors allowed, larger distances are kept as k + 1
+     * @return smallest cell of the row
+     */
+    private static int levenshteinRow(int[] previous, int[] current, int depth, int symbol, String pattern, int k) {
+        int m = pattern.length(), infinity = k + 1;
+        int from = Math.max(1, depth - k), to = Math.min(m, depth + k);
+        int shift = k + 1 - depth; // Cell j of this row is at j + shift, of the previous row at j + shift + 1
+
+        int min = infinity;
+        if (from == 1) {
+            current[shift] = Math.min(depth, infinity);
+            min = current[shift];
+        } else {
+            current[from - 1 + shift] = infinity;
+        }
+        for (int j = from; j <= to; j++) {
+            int replace = previous[j - 1 + shift + 1] + ((pattern.charAt(j - 1) == symbol) ? 0 : 1);
+            int delete = previous[j + shift + 1] + 1;
+            int insert = current[j - 1 + shift] + 1;
+            current[j + shift] = Math.min(infinity, Math.min(replace, Math.min(delete, insert)));
+            min = Math.min(min, current[j + shift]);
+        }
+        if (to < m) current[to + 1 + shift] = infinity;
+        return min;
+    }
+}
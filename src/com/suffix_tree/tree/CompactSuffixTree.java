@@ -1,69 +1,280 @@
 package com.suffix_tree.tree;
 
 import com.suffix_tree.Main;
-import com.suffix_tree.node.CompactSuffixTreeNode;
+import com.suffix_tree.index.ApproximateMatch;
+import com.suffix_tree.index.Distance;
+import com.suffix_tree.index.MatchListener;
+import com.suffix_tree.index.Occurrence;
+import com.suffix_tree.index.Repeat;
+import com.suffix_tree.index.SharedSegment;
+import com.suffix_tree.index.SuffixArrays;
+import com.suffix_tree.index.TextIndex;
+import com.suffix_tree.index.WildcardPattern;
+import com.suffix_tree.node.ChildIndex;
+import com.suffix_tree.node.NodeStore;
 import com.suffix_tree.node.SuffixTreeNode;
+import com.suffix_tree.text.SymbolText;
+import com.suffix_tree.utils.IntStack;
+import com.suffix_tree.utils.Timer;
+import com.suffix_tree.words.WordSet;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static com.suffix_tree.node.NodeStore.NIL;
 
 /**
  *  Implementation for compacted suffix tree.
  *
+ *  Queries reuse the stacks of the tree, so it must not be queried from several threads at once;
+ *  freeze() gives a read only copy that can.
+ *
+ *  Words can be added and removed once the tree is built. Added words are inserted suffix by suffix
+ *  like in the n lg n construction. Removed words lose their leaves at once, but stay in the sets of
+ *  words of the nodes as tombstones, filtered out of the results, and their symbols stay in the text.
+ *  Once removed words hold a large part of the text, the tree is built again from the words left on
+ *  a background thread and replaces this one at the next call; indexes of the words never change.
+ *
  *  @authors Silvia Usón: 681721 at unizar dot es
  *           Álvaro Monteagudo: 681060 at unizar dot es
  *
  *  @version 1.0
  *
  */
-public class CompactSuffixTree {
+public class CompactSuffixTree implements TextIndex {
+
+    // Shared text with all the words, nodes refer to it with offsets
+    private SymbolText text;
 
-    // String to save current word to be added to the tree
-    private String string;
+    // Storage for all the nodes of the tree
+    private NodeStore nodes;
+
+    // Index to find children by symbol while searching, null once the tree changes until it is queried
+    private ChildIndex children;
 
     // Root node of the tree
-    public CompactSuffixTreeNode root;
+    public final int root;
 
     // List with nodes marked as maximals
-    private final ArrayList<CompactSuffixTreeNode> maximals;
+    private final ArrayList<Integer> maximals;
 
     // Index of the word where longest repeated substring starts
     private int indexLongestSubstring = 0;
 
     // Node where longest repeated substring starts
-    private CompactSuffixTreeNode nodeLongestSubstring = null;
+    private int nodeLongestSubstring = NIL;
 
     private int currentWord;
 
+    // Construction used by the tree, again when it is compacted
+    private final Main.AlgorithmFeatures feature;
+    private final int threads;
+    private final int kmer;
+
+    // Words removed, and the ones among them still in the sets of words of the nodes
+    private final BitSet removed = new BitSet();
+    private final BitSet tombstones = new BitSet();
+
+    // Symbols of the text that belong to removed words
+    private long removedSymbols = 0;
+
+    // Maximals and longest repeated substring are not found yet or do not match the tree since it
+    // last changed, they are found again when they are asked for
+    private boolean repeatsStale = true;
+
+    // Suffix links are not set yet or do not match the tree since it last changed, only Ukkonen's
+    // construction sets some of them, they are all set again when they are needed
+    private boolean linksStale = true;
+
+    // Compaction is started once removed words hold more than 1 / COMPACTION_FRACTION of the text
+    private static final int COMPACTION_FRACTION = 4;
+
+    // Tree being built from the words left, and the words and removals it was started with
+    private CompletableFuture<CompactSuffixTree> compaction;
+    private int compactionWords;
+    private BitSet compactionRemoved;
+
+    // Nanoseconds taken by every phase of the construction, in the order they ran
+    private final LinkedHashMap<String, Long> buildTimes = new LinkedHashMap<>();
+
+    // Marks the end of a leaf edge while Ukkonen's construction is growing it
+    private static final int OPEN_END = Integer.MAX_VALUE;
+
+    // Explicit stacks reused by every traversal, so deep trees neither recurse nor allocate per node
+    private final IntStack stack = new IntStack();
+    private final ArrayDeque<SuffixTreeNode> branches = new ArrayDeque<>();
+
+    // Layout of a frame in the stack while walking the tree bottom-up: node, string depth at
+    // the end of its edge, next child to be visited, children visited so far, symbol before the
+    // suffixes of the subtree if all of them share it and whether they do not
+    private static final int NODE = 0, DEPTH = 1, NEXT_CHILD = 2, VISITED = 3, LEFT_SYMBOL = 4, LEFT_DIVERSE = 5;
+    private static final int FRAME_SIZE = 6;
+
+    // Length of the prefixes suffixes are grouped by in the parallel construction
+    public static final int DEFAULT_KMER = 2;
+
+    // Groups of buckets built by every thread, so the work keeps balanced, and fewest suffixes in a
+    // group, so small texts do not pay for a store per task
+    private static final int TASKS_PER_THREAD = 4;
+    private static final int MIN_TASK_SUFFIXES = 1 << 12;
+
 
     /**
-     * Constructor for compacted suffix tree
+     * Constructor for compacted suffix tree, the parallel construction uses every processor
      * @param words from which tree is built
+     * @param feature construction algorithm
      */
     public CompactSuffixTree(String[] words, Main.AlgorithmFeatures feature) {
+        this(words, feature, Runtime.getRuntime().availableProcessors(), DEFAULT_KMER);
+    }
+
+    /**
+     * Constructor for compacted suffix tree
+     * @param words from which tree is built
+     * @param feature construction algorithm
+     * @param threads used by the parallel construction
+     * @param kmer length of the prefixes suffixes are grouped by in the parallel construction
+     */
+    public CompactSuffixTree(String[] words, Main.AlgorithmFeatures feature, int threads, int kmer) {
+        this(new SymbolText(words), feature, threads, kmer);
+    }
+
+    /**
+     * Constructor for compacted suffix tree over a text already laid out, e.g. read by TextLoader
+     * @param text with all the words, shared with the tree and grown by addDocument
+     * @param feature construction algorithm
+     * @param threads used by the parallel construction
+     * @param kmer length of the prefixes suffixes are grouped by in the parallel construction
+     */
+    public CompactSuffixTree(SymbolText text, Main.AlgorithmFeatures feature, int threads, int kmer) {
         maximals = new ArrayList<>();
         currentWord = 0;
+        this.feature = feature;
+        this.threads = threads;
+        this.kmer = kmer;
+        this.text = text;
+        nodes = new NodeStore(text);
+        root = nodes.newNode(-1, -1, 0);
+        Timer timer = Timer.start();
 
         // N squared
         if (feature == Main.AlgorithmFeatures.N2) {
-            string = "$" + words[0] + "$";
-            SuffixTree tree = new SuffixTree(string);
-            for (int i = 1; i < words.length; i++) {
-                tree.addWord(words[i], i);
+            SuffixTree tree = new SuffixTree(text);
+            for (int i = 1; i < text.words(); i++) {
+                tree.addWord(i);
             }
-            root = generateCompactSuffixTree(tree.getRoot(), 0);
+            phase("suffix tree", timer);
+            generateCompactSuffixTree(tree);
+            phase("compaction", timer);
+            countLeaves();
+            phase("leaf counts", timer);
+        } else if (feature == Main.AlgorithmFeatures.UKKONEN) {
+            // Linear
+            buildUkkonen(timer);
+        } else if (feature == Main.AlgorithmFeatures.PARALLEL) {
+            buildParallel(threads, kmer, timer);
         } else {
             // N lg n
-            root = new CompactSuffixTreeNode(-1, -1, false, 0);
-            for (String word : words) {
-                string = "$" + word + "$";
-                for (int i = 1; i < string.length() - 1; i++) {
+            for (int word = 0; word < text.words(); word++) {
+                for (int i = text.wordStart(word); i < text.terminatorOf(word); i++) {
                     insertSuffix(root, i, i);
                 }
                 currentWord++;
             }
+            phase("insertion", timer);
+            countLeaves();
+            phase("leaf counts", timer);
+        }
+
+        children = new ChildIndex(nodes, text);
+        phase("child index", timer);
+    }
+
+    /**
+     * Constructor for a tree holding the subtrees built by one task of the parallel construction, or
+     * by one partition of the out of core construction
+     * @param text shared with the tree being built
+     */
+    private CompactSuffixTree(SymbolText text) {
+        maximals = new ArrayList<>();
+        feature = Main.AlgorithmFeatures.NLGN;
+        threads = 1;
+        kmer = DEFAULT_KMER;
+        this.text = text;
+        nodes = new NodeStore(text);
+        root = nodes.newNode(-1, -1, 0);
+        children = null;
+    }
+
+    /**
+     * @param text shared with the tree being built
+     * @return empty tree where the subtrees of buckets are built, see buildBucket
+     */
+    static CompactSuffixTree forBuckets(SymbolText text) {
+        return new CompactSuffixTree(text);
+    }
+
+    @Override
+    public WordSet search(String pattern) {
+        return search(root, pattern, 0);
+    }
+
+    /**
+     * Add a word to the tree, inserting its suffixes one by one
+     * @param word to be added, with the same characters as the words the tree was built from
+     * @return index of the new word
+     */
+    public synchronized int addDocument(String word) {
+        installCompaction();
+        int index = text.addWord(word);
+        insertWord(index);
+        return index;
+    }
+
+    /**
+     * Remove a word from the tree. Its leaves are cut at once and it is left out of the results, the
+     * tree is compacted on a background thread once removed words hold a large part of the text.
+     * @param word index of the word
+     * @return true if the word was in the tree, false if it had already been removed
+     */
+    public synchronized boolean removeDocument(int word) {
+        installCompaction();
+        if (word < 0 || word >= text.words()) throw new IllegalArgumentException("No word " + word);
+        if (removed.get(word)) return false;
+
+        removed.set(word);
+        pruneWord(word);
+        if (compaction == null && removedSymbols * COMPACTION_FRACTION > text.length()) {
+            startCompaction();
         }
+        return true;
+    }
+
+    /**
+     * @param word index of the word
+     * @return true if the word was removed from the tree
+     */
+    public boolean isRemoved(int word) {
+        return removed.get(word);
     }
 
     /**
@@ -71,182 +282,1068 @@ public class CompactSuffixTree {
      * @param current node to look in
      * @param pattern to be looked for
      * @param pos current position in the pattern string
-     * @return a set of integers representing in which words the pattern was found, empty set if not found.
+     * @return set of the words where the pattern was found, shared with the tree, empty set if not found.
+     */
+    public WordSet search(int current, String pattern, int pos) {
+        int node = findNode(current, pattern, pos);
+        return (node != NIL) ? wordsOf(node) : WordSet.empty();
+    }
+
+    /**
+     * Search all the patterns in one pass, patterns sharing a prefix share its comparisons
+     * @param patterns to be looked for
+     * @return set of the words of every pattern, in the order of the patterns
+     */
+    @Override
+    public List<WordSet> searchAll(List<String> patterns) {
+        int[] found = new MultiPatternSearch(view()).findAll(patterns);
+
+        ArrayList<WordSet> result = new ArrayList<>(found.length);
+        for (int node : found) {
+            result.add((node != NIL) ? wordsOf(node) : WordSet.empty());
+        }
+        return result;
+    }
+
+    /**
+     * @param pattern to be looked for
+     * @return number of times the pattern appears, read from its node once it is found
+     */
+    @Override
+    public int count(String pattern) {
+        int node = findNode(root, pattern, 0);
+        return (node != NIL) ? nodes.leafCount(node) : 0;
+    }
+
+    /**
+     * @param pattern to be looked for
+     * @return number of different words where the pattern appears, read from its node once it is found
+     */
+    @Override
+    public int documentFrequency(String pattern) {
+        int node = findNode(root, pattern, 0);
+        return (node != NIL) ? wordsOf(node).size() : 0;
+    }
+
+    @Override
+    public int[] locate(String pattern) {
+        IntStack positions = new IntStack();
+        for (PrimitiveIterator.OfInt it = positions(pattern); it.hasNext(); ) {
+            positions.push(it.nextInt());
+        }
+        int[] result = positions.toArray();
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Every suffix has its own leaf, whose path starts where the suffix does. Leaves are walked with a
+     * stack of the iterator, not the one of the tree.
+     * @param pattern to be looked for
+     * @return positions of the leaves under the node of the pattern, as they are found
      */
-    public Set<Integer> search(CompactSuffixTreeNode current, String pattern, int pos) {
+    @Override
+    public PrimitiveIterator.OfInt positions(String pattern) {
+        int found = findNode(root, pattern, 0);
+        return new LeafIterator(view(), found);
+    }
 
-        CompactSuffixTreeNode matchedNode = null;
+    @Override
+    public Occurrence occurrenceAt(int position) {
+        int word = text.wordOf(position);
+        return new Occurrence(word, position - text.wordStart(word));
+    }
+
+    /**
+     * Look for the node where the path spelling a pattern ends
+     * @param current node to look in
+     * @param pattern to be looked for
+     * @param pos index of the pattern already matched
+     * @return first node whose path contains the whole pattern, NIL if the pattern is not in the tree
+     */
+    private int findNode(int current, String pattern, int pos) {
+        ChildIndex children = childIndex();
 
-        int aux = pos;
+        while (pos < pattern.length()) {
+            int child = children.child(current, pattern.charAt(pos));
+            if (child == NIL) break;
 
-        for (CompactSuffixTreeNode child : current.children) {
-            int i = 0;
-            pos = aux;
-            while (pos < pattern.length() && i < child.substring.length()
-                    && pattern.charAt(pos) == child.substring.charAt(i)) { // Match character
-                //System.out.println(pattern.charAt(pos) + " " + child.substring.charAt(i));
+            // First character matched by the lookup
+            int i = 1;
+            int begin = nodes.begin(child);
+            int length = nodes.length(child);
+            pos++;
+            while (pos < pattern.length() && i < length
+                    && pattern.charAt(pos) == text.symbolAt(begin + i)) { // Match character
                 i++;
                 pos++;
             }
 
             if (pos == pattern.length())
-                return child.listOfWords;
-            else if (i == child.substring.length()) {
-                matchedNode = child;
+                return child;
+            else if (i < length)
                 break;
+            current = child;
+        }
+        return NIL;
+    }
+
+    /**
+     * @return index of the children, built again if the tree changed since it was last queried
+     */
+    private ChildIndex childIndex() {
+        if (children == null) children = new ChildIndex(nodes, text);
+        return children;
+    }
+
+    /**
+     * @param node id
+     * @return set of the words of the node without the removed ones
+     */
+    WordSet wordsOf(int node) {
+        return withoutTombstones(nodes.listOfWords(node));
+    }
+
+    /**
+     * @param words set of the words of a node
+     * @return the same set, or a copy if it holds removed words
+     */
+    private WordSet withoutTombstones(WordSet words) {
+        if (tombstones.isEmpty()) return words;
+
+        boolean dead = false;
+        for (int word = tombstones.nextSetBit(0); word >= 0 && !dead; word = tombstones.nextSetBit(word + 1)) {
+            dead = words.contains(word);
+        }
+        if (!dead) return words;
+
+        IntStack live = new IntStack();
+        words.forEachWord(word -> {
+            if (!tombstones.get(word)) live.push(word);
+        });
+        return WordSet.of(live.toArray());
+    }
+
+    /**
+     * Insert all the suffixes of a word already in the text
+     * @param word index of the word
+     */
+    private void insertWord(int word) {
+        currentWord = word;
+        for (int i = text.wordStart(word); i < text.terminatorOf(word); i++) {
+            insertSuffix(root, i, i);
+        }
+        children = null;
+        repeatsStale = true;
+        linksStale = true;
+    }
+
+    /**
+     * Cut the leaves of all the suffixes of a word. A node left with a single child is merged with
+     * it, so the tree stays compacted. The word stays in the sets of words as a tombstone.
+     * @param word index of the word
+     */
+    private void pruneWord(int word) {
+        IntStack path = new IntStack();
+        for (int suffix = text.wordStart(word); suffix < text.terminatorOf(word); suffix++) {
+            // Every suffix is in the tree, so edges are skipped by their length alone
+            path.clear();
+            int node = root, depth = 0;
+            while (!nodes.isLeaf(node)) {
+                path.push(node);
+                node = edgeTo(node, suffix + depth);
+                depth += nodes.length(node);
             }
+
+            for (int i = 0; i < path.size(); i++) {
+                nodes.setLeafCount(path.get(i), nodes.leafCount(path.get(i)) - 1);
+            }
+            int parent = path.pop();
+            nodes.removeChild(parent, node);
+
+            int only = nodes.firstChild(parent);
+            if (parent != root && nodes.nextSibling(only) == NIL) {
+                // Path of the child is in the text, so the merged edge is its last symbols
+                nodes.setBegin(only, nodes.end(only) - nodes.length(parent) - nodes.length(only) + 1);
+                nodes.replaceChild(path.peek(), parent, only);
+            }
+        }
+
+        tombstones.set(word);
+        removedSymbols += text.terminatorOf(word) - text.wordStart(word) + 1;
+        children = null;
+        repeatsStale = true;
+        linksStale = true;
+    }
+
+    /**
+     * @param node parent node
+     * @param position in the text of the first symbol of the edge, terminators included
+     * @return child whose edge starts with the symbol at the position
+     */
+    private int edgeTo(int node, int position) {
+        if (text.codeAt(position) >= 0) return nodes.childFor(node, position);
+
+        // Every terminator appears once, so the edge starts right at it
+        int child = nodes.firstChild(node);
+        while (nodes.begin(child) != position) {
+            child = nodes.nextSibling(child);
+        }
+        return child;
+    }
+
+    /**
+     * Build a tree of the words not removed on a background thread. Removed words are kept as empty
+     * words, so every word keeps its index.
+     */
+    private void startCompaction() {
+        String[] words = new String[text.words()];
+        for (int word = 0; word < words.length; word++) {
+            words[word] = removed.get(word) ? "" : text.substring(text.wordStart(word), text.terminatorOf(word));
         }
-        return (matchedNode != null) ? search(matchedNode, pattern, pos) : new HashSet<>();
+        compactionWords = words.length;
+        compactionRemoved = (BitSet) removed.clone();
+        compaction = CompletableFuture.supplyAsync(() -> new CompactSuffixTree(words, feature, threads, kmer));
+    }
+
+    /**
+     * Take the place of the tree built by the compaction, if it is done. Words added and removed
+     * since it started are added and removed again. It is only taken when words are added or removed
+     * or the text is asked for, never by a query, so the nodes and positions a query finds stay valid
+     * until the tree changes.
+     */
+    private synchronized void installCompaction() {
+        if (compaction == null || !compaction.isDone()) return;
+
+        CompactSuffixTree compacted;
+        try {
+            compacted = compaction.join();
+        } catch (CompletionException | CancellationException ex) {
+            // Kept as it is, compaction is tried again with the next removal
+            compaction = null;
+            return;
+        }
+        compaction = null;
+
+        SymbolText previous = text;
+        text = compacted.text;
+        nodes = compacted.nodes;
+        children = compacted.children;
+        // Found again like for any tree that changed, whatever the construction
+        repeatsStale = true;
+        linksStale = true;
+        tombstones.clear();
+        removedSymbols = 0;
+
+        for (int word = compactionWords; word < previous.words(); word++) {
+            text.addWord(previous.substring(previous.wordStart(word), previous.terminatorOf(word)));
+            insertWord(word);
+        }
+        for (int word = removed.nextSetBit(0); word >= 0; word = removed.nextSetBit(word + 1)) {
+            if (!compactionRemoved.get(word)) pruneWord(word);
+        }
+        compactionRemoved = null;
     }
 
     /**
      * Insert a new suffix to the tree
      * @param current node to check case of insertion
-     * @param pos in the current word to be added to the tree
-     * @param indexInWord extra parameter for internal management
-     */
-    private void insertSuffix(CompactSuffixTreeNode current, int pos, int indexInWord) {
-        CompactSuffixTreeNode matchedNode = null;
-        int inTree = 0;
-        int idx = -1;
-
-        ArrayList<CompactSuffixTreeNode> children = current.children;
-        // Check how many charcters are already in the tree
-        for (int i = 0; i < children.size(); i++) {
-            CompactSuffixTreeNode child = children.get(i);
-
-            if (string.charAt(pos + inTree) == child.substring.charAt(inTree)) {
-                matchedNode = child;
-                idx = i;
-                while ((pos + inTree) < string.length() - 1 // Actual pos less then string length
-                        && inTree < child.substring.length()  // Does not match all the node substring
-                        && string.charAt(pos + inTree) == child.substring.charAt(inTree)) { // Match character
+     * @param pos in the shared text of the part of the suffix still to be added
+     * @param indexInWord position where the suffix starts
+     */
+    private void insertSuffix(int current, int pos, int indexInWord) {
+        while (true) {
+            // The new leaf hangs below every node of the path
+            nodes.setLeafCount(current, nodes.leafCount(current) + 1);
+            int matchedNode = nodes.childFor(current, pos);
+            int inTree = 0;
+
+            // Check how many charcters are already in the tree
+            if (matchedNode != NIL) {
+                int begin = nodes.begin(matchedNode);
+                int length = nodes.length(matchedNode);
+                // Terminators are unique, so the suffix always stops matching before its own terminator
+                while (inTree < length  // Does not match all the node label
+                        && text.matches(pos + inTree, begin + inTree)) { // Match character
                     inTree++;
                 }
             }
 
-            // We found a node that fits the full suffix
-            if ((pos + inTree) == string.length() - 1) {
-                assert matchedNode != null;
-                matchedNode.listOfWords.add(currentWord);
-                return; // Already in tree
-            } else if (matchedNode != null) {	// If we already found a child that matchs in any of the possible way, break the loop
-                break;
+            // If child was not found, add new full branch with suffix
+            if (matchedNode == NIL) {
+                int newNode = nodes.newNode(pos, text.terminatorOf(currentWord), indexInWord);
+                nodes.setListOfWords(newNode, WordSet.of(currentWord));
+                nodes.setLeafCount(newNode, 1);
+                nodes.addChild(current, newNode);
+                return;
+            } else if (inTree < nodes.length(matchedNode)) { // Child found but does not match the full branch
+                // We have to split this branch to include the new one
+                int end = pos + inTree;
+
+                // New node with all characters that matched
+                int newNode = nodes.newNode(pos, end - 1, indexInWord);
+                // Both nodes share the same set until one of them gets a new word
+                nodes.setListOfWords(newNode, nodes.listOfWords(matchedNode));
+                nodes.setLeafCount(newNode, nodes.leafCount(matchedNode));
+
+                // Matched node update, now its label starts from the first character that did not match
+                nodes.setBegin(matchedNode, nodes.begin(matchedNode) + inTree);
+                nodes.setListOfWords(newNode, nodes.listOfWords(newNode).with(currentWord));
+
+                // Set node to the new one and add updated matched node as child to this new one
+                nodes.replaceChild(current, matchedNode, newNode);
+                nodes.addChild(newNode, matchedNode);
+
+                current = newNode;
+                pos = end;
+
+            } else { // Matched a full branch, insert what is left of the suffix, starting from the matched node
+                nodes.setListOfWords(matchedNode, nodes.listOfWords(matchedNode).with(currentWord));
+                current = matchedNode;
+                pos += inTree;
+            }
+        }
+    }
+
+    /**
+     * Creation of compacted tree, branch by branch with an explicit stack
+     * @param tree suffix tree to be compacted under the root
+     */
+    private void generateCompactSuffixTree(SuffixTree tree) {
+        branches.clear();
+        stack.clear();
+        for (SuffixTreeNode child : tree.getRoot().children) {
+            branches.push(child);
+            stack.push(root);
+        }
+
+        while (!branches.isEmpty()) {
+            SuffixTreeNode node = branches.pop();
+            int parent = stack.pop();
+            int length = 1;
+
+            // Compact into one single node all consecutive nodes with one children
+            while (node.children.size() == 1) {
+                node = node.children.get(0);
+                length++;
+            }
+
+            // The path to the last node of the branch is written in the text right before its position
+            int end = node.position;
+            int start = end - length + 1;
+
+            int result = nodes.newNode(start, end, node.indexStartPath);
+            nodes.setListOfWords(result, node.listOfWords);
+            nodes.addChild(parent, result);
+
+            for (SuffixTreeNode children: node.children) {
+                branches.push(children);
+                stack.push(result);
             }
         }
+    }
 
-        // If child was not found, add new full branch with suffix
-        if (matchedNode == null) {
-            CompactSuffixTreeNode newNode = new CompactSuffixTreeNode(pos, string.length() - 1, false,
-                    indexInWord, string.substring(pos, string.length() - 1), new HashSet<>() {{
-                add(currentWord);
-            }});
-            current.children.add(newNode);
-        } else if (inTree < matchedNode.substring.length()) { // Child found but does not match the full branch
-            // We have to split this branch to include the new one
-            int end = pos + inTree;
-            boolean flag = false;
-            if (currentWord == 0) {
-                char leftChar = (current.indexStartPath < 1) ? ' ' : string.charAt(current.indexStartPath - 1);
-                char rightChar = (indexInWord < 1) ? ' ' : string.charAt(indexInWord - 1);
-                flag = current.isLeftDiverse || leftChar != rightChar;
+    /**
+     * Online construction of the tree in linear time (Ukkonen's algorithm). Every word in the shared
+     * text is followed by a unique terminator, so every suffix ends in its own leaf.
+     * @param timer started with the construction, the time of every phase is recorded with it
+     */
+    private void buildUkkonen(Timer timer) {
+        int activeNode = root;
+        int activeEdge = 0;
+        int activeLength = 0;
+        int remainder = 0;
+
+        for (int i = 0; i < text.length(); i++) {
+            int lastNewNode = NIL;
+            remainder++;
+
+            while (remainder > 0) {
+                if (activeLength == 0) activeEdge = i;
+
+                int next = nodes.childFor(activeNode, activeEdge);
+                if (next == NIL) {
+                    // Rule 2: new leaf hanging from the active node
+                    nodes.addChild(activeNode, nodes.newNode(i, OPEN_END, 0));
+                    if (lastNewNode != NIL) {
+                        nodes.setSuffixLink(lastNewNode, activeNode);
+                        lastNewNode = NIL;
+                    }
+                } else {
+                    int begin = nodes.begin(next);
+                    int edgeLength = Math.min(nodes.end(next), i) - begin + 1;
+                    if (activeLength >= edgeLength) { // Skip/count trick
+                        activeEdge += edgeLength;
+                        activeLength -= edgeLength;
+                        activeNode = next;
+                        continue;
+                    }
+
+                    if (text.matches(begin + activeLength, i)) {
+                        // Rule 3: suffix already in the tree, the phase ends here
+                        if (lastNewNode != NIL && activeNode != root) {
+                            nodes.setSuffixLink(lastNewNode, activeNode);
+                        }
+                        activeLength++;
+                        break;
+                    }
+
+                    // Rule 2: split the edge and hang a new leaf from the middle
+                    int split = nodes.newNode(begin, begin + activeLength - 1, 0);
+                    nodes.replaceChild(activeNode, next, split);
+                    nodes.setBegin(next, begin + activeLength);
+                    nodes.addChild(split, next);
+                    nodes.addChild(split, nodes.newNode(i, OPEN_END, 0));
+
+                    if (lastNewNode != NIL) nodes.setSuffixLink(lastNewNode, split);
+                    lastNewNode = split;
+                }
+
+                remainder--;
+                if (activeNode == root && activeLength > 0) {
+                    activeLength--;
+                    activeEdge = i - remainder + 1;
+                } else if (activeNode != root) {
+                    int link = nodes.suffixLink(activeNode);
+                    activeNode = (link != NIL) ? link : root;
+                }
             }
+        }
+        phase("ukkonen", timer);
+
+        completeTree();
+        phase("completion", timer);
+    }
 
+    /**
+     * Construction on several threads. Suffixes are sorted once with their longest common prefixes,
+     * both in linear time, and grouped in buckets by their first k symbols: every bucket is a range of
+     * the suffix array, built and completed apart in time linear in its size on a fork/join pool,
+     * whatever the repetitions of the text. Subtrees of different buckets only share the part of their
+     * path shorter than k, so they are grafted one by one under the root, splitting edges of that part
+     * where they diverge. Suffixes shorter than k are inserted at the end, and only the nodes above the
+     * buckets are left to complete.
+     *
+     * The suffix array, the grafts and the short suffixes take a single thread; prefixes, buckets and
+     * the subtrees of the buckets take them all.
+     * @param threads used to build the buckets
+     * @param kmer length of the prefixes suffixes are grouped by
+     * @param timer started with the construction, the time of every phase is recorded with it
+     */
+    private void buildParallel(int threads, int kmer, Timer timer) {
+        int k = Math.max(kmer, 1);
+        ForkJoinPool pool = new ForkJoinPool(Math.max(threads, 1));
+        try {
+            int[] ranks = SuffixArrays.ranks(text);
+            int[] sa = SuffixArrays.build(ranks, SuffixArrays.alphabetSize(text));
+            phase("suffix array", timer);
+            int[] lcp = SuffixArrays.lcp(ranks, sa, pool);
+            ranks = null;
+            phase("lcp", timer);
 
-            // New node with all characters that matched
-            CompactSuffixTreeNode newNode = new CompactSuffixTreeNode(pos, end - 1, flag,
-                  indexInWord, matchedNode.substring.substring(0, inTree), new HashSet<>(matchedNode.listOfWords));
+            IntStack bucketStarts = new IntStack();
+            IntStack shortSuffixes = new IntStack();
+            int suffixes = splitBuckets(sa, lcp, k, pool, bucketStarts, shortSuffixes);
+            phase("bucket sort", timer);
 
-            if (currentWord == 0) {
-                if (newNode.isLeftDiverse) {
-                    maximals.add(newNode);
+            // Consecutive buckets are grouped in tasks of similar size, buckets as pairs of first and
+            // last (exclusive) index in the suffix array
+            int target = Math.max(MIN_TASK_SUFFIXES, suffixes / (Math.max(threads, 1) * TASKS_PER_THREAD));
+            IntStack groups = new IntStack();
+            groups.push(0);
+            for (int b = 0, size = 0; b < bucketStarts.size(); b += 2) {
+                size += bucketStarts.get(b + 1) - bucketStarts.get(b);
+                if (size >= target) {
+                    groups.push(b + 2);
+                    size = 0;
                 }
+            }
+            if (groups.peek() != bucketStarts.size()) groups.push(bucketStarts.size());
 
-                int newDepth = end - indexInWord;
+            ArrayList<ForkJoinTask<CompactSuffixTree>> tasks = new ArrayList<>();
+            for (int g = 0; g + 1 < groups.size(); g++) {
+                int first = groups.get(g), last = groups.get(g + 1);
+                tasks.add(pool.submit(() -> {
+                    CompactSuffixTree part = new CompactSuffixTree(text);
+                    int[] marks = new int[text.words()];
+                    Arrays.fill(marks, NIL);
+                    for (int b = first; b < last; b += 2) {
+                        int bucketRoot = part.buildRange(sa, lcp, bucketStarts.get(b), bucketStarts.get(b + 1));
+                        part.complete(bucketRoot, null, marks);
+                    }
+                    return part;
+                }));
+            }
 
-                if (newDepth > indexLongestSubstring) {
-                    indexLongestSubstring = newDepth;
-                    nodeLongestSubstring = newNode;
+            tasks.forEach(ForkJoinTask::join);
+            phase("buckets", timer);
+
+            // Subtrees of the buckets are complete, they are skipped when the rest is
+            BitSet complete = new BitSet();
+            for (ForkJoinTask<CompactSuffixTree> task : tasks) {
+                CompactSuffixTree part = task.join();
+                for (int bucketRoot = 1; bucketRoot < part.nodes.size(); bucketRoot++) {
+                    if (part.nodes.begin(bucketRoot) == -1) complete.set(graft(part.nodes, part.nodes.firstChild(bucketRoot)));
                 }
             }
+            phase("grafts", timer);
 
-            // Matched node update
-            matchedNode.begin += inTree;
-            // Now contains the substring from the first character that did not match
-            matchedNode.substring = matchedNode.substring.substring(inTree);
-            newNode.listOfWords.add(currentWord);
+            for (int i = 0; i < shortSuffixes.size(); i++) {
+                int position = shortSuffixes.get(i);
+                currentWord = text.wordOf(position);
+                insertSuffix(root, position, position);
+            }
+            phase("short suffixes", timer);
 
-            // Set node to the new one and add updated matched node as child to this new one
-            current.children.set(idx, newNode);
-            newNode.children.add(matchedNode);
+            completeTree(complete);
+            phase("completion", timer);
+        } finally {
+            pool.shutdown();
+        }
+    }
 
-            insertSuffix(newNode, end, indexInWord);
+    /**
+     * Find the buckets of the parallel construction, the ranges of suffixes with at least k symbols
+     * sharing the first k, in ranges of the suffix array on a pool. Ranges are cut where a bucket
+     * starts, so every range is scanned on its own. The sentinel suffix first in the array is skipped.
+     * @param sa suffix array of the text
+     * @param lcp longest common prefix of every suffix with the one before it in the array
+     * @param k length of the prefixes suffixes are grouped by
+     * @param pool where the ranges are scanned
+     * @param bucketStarts where every bucket is added as its first and last (exclusive) index in the
+     *          suffix array, in order
+     * @param shortSuffixes where the suffixes with fewer than k symbols are added, in order
+     * @return number of suffixes in the buckets
+     */
+    private int splitBuckets(int[] sa, int[] lcp, int k, ForkJoinPool pool, IntStack bucketStarts,
+                             IntStack shortSuffixes) {
+        int n = sa.length;
+        int ranges = Math.max(1, Math.min(pool.getParallelism() * TASKS_PER_THREAD, n / MIN_TASK_SUFFIXES));
+        IntStack[] starts = new IntStack[ranges], shorts = new IntStack[ranges];
+        ArrayList<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int r = 0, from = 1; r < ranges; r++) {
+            int to = (r + 1 == ranges) ? n : Math.max(from, (int) ((long) n * (r + 1) / ranges));
+            while (to < n && lcp[to] >= k) to++;
+            int first = from, last = to, range = r;
+            starts[r] = new IntStack();
+            shorts[r] = new IntStack();
+            tasks.add(pool.submit(() -> scanBuckets(sa, lcp, k, first, last, starts[range], shorts[range])));
+            from = to;
+        }
 
-        } else { // Matched a full branch, insert what is left of the suffix, starting from the matched node
-            if (currentWord == 0) {
-                char leftChar = (current.indexStartPath < 1) ? ' ' : string.charAt(current.indexStartPath - 1);
-                char rightChar = (indexInWord < 1) ? ' ' : string.charAt(indexInWord - 1);
-                if (!current.isLeftDiverse && leftChar != rightChar) {
-                    current.isLeftDiverse = true;
-                    maximals.add(current);
+        int suffixes = 0;
+        for (int r = 0; r < ranges; r++) {
+            tasks.get(r).join();
+            for (int b = 0; b < starts[r].size(); b += 2) {
+                bucketStarts.push(starts[r].get(b));
+                bucketStarts.push(starts[r].get(b + 1));
+                suffixes += starts[r].get(b + 1) - starts[r].get(b);
+            }
+            for (int i = 0; i < shorts[r].size(); i++) {
+                shortSuffixes.push(shorts[r].get(i));
+            }
+        }
+        return suffixes;
+    }
+
+    /**
+     * Find the buckets of a range of the suffix array starting where a bucket may start
+     * @param sa suffix array of the text
+     * @param lcp longest common prefix of every suffix with the one before it in the array
+     * @param k length of the prefixes suffixes are grouped by
+     * @param from first index of the range
+     * @param to last index of the range, exclusive
+     * @param bucketStarts where the buckets of the range are added, see splitBuckets
+     * @param shortSuffixes where the suffixes of the range with fewer than k symbols are added
+     */
+    private void scanBuckets(int[] sa, int[] lcp, int k, int from, int to, IntStack bucketStarts,
+                             IntStack shortSuffixes) {
+        boolean open = false;
+        for (int i = from; i < to; i++) {
+            int position = sa[i];
+            if (text.codeAt(position) < 0) {
+                open = false;
+            } else if (text.terminatorOf(text.wordOf(position)) - position < k) {
+                shortSuffixes.push(position);
+                open = false;
+            } else {
+                if (!open || lcp[i] < k) {
+                    bucketStarts.push(i);
+                    bucketStarts.push(i + 1);
+                } else {
+                    bucketStarts.set(bucketStarts.size() - 1, i + 1);
                 }
+                open = true;
             }
-        	matchedNode.listOfWords.add(currentWord);
-            insertSuffix(matchedNode, pos + inTree, indexInWord);
         }
     }
 
     /**
-     * Creation of compacted tree
-     * @param node root of suffix tree
-     * @param depth we are in the tree
-     * @return root of the compacted suffix tree
+     * Build the subtree of a range of the suffix array under a root of its own, marked with a begin
+     * of -1, from the longest common prefixes alone: the nodes of the rightmost path are kept in a
+     * stack, and every suffix closes the ones deeper than the prefix it shares with the suffix before.
+     * Leaves get their word, internal nodes get theirs and every node its leaf count once the subtree
+     * is completed.
+     * @param sa suffix array of the text
+     * @param lcp longest common prefix of every suffix with the one before it in the array
+     * @param from first index of the range
+     * @param to last index of the range, exclusive
+     * @return root of the subtree
      */
-    private CompactSuffixTreeNode generateCompactSuffixTree(SuffixTreeNode node, int depth) {
-        CompactSuffixTreeNode result;
+    private int buildRange(int[] sa, int[] lcp, int from, int to) {
+        int bucketRoot = nodes.newNode(-1, -1, 0);
+        stack.clear();
+        stack.push(bucketRoot);
+        for (int i = from; i < to; i++) {
+            int position = sa[i];
+            int shared = (i == from) ? 0 : lcp[i];
 
-        int start = node.position;
-        StringBuilder sb = new StringBuilder("" + node.character);
+            // Nodes deeper than the shared prefix are complete
+            int last = NIL;
+            while (nodes.depth(stack.peek()) > shared) {
+                last = stack.pop();
+                if (nodes.depth(stack.peek()) >= shared) attach(stack.peek(), last);
+            }
+            if (nodes.depth(stack.peek()) < shared) {
+                int node = nodes.newNode(position, position + shared - 1, position);
+                attach(node, last);
+                stack.push(node);
+            }
 
-        // Compact into one single node all consecutive nodes with one children
-        while (node.children.size() == 1) {
-            node = node.children.get(0);
-            sb.append(node.character);
+            int word = text.wordOf(position);
+            int leaf = nodes.newNode(position, text.terminatorOf(word), position);
+            nodes.setListOfWords(leaf, WordSet.of(word));
+            stack.push(leaf);
+        }
+        while (stack.size() > 1) {
+            int node = stack.pop();
+            attach(stack.peek(), node);
         }
+        return bucketRoot;
+    }
 
-        int end = node.position;
+    /**
+     * Hang a node built by buildRange, its edge starting where the path of its parent ends
+     * @param parent node
+     * @param child node, with the start of its path and the end of its edge
+     */
+    private void attach(int parent, int child) {
+        nodes.setBegin(child, nodes.indexStartPath(child) + nodes.depth(parent));
+        nodes.addChild(parent, child);
+    }
 
-        result = new CompactSuffixTreeNode(start, end, node.isLeftDiverse, node.indexStartPath, sb.toString(), node.listOfWords);
+    /**
+     * Build the subtree of a bucket under a root of its own, marked with a begin of -1
+     * @param suffixes positions of the suffixes of all the buckets
+     * @param from first suffix of the bucket
+     * @param to last suffix of the bucket, exclusive
+     * @return root of the subtree, NIL if the bucket is empty
+     */
+    int buildBucket(int[] suffixes, int from, int to) {
+        if (from == to) return NIL;
+        int bucketRoot = nodes.newNode(-1, -1, 0);
+        for (int i = from; i < to; i++) {
+            currentWord = text.wordOf(suffixes[i]);
+            insertSuffix(bucketRoot, suffixes[i], suffixes[i]);
+        }
+        return bucketRoot;
+    }
 
-        if (depth != 0 && node.children.size() > 0 && node.isLeftDiverse) {
-            maximals.add(result);
+    /**
+     * Copy the subtree of a bucket under the root, splitting the edge where its path leaves the
+     * tree. Its path has at least k symbols and no other bucket shares them, so it always leaves
+     * the tree before the end of its first edge. Paths, word sets and leaf counts are copied, so the
+     * copy is as complete as the subtree was.
+     * @param from store of the subtree
+     * @param top first node of the subtree
+     * @return copy of the first node
+     */
+    private int graft(NodeStore from, int top) {
+        int current = root;
+        int pos = from.begin(top);
+        int parent = NIL;
+        while (parent == NIL) {
+            int matchedNode = nodes.childFor(current, pos);
+            if (matchedNode == NIL) {
+                parent = current;
+                break;
+            }
+
+            int begin = nodes.begin(matchedNode);
+            int length = nodes.length(matchedNode);
+            int inTree = 0;
+            while (inTree < length && text.matches(pos + inTree, begin + inTree)) {
+                inTree++;
+            }
+
+            if (inTree < length) {
+                int split = nodes.newNode(begin, begin + inTree - 1, 0);
+                nodes.setBegin(matchedNode, begin + inTree);
+                nodes.replaceChild(current, matchedNode, split);
+                nodes.addChild(split, matchedNode);
+                parent = split;
+            } else {
+                current = matchedNode;
+            }
+            pos += inTree;
+        }
+
+        // Copy with an explicit stack of pairs of nodes: one to copy and the parent of its copy
+        stack.clear();
+        stack.push(top);
+        stack.push(parent);
+        int topCopy = NIL;
+        while (!stack.isEmpty()) {
+            int newParent = stack.pop();
+            int node = stack.pop();
+            int copy = nodes.newNode((topCopy == NIL) ? pos : from.begin(node), from.end(node), from.indexStartPath(node));
+            nodes.setListOfWords(copy, from.listOfWords(node));
+            nodes.setLeafCount(copy, from.leafCount(node));
+            nodes.addChild(newParent, copy);
+            if (topCopy == NIL) topCopy = copy;
+            for (int child = from.firstChild(node); child != NIL; child = from.nextSibling(child)) {
+                stack.push(child);
+                stack.push(copy);
+            }
+        }
+        return topCopy;
+    }
+
+    /**
+     * Once the shape of the tree is complete, cut leaf edges left open by Ukkonen's construction at
+     * the terminator of their own word, and fill the paths, word sets and leaf counts bottom-up. The
+     * set of a node is found once all its children are complete, from their sets, in a single merge.
+     */
+    private void completeTree() {
+        completeTree(null);
+    }
+
+    /**
+     * Complete the tree, see completeTree(), leaving out subtrees already complete
+     * @param complete first nodes of the subtrees already complete, null if there are none
+     */
+    private void completeTree(BitSet complete) {
+        // Suffixes made only of a terminator are not part of the tree
+        for (int child = nodes.firstChild(root); child != NIL; ) {
+            int next = nodes.nextSibling(child);
+            if (text.codeAt(nodes.begin(child)) < 0) {
+                nodes.removeChild(root, child);
+            }
+            child = next;
         }
 
-        int newDepth = depth + end - start;
+        int[] marks = new int[text.words()];
+        Arrays.fill(marks, NIL);
+        complete(root, complete, marks);
+    }
+
+    /**
+     * Fill the paths, word sets and leaf counts of a subtree bottom-up, its first node standing for
+     * the root
+     * @param top first node of the subtree, at depth 0
+     * @param complete first nodes of the subtrees already complete, null if there are none
+     * @param marks last node every word was added to, NIL for the words not added to any node of
+     *          this store yet
+     */
+    private void complete(int top, BitSet complete, int[] marks) {
+        IntStack merged = new IntStack();
 
-        for (SuffixTreeNode children: node.children) {
-            result.children.add(generateCompactSuffixTree(children, newDepth + 1));
+        stack.clear();
+        pushFrame(top, 0);
+
+        while (!stack.isEmpty()) {
+            int frame = stack.size() - FRAME_SIZE;
+            int node = stack.get(frame + NODE);
+            int depth = stack.get(frame + DEPTH);
+
+            if (stack.get(frame + VISITED) == 0 && node != top) {
+                if (complete != null && complete.get(node)) {
+                    stack.truncate(frame);
+                    continue;
+                }
+                if (nodes.end(node) == OPEN_END) {
+                    int word = text.wordOf(nodes.begin(node));
+                    nodes.setEnd(node, text.terminatorOf(word));
+                    nodes.setListOfWords(node, WordSet.of(word));
+                }
+                depth += nodes.length(node);
+                stack.set(frame + DEPTH, depth);
+                nodes.setIndexStartPath(node, nodes.end(node) - depth + 1);
+            }
+
+            int child = stack.get(frame + NEXT_CHILD);
+            if (child != NIL) {
+                stack.set(frame + NEXT_CHILD, nodes.nextSibling(child));
+                stack.set(frame + VISITED, stack.get(frame + VISITED) + 1);
+                pushFrame(child, depth);
+                continue;
+            }
+            stack.truncate(frame);
+            if (nodes.isLeaf(node)) {
+                nodes.setLeafCount(node, 1);
+            } else {
+                nodes.setListOfWords(node, mergeChildren(node, marks, merged));
+            }
         }
+    }
 
-        if (result.children.size() != 0) {
-            if (newDepth > indexLongestSubstring) {
-                indexLongestSubstring = newDepth;
-                nodeLongestSubstring = result;
+    /**
+     * Join the sets of words of all the children of a node at once, instead of one union per child
+     * that copies the set built so far, and add up their leaves
+     * @param node internal node whose children are complete
+     * @param marks last node every word was added to, so words are added once
+     * @param merged scratch stack for the words
+     * @return set with the words of all the children, the largest set of a child if it has them all
+     */
+    private WordSet mergeChildren(int node, int[] marks, IntStack merged) {
+        merged.clear();
+        WordSet largest = WordSet.empty();
+        int leaves = 0;
+        for (int child = nodes.firstChild(node); child != NIL; child = nodes.nextSibling(child)) {
+            leaves += nodes.leafCount(child);
+            WordSet words = nodes.listOfWords(child);
+            if (words.size() > largest.size()) largest = words;
+            for (PrimitiveIterator.OfInt it = words.iterator(); it.hasNext(); ) {
+                int word = it.nextInt();
+                if (marks[word] != node) {
+                    marks[word] = node;
+                    merged.push(word);
+                }
             }
         }
+        nodes.setLeafCount(node, leaves);
+        return (merged.size() == largest.size()) ? largest : WordSet.of(merged.toArray());
+    }
 
-        return result;
+    /**
+     * Find left diversity, maximals and longest repeated substring bottom-up, in linear time whatever
+     * the construction and the number of words. A node is left diverse if the suffixes under it are
+     * not all preceded by the same symbol; the suffixes starting a word are preceded by the terminator
+     * of the word before, different for every word, or by nothing.
+     */
+    private void findRepeats() {
+        maximals.clear();
+        indexLongestSubstring = 0;
+        nodeLongestSubstring = NIL;
+
+        stack.clear();
+        pushFrame(root, 0);
+
+        while (!stack.isEmpty()) {
+            int frame = stack.size() - FRAME_SIZE;
+            int node = stack.get(frame + NODE);
+
+            if (stack.get(frame + VISITED) == 0 && nodes.isLeaf(node)) {
+                stack.set(frame + LEFT_SYMBOL, text.leftSymbol(nodes.indexStartPath(node)));
+            }
+
+            int child = stack.get(frame + NEXT_CHILD);
+            if (child != NIL) {
+                stack.set(frame + NEXT_CHILD, nodes.nextSibling(child));
+                stack.set(frame + VISITED, stack.get(frame + VISITED) + 1);
+                pushFrame(child, 0);
+                continue;
+            }
+
+            int leftSymbol = stack.get(frame + LEFT_SYMBOL);
+            boolean leftDiverse = stack.get(frame + LEFT_DIVERSE) != 0;
+            stack.truncate(frame);
+
+            if (node != root && !nodes.isLeaf(node)) {
+                nodes.setLeftDiverse(node, leftDiverse);
+                if (leftDiverse) maximals.add(node);
+                int depth = nodes.depth(node);
+                if (depth > indexLongestSubstring) {
+                    indexLongestSubstring = depth;
+                    nodeLongestSubstring = node;
+                }
+            }
+
+            if (!stack.isEmpty()) {
+                int parentFrame = stack.size() - FRAME_SIZE;
+                if (stack.get(parentFrame + VISITED) == 1) {
+                    stack.set(parentFrame + LEFT_SYMBOL, leftSymbol);
+                    stack.set(parentFrame + LEFT_DIVERSE, leftDiverse ? 1 : 0);
+                } else if (leftDiverse || leftSymbol != stack.get(parentFrame + LEFT_SYMBOL)) {
+                    stack.set(parentFrame + LEFT_DIVERSE, 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Fill the number of leaves under every node, children before their parents. A preorder of the
+     * tree is listed first and then walked backwards, so no recursion is needed.
+     */
+    private void countLeaves() {
+        IntStack preorder = new IntStack();
+        stack.clear();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            int node = stack.pop();
+            preorder.push(node);
+            for (int child = nodes.firstChild(node); child != NIL; child = nodes.nextSibling(child)) {
+                stack.push(child);
+            }
+        }
+
+        for (int i = preorder.size() - 1; i >= 0; i--) {
+            int node = preorder.get(i);
+            int leaves = nodes.isLeaf(node) ? 1 : 0;
+            for (int child = nodes.firstChild(node); child != NIL; child = nodes.nextSibling(child)) {
+                leaves += nodes.leafCount(child);
+            }
+            nodes.setLeafCount(node, leaves);
+        }
+    }
+
+    /**
+     * Push the frame of a node to be completed after Ukkonen's construction
+     * @param node to be completed
+     * @param depth string depth at the start of the node's edge
+     */
+    private void pushFrame(int node, int depth) {
+        stack.push(node);
+        stack.push(depth);
+        stack.push(nodes.firstChild(node));
+        stack.push(0);
+        stack.push(SymbolText.NO_SYMBOL);
+        stack.push(0);
+    }
+
+    /**
+     * Record the time taken by a phase of the construction
+     * @param name of the phase
+     * @param timer started with the phase, started again for the next one
+     */
+    private void phase(String name, Timer timer) {
+        buildTimes.put(name, timer.time());
+        timer.reset();
+    }
+
+    /**
+     * @return nanoseconds taken by every phase of the construction, in the order they ran
+     */
+    public Map<String, Long> buildTimes() {
+        return Collections.unmodifiableMap(buildTimes);
+    }
+
+    /**
+     * @return number of nodes in the tree, root included
+     */
+    public int nodeCount() {
+        int count = 0;
+        IntStack pending = new IntStack();
+        pending.push(root);
+        while (!pending.isEmpty()) {
+            int node = pending.pop();
+            count++;
+            for (int child = nodes.firstChild(node); child != NIL; child = nodes.nextSibling(child)) {
+                pending.push(child);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return number of leaves in the tree, suffixes of removed words excluded
+     */
+    public int leafCount() {
+        return nodes.leafCount(root);
+    }
+
+    /**
+     * Estimate of the memory taken by the tree, see NodeStore.bytes()
+     * @return bytes taken by the text, the nodes and the index of the children
+     */
+    @Override
+    public long bytes() {
+        ChildIndex index = childIndex();
+        return text.bytes() + nodes.bytes() + index.bytes();
+    }
+
+    /**
+     * @return read only copy of the tree, safe to be queried from many threads at once
+     */
+    public FrozenSuffixTree freeze() {
+        return freeze(List.of());
+    }
+
+    /**
+     * Copy the tree to a buffer in the layout of the index files and query it there.
+     *
+     * The copy does not share the arrays of the tree: the text is recoded in place when words with
+     * new characters are added and the nodes are replaced by a compaction, so the copy could not stay
+     * read only. It is laid out on the heap next to the tree, in segments of IndexBuffer, and takes
+     * about a byte per symbol of the text while the alphabet fits in a byte (four otherwise), 25
+     * bytes per reachable node, 8 per edge and 4 per word of every distinct set, less than the tree
+     * itself. Both are held until the tree is dropped. The size of the copy is not capped; trees with
+     * more than Integer.MAX_VALUE children or words in their sets fail with an IllegalStateException.
+     * @param files names of the files of every word, may be empty
+     * @return read only copy of the tree, safe to be queried from many threads at once
+     */
+    public FrozenSuffixTree freeze(List<String> files) {
+        try {
+            return new FrozenSuffixTree(IndexFile.encode(this, files));
+        } catch (IOException ex) {
+            // The buffer was just written in the current format
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * Find maximals and longest repeated substring the first time they are needed, and again if words
+     * were added or removed since they were found
+     */
+    private void refreshRepeats() {
+        if (repeatsStale) {
+            findRepeats();
+            repeatsStale = false;
+        }
+    }
+
+    /**
+     * @return text the edge labels refer to, the one of the compaction once it is done
+     */
+    SymbolText text() {
+        if (compaction != null) installCompaction();
+        return text;
+    }
+
+    /**
+     * @return nodes of the tree
+     */
+    NodeStore nodes() {
+        return nodes;
+    }
+
+    /**
+     * @return ids of the nodes spelling maximal repetitions
+     */
+    ArrayList<Integer> maximalNodes() {
+        refreshRepeats();
+        return maximals;
+    }
+
+    /**
+     * @return id of the node spelling the longest repeated substring, NIL if there is none
+     */
+    int longestNode() {
+        refreshRepeats();
+        return nodeLongestSubstring;
     }
 
     /**
      * @return longest repeated substring stored in the tree
      */
+    @Override
     public String getLongestSubstring() {
-        if (nodeLongestSubstring != null) {
-            int start = nodeLongestSubstring.indexStartPath;
-            int end =  nodeLongestSubstring.end;
+        refreshRepeats();
+        if (nodeLongestSubstring != NIL) {
+            int start = nodes.indexStartPath(nodeLongestSubstring);
+            int end =  nodes.end(nodeLongestSubstring);
             int len = end - start + 1;
-            return string.substring(start, start + len);
+            return text.substring(start, start + len);
         } else {
             return "";
         }
@@ -255,14 +1352,208 @@ public class CompactSuffixTree {
     /**
      * @return list with all the maximals of the tree
      */
+    @Override
     public ArrayList<String> getMaximals() {
+        refreshRepeats();
         ArrayList<String> result = new ArrayList<>();
-        for (CompactSuffixTreeNode node: maximals) {
-            int start = node.indexStartPath;
-            int end =  node.end;
+        for (int node: maximals) {
+            int start = nodes.indexStartPath(node);
+            int end =  nodes.end(node);
             int len = end - start + 1;
-            result.add(string.substring(start, start + len));
+            result.add(text.substring(start, start + len));
         }
         return result;
     }
-}
\ No newline at end of file
+
+    @Override
+    public Stream<Repeat> maximalRepeats(int minLength, int minOccurrences) {
+        return repeats(false, minLength, minOccurrences);
+    }
+
+    @Override
+    public Stream<Repeat> supermaximalRepeats(int minLength, int minOccurrences) {
+        return repeats(true, minLength, minOccurrences);
+    }
+
+    /**
+     * Repeats are found as the stream is consumed, words must not be added nor removed meanwhile
+     * @param supermaximal true to return only supermaximal repeats
+     * @param minLength fewest characters of the repeats returned
+     * @param minOccurrences fewest occurrences of the repeats returned
+     * @return repeats of the tree
+     */
+    private Stream<Repeat> repeats(boolean supermaximal, int minLength, int minOccurrences) {
+        // Left diversity found on the store of the view, not on one installed by a compaction meanwhile
+        TreeView view = view();
+        if (repeatsStale) {
+            findRepeats();
+            repeatsStale = false;
+        }
+        RepeatIterator repeats = new RepeatIterator(view, supermaximal, minLength, minOccurrences);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(repeats, Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public String textOf(Repeat repeat) {
+        return text.substring(repeat.position(), repeat.position() + repeat.length());
+    }
+
+    /**
+     * Found in a single walk of the tree, see FrequentSubstrings
+     */
+    @Override
+    public List<Repeat> mostFrequent(int k, int minLength, int minDocuments) {
+        return new FrequentSubstrings(view()).find(k, minLength, minDocuments);
+    }
+
+    @Override
+    public WordSet searchApproximate(String pattern, int k, Distance distance) {
+        return new ApproximateSearch(view()).search(pattern, k, distance);
+    }
+
+    @Override
+    public List<ApproximateMatch> locateApproximate(String pattern, int k, Distance distance) {
+        return new ApproximateSearch(view()).locate(pattern, k, distance);
+    }
+
+    @Override
+    public WordSet searchWildcard(WildcardPattern pattern) {
+        return new WildcardSearch(view()).search(pattern);
+    }
+
+    @Override
+    public int[] locateWildcard(WildcardPattern pattern) {
+        return new WildcardSearch(view()).locate(pattern);
+    }
+
+    /**
+     * Suffix links of every node are set the first time they are needed, and again if words were
+     * added or removed since, see MatchingStatistics
+     */
+    @Override
+    public List<SharedSegment> matchingStatistics(Reader query, int minLength, MatchListener listener)
+            throws IOException {
+        TreeView view = view();
+        if (linksStale) {
+            MatchingStatistics.linkAll(view, nodes::setSuffixLink);
+            linksStale = false;
+        }
+        return new MatchingStatistics(view).find(query, minLength, listener);
+    }
+
+    /**
+     * A compaction replaces the store instead of changing it, so iterators over a view keep walking
+     * the old one. Words must not be added nor removed while a view is used.
+     * @return view of the nodes of the tree as it is now
+     */
+    private TreeView view() {
+        return new Nodes(childIndex(), nodes, text);
+    }
+
+    /**
+     *  Nodes of one store of the tree seen by the queries
+     */
+    private final class Nodes implements TreeView {
+        private final ChildIndex children;
+        private final NodeStore nodes;
+        private final SymbolText text;
+
+        Nodes(ChildIndex children, NodeStore nodes, SymbolText text) {
+            this.children = children;
+            this.nodes = nodes;
+            this.text = text;
+        }
+
+        @Override
+        public int root() {
+            return root;
+        }
+
+        @Override
+        public boolean isLeaf(int node) {
+            return nodes.isLeaf(node);
+        }
+
+        @Override
+        public void pushChildren(int node, IntStack stack) {
+            for (int child = nodes.firstChild(node); child != NIL; child = nodes.nextSibling(child)) {
+                stack.push(child);
+            }
+        }
+
+        @Override
+        public int child(int node, int symbol) {
+            return children.child(node, symbol);
+        }
+
+        @Override
+        public int begin(int node) {
+            return nodes.begin(node);
+        }
+
+        @Override
+        public int length(int node) {
+            return nodes.length(node);
+        }
+
+        @Override
+        public int pathStart(int node) {
+            return nodes.indexStartPath(node);
+        }
+
+        @Override
+        public int depth(int node) {
+            return nodes.depth(node);
+        }
+
+        @Override
+        public int leaves(int node) {
+            return nodes.leafCount(node);
+        }
+
+        @Override
+        public boolean isLeftDiverse(int node) {
+            return nodes.isLeftDiverse(node);
+        }
+
+        @Override
+        public int suffixLink(int node) {
+            return nodes.suffixLink(node);
+        }
+
+        @Override
+        public WordSet wordsOf(int node) {
+            return withoutTombstones(nodes.listOfWords(node));
+        }
+
+        @Override
+        public int symbolAt(int position) {
+            return text.symbolAt(position);
+        }
+
+        @Override
+        public int leftSymbol(int position) {
+            return text.leftSymbol(position);
+        }
+
+        @Override
+        public int wordOf(int position) {
+            return text.wordOf(position);
+        }
+
+        @Override
+        public boolean isLive(int word) {
+            return !removed.get(word);
+        }
+
+        @Override
+        public int words() {
+            return text.words();
+        }
+
+        @Override
+        public int size() {
+            return nodes.size();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.suffix_tree.tree;
+
+import com.suffix_tree.index.Repeat;
+import com.suffix_tree.utils.IntStack;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ *  Most frequent substrings of a tree, found in a single walk with its own explicit stack and a
+ *  bounded min-heap of the best nodes found so far.
+ *
+ *  All the substrings ending on the edge of a node appear as many times as the node has leaves, so
+ *  every internal node stands for the longest of them, its path. Occurrences and documents only
+ *  decrease going down the tree, so once the heap is full the subtrees of nodes that cannot enter it
+ *  are not walked, nor the ones with too few documents. Nodes shorter than the minimum length are
+ *  walked but not kept.
+ *
+ *  @version 1.0
+ *
+ */
+final class FrequentSubstrings {
+
+    private final TreeView tree;
+
+    /**
+     * @param tree walked
+     */
+    FrequentSubstrings(TreeView tree) {
+        this.tree = tree;
+    }
+
+    /**
+     * @param k most substrings returned
+     * @param minLength fewest characters of the substrings returned
+     * @param minDocuments fewest words the substrings returned appear in
+     * @return up to k substrings appearing at least twice, most frequent first
+     */
+    List<Repeat> find(int k, int minLength, int minDocuments) {
+        if (k <= 0) return List.of();
+
+        // Min-heap of occurrences and node, packed in a long so equal counts are ordered by node
+        long[] heap = new long[Math.min(k, 1 << 16)];
+        int size = 0;
+
+        int root = tree.root();
+        IntStack stack = new IntStack();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            int node = stack.pop();
+            if (tree.isLeaf(node)) continue;
+
+            int leaves = tree.leaves(node);
+            if (node != root) {
+                if (size == k && leaves <= (int) (heap[0] >>> 32)) continue;
+                if (minDocuments > 1 && tree.wordsOf(node).size() < minDocuments) continue;
+
+                if (tree.depth(node) >= minLength) {
+                    long entry = ((long) leaves << 32) | node;
+                    if (size < k) {
+                        if (size == heap.length) heap = Arrays.copyOf(heap, (int) Math.min(k, 2L * size));
+                        heap[size] = entry;
+                        siftUp(heap, size++);
+                    } else {
+                        heap[0] = entry;
+                        siftDown(heap, size);
+                    }
+                }
+            }
+            tree.pushChildren(node, stack);
+        }
+
+        ArrayList<Repeat> result = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            int node = (int) heap[i];
+            result.add(new Repeat(tree.pathStart(node), tree.depth(node), (int) (heap[i] >>> 32)));
+        }
+        result.sort(Comparator.comparingInt(Repeat::occurrences).reversed()
+                .thenComparing(Comparator.comparingInt(Repeat::length).reversed())
+                .thenComparingInt(Repeat::position));
+        return result;
+    }
+
+    /**
+     * @param heap min-heap but for the entry at i
+     * @param i entry moved up until its parent is smaller
+     */
+    private static void siftUp(long[] heap, int i) {
+        long entry = heap[i];
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= entry) break;
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = entry;
+    }
+
+    /**
+     * @param heap min-heap but for the first entry
+     * @param size number of entries of the heap
+     */
+    private static void siftDown(long[] heap, int size) {
+        long entry = heap[0];
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) child++;
+            if (entry <= heap[child]) break;
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = entry;
+    }
+}
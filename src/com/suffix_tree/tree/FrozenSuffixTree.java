@@ -0,0 +1,585 @@
+package com.suffix_tree.tree;
+
+import com.suffix_tree.index.ApproximateMatch;
+import com.suffix_tree.index.Distance;
+import com.suffix_tree.index.MatchListener;
+import com.suffix_tree.index.Occurrence;
+import com.suffix_tree.index.Repeat;
+import com.suffix_tree.index.SharedSegment;
+import com.suffix_tree.index.TextIndex;
+import com.suffix_tree.index.WildcardPattern;
+import com.suffix_tree.node.NodeStore;
+import com.suffix_tree.text.SymbolText;
+import com.suffix_tree.utils.IntStack;
+import com.suffix_tree.words.WordSet;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static com.suffix_tree.node.NodeStore.NIL;
+import static com.suffix_tree.tree.IndexFile.*;
+
+/**
+ *  Read only compacted suffix tree queried in place over a buffer laid out as an index file, so
+ *  loading a tree does not create an object per node.
+ *
+ *  Nothing is changed after construction and queries keep their state in local variables, so one
+ *  instance can be shared by any number of threads.
+ *
+ *  @version 1.0
+ *
+ */
+public final class FrozenSuffixTree implements TextIndex {
+
+    // Root is always the first node
+    public static final int ROOT = 0;
+
+    // Sections of the buffer, see IndexFile. Symbols are in textBytes while the alphabet fits in a
+    // byte and in textInts after that, the other one is null
+    private final IndexBuffer.Bytes textBytes;
+    private final IndexBuffer.Ints textInts;
+    private final IndexBuffer.Ints terminators;
+    private final IndexBuffer.Ints begin;
+    private final IndexBuffer.Ints end;
+    private final IndexBuffer.Ints indexStartPath;
+    private final IndexBuffer.Bytes flags;
+    private final IndexBuffer.Ints nodeSet;
+    private final IndexBuffer.Ints leafCount;
+    private final IndexBuffer.Ints childOffsets;
+    private final IndexBuffer.Ints childCodes;
+    private final IndexBuffer.Ints children;
+    private final IndexBuffer.Ints setOffsets;
+    private final IndexBuffer.Ints setWords;
+    private final IndexBuffer.Ints maximals;
+
+    // Dense code of every character and character of every code + 1, small enough to be copied
+    private final int[] codes;
+    private final int[] characters;
+
+    // Number of symbols of the text, terminators included, and of nodes
+    private final int textLength;
+    private final int nodes;
+
+    // Node spelling the longest repeated substring, NIL if there is none
+    private final int longestNode;
+
+    // Number of words in the tree
+    private final int words;
+
+    // Names of the files of every word
+    private final List<String> files;
+
+    // Size of the buffer, the whole index
+    private final long bytes;
+
+    // Suffix link of every node, not in the index file, so they are found on the heap the first time
+    // matching statistics are asked for
+    private volatile int[] suffixLinks;
+
+    // Nodes seen by the queries
+    private final TreeView view = new Nodes();
+
+    /**
+     * Constructor over a buffer with a whole index
+     * @param buffer laid out as an index file, it must not change afterwards
+     * @throws IOException if the buffer is not an index of a supported version
+     */
+    FrozenSuffixTree(IndexBuffer buffer) throws IOException {
+        if (buffer.size() < 8 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a suffix tree index");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported index version " + buffer.getInt(4) + ", expected " + VERSION);
+        }
+        if (buffer.size() < HEADER_BYTES) {
+            throw new IOException("Truncated index file");
+        }
+        long[] fields = new long[FIELDS];
+        for (int i = 0; i < FIELDS; i++) {
+            fields[i] = buffer.getLong(8 + 8L * i);
+        }
+        long[] offsets = new long[Section.values().length];
+        for (int i = 0; i < offsets.length; i++) {
+            offsets[i] = buffer.getLong(8 + 8L * (FIELDS + i));
+        }
+        if (!Arrays.equals(offsets, IndexFile.offsets(fields)) || offsets[Section.FILES.ordinal()] + 4 > buffer.size()) {
+            throw new IOException("Truncated index file");
+        }
+
+        textLength = (int) fields[TEXT_LENGTH];
+        nodes = (int) fields[NODES];
+        int edges = (int) fields[CHILDREN];
+        if (fields[SYMBOL_BYTES] == 1) {
+            textBytes = buffer.bytes(offsets[Section.TEXT.ordinal()], textLength);
+            textInts = null;
+        } else {
+            textBytes = null;
+            textInts = buffer.ints(offsets[Section.TEXT.ordinal()], textLength);
+        }
+        codes = copy(buffer.ints(offsets[Section.CODES.ordinal()], (int) fields[CODES]));
+        characters = copy(buffer.ints(offsets[Section.CHARACTERS.ordinal()], (int) fields[ALPHABET] + 1));
+        terminators = buffer.ints(offsets[Section.TERMINATORS.ordinal()], (int) fields[WORDS]);
+        begin = buffer.ints(offsets[Section.BEGIN.ordinal()], nodes);
+        end = buffer.ints(offsets[Section.END.ordinal()], nodes);
+        indexStartPath = buffer.ints(offsets[Section.START_PATH.ordinal()], nodes);
+        flags = buffer.bytes(offsets[Section.FLAGS.ordinal()], nodes);
+        nodeSet = buffer.ints(offsets[Section.NODE_SET.ordinal()], nodes);
+        leafCount = buffer.ints(offsets[Section.LEAF_COUNT.ordinal()], nodes);
+        childOffsets = buffer.ints(offsets[Section.CHILD_OFFSETS.ordinal()], nodes + 1);
+        childCodes = buffer.ints(offsets[Section.CHILD_CODES.ordinal()], edges);
+        children = buffer.ints(offsets[Section.CHILDREN.ordinal()], edges);
+        setOffsets = buffer.ints(offsets[Section.SET_OFFSETS.ordinal()], (int) fields[SETS] + 1);
+        setWords = buffer.ints(offsets[Section.SET_WORDS.ordinal()], (int) fields[SET_WORDS]);
+        maximals = buffer.ints(offsets[Section.MAXIMALS.ordinal()], (int) fields[MAXIMALS]);
+        longestNode = (int) fields[LONGEST];
+        words = (int) fields[WORDS];
+
+        // Names are not aligned, so they are read a byte at a time
+        long at = offsets[Section.FILES.ordinal()];
+        int count = buffer.getInt(at);
+        at += 4;
+        ArrayList<String> names = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            byte[] name = new byte[unalignedInt(buffer, at)];
+            at += 4;
+            for (int b = 0; b < name.length; b++) {
+                name[b] = buffer.get(at++);
+            }
+            names.add(new String(name, StandardCharsets.UTF_8));
+        }
+        files = Collections.unmodifiableList(names);
+        bytes = buffer.size();
+    }
+
+    /**
+     * @param section of integers
+     * @return copy of the section on the heap
+     */
+    private static int[] copy(IndexBuffer.Ints section) {
+        int[] values = new int[section.length()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = section.get(i);
+        }
+        return values;
+    }
+
+    /**
+     * @param buffer with the whole index
+     * @param at position of the integer, not aligned
+     * @return integer at the position
+     */
+    private static int unalignedInt(IndexBuffer buffer, long at) {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            value = (value << 8) | (buffer.get(at + i) & 0xFF);
+        }
+        return value;
+    }
+
+    /**
+     * @return number of words in the tree
+     */
+    public int words() {
+        return words;
+    }
+
+    /**
+     * @return number of symbols of the text, terminators included
+     */
+    public int textLength() {
+        return textLength;
+    }
+
+    /**
+     * @return names of the files of every word, empty if the words were not read from files
+     */
+    public List<String> files() {
+        return files;
+    }
+
+    /**
+     * @return number of nodes in the tree, root included
+     */
+    public int nodeCount() {
+        // Only the nodes reachable from the root are written
+        return nodes;
+    }
+
+    /**
+     * @return number of leaves in the tree
+     */
+    public int leafCount() {
+        return leafCount.get(ROOT);
+    }
+
+    /**
+     * @return bytes of the buffer the tree is read from, mapped from the file when it was loaded
+     */
+    @Override
+    public long bytes() {
+        return bytes;
+    }
+
+    /**
+     * @param position in the text
+     * @return code + 1 of the symbol at the position, 0 for terminators
+     */
+    private int stored(int position) {
+        return (textBytes != null) ? textBytes.get(position) : textInts.get(position);
+    }
+
+    /**
+     * @param position in the text
+     * @return symbol at the given position
+     */
+    private int symbolAt(int position) {
+        int c = characters[stored(position)];
+        return (c >= 0) ? c : SymbolText.terminator(occurrenceAt(position).word());
+    }
+
+    /**
+     * @param c character
+     * @return dense code of the character, -1 if it is not in the text
+     */
+    private int code(int c) {
+        return (c >= 0 && c < codes.length) ? codes[c] : -1;
+    }
+
+    /**
+     * @param node parent node
+     * @param code of the first symbol of the edge
+     * @return child found or NIL if there is none
+     */
+    private int child(int node, int code) {
+        int low = childOffsets.get(node), high = childOffsets.get(node + 1) - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int current = childCodes.get(mid);
+            if (current < code) low = mid + 1;
+            else if (current > code) high = mid - 1;
+            else return children.get(mid);
+        }
+        return NIL;
+    }
+
+    /**
+     * @param pattern to be looked for
+     * @return first node whose path contains the whole pattern, NIL if the pattern is not in the tree
+     */
+    private int findNode(String pattern) {
+        int current = ROOT, pos = 0;
+        while (pos < pattern.length()) {
+            int code = code(pattern.charAt(pos));
+            if (code < 0) return NIL;
+            int child = child(current, code);
+            if (child == NIL) return NIL;
+
+            // First character matched by the lookup
+            int i = 1;
+            int first = begin.get(child);
+            int length = end.get(child) - first + 1;
+            pos++;
+            while (pos < pattern.length() && i < length
+                    && pattern.charAt(pos) == characters[stored(first + i)]) { // Match character
+                i++;
+                pos++;
+            }
+
+            if (pos == pattern.length()) return child;
+            else if (i < length) return NIL;
+            current = child;
+        }
+        return NIL;
+    }
+
+    @Override
+    public WordSet search(String pattern) {
+        return wordsOf(findNode(pattern));
+    }
+
+    /**
+     * Search all the patterns in one pass, patterns sharing a prefix share its comparisons
+     * @param patterns to be looked for
+     * @return set of the words of every pattern, in the order of the patterns
+     */
+    @Override
+    public List<WordSet> searchAll(List<String> patterns) {
+        int[] found = new MultiPatternSearch(view).findAll(patterns);
+
+        ArrayList<WordSet> result = new ArrayList<>(found.length);
+        for (int node : found) {
+            result.add(wordsOf(node));
+        }
+        return result;
+    }
+
+    /**
+     * @param node id, NIL for none
+     * @return view of the words of the node, read in place from the buffer, empty set for NIL
+     */
+    private WordSet wordsOf(int node) {
+        if (node == NIL) return WordSet.empty();
+
+        // Words of every set are written sorted
+        int set = nodeSet.get(node);
+        return WordSet.sorted(setWords::get, setOffsets.get(set), setOffsets.get(set + 1));
+    }
+
+    @Override
+    public int count(String pattern) {
+        int node = findNode(pattern);
+        return (node != NIL) ? leafCount.get(node) : 0;
+    }
+
+    @Override
+    public int documentFrequency(String pattern) {
+        int node = findNode(pattern);
+        if (node == NIL) return 0;
+
+        int set = nodeSet.get(node);
+        return setOffsets.get(set + 1) - setOffsets.get(set);
+    }
+
+    @Override
+    public int[] locate(String pattern) {
+        IntStack positions = new IntStack();
+        for (PrimitiveIterator.OfInt it = positions(pattern); it.hasNext(); ) {
+            positions.push(it.nextInt());
+        }
+        int[] result = positions.toArray();
+        Arrays.sort(result);
+        return result;
+    }
+
+    @Override
+    public PrimitiveIterator.OfInt positions(String pattern) {
+        return new LeafIterator(view, findNode(pattern));
+    }
+
+    @Override
+    public Occurrence occurrenceAt(int position) {
+        int low = 0, high = terminators.length() - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (terminators.get(mid) < position) low = mid + 1;
+            else high = mid;
+        }
+        return new Occurrence(low, (low == 0) ? position : position - terminators.get(low - 1) - 1);
+    }
+
+    /**
+     * @param node id
+     * @return characters of the path from the root to the node
+     */
+    private String pathOf(int node) {
+        return substring(indexStartPath.get(node), end.get(node) + 1);
+    }
+
+    /**
+     * @param begin first position, inclusive
+     * @param end last position, exclusive
+     * @return characters between both positions, terminators written as '$'
+     */
+    private String substring(int begin, int end) {
+        StringBuilder sb = new StringBuilder(end - begin);
+        for (int i = begin; i < end; i++) {
+            int c = characters[stored(i)];
+            sb.append((c >= 0) ? (char) c : '$');
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String getLongestSubstring() {
+        return (longestNode != NIL) ? pathOf(longestNode) : "";
+    }
+
+    @Override
+    public List<String> getMaximals() {
+        ArrayList<String> result = new ArrayList<>(maximals.length());
+        for (int i = 0; i < maximals.length(); i++) {
+            result.add(pathOf(maximals.get(i)));
+        }
+        return result;
+    }
+
+    @Override
+    public Stream<Repeat> maximalRepeats(int minLength, int minOccurrences) {
+        return repeats(false, minLength, minOccurrences);
+    }
+
+    @Override
+    public Stream<Repeat> supermaximalRepeats(int minLength, int minOccurrences) {
+        return repeats(true, minLength, minOccurrences);
+    }
+
+    /**
+     * @param supermaximal true to return only supermaximal repeats
+     * @param minLength fewest characters of the repeats returned
+     * @param minOccurrences fewest occurrences of the repeats returned
+     * @return repeats of the tree, found as the stream is consumed
+     */
+    private Stream<Repeat> repeats(boolean supermaximal, int minLength, int minOccurrences) {
+        RepeatIterator repeats = new RepeatIterator(view, supermaximal, minLength, minOccurrences);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(repeats, Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public String textOf(Repeat repeat) {
+        return substring(repeat.position(), repeat.position() + repeat.length());
+    }
+
+    /**
+     * Found in a single walk of the tree, see FrequentSubstrings
+     */
+    @Override
+    public List<Repeat> mostFrequent(int k, int minLength, int minDocuments) {
+        return new FrequentSubstrings(view).find(k, minLength, minDocuments);
+    }
+
+    @Override
+    public WordSet searchApproximate(String pattern, int k, Distance distance) {
+        return new ApproximateSearch(view).search(pattern, k, distance);
+    }
+
+    @Override
+    public List<ApproximateMatch> locateApproximate(String pattern, int k, Distance distance) {
+        return new ApproximateSearch(view).locate(pattern, k, distance);
+    }
+
+    @Override
+    public WordSet searchWildcard(WildcardPattern pattern) {
+        return new WildcardSearch(view).search(pattern);
+    }
+
+    @Override
+    public int[] locateWildcard(WildcardPattern pattern) {
+        return new WildcardSearch(view).locate(pattern);
+    }
+
+    @Override
+    public List<SharedSegment> matchingStatistics(Reader query, int minLength, MatchListener listener)
+            throws IOException {
+        if (suffixLinks == null) linkAll();
+        return new MatchingStatistics(view).find(query, minLength, listener);
+    }
+
+    /**
+     * Find the suffix link of every node, once, by the first thread asking for them
+     */
+    private synchronized void linkAll() {
+        if (suffixLinks != null) return;
+        int[] links = new int[nodes];
+        MatchingStatistics.linkAll(view, (node, link) -> links[node] = link);
+        suffixLinks = links;
+    }
+
+    /**
+     *  Nodes of the buffer seen by the queries
+     */
+    private final class Nodes implements TreeView {
+
+        @Override
+        public int root() {
+            return ROOT;
+        }
+
+        @Override
+        public boolean isLeaf(int node) {
+            return childOffsets.get(node) == childOffsets.get(node + 1);
+        }
+
+        @Override
+        public void pushChildren(int node, IntStack stack) {
+            for (int i = childOffsets.get(node); i < childOffsets.get(node + 1); i++) {
+                stack.push(children.get(i));
+            }
+        }
+
+        @Override
+        public int child(int node, int symbol) {
+            int code = code(symbol);
+            return (code < 0) ? NIL : FrozenSuffixTree.this.child(node, code);
+        }
+
+        @Override
+        public int begin(int node) {
+            return begin.get(node);
+        }
+
+        @Override
+        public int length(int node) {
+            return end.get(node) - begin.get(node) + 1;
+        }
+
+        @Override
+        public int pathStart(int node) {
+            return indexStartPath.get(node);
+        }
+
+        @Override
+        public int depth(int node) {
+            return end.get(node) - indexStartPath.get(node) + 1;
+        }
+
+        @Override
+        public int leaves(int node) {
+            return leafCount.get(node);
+        }
+
+        @Override
+        public boolean isLeftDiverse(int node) {
+            return (flags.get(node) & NodeStore.LEFT_DIVERSE) != 0;
+        }
+
+        @Override
+        public int suffixLink(int node) {
+            return suffixLinks[node];
+        }
+
+        @Override
+        public WordSet wordsOf(int node) {
+            return FrozenSuffixTree.this.wordsOf(node);
+        }
+
+        @Override
+        public int symbolAt(int position) {
+            return FrozenSuffixTree.this.symbolAt(position);
+        }
+
+        @Override
+        public int leftSymbol(int position) {
+            return (position > 0) ? FrozenSuffixTree.this.symbolAt(position - 1) : SymbolText.NO_SYMBOL;
+        }
+
+        @Override
+        public int wordOf(int position) {
+            return occurrenceAt(position).word();
+        }
+
+        @Override
+        public boolean isLive(int word) {
+            return true;
+        }
+
+        @Override
+        public int words() {
+            return words;
+        }
+
+        @Override
+        public int size() {
+            return nodes;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.suffix_tree.tree;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ *  Bytes of an index, big endian, split in segments so an index is not bounded by the largest
+ *  buffer Java can map or allocate.
+ *
+ *  Every segment but the last one holds 1 << SEGMENT_BITS bytes. Sections start at multiples of 8 and
+ *  their values are aligned to their own size, so a value never spans two segments and is read from
+ *  a single buffer.
+ *
+ *  @version 1.0
+ *
+ */
+final class IndexBuffer {
+
+    // Bytes of every segment but the last one, as a power of two
+    static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_MASK = (1L << SEGMENT_BITS) - 1;
+
+    private final ByteBuffer[] segments;
+
+    // Number of bytes of all the segments
+    private final long size;
+
+    /**
+     * @param segments with all the bytes, every one but the last one full
+     * @param size number of bytes of all the segments
+     */
+    private IndexBuffer(ByteBuffer[] segments, long size) {
+        this.segments = segments;
+        this.size = size;
+    }
+
+    /**
+     * Map a whole file read only, a segment at a time. The mapping outlives the channel.
+     * @param channel of the file
+     * @return buffer over the file
+     * @throws IOException if the file cannot be mapped
+     */
+    static IndexBuffer map(FileChannel channel) throws IOException {
+        long size = channel.size();
+        ByteBuffer[] segments = new ByteBuffer[segmentsFor(size)];
+        for (int i = 0; i < segments.length; i++) {
+            long start = (long) i << SEGMENT_BITS;
+            segments[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(size - start, 1L << SEGMENT_BITS));
+        }
+        return new IndexBuffer(segments, size);
+    }
+
+    /**
+     * @param size number of bytes
+     * @return buffer on the heap, filled with zeros
+     */
+    static IndexBuffer allocate(long size) {
+        ByteBuffer[] segments = new ByteBuffer[segmentsFor(size)];
+        for (int i = 0; i < segments.length; i++) {
+            long start = (long) i << SEGMENT_BITS;
+            segments[i] = ByteBuffer.allocate((int) Math.min(size - start, 1L << SEGMENT_BITS));
+        }
+        return new IndexBuffer(segments, size);
+    }
+
+    /**
+     * @param size number of bytes
+     * @return number of segments holding them, at least one
+     */
+    private static int segmentsFor(long size) {
+        return (int) Math.max(1, (size + SEGMENT_MASK) >>> SEGMENT_BITS);
+    }
+
+    /**
+     * @return number of bytes of the buffer
+     */
+    long size() {
+        return size;
+    }
+
+    /**
+     * @param position of the byte
+     * @return byte at the position
+     */
+    byte get(long position) {
+        return segments[(int) (position >>> SEGMENT_BITS)].get((int) (position & SEGMENT_MASK));
+    }
+
+    /**
+     * @param position of the integer, a multiple of 4
+     * @return integer at the position
+     */
+    int getInt(long position) {
+        return segments[(int) (position >>> SEGMENT_BITS)].getInt((int) (position & SEGMENT_MASK));
+    }
+
+    /**
+     * @param position of the long, a multiple of 8
+     * @return long at the position
+     */
+    long getLong(long position) {
+        return segments[(int) (position >>> SEGMENT_BITS)].getLong((int) (position & SEGMENT_MASK));
+    }
+
+    /**
+     * @param position of the first integer, a multiple of 4
+     * @param length number of integers
+     * @return view of the integers
+     */
+    Ints ints(long position, int length) {
+        return new Ints(segments, position, length);
+    }
+
+    /**
+     * @param position of the first byte
+     * @param length number of bytes
+     * @return view of the bytes
+     */
+    Bytes bytes(long position, int length) {
+        return new Bytes(segments, position, length);
+    }
+
+    /**
+     * @return stream writing the bytes of the buffer from its start, to be filled before it is read
+     */
+    OutputStream output() {
+        return new OutputStream() {
+            private long position = 0;
+
+            @Override
+            public void write(int b) {
+                segments[(int) (position >>> SEGMENT_BITS)].put((int) (position & SEGMENT_MASK), (byte) b);
+                position++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                while (len > 0) {
+                    ByteBuffer segment = segments[(int) (position >>> SEGMENT_BITS)];
+                    int at = (int) (position & SEGMENT_MASK);
+                    int n = Math.min(len, segment.capacity() - at);
+                    segment.put(at, b, off, n);
+                    position += n;
+                    off += n;
+                    len -= n;
+                }
+            }
+        };
+    }
+
+    /**
+     *  Section of integers, read in place. Indexes are not checked against the length of the section.
+     */
+    static final class Ints {
+        private final ByteBuffer[] segments;
+        private final long position;
+        private final int length;
+
+        private Ints(ByteBuffer[] segments, long position, int length) {
+            this.segments = segments;
+            this.position = position;
+            this.length = length;
+        }
+
+        /**
+         * @param index of the integer in the section
+         * @return integer at the index
+         */
+        int get(int index) {
+            long at = position + ((long) index << 2);
+            return segments[(int) (at >>> SEGMENT_BITS)].getInt((int) (at & SEGMENT_MASK));
+        }
+
+        /**
+         * @return number of integers of the section
+         */
+        int length() {
+            return length;
+        }
+    }
+
+    /**
+     *  Section of bytes read as unsigned values, in place. Indexes are not checked against the length
+     *  of the section.
+     */
+    static final class Bytes {
+        private final ByteBuffer[] segments;
+        private final long position;
+        private final int length;
+
+        private Bytes(ByteBuffer[] segments, long position, int length) {
+            this.segments = segments;
+            this.position = position;
+            this.length = length;
+        }
+
+        /**
+         * @param index of the byte in the section
+         * @return byte at the index, between 0 and 255
+         */
+        int get(int index) {
+            long at = position + index;
+            return segments[(int) (at >>> SEGMENT_BITS)].get((int) (at & SEGMENT_MASK)) & 0xFF;
+        }
+
+        /**
+         * @return number of bytes of the section
+         */
+        int length() {
+            return length;
+        }
+    }
+}
@@ -0,0 +1,458 @@
+package com.suffix_tree.tree;
+
+import com.suffix_tree.node.NodeStore;
+import com.suffix_tree.text.SymbolText;
+import com.suffix_tree.utils.IntStack;
+import com.suffix_tree.words.WordSet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+import static com.suffix_tree.node.NodeStore.NIL;
+
+/**
+ *  Binary format of a compacted suffix tree, read in place by FrozenSuffixTree.
+ *
+ *  The file starts with the magic number and the version as integers, then the FIELDS fields of the
+ *  header and the offset in bytes of every section from the start of the file, all of them longs.
+ *  Sections follow in this order, each one starting at a multiple of 8, all big endian:
+ *      text          code + 1 of every symbol of the shared text, 0 for terminators, in SYMBOL_BYTES
+ *                    bytes each: one while the alphabet fits in a byte, four after that
+ *      codes         dense code of every character, -1 for the ones not present
+ *      characters    character of every code + 1, -1 in the first entry, the one of the terminators
+ *      terminators   position of the terminator of every word
+ *      begin, end    edge label of every node, both inclusive
+ *      startPath     position where the path of every node starts
+ *      flags         flags of every node, a byte each
+ *      nodeSet       set of words of every node
+ *      leafCount     number of leaves under every node
+ *      childOffsets  start of the children of every node, one more entry closing the last node
+ *      childCodes    code of the first symbol of every child, sorted within every node
+ *      children      child ids in the order of their codes
+ *      setOffsets    start of every set of words, one more entry closing the last set
+ *      setWords      words of every set, sorted
+ *      maximals      nodes spelling maximal repetitions
+ *      files         number of files, then the UTF-8 bytes of every name preceded by their length
+ *  Only the nodes reachable from the root are written, the root first. Node ids, positions and
+ *  counts are integers, as they are in memory; only offsets into the file are longs, so the size of
+ *  a file is not bounded.
+ *
+ *  @version 1.0
+ *
+ */
+public final class IndexFile {
+
+    // First integer of every index file
+    static final int MAGIC = 0x53544958;
+
+    // Version of the format, changed whenever the layout does
+    static final int VERSION = 4;
+
+    // Positions of the fields in the header, after the magic number and the version
+    static final int TEXT_LENGTH = 0, WORDS = 1, CODES = 2, ALPHABET = 3, SYMBOL_BYTES = 4, NODES = 5,
+            CHILDREN = 6, SETS = 7, SET_WORDS = 8, MAXIMALS = 9, LONGEST = 10;
+    static final int FIELDS = 11;
+
+    // Bytes of the header: magic number, version, fields and the offset of every section
+    static final int HEADER_BYTES = 8 + 8 * (FIELDS + Section.values().length);
+
+    // Bytes buffered while a file is written
+    private static final int BUFFER = 1 << 16;
+
+    /**
+     *  Sections of the file, in the order they are written
+     */
+    enum Section {
+        TEXT, CODES, CHARACTERS, TERMINATORS, BEGIN, END, START_PATH, FLAGS, NODE_SET, LEAF_COUNT,
+        CHILD_OFFSETS, CHILD_CODES, CHILDREN, SET_OFFSETS, SET_WORDS, MAXIMALS, FILES
+    }
+
+    private IndexFile() {
+    }
+
+    /**
+     * Write a tree and the names of its files to disk, streamed without a copy of the index in memory
+     * @param tree built tree
+     * @param files names of the files of every word, may be empty
+     * @param path of the index file
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(CompactSuffixTree tree, List<String> files, Path path) throws IOException {
+        Encoder encoder = new Encoder(tree, files);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), BUFFER))) {
+            encoder.write(out);
+        }
+    }
+
+    /**
+     * Map an index file in memory, nothing is read until it is queried
+     * @param path of the index file
+     * @return read only tree over the mapped file
+     * @throws IOException if the file cannot be read or it is not an index file
+     */
+    public static FrozenSuffixTree load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new FrozenSuffixTree(IndexBuffer.map(channel));
+        }
+    }
+
+    /**
+     * Lay out a tree in the format of the index files, on the heap
+     * @param tree built tree
+     * @param files names of the files of every word, may be empty
+     * @return buffer with the whole index
+     */
+    static IndexBuffer encode(CompactSuffixTree tree, List<String> files) {
+        Encoder encoder = new Encoder(tree, files);
+        IndexBuffer buffer = IndexBuffer.allocate(encoder.size());
+        try {
+            encoder.write(new DataOutputStream(buffer.output()));
+        } catch (IOException ex) {
+            // The buffer never fails to be written
+            throw new IllegalStateException(ex);
+        }
+        return buffer;
+    }
+
+    /**
+     * @param section of the file
+     * @param fields of the header
+     * @return number of bytes of the section, padding excluded
+     */
+    private static long sectionBytes(Section section, long[] fields) {
+        long nodes = fields[NODES];
+        return switch (section) {
+            case TEXT -> fields[TEXT_LENGTH] * fields[SYMBOL_BYTES];
+            case CODES -> 4 * fields[CODES];
+            case CHARACTERS -> 4 * (fields[ALPHABET] + 1);
+            case TERMINATORS -> 4 * fields[WORDS];
+            case BEGIN, END, START_PATH, NODE_SET, LEAF_COUNT -> 4 * nodes;
+            case FLAGS -> nodes;
+            case CHILD_OFFSETS -> 4 * (nodes + 1);
+            case CHILD_CODES, CHILDREN -> 4 * fields[CHILDREN];
+            case SET_OFFSETS -> 4 * (fields[SETS] + 1);
+            case SET_WORDS -> 4 * fields[SET_WORDS];
+            case MAXIMALS -> 4 * fields[MAXIMALS];
+            case FILES -> 0;
+        };
+    }
+
+    /**
+     * @param fields of the header
+     * @return offset in bytes of every section from the start of the file, the files last
+     */
+    static long[] offsets(long[] fields) {
+        Section[] sections = Section.values();
+        long[] offsets = new long[sections.length];
+        long offset = HEADER_BYTES;
+        for (Section section : sections) {
+            offsets[section.ordinal()] = offset;
+            offset = aligned(offset + sectionBytes(section, fields));
+        }
+        return offsets;
+    }
+
+    /**
+     * @param offset in bytes
+     * @return the offset rounded up to a multiple of 8
+     */
+    private static long aligned(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    /**
+     * Write the magic number, the version, the fields and the offsets of the sections
+     * @param out index file being written from its start
+     * @param fields of the header
+     * @throws IOException if the file cannot be written
+     */
+    static void writeHeader(DataOutput out, long[] fields) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        for (long field : fields) {
+            out.writeLong(field);
+        }
+        for (long offset : offsets(fields)) {
+            out.writeLong(offset);
+        }
+    }
+
+    /**
+     * Fill the end of a section with zeros, up to where the next one starts
+     * @param out index file being written
+     * @param section just written
+     * @param fields of the header
+     * @throws IOException if the file cannot be written
+     */
+    static void pad(DataOutput out, Section section, long[] fields) throws IOException {
+        for (long i = sectionBytes(section, fields); (i & 7) != 0; i++) {
+            out.writeByte(0);
+        }
+    }
+
+    /**
+     * Write the sections of the text: its symbols, the codes of the characters, the character of every
+     * code and the terminators of the words
+     * @param out index file being written, right after the header
+     * @param text shared by all the nodes
+     * @param fields of the header
+     * @throws IOException if the file cannot be written
+     */
+    static void writeText(DataOutput out, SymbolText text, long[] fields) throws IOException {
+        boolean bytes = fields[SYMBOL_BYTES] == 1;
+        for (int i = 0; i < text.length(); i++) {
+            if (bytes) out.writeByte(text.codeAt(i) + 1);
+            else out.writeInt(text.codeAt(i) + 1);
+        }
+        pad(out, Section.TEXT, fields);
+
+        int[] characters = new int[text.alphabetSize() + 1];
+        characters[0] = -1;
+        for (int c = 0; c <= text.maxCharacter(); c++) {
+            int code = text.code(c);
+            out.writeInt(code);
+            if (code >= 0) characters[code + 1] = c;
+        }
+        pad(out, Section.CODES, fields);
+        for (int c : characters) {
+            out.writeInt(c);
+        }
+        pad(out, Section.CHARACTERS, fields);
+        for (int w = 0; w < text.words(); w++) {
+            out.writeInt(text.terminatorOf(w));
+        }
+        pad(out, Section.TERMINATORS, fields);
+    }
+
+    /**
+     * @param text shared by all the nodes
+     * @param nodes number of nodes of the tree
+     * @param edges number of children of all the nodes
+     * @param sets number of different sets of words
+     * @param setWords number of words of all the sets
+     * @param maximals number of nodes spelling maximal repetitions
+     * @param longest node spelling the longest repeated substring, NIL if there is none
+     * @return fields of the header of the index file of a tree
+     */
+    static long[] fields(SymbolText text, int nodes, long edges, long sets, long setWords, int maximals,
+                         int longest) {
+        if (edges > Integer.MAX_VALUE || sets >= Integer.MAX_VALUE || setWords > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too many children or words in the sets for an index file");
+        }
+        long[] fields = new long[FIELDS];
+        fields[TEXT_LENGTH] = text.length();
+        fields[WORDS] = text.words();
+        fields[CODES] = text.maxCharacter() + 1;
+        fields[ALPHABET] = text.alphabetSize();
+        fields[SYMBOL_BYTES] = (text.alphabetSize() <= 0xFF) ? 1 : 4;
+        fields[NODES] = nodes;
+        fields[CHILDREN] = edges;
+        fields[SETS] = sets;
+        fields[SET_WORDS] = setWords;
+        fields[MAXIMALS] = maximals;
+        fields[LONGEST] = longest;
+        return fields;
+    }
+
+    /**
+     * @param files names of the files of every word
+     * @return UTF-8 bytes of every name
+     */
+    static byte[][] names(List<String> files) {
+        byte[][] names = new byte[files.size()][];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = files.get(i).getBytes(StandardCharsets.UTF_8);
+        }
+        return names;
+    }
+
+    /**
+     * @param names UTF-8 bytes of the name of every file
+     * @return bytes of the files section
+     */
+    static long filesBytes(byte[][] names) {
+        long bytes = 4;
+        for (byte[] name : names) {
+            bytes += 4 + name.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Write the last section, the names of the files
+     * @param out index file being written
+     * @param names UTF-8 bytes of the name of every file
+     * @throws IOException if the file cannot be written
+     */
+    static void writeFiles(DataOutput out, byte[][] names) throws IOException {
+        out.writeInt(names.length);
+        for (byte[] name : names) {
+            out.writeInt(name.length);
+            out.write(name);
+        }
+    }
+
+    /**
+     *  Layout of a tree in memory as an index file. Nodes reachable from the root are numbered in
+     *  preorder, children in the order of their codes, and equal sets of words are stored once.
+     */
+    private static final class Encoder {
+        private final CompactSuffixTree tree;
+        private final SymbolText text;
+        private final NodeStore nodes;
+        private final byte[][] names;
+
+        // Store id of every node in the file, and file id of every node of the store, NIL if unreachable
+        private final int[] order;
+        private final int[] renumber;
+
+        // Set of every node in the file, and the different sets in the order of their ids
+        private final int[] nodeSet;
+        private final ArrayList<WordSet> sets = new ArrayList<>();
+
+        private final ArrayList<Integer> maximals;
+        private final long[] fields;
+
+        // Children of a node being written, code + 1 and id packed
+        private long[] scratch = new long[16];
+
+        Encoder(CompactSuffixTree tree, List<String> files) {
+            this.tree = tree;
+            // The text first, a compaction done meanwhile is taken with it
+            text = tree.text();
+            nodes = tree.nodes();
+            maximals = tree.maximalNodes();
+            names = names(files);
+
+            renumber = new int[nodes.size()];
+            Arrays.fill(renumber, NIL);
+            IntStack reached = new IntStack();
+            IntStack pending = new IntStack();
+            pending.push(tree.root);
+            long edges = 0;
+            while (!pending.isEmpty()) {
+                int node = pending.pop();
+                renumber[node] = reached.size();
+                reached.push(node);
+                int count = sortedChildren(node);
+                edges += count;
+                for (int i = count - 1; i >= 0; i--) {
+                    pending.push((int) scratch[i]);
+                }
+            }
+            order = reached.toArray();
+
+            // Equal sets are stored once
+            HashMap<WordSet, Integer> setIds = new HashMap<>();
+            nodeSet = new int[order.length];
+            long setWords = 0;
+            for (int i = 0; i < order.length; i++) {
+                WordSet set = tree.wordsOf(order[i]);
+                Integer id = setIds.get(set);
+                if (id == null) {
+                    id = sets.size();
+                    setIds.put(set, id);
+                    sets.add(set);
+                    setWords += set.size();
+                }
+                nodeSet[i] = id;
+            }
+
+            int longest = tree.longestNode();
+            fields = fields(text, order.length, edges, sets.size(), setWords, maximals.size(),
+                    (longest != NIL) ? renumber[longest] : NIL);
+        }
+
+        /**
+         * @param node of the store
+         * @return number of children of the node, left in scratch sorted by the code of their first
+         *          symbol, terminators first
+         */
+        private int sortedChildren(int node) {
+            int count = 0;
+            for (int child = nodes.firstChild(node); child != NIL; child = nodes.nextSibling(child)) {
+                if (count == scratch.length) scratch = Arrays.copyOf(scratch, 2 * count);
+                scratch[count++] = ((long) (text.codeAt(nodes.begin(child)) + 1) << 32) | child;
+            }
+            Arrays.sort(scratch, 0, count);
+            return count;
+        }
+
+        /**
+         * @return bytes of the whole index
+         */
+        long size() {
+            return offsets(fields)[Section.FILES.ordinal()] + filesBytes(names);
+        }
+
+        /**
+         * @param out where the whole index is written, from its start
+         * @throws IOException if it cannot be written
+         */
+        void write(DataOutput out) throws IOException {
+            writeHeader(out, fields);
+            writeText(out, text, fields);
+
+            for (int node : order) out.writeInt(nodes.begin(node));
+            pad(out, Section.BEGIN, fields);
+            for (int node : order) out.writeInt(nodes.end(node));
+            pad(out, Section.END, fields);
+            for (int node : order) out.writeInt(nodes.indexStartPath(node));
+            pad(out, Section.START_PATH, fields);
+            for (int node : order) out.writeByte(nodes.isLeftDiverse(node) ? NodeStore.LEFT_DIVERSE : 0);
+            pad(out, Section.FLAGS, fields);
+            for (int set : nodeSet) out.writeInt(set);
+            pad(out, Section.NODE_SET, fields);
+            for (int node : order) out.writeInt(nodes.leafCount(node));
+            pad(out, Section.LEAF_COUNT, fields);
+
+            int edge = 0;
+            for (int node : order) {
+                out.writeInt(edge);
+                edge += sortedChildren(node);
+            }
+            out.writeInt(edge);
+            pad(out, Section.CHILD_OFFSETS, fields);
+            for (int node : order) {
+                int count = sortedChildren(node);
+                for (int i = 0; i < count; i++) out.writeInt((int) (scratch[i] >>> 32) - 1);
+            }
+            pad(out, Section.CHILD_CODES, fields);
+            for (int node : order) {
+                int count = sortedChildren(node);
+                for (int i = 0; i < count; i++) out.writeInt(renumber[(int) scratch[i]]);
+            }
+            pad(out, Section.CHILDREN, fields);
+
+            int offset = 0;
+            for (WordSet set : sets) {
+                out.writeInt(offset);
+                offset += set.size();
+            }
+            out.writeInt(offset);
+            pad(out, Section.SET_OFFSETS, fields);
+            for (WordSet set : sets) {
+                for (PrimitiveIterator.OfInt it = set.iterator(); it.hasNext(); ) {
+                    out.writeInt(it.nextInt());
+                }
+            }
+            pad(out, Section.SET_WORDS, fields);
+            for (int node : maximals) out.writeInt(renumber[node]);
+            pad(out, Section.MAXIMALS, fields);
+
+            writeFiles(out, names);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.suffix_tree.tree;
+
+import com.suffix_tree.utils.IntStack;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+import static com.suffix_tree.node.NodeStore.NIL;
+
+/**
+ *  Iterator over the positions where the suffixes of the leaves of a subtree start, walked with its
+ *  own explicit stack one leaf at a time, so stopping early never visits the rest of the subtree.
+ *
+ *  @version 1.0
+ *
+ */
+final class LeafIterator implements PrimitiveIterator.OfInt {
+
+    private final TreeView tree;
+
+    // Nodes still to be visited
+    private final IntStack stack = new IntStack();
+
+    // Leaf to be returned next, NIL until it is found
+    private int next = NIL;
+
+    /**
+     * Constructor for the walk of a subtree
+     * @param tree walked
+     * @param node root of the subtree, NIL for none
+     */
+    LeafIterator(TreeView tree, int node) {
+        this.tree = tree;
+        if (node != NIL) stack.push(node);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == NIL && !stack.isEmpty()) {
+            int node = stack.pop();
+            if (tree.isLeaf(node)) next = node;
+            else tree.pushChildren(node, stack);
+        }
+        return next != NIL;
+    }
+
+    @Override
+    public int nextInt() {
+        if (!hasNext()) throw new NoSuchElementException();
+        int leaf = next;
+        next = NIL;
+        return tree.pathStart(leaf);
+    }
+}
@@ -0,0 +1,306 @@
+package com.suffix_tree.tree;
+
+import com.suffix_tree.index.MatchListener;
+import com.suffix_tree.index.SharedSegment;
+import com.suffix_tree.utils.IntStack;
+import com.suffix_tree.words.WordSet;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.suffix_tree.node.NodeStore.NIL;
+
+/**
+ *  Matching statistics of a query text against the tree: for every position of the query, the
+ *  longest prefix starting there that appears in the words, found in time linear in the query.
+ *
+ *  The match is extended one character of the query at a time from the point of the tree it ends at.
+ *  When the next character cannot follow, the statistic of the first position is known, and the match
+ *  without its first character is found from the suffix link of the node above that point. The rest
+ *  of the match is already known to be in the tree, so it goes down a whole edge at a time, reading
+ *  the symbols of an occurrence of the match in the text; the query is never read back and is
+ *  streamed from a reader.
+ *
+ *  The suffix link of a node whose path is x followed by a is the node whose path is a. Links are
+ *  found by linkAll for every internal node from the link of its parent, parents first, whatever the
+ *  way the tree was built, and kept by the tree as long as it does not change.
+ *
+ *  A word holds every prefix of a match found in it, so its longest shared segment may be a prefix
+ *  of the match of a position that goes on in other words only. Every position credits the node its
+ *  match ends at, and once the query is read a walk of the tree gives every node the longest match
+ *  credited under it, cut to its own depth, and every leaf the best of the nodes above it.
+ *
+ *  @version 1.0
+ *
+ */
+final class MatchingStatistics {
+
+    // Characters read from the query at a time
+    private static final int BUFFER = 1 << 13;
+
+    private final TreeView tree;
+
+    // Node at or above the end of the match, child whose edge the match ends inside, NIL if it ends
+    // at the node, number of symbols matched and position of an occurrence of the match in the text
+    private int root;
+    private int node;
+    private int child;
+    private int depth;
+    private int start;
+
+    // Position of the query whose match is being extended
+    private long position;
+
+    // Longest match ending at every node, and later under it, and the query position it starts at
+    private int[] credit;
+    private long[] creditPosition;
+
+    /**
+     *  Where the suffix links found by linkAll are kept
+     */
+    @FunctionalInterface
+    interface Links {
+
+        /**
+         * @param node internal node
+         * @param link node whose path is the one of the node without its first symbol
+         */
+        void set(int node, int link);
+    }
+
+    /**
+     * Constructor for the statistics of queries against a tree
+     * @param tree queried, its suffix links set by linkAll
+     */
+    MatchingStatistics(TreeView tree) {
+        this.tree = tree;
+    }
+
+    /**
+     * Find the suffix link of every internal node, descending from the link of its parent
+     * @param tree whose nodes are linked
+     * @param links where the link of every internal node is set, the root linked to itself
+     */
+    static void linkAll(TreeView tree, Links links) {
+        int root = tree.root();
+        links.set(root, root);
+
+        // Frames: node and the link of its parent
+        IntStack stack = new IntStack();
+        IntStack children = new IntStack();
+        pushFrames(tree, root, root, stack, children);
+        while (!stack.isEmpty()) {
+            int parentLink = stack.pop(), current = stack.pop();
+            if (tree.isLeaf(current)) continue;
+
+            // Path of the link is in the text right after the first symbol of the path of the node
+            int target = parentLink, length = tree.depth(current) - 1, from = tree.pathStart(current) + 1;
+            while (tree.depth(target) < length) {
+                target = tree.child(target, tree.symbolAt(from + tree.depth(target)));
+            }
+            links.set(current, target);
+            pushFrames(tree, current, target, stack, children);
+        }
+    }
+
+    /**
+     * @param tree whose nodes are linked
+     * @param parent whose children are pushed
+     * @param link of the parent
+     * @param stack of frames
+     * @param children scratch stack
+     */
+    private static void pushFrames(TreeView tree, int parent, int link, IntStack stack, IntStack children) {
+        children.clear();
+        tree.pushChildren(parent, children);
+        for (int i = 0; i < children.size(); i++) {
+            stack.push(children.get(i));
+            stack.push(link);
+        }
+    }
+
+    /**
+     * Read the query to its end and find the statistics of every position
+     * @param query characters normalised like the words, not closed
+     * @param minLength fewest characters of the segments in the summary
+     * @param listener told the statistics of every position, null for none
+     * @return longest segment matched in every word, longest first
+     * @throws IOException if the query cannot be read
+     */
+    List<SharedSegment> find(Reader query, int minLength, MatchListener listener) throws IOException {
+        root = tree.root();
+        node = root;
+        child = NIL;
+        depth = 0;
+        start = 0;
+        position = 0;
+        credit = new int[tree.size()];
+        creditPosition = new long[tree.size()];
+
+        char[] buffer = new char[BUFFER];
+        for (int read = query.read(buffer); read >= 0; read = query.read(buffer)) {
+            for (int i = 0; i < read; i++) {
+                while (!extend(buffer[i])) {
+                    report(minLength, listener);
+                    // A character in none of the words starts no match
+                    if (depth == 0) break;
+                    shrink();
+                }
+            }
+        }
+        while (depth > 0) {
+            report(minLength, listener);
+            shrink();
+        }
+        return summary(Math.max(minLength, 1));
+    }
+
+    /**
+     * @param c next character of the query
+     * @return true if the match goes on with the character, false if it cannot
+     */
+    private boolean extend(char c) {
+        if (child == NIL) {
+            int next = tree.child(node, c);
+            if (next == NIL) return false;
+            // Its path starts with the match, and goes on with the character
+            child = next;
+            start = tree.pathStart(next);
+        } else if (tree.symbolAt(start + depth) != c) {
+            return false;
+        }
+        depth++;
+        if (depth == tree.depth(child)) {
+            node = child;
+            child = NIL;
+        }
+        return true;
+    }
+
+    /**
+     * Drop the first character of the match, going down from the suffix link of the node above its end
+     */
+    private void shrink() {
+        depth--;
+        start++;
+        if (node != root) node = tree.suffixLink(node);
+
+        // Whole match is in the tree, so edges are skipped by their length alone
+        child = NIL;
+        while (depth > tree.depth(node)) {
+            int next = tree.child(node, tree.symbolAt(start + tree.depth(node)));
+            if (tree.depth(next) > depth) {
+                child = next;
+                break;
+            }
+            node = next;
+        }
+    }
+
+    /**
+     * Tell the statistics of the current position and move to the next one
+     * @param minLength fewest characters of the segments in the summary
+     * @param listener told the statistics, null for none
+     */
+    private void report(int minLength, MatchListener listener) {
+        int locus = (child != NIL) ? child : node;
+        if (listener != null) listener.match(position, depth, (depth > 0) ? documentOf(locus) : -1);
+
+        if (depth > 0 && depth >= minLength && depth > credit[locus]) {
+            credit[locus] = depth;
+            creditPosition[locus] = position;
+        }
+        position++;
+    }
+
+    /**
+     * @param locus node at or below the end of the match
+     * @return word holding the match, the one of the occurrence followed if it is still in the tree
+     */
+    private int documentOf(int locus) {
+        int word = tree.wordOf(start);
+        return tree.isLive(word) ? word : tree.wordsOf(locus).iterator().nextInt();
+    }
+
+    /**
+     * The longest segment shared with a word is, over the nodes above its leaves, the longest match
+     * credited under a node cut to the depth of the node
+     * @param minLength fewest characters of the segments, at least 1
+     * @return longest segment matched in every word, with an occurrence inside the word, longest first
+     */
+    private List<SharedSegment> summary(int minLength) {
+        int root = tree.root();
+        IntStack stack = new IntStack();
+        IntStack children = new IntStack();
+
+        // Nodes parents first, then every node gives its longest credit to its parent, children first
+        IntStack order = new IntStack();
+        int[] parent = new int[credit.length];
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            int current = stack.pop();
+            order.push(current);
+            if (tree.isLeaf(current)) continue;
+            children.clear();
+            tree.pushChildren(current, children);
+            for (int i = 0; i < children.size(); i++) {
+                parent[children.get(i)] = current;
+                stack.push(children.get(i));
+            }
+        }
+        for (int i = order.size() - 1; i > 0; i--) {
+            int current = order.get(i), above = parent[current];
+            if (credit[current] > credit[above]) {
+                credit[above] = credit[current];
+                creditPosition[above] = creditPosition[current];
+            }
+        }
+
+        // Frames: node, and the longest segment of the nodes above it and the node it was cut at
+        int[] bestLength = new int[tree.words()];
+        long[] bestPosition = new long[tree.words()];
+        int[] bestOccurrence = new int[tree.words()];
+        stack.push(root);
+        stack.push(0);
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            int from = stack.pop(), length = stack.pop(), current = stack.pop();
+            int cut = Math.min(tree.depth(current), credit[current]);
+            if (cut > length) {
+                length = cut;
+                from = current;
+            }
+            // Nothing long enough is credited under the node nor above it
+            if (length < minLength && credit[current] < minLength) continue;
+
+            if (tree.isLeaf(current)) {
+                int word = tree.wordOf(tree.pathStart(current));
+                if (length >= minLength && tree.isLive(word) && length > bestLength[word]) {
+                    bestLength[word] = length;
+                    bestPosition[word] = creditPosition[from];
+                    bestOccurrence[word] = tree.pathStart(current);
+                }
+                continue;
+            }
+            children.clear();
+            tree.pushChildren(current, children);
+            for (int i = 0; i < children.size(); i++) {
+                stack.push(children.get(i));
+                stack.push(length);
+                stack.push(from);
+            }
+        }
+
+        ArrayList<SharedSegment> result = new ArrayList<>();
+        for (int word = 0; word < bestLength.length; word++) {
+            if (bestLength[word] == 0) continue;
+            result.add(new SharedSegment(word, bestPosition[word], bestOccurrence[word], bestLength[word]));
+        }
+        result.sort(Comparator.comparingInt(SharedSegment::length).reversed()
+                .thenComparingInt(SharedSegment::document));
+        return result;
+    }
+}
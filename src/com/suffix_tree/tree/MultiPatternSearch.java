@@ -0,0 +1,93 @@
+package com.suffix_tree.tree;
+
+import com.suffix_tree.utils.IntStack;
+import com.suffix_tree.utils.PatternSort;
+
+import java.util.List;
+
+import static com.suffix_tree.node.NodeStore.NIL;
+
+/**
+ *  Search of many patterns in one pass over a tree. Patterns are sorted, so every pattern shares its
+ *  longest common prefix with the previous one: the nodes along that prefix are taken from the
+ *  previous descent and its symbols are not compared again.
+ *
+ *  @version 1.0
+ *
+ */
+final class MultiPatternSearch {
+
+    private final TreeView tree;
+
+    /**
+     * @param tree searched
+     */
+    MultiPatternSearch(TreeView tree) {
+        this.tree = tree;
+    }
+
+    /**
+     * @param patterns to be looked for
+     * @return for every pattern, in their order, the first node whose path contains the whole pattern,
+     *          NIL if the pattern is not in the tree
+     */
+    int[] findAll(List<String> patterns) {
+        int[] order = PatternSort.order(patterns);
+
+        // Nodes fully matched by the previous pattern and the length of their paths
+        IntStack path = new IntStack();
+        path.push(tree.root());
+        path.push(0);
+        String previous = "";
+        int matched = 0;
+
+        int[] result = new int[order.length];
+        for (int index : order) {
+            String pattern = patterns.get(index);
+
+            // Symbols already known to match
+            int common = 0;
+            int limit = Math.min(matched, Math.min(previous.length(), pattern.length()));
+            while (common < limit && previous.charAt(common) == pattern.charAt(common)) {
+                common++;
+            }
+            while (path.get(path.size() - 1) > common) {
+                path.truncate(path.size() - 2);
+            }
+
+            int current = path.get(path.size() - 2);
+            int pos = path.get(path.size() - 1);
+            int found = NIL;
+            while (pos < pattern.length()) {
+                int child = tree.child(current, pattern.charAt(pos));
+                if (child == NIL) break;
+
+                // First character matched by the lookup
+                int i = 1;
+                int begin = tree.begin(child);
+                int length = tree.length(child);
+                pos++;
+                while (pos < pattern.length() && i < length
+                        && (pos < common || pattern.charAt(pos) == tree.symbolAt(begin + i))) { // Match character
+                    i++;
+                    pos++;
+                }
+
+                if (pos == pattern.length()) {
+                    found = child;
+                    break;
+                } else if (i < length) {
+                    break;
+                }
+                current = child;
+                path.push(current);
+                path.push(pos);
+            }
+
+            result[index] = found;
+            previous = pattern;
+            matched = pos;
+        }
+        return result;
+    }
+}
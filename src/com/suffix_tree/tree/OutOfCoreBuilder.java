@@ -0,0 +1,752 @@
+package com.suffix_tree.tree;
+
+import com.suffix_tree.node.NodeStore;
+import com.suffix_tree.text.SymbolText;
+import com.suffix_tree.utils.IntStack;
+import com.suffix_tree.words.WordSet;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PrimitiveIterator;
+
+import static com.suffix_tree.node.NodeStore.NIL;
+import static com.suffix_tree.tree.IndexFile.*;
+
+/**
+ *  Construction of a tree larger than the heap, written straight to an index file and queried from
+ *  there with IndexFile.load.
+ *
+ *  Suffixes are split in buckets by their first symbols, a prefix being extended one symbol at a time
+ *  while more suffixes start with it than fit in the memory budget. Consecutive buckets are grouped
+ *  up to the budget, the positions of every group are spilled to a file of their own in one pass over
+ *  the text, and the buckets of every group are then built in memory like in the parallel
+ *  construction. Buckets only share the part of their paths shorter than their prefixes, so the few
+ *  nodes above them are found from the prefixes alone as the buckets come in order.
+ *
+ *  Nodes are written as soon as their subtrees are complete, children first, to a file per section
+ *  of the index file, and the sections are copied one after the other behind the header at the end.
+ *  Every file is written and read sequentially. The text is read through a file of symbols mapped in
+ *  memory, see TextLoader.map, so the heap holds one group, the nodes of the path still open and an
+ *  integer per word, whatever the size of the text and of the tree. Positions are integers in the
+ *  index file, so texts are limited to 2^31 - 8 symbols, longer ones being refused as they are read.
+ *
+ *  @version 1.0
+ *
+ */
+public final class OutOfCoreBuilder {
+
+    // Memory given to the groups when no budget is set
+    public static final long DEFAULT_MEMORY = 256L << 20;
+
+    // Estimate of the heap taken by every suffix of a group: about two nodes of a NodeStore, their
+    // sets of words and the arrays the suffixes are sorted in
+    private static final int SUFFIX_BYTES = 128;
+
+    // Fewest suffixes in a group, whatever the budget
+    private static final int MIN_GROUP = 1 << 12;
+
+    // Longest prefix suffixes are split by, buckets still over the budget are built anyway
+    private static final int MAX_PREFIX = 32;
+
+    // Most spill files open at once, positions are spread in several passes over the text beyond
+    private static final int MAX_OPEN_SPILLS = 256;
+
+    // Bytes buffered by every file written or read
+    private static final int BUFFER = 1 << 16;
+    private static final int MIN_BUFFER = 1 << 12;
+
+    private final SymbolText text;
+
+    // Directory of the index file, where the temporary files are written
+    private final Path directory;
+
+    private final long memory;
+
+    // Most suffixes of a bucket before its prefix is extended, and of a group
+    private final int limit;
+
+    // Slots of every prefix: its terminators first, then every code
+    private final int slots;
+
+    // Prefixes extended, the empty one first: the extension of every slot, -1 for none, and the
+    // number of symbols of every prefix
+    private int[] extension;
+    private int[] prefixLength;
+    private int prefixes;
+
+    // Suffixes and bucket of every slot of the extended prefixes, -1 for none
+    private int[] slotCounts;
+    private int[] slotBucket;
+
+    // Suffixes of every bucket, symbols of the prefix it extends, symbols its prefix shares with the
+    // prefix of the bucket before and whether it holds the suffixes ending right after the prefix
+    private final IntStack bucketSuffixes = new IntStack();
+    private final IntStack bucketDepth = new IntStack();
+    private final IntStack bucketLcp = new IntStack();
+    private final IntStack bucketTerminal = new IntStack();
+
+    // First bucket of every group, one more entry closing the last group
+    private final IntStack groups = new IntStack();
+
+    // Children of the root, known from the first symbols of the suffixes
+    private int rootChildren;
+
+    // Sections of the index file written node by node
+    private final ArrayList<Column> temporaries = new ArrayList<>();
+    private Column begin, end, startPath, flags, nodeSet, leafCount, childOffsets, childCodes, children,
+            setOffsets, setWords, maximals;
+
+    // Nodes and edges written so far, the root being node 0 and written last
+    private int nodes = 1;
+    private int edges = 0;
+
+    // Sets written so far: the set of every single word first, then the one of the root
+    private int sets;
+    private int setWordsCount;
+    private final WordSet rootWords;
+    private final int rootSet;
+
+    // Sets written while the current group is built, so equal sets are stored once
+    private final HashMap<WordSet, Integer> groupSets = new HashMap<>();
+
+    // Maximal repetitions and deepest internal node found so far
+    private int maximalCount = 0;
+    private int longestNode = NIL;
+    private int longestDepth = 0;
+
+    // Nodes above the buckets still open, on the path to the last bucket, the root at the bottom
+    private final ArrayDeque<Frame> open = new ArrayDeque<>();
+
+    // Explicit stacks of the walk of a bucket: nodes to be visited, and the children completed with
+    // their code, the symbol before them and whether they are left diverse, four integers each
+    private final IntStack work = new IntStack();
+    private final IntStack completed = new IntStack();
+    private long[] scratch = new long[16];
+
+    /**
+     * Node above the buckets, or the top of a bucket, while its parent is not known
+     */
+    private static final class Frame {
+        // Number of symbols of the path and position where it starts
+        final int depth;
+        final int pathStart;
+
+        WordSet words = WordSet.empty();
+        int leaves = 0;
+
+        // Symbol before every suffix under the node if they all share it, and whether they do not
+        int leftSymbol = SymbolText.NO_SYMBOL;
+        boolean leftDiverse = false;
+
+        // Ids of the children and the codes of their first symbols, in the order of the codes
+        final IntStack children = new IntStack();
+
+        Frame(int depth, int pathStart) {
+            this.depth = depth;
+            this.pathStart = pathStart;
+        }
+
+        /**
+         * @param id of the child, already written
+         * @param code of the first symbol of its edge
+         * @param child completed
+         */
+        void add(int id, int code, Frame child) {
+            if (children.isEmpty()) {
+                leftSymbol = child.leftSymbol;
+                leftDiverse = child.leftDiverse;
+            } else if (child.leftDiverse || child.leftSymbol != leftSymbol) {
+                leftDiverse = true;
+            }
+            children.push(id);
+            children.push(code);
+            words = words.union(child.words);
+            leaves += child.leaves;
+        }
+    }
+
+    /**
+     * Temporary file of integers or bytes, written sequentially and then copied or read back once
+     */
+    private static final class Column implements Closeable {
+        final Path path;
+        private final DataOutputStream out;
+        long bytes = 0;
+
+        Column(Path directory, int buffer) throws IOException {
+            path = Files.createTempFile(directory, "suffix-tree-", ".spill");
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), buffer));
+        }
+
+        void write(int value) throws IOException {
+            out.writeInt(value);
+            bytes += 4;
+        }
+
+        void writeByte(int value) throws IOException {
+            out.writeByte(value);
+            bytes++;
+        }
+
+        /**
+         * @param target where all the integers written are copied
+         */
+        void copyTo(OutputStream target) throws IOException {
+            out.close();
+            Files.copy(path, target);
+        }
+
+        /**
+         * @return all the integers written, in the same order
+         */
+        int[] readAll() throws IOException {
+            out.close();
+            int[] values = new int[(int) (bytes / 4)];
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BUFFER))) {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = in.readInt();
+                }
+            }
+            return values;
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private OutOfCoreBuilder(SymbolText text, Path path, long memory) {
+        this.text = text;
+        this.directory = path.toAbsolutePath().getParent();
+        this.memory = memory;
+        limit = (int) Math.max(MIN_GROUP, Math.min(Integer.MAX_VALUE, memory / SUFFIX_BYTES));
+        slots = Math.max(text.alphabetSize(), 1) + 1;
+
+        IntStack nonEmpty = new IntStack();
+        for (int w = 0; w < text.words(); w++) {
+            if (text.terminatorOf(w) > text.wordStart(w)) nonEmpty.push(w);
+        }
+        rootWords = WordSet.of(nonEmpty.toArray());
+        rootSet = text.words();
+    }
+
+    /**
+     * Build the tree of a text and write it as an index file, with a bounded amount of heap
+     * @param text with all the words, mapped from a file by TextLoader.map to keep it off the heap
+     * @param files names of the files of every word, may be empty
+     * @param path of the index file, replaced if it exists
+     * @param memory bytes of heap the tree may take while it is built
+     * @throws IOException if the index file or the temporary files next to it cannot be written
+     */
+    public static void build(SymbolText text, List<String> files, Path path, long memory) throws IOException {
+        OutOfCoreBuilder builder = new OutOfCoreBuilder(text, path, memory);
+        try {
+            builder.partition();
+            builder.buckets();
+            builder.write(builder.spill(), files, path);
+        } finally {
+            for (Column column : builder.temporaries) {
+                column.close();
+            }
+        }
+    }
+
+    /**
+     * Extend the prefixes holding more suffixes than the limit, one symbol at every pass over the
+     * text, until every slot fits or its prefix is MAX_PREFIX symbols long
+     */
+    private void partition() {
+        extension = new int[slots];
+        Arrays.fill(extension, -1);
+        prefixLength = new int[]{0};
+        prefixes = 1;
+
+        boolean extended = true;
+        while (extended) {
+            slotCounts = new int[prefixes * slots];
+            for (int i = 0; i < text.length(); i++) {
+                if (text.codeAt(i) >= 0) slotCounts[slotOf(i)]++;
+            }
+
+            extended = false;
+            int known = prefixes;
+            for (int prefix = 0; prefix < known; prefix++) {
+                if (prefixLength[prefix] + 1 >= MAX_PREFIX) continue;
+                // Terminator slots cannot be extended
+                for (int slot = prefix * slots + 1; slot < (prefix + 1) * slots; slot++) {
+                    if (extension[slot] < 0 && slotCounts[slot] > limit) {
+                        extension[slot] = newPrefix(prefixLength[prefix] + 1);
+                        extended = true;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @param length number of symbols of the prefix
+     * @return id of the new prefix, with all its slots not extended
+     */
+    private int newPrefix(int length) {
+        int prefix = prefixes++;
+        if (prefix == prefixLength.length) {
+            prefixLength = Arrays.copyOf(prefixLength, 2 * prefix);
+            extension = Arrays.copyOf(extension, 2 * prefix * slots);
+            Arrays.fill(extension, prefix * slots, extension.length, -1);
+        }
+        prefixLength[prefix] = length;
+        return prefix;
+    }
+
+    /**
+     * @param position where a suffix starts, not at a terminator
+     * @return slot of the longest prefix extended that starts the suffix
+     */
+    private int slotOf(int position) {
+        int prefix = 0;
+        for (int d = 0; ; d++) {
+            int slot = prefix * slots + text.codeAt(position + d) + 1;
+            if (extension[slot] < 0) return slot;
+            prefix = extension[slot];
+        }
+    }
+
+    /**
+     * Number the slots holding suffixes in the order of their prefixes, which is the order of their
+     * subtrees in the tree, and group consecutive ones up to the limit
+     */
+    private void buckets() {
+        slotBucket = new int[prefixes * slots];
+        Arrays.fill(slotBucket, -1);
+
+        // Depth first over the prefixes, with the next slot of every prefix on the path
+        IntStack path = new IntStack();
+        IntStack nextSlot = new IntStack();
+        path.push(0);
+        nextSlot.push(0);
+        int lcp = 0;
+        while (!path.isEmpty()) {
+            int top = path.size() - 1;
+            int prefix = path.get(top), s = nextSlot.get(top);
+            lcp = Math.min(lcp, prefixLength[prefix]);
+            if (s == slots) {
+                path.pop();
+                nextSlot.pop();
+                continue;
+            }
+            nextSlot.set(top, s + 1);
+
+            int slot = prefix * slots + s;
+            if (extension[slot] >= 0) {
+                path.push(extension[slot]);
+                nextSlot.push(0);
+            } else if (slotCounts[slot] > 0) {
+                slotBucket[slot] = bucketSuffixes.size();
+                bucketSuffixes.push(slotCounts[slot]);
+                bucketDepth.push(prefixLength[prefix]);
+                bucketLcp.push(lcp);
+                bucketTerminal.push((s == 0) ? 1 : 0);
+                lcp = Integer.MAX_VALUE;
+            }
+            if (prefix == 0 && s > 0 && (extension[slot] >= 0 || slotCounts[slot] > 0)) rootChildren++;
+        }
+
+        long inGroup = 0;
+        groups.push(0);
+        for (int b = 0; b < bucketSuffixes.size(); b++) {
+            if (inGroup > 0 && inGroup + bucketSuffixes.get(b) > limit) {
+                groups.push(b);
+                inGroup = 0;
+            }
+            inGroup += bucketSuffixes.get(b);
+        }
+        groups.push(bucketSuffixes.size());
+    }
+
+    /**
+     * Write the position of every suffix to the file of its group, in as many passes over the text as
+     * needed to keep at most MAX_OPEN_SPILLS files open
+     * @return file of every group
+     * @throws IOException if a file cannot be written
+     */
+    private Column[] spill() throws IOException {
+        int count = groups.size() - 1;
+        Column[] spills = new Column[count];
+        int[] groupOf = new int[bucketSuffixes.size()];
+        for (int g = 0; g < count; g++) {
+            Arrays.fill(groupOf, groups.get(g), groups.get(g + 1), g);
+        }
+
+        for (int first = 0; first < count; first += MAX_OPEN_SPILLS) {
+            int last = Math.min(count, first + MAX_OPEN_SPILLS);
+            int buffer = (int) Math.max(MIN_BUFFER, Math.min(BUFFER, memory / (2L * (last - first))));
+            for (int g = first; g < last; g++) {
+                spills[g] = temporary(buffer);
+            }
+            for (int i = 0; i < text.length(); i++) {
+                if (text.codeAt(i) < 0) continue;
+                int g = groupOf[slotBucket[slotOf(i)]];
+                if (g >= first && g < last) spills[g].write(i);
+            }
+            for (int g = first; g < last; g++) {
+                spills[g].out.close();
+            }
+        }
+        return spills;
+    }
+
+    /**
+     * @param buffer bytes buffered while it is written
+     * @return new temporary file, deleted once the construction ends
+     * @throws IOException if it cannot be created
+     */
+    private Column temporary(int buffer) throws IOException {
+        Column column = new Column(directory, buffer);
+        temporaries.add(column);
+        return column;
+    }
+
+    /**
+     * Build every group, write its nodes and assemble the index file
+     * @param spills positions of the suffixes of every group
+     * @param files names of the files of every word
+     * @param path of the index file
+     * @throws IOException if a file cannot be written or read
+     */
+    private void write(Column[] spills, List<String> files, Path path) throws IOException {
+        begin = temporary(BUFFER);
+        end = temporary(BUFFER);
+        startPath = temporary(BUFFER);
+        flags = temporary(BUFFER);
+        nodeSet = temporary(BUFFER);
+        leafCount = temporary(BUFFER);
+        childOffsets = temporary(BUFFER);
+        childCodes = temporary(BUFFER);
+        children = temporary(BUFFER);
+        setOffsets = temporary(BUFFER);
+        setWords = temporary(BUFFER);
+        maximals = temporary(BUFFER);
+
+        // Set of every single word, then the set of the root
+        for (int w = 0; w < text.words(); w++) {
+            setOffsets.write(w);
+            setWords.write(w);
+        }
+        setOffsets.write(text.words());
+        for (PrimitiveIterator.OfInt it = rootWords.iterator(); it.hasNext(); ) {
+            setWords.write(it.nextInt());
+        }
+        sets = text.words() + 1;
+        setWordsCount = text.words() + rootWords.size();
+
+        open.push(new Frame(0, 0));
+        for (int g = 0; g + 1 < groups.size(); g++) {
+            int[] positions = spills[g].readAll();
+            spills[g].close();
+            buildGroup(groups.get(g), groups.get(g + 1), positions);
+        }
+        close(0);
+
+        Frame root = open.pop();
+        if (root.children.size() / 2 != rootChildren) {
+            throw new IllegalStateException("Children of the root do not match the prefixes of the suffixes");
+        }
+        assemble(root, files, path);
+    }
+
+    /**
+     * Build the buckets of a group in memory and write their nodes, in the order of their prefixes
+     * @param first bucket of the group
+     * @param last bucket past the group
+     * @param positions where the suffixes of the group start, in any order
+     */
+    private void buildGroup(int first, int last, int[] positions) throws IOException {
+        // Counting sort of the suffixes by bucket
+        int[] starts = new int[last - first + 1];
+        for (int b = first; b < last; b++) {
+            starts[b - first + 1] = starts[b - first] + bucketSuffixes.get(b);
+        }
+        int[] suffixes = new int[positions.length];
+        int[] next = Arrays.copyOf(starts, last - first);
+        for (int position : positions) {
+            suffixes[next[slotBucket[slotOf(position)] - first]++] = position;
+        }
+
+        CompactSuffixTree part = CompactSuffixTree.forBuckets(text);
+        for (int b = first; b < last; b++) {
+            int from = starts[b - first], to = starts[b - first + 1];
+            if (bucketTerminal.get(b) != 0) {
+                // Suffixes ending right after the prefix are leaves, they differ at their terminators
+                for (int i = from; i < to; i++) {
+                    add(leaf(suffixes[i]), (i == from) ? bucketLcp.get(b) : bucketDepth.get(b));
+                }
+            } else {
+                int bucketRoot = part.buildBucket(suffixes, from, to);
+                add(subtree(part.nodes(), part.nodes().firstChild(bucketRoot)), bucketLcp.get(b));
+            }
+        }
+        groupSets.clear();
+    }
+
+    /**
+     * @param position where the suffix starts
+     * @return leaf of the suffix, with no parent yet
+     */
+    private Frame leaf(int position) {
+        int word = text.wordOf(position);
+        Frame leaf = new Frame(text.terminatorOf(word) - position + 1, position);
+        leaf.words = WordSet.of(word);
+        leaf.leaves = 1;
+        leaf.leftSymbol = text.leftSymbol(position);
+        return leaf;
+    }
+
+    /**
+     * Place the top of a bucket after the one before it. Nodes of the path deeper than the symbols
+     * both share are complete and written, and a node is opened where they part if there is none.
+     * @param top of the bucket, its children already written
+     * @param lcp symbols its path shares with the path of the top before it
+     */
+    private void add(Frame top, int lcp) throws IOException {
+        close(lcp);
+        open.push(top);
+    }
+
+    /**
+     * Write the open nodes deeper than a depth, adding every one to its parent
+     * @param depth of the nodes kept open
+     */
+    private void close(int depth) throws IOException {
+        while (depth < open.peek().depth) {
+            Frame node = open.pop();
+            Frame parent = open.peek();
+            if (parent.depth < depth) {
+                parent = new Frame(depth, node.pathStart);
+                open.push(parent);
+            }
+            int id = writeNode(node.pathStart + parent.depth, node.pathStart + node.depth - 1, node.pathStart,
+                    node.words, node.leaves, node.leftDiverse, node.children, 0, 2);
+            parent.add(id, text.codeAt(node.pathStart + parent.depth), node);
+        }
+    }
+
+    /**
+     * Write all the nodes of the subtree of a bucket but its top, children first
+     * @param nodes store where the bucket was built
+     * @param top first node of the bucket
+     * @return top of the bucket, with the ids of its children
+     */
+    private Frame subtree(NodeStore nodes, int top) throws IOException {
+        work.clear();
+        completed.clear();
+        visit(nodes, top);
+        while (true) {
+            int item = work.pop();
+            if (item >= 0) {
+                visit(nodes, item);
+                continue;
+            }
+            int node = ~item, from = work.pop();
+
+            // Symbol before the suffixes of the node, and whether they do not share it
+            int leftSymbol;
+            boolean leftDiverse = false;
+            if (completed.size() == from) {
+                leftSymbol = text.leftSymbol(nodes.indexStartPath(node));
+            } else {
+                leftSymbol = completed.get(from + 2);
+                for (int i = from; i < completed.size(); i += 4) {
+                    if (completed.get(i + 3) != 0 || completed.get(i + 2) != leftSymbol) leftDiverse = true;
+                }
+            }
+
+            if (node == top) {
+                Frame frame = new Frame(nodes.end(top) - nodes.indexStartPath(top) + 1, nodes.indexStartPath(top));
+                frame.words = nodes.listOfWords(top);
+                frame.leaves = nodes.leafCount(top);
+                frame.leftSymbol = leftSymbol;
+                frame.leftDiverse = leftDiverse;
+                for (int i = from; i < completed.size(); i += 4) {
+                    frame.children.push(completed.get(i));
+                    frame.children.push(completed.get(i + 1));
+                }
+                return frame;
+            }
+
+            int id = writeNode(nodes.begin(node), nodes.end(node), nodes.indexStartPath(node),
+                    nodes.listOfWords(node), nodes.leafCount(node), leftDiverse, completed, from, 4);
+            completed.truncate(from);
+            completed.push(id);
+            completed.push(text.codeAt(nodes.begin(node)));
+            completed.push(leftSymbol);
+            completed.push(leftDiverse ? 1 : 0);
+        }
+    }
+
+    /**
+     * Mark a node to be written once its children are, and push its children so the one with the
+     * smallest code is completed first
+     * @param nodes store where the bucket was built
+     * @param node to be visited
+     */
+    private void visit(NodeStore nodes, int node) {
+        work.push(completed.size());
+        work.push(~node);
+        int count = 0;
+        for (int child = nodes.firstChild(node); child != NIL; child = nodes.nextSibling(child)) {
+            if (count == scratch.length) scratch = Arrays.copyOf(scratch, 2 * count);
+            scratch[count++] = ((long) (text.codeAt(nodes.begin(child)) + 1) << 32) | child;
+        }
+        Arrays.sort(scratch, 0, count);
+        for (int i = count - 1; i >= 0; i--) {
+            work.push((int) scratch[i]);
+        }
+    }
+
+    /**
+     * Append a node to every section, its children being written already
+     * @param first position of its edge
+     * @param last position of its edge
+     * @param pathStart position where its path starts
+     * @param words set of words of the node
+     * @param leaves number of leaves under the node
+     * @param leftDiverse whether the suffixes under it are preceded by different symbols
+     * @param childEntries ids and codes of its children, from the given index on
+     * @param stride integers taken by every child in childEntries
+     * @return id of the node
+     */
+    private int writeNode(int first, int last, int pathStart, WordSet words, int leaves, boolean leftDiverse,
+                          IntStack childEntries, int from, int stride) throws IOException {
+        if (nodes == Integer.MAX_VALUE || (long) edges + rootChildren + (childEntries.size() - from) / stride
+                > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Too many nodes for an index file");
+        }
+        int id = nodes++;
+        boolean leaf = from == childEntries.size();
+        begin.write(first);
+        end.write(last);
+        startPath.write(pathStart);
+        flags.writeByte((!leaf && leftDiverse) ? NodeStore.LEFT_DIVERSE : 0);
+        nodeSet.write(setOf(words));
+        leafCount.write(leaves);
+        childOffsets.write(rootChildren + edges);
+        for (int i = from; i < childEntries.size(); i += stride) {
+            childCodes.write(childEntries.get(i + 1));
+            children.write(childEntries.get(i));
+            edges++;
+        }
+
+        if (!leaf) {
+            if (leftDiverse) {
+                maximals.write(id);
+                maximalCount++;
+            }
+            if (last - pathStart + 1 > longestDepth) {
+                longestDepth = last - pathStart + 1;
+                longestNode = id;
+            }
+        }
+        return id;
+    }
+
+    /**
+     * @param words set of words of a node
+     * @return id of the set, written now if it was not yet
+     */
+    private int setOf(WordSet words) throws IOException {
+        if (words.size() == 1) return words.iterator().nextInt();
+        if (words.equals(rootWords)) return rootSet;
+
+        Integer id = groupSets.get(words);
+        if (id == null) {
+            if ((long) setWordsCount + words.size() > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Too many words in the sets for an index file");
+            }
+            id = sets++;
+            groupSets.put(words, id);
+            setOffsets.write(setWordsCount);
+            for (PrimitiveIterator.OfInt it = words.iterator(); it.hasNext(); ) {
+                setWords.write(it.nextInt());
+            }
+            setWordsCount += words.size();
+        }
+        return id;
+    }
+
+    /**
+     * Write the index file: the header, the text and then every section, the root first
+     * @param root with the ids of its children
+     * @param files names of the files of every word
+     * @param path of the index file
+     * @throws IOException if the file cannot be written
+     */
+    private void assemble(Frame root, List<String> files, Path path) throws IOException {
+        byte[][] names = IndexFile.names(files);
+        int totalEdges = edges + rootChildren;
+        long[] fields = IndexFile.fields(text, nodes, totalEdges, sets, setWordsCount, maximalCount, longestNode);
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), BUFFER))) {
+            IndexFile.writeHeader(out, fields);
+            IndexFile.writeText(out, text, fields);
+
+            // Root first in every section of the nodes
+            out.writeInt(-1);
+            begin.copyTo(out);
+            pad(out, Section.BEGIN, fields);
+            out.writeInt(-1);
+            end.copyTo(out);
+            pad(out, Section.END, fields);
+            out.writeInt(0);
+            startPath.copyTo(out);
+            pad(out, Section.START_PATH, fields);
+            out.writeByte(0);
+            flags.copyTo(out);
+            pad(out, Section.FLAGS, fields);
+            out.writeInt(rootSet);
+            nodeSet.copyTo(out);
+            pad(out, Section.NODE_SET, fields);
+            out.writeInt(root.leaves);
+            leafCount.copyTo(out);
+            pad(out, Section.LEAF_COUNT, fields);
+
+            out.writeInt(0);
+            childOffsets.copyTo(out);
+            out.writeInt(totalEdges);
+            pad(out, Section.CHILD_OFFSETS, fields);
+            for (int i = 1; i < root.children.size(); i += 2) {
+                out.writeInt(root.children.get(i));
+            }
+            childCodes.copyTo(out);
+            pad(out, Section.CHILD_CODES, fields);
+            for (int i = 0; i < root.children.size(); i += 2) {
+                out.writeInt(root.children.get(i));
+            }
+            children.copyTo(out);
+            pad(out, Section.CHILDREN, fields);
+
+            setOffsets.copyTo(out);
+            out.writeInt(setWordsCount);
+            pad(out, Section.SET_OFFSETS, fields);
+            setWords.copyTo(out);
+            pad(out, Section.SET_WORDS, fields);
+            maximals.copyTo(out);
+            pad(out, Section.MAXIMALS, fields);
+
+            IndexFile.writeFiles(out, names);
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.suffix_tree.tree;
+
+import com.suffix_tree.index.Repeat;
+import com.suffix_tree.utils.IntStack;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ *  Iterator over the maximal or supermaximal repeats of a tree, walked with its own explicit stack
+ *  one repeat at a time, once left diversity is known for every node.
+ *
+ *  Maximal repeats are the paths of the internal nodes that are left diverse. Supermaximal repeats
+ *  are the paths of the internal nodes whose children are all leaves preceded by different symbols.
+ *  Subtrees with fewer leaves than the occurrences asked for are not walked.
+ *
+ *  @version 1.0
+ *
+ */
+final class RepeatIterator implements Iterator<Repeat> {
+
+    // Nodes still to be visited
+    private final IntStack stack = new IntStack();
+
+    // Children of the node being checked and the symbols before their suffixes
+    private final IntStack children = new IntStack();
+    private int[] leftSymbols = new int[8];
+
+    private final TreeView tree;
+    private final int root;
+    private final boolean supermaximal;
+    private final int minLength;
+    private final int minOccurrences;
+
+    // Repeat to be returned next, null until it is found
+    private Repeat next;
+
+    /**
+     * Constructor for the walk of a tree
+     * @param tree walked
+     * @param supermaximal true to return only supermaximal repeats
+     * @param minLength fewest characters of the repeats returned
+     * @param minOccurrences fewest occurrences of the repeats returned
+     */
+    RepeatIterator(TreeView tree, boolean supermaximal, int minLength, int minOccurrences) {
+        this.tree = tree;
+        this.root = tree.root();
+        this.supermaximal = supermaximal;
+        this.minLength = minLength;
+        this.minOccurrences = minOccurrences;
+        stack.push(root);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (next == null && !stack.isEmpty()) {
+            int node = stack.pop();
+            if (tree.isLeaf(node) || node != root && tree.leaves(node) < minOccurrences) continue;
+            tree.pushChildren(node, stack);
+            if (node == root) continue;
+
+            int depth = tree.depth(node);
+            if (depth >= minLength && (supermaximal ? isSupermaximal(node) : tree.isLeftDiverse(node))) {
+                next = new Repeat(tree.pathStart(node), depth, tree.leaves(node));
+            }
+        }
+        return next != null;
+    }
+
+    @Override
+    public Repeat next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        Repeat repeat = next;
+        next = null;
+        return repeat;
+    }
+
+    /**
+     * @param node internal node
+     * @return true if all the children of the node are leaves preceded by different symbols
+     */
+    private boolean isSupermaximal(int node) {
+        children.clear();
+        tree.pushChildren(node, children);
+        if (leftSymbols.length < children.size()) leftSymbols = new int[2 * children.size()];
+        for (int i = 0; i < children.size(); i++) {
+            int child = children.get(i);
+            if (!tree.isLeaf(child)) return false;
+            leftSymbols[i] = tree.leftSymbol(tree.pathStart(child));
+        }
+        Arrays.sort(leftSymbols, 0, children.size());
+        for (int i = 1; i < children.size(); i++) {
+            if (leftSymbols[i] == leftSymbols[i - 1]) return false;
+        }
+        return true;
+    }
+}
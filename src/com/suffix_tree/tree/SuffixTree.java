@@ -2,6 +2,8 @@ package com.suffix_tree.tree;
 
 
 import com.suffix_tree.node.SuffixTreeNode;
+import com.suffix_tree.text.SymbolText;
+import com.suffix_tree.words.WordSet;
 
 /**
  *  Implementation for basic suffix trees.
@@ -17,27 +19,30 @@ class SuffixTree {
     // Root of the tree
     private final SuffixTreeNode root;
 
+    // Shared text with all the words
+    private final SymbolText text;
+
     /**
      * Suffix tree constructor
-     * @param word from which the tree is built.
+     * @param text from which the tree is built, only its first word is added.
      */
-    SuffixTree(String word) {
+    SuffixTree(SymbolText text) {
+        this.text = text;
         root = new SuffixTreeNode(-1);
 
-        for (int i = 1; i < word.length() - 1; ++i) {
+        int terminator = text.terminatorOf(0);
+        for (int i = 0; i < terminator; ++i) {
             SuffixTreeNode current = root;
             int len = 0;
 
             // Check how many characters are already in the tree
             while (true) {
 
-                SuffixTreeNode lastValidNode = current;
                 SuffixTreeNode children;
 
-                children = current.getChildren(word.charAt(i + len), word);
+                children = current.getChildren(text.symbolAt(i + len), text);
 
                 if (children != null) {
-                    lastValidNode.updateLeftDiverse(i, word);
                     current = children;
                     len++;
                 } else {
@@ -45,15 +50,10 @@ class SuffixTree {
                 }
             }
 
-            // Update if proceeds
-            if (!current.isLeftDiverse) {
-                current.updateLeftDiverse(i, word);
-            }
-
-            // Add new characters that are not in the tree yet.
-            for (int j = i + len; j < word.length() - 1; j++) {
-                current = current.addChildren(j, i, word.charAt(j));
-                current.listOfWords.add(0);
+            // Add new characters that are not in the tree yet, terminator included.
+            for (int j = i + len; j <= terminator; j++) {
+                current = current.addChildren(j, i, text.symbolAt(j));
+                current.listOfWords = WordSet.of(0);
             }
         }
     }
@@ -68,39 +68,38 @@ class SuffixTree {
 
     /**
      * Add a new word to the suffix tree
-     * @param word to be added
-     * @param numberOfWord to add
+     * @param numberOfWord index of the word in the shared text
      */
-    public void addWord(String word, int numberOfWord) {
-        word += "$";
+    public void addWord(int numberOfWord) {
+        int terminator = text.terminatorOf(numberOfWord);
 
-        for (int i = 0; i < word.length() - 1; i++) {
-            addSuffixes(root, i, word, numberOfWord);
+        for (int i = text.wordStart(numberOfWord); i < terminator; i++) {
+            addSuffixes(root, i, i, numberOfWord);
         }
     }
 
     /**
      * Add all suffixes for a given word
      * @param current current node we are in the tree
-     * @param i index in word
-     * @param word which suffixes has te be added
+     * @param i position in the shared text
+     * @param start position where the suffix starts
      * @param numberOfWord to add
      */
-    private void addSuffixes(SuffixTreeNode current, int i, String word, int numberOfWord) {
-        for (SuffixTreeNode child : current.children) {
-            if (child.character == word.charAt(i)) {
-                child.listOfWords.add(numberOfWord);
-                i++;
-                addSuffixes(child, i, word, numberOfWord);
-                return;
-            }
+    private void addSuffixes(SuffixTreeNode current, int i, int start, int numberOfWord) {
+        // Walk down while the characters are already in the tree
+        SuffixTreeNode child = current.getChildren(text.symbolAt(i), text);
+        while (child != null) {
+            child.listOfWords = child.listOfWords.with(numberOfWord);
+            current = child;
+            i++;
+            child = current.getChildren(text.symbolAt(i), text);
         }
 
-        for (int j = i; j < word.length() - 1; j++) {
-            current = current.addChildren(j + 1, i, word.charAt(j));
-            current.listOfWords.add(numberOfWord);
+        int terminator = text.terminatorOf(numberOfWord);
+        for (int j = i; j <= terminator; j++) {
+            current = current.addChildren(j, start, text.symbolAt(j));
+            current.listOfWords = WordSet.of(numberOfWord);
         }
 
     }
 }
-
@@ -0,0 +1,124 @@
+package com.suffix_tree.tree;
+
+import com.suffix_tree.utils.IntStack;
+import com.suffix_tree.words.WordSet;
+
+/**
+ *  Read access to the nodes of a compacted suffix tree and to the text its edges refer to, the only
+ *  way the queries walking a tree see it. CompactSuffixTree and FrozenSuffixTree implement it once
+ *  each over their own storage.
+ *
+ *  Nodes are ids, NIL for none. Symbols are characters, negative for the terminators.
+ *
+ *  @version 1.0
+ *
+ */
+interface TreeView {
+
+    /**
+     * @return root of the tree
+     */
+    int root();
+
+    /**
+     * @param node id
+     * @return true if the node has no children
+     */
+    boolean isLeaf(int node);
+
+    /**
+     * @param node with children
+     * @param stack where all its children are pushed
+     */
+    void pushChildren(int node, IntStack stack);
+
+    /**
+     * @param node parent node
+     * @param symbol first symbol of the edge
+     * @return child found, NIL if there is none or the symbol is a terminator
+     */
+    int child(int node, int symbol);
+
+    /**
+     * @param node id
+     * @return first position of the edge of the node
+     */
+    int begin(int node);
+
+    /**
+     * @param node id
+     * @return number of symbols of the edge of the node
+     */
+    int length(int node);
+
+    /**
+     * @param node id
+     * @return position where the path of the node starts
+     */
+    int pathStart(int node);
+
+    /**
+     * @param node id
+     * @return number of symbols of the path of the node, 0 for the root
+     */
+    int depth(int node);
+
+    /**
+     * @param node id
+     * @return number of leaves under the node
+     */
+    int leaves(int node);
+
+    /**
+     * @param node internal node
+     * @return true if the suffixes under the node are not all preceded by the same symbol
+     */
+    boolean isLeftDiverse(int node);
+
+    /**
+     * @param node internal node
+     * @return node whose path is the one of the node without its first symbol, the root for the root,
+     *          only once MatchingStatistics.linkAll set them
+     */
+    int suffixLink(int node);
+
+    /**
+     * @param node id
+     * @return set of the words of the node, removed ones excluded
+     */
+    WordSet wordsOf(int node);
+
+    /**
+     * @param position in the text
+     * @return symbol at the position
+     */
+    int symbolAt(int position);
+
+    /**
+     * @param position in the text
+     * @return symbol preceding the position, different for every word start
+     */
+    int leftSymbol(int position);
+
+    /**
+     * @param position in the text
+     * @return word holding the position, even if it was removed
+     */
+    int wordOf(int position);
+
+    /**
+     * @param word index of the word
+     * @return true if the word is in the tree
+     */
+    boolean isLive(int word);
+
+    /**
+     * @return number of words, removed ones included
+     */
+    int words();
+
+    /**
+     * @return number of node ids, the ones no longer in the tree included
+     */
+    int size();
+}
@@ -0,0 +1,142 @@
+package com.suffix_tree.tree;
+
+import com.suffix_tree.index.WildcardPattern;
+import com.suffix_tree.utils.IntStack;
+import com.suffix_tree.words.WordSet;
+
+import java.util.Arrays;
+
+import static com.suffix_tree.node.NodeStore.NIL;
+
+/**
+ *  Search of a pattern with wildcards, classes and gaps, walking the tree depth first with its own
+ *  explicit stack and the state of the match for every symbol of the current path.
+ *
+ *  A wildcard or a class follows every child whose edge starts with a character it takes, so the
+ *  walk branches where the pattern does and leaves a path as soon as no position of the pattern is
+ *  matched. Where a single character can follow, its child is looked up instead. Once the whole pattern is matched, every leaf below is an occurrence starting there, so
+ *  the subtree is taken as a whole and not walked any further.
+ *
+ *  Paths stop at the terminators, so matches never cross from a word to the next.
+ *
+ *  @version 1.0
+ *
+ */
+final class WildcardSearch {
+
+    private final TreeView tree;
+
+    /**
+     * @param tree searched
+     */
+    WildcardSearch(TreeView tree) {
+        this.tree = tree;
+    }
+
+    /**
+     * @param pattern to be looked for
+     * @return words where the pattern appears
+     */
+    WordSet search(WildcardPattern pattern) {
+        IntStack found = find(pattern);
+        WordSet words = WordSet.empty();
+        for (int i = 0; i < found.size(); i++) {
+            words = words.union(tree.wordsOf(found.get(i)));
+        }
+        return words;
+    }
+
+    /**
+     * @param pattern to be looked for
+     * @return sorted positions where the pattern starts, each once
+     */
+    int[] locate(WildcardPattern pattern) {
+        IntStack found = find(pattern);
+        IntStack positions = new IntStack();
+        IntStack stack = new IntStack();
+        for (int i = 0; i < found.size(); i++) {
+            stack.push(found.get(i));
+            while (!stack.isEmpty()) {
+                int node = stack.pop();
+                if (tree.isLeaf(node)) positions.push(tree.pathStart(node));
+                else tree.pushChildren(node, stack);
+            }
+        }
+        int[] result = positions.toArray();
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * Walk the paths the pattern can still match
+     * @param pattern to be looked for
+     * @return highest nodes whose paths match the whole pattern, their subtrees never overlap
+     */
+    private IntStack find(WildcardPattern pattern) {
+        IntStack found = new IntStack();
+        int maxDepth = pattern.maxLength();
+
+        // State of the match at every depth of the current path, allocated as deep as paths go
+        long[][] states = new long[Math.min(maxDepth, 16) + 1][];
+        states[0] = pattern.start();
+
+        // Frames: node and depth where its edge starts
+        IntStack stack = new IntStack();
+        IntStack children = new IntStack();
+        pushFrames(pattern, tree.root(), 0, states[0], stack, children);
+
+        while (!stack.isEmpty()) {
+            int depth = stack.pop(), node = stack.pop();
+            int begin = tree.begin(node), length = tree.length(node);
+            boolean open = true;
+
+            for (int i = 0; i < length && open; i++) {
+                if (depth == maxDepth) {
+                    open = false;
+                    break;
+                }
+                if (depth + 1 == states.length) states = Arrays.copyOf(states, Math.min(2 * states.length, maxDepth + 1));
+                if (states[depth + 1] == null) states[depth + 1] = pattern.newState();
+                if (!pattern.step(states[depth], states[depth + 1], tree.symbolAt(begin + i))) {
+                    open = false;
+                    break;
+                }
+                depth++;
+                if (pattern.matches(states[depth])) {
+                    found.push(node);
+                    open = false;
+                }
+            }
+
+            if (open && !tree.isLeaf(node)) pushFrames(pattern, node, depth, states[depth], stack, children);
+        }
+        return found;
+    }
+
+    /**
+     * @param pattern looked for
+     * @param node whose children are pushed
+     * @param depth of the path of the node
+     * @param state of the match at the node
+     * @param stack of frames
+     * @param children scratch stack
+     */
+    private void pushFrames(WildcardPattern pattern, int node, int depth, long[] state, IntStack stack,
+                            IntStack children) {
+        int next = pattern.next(state);
+        if (next >= 0) {
+            int child = tree.child(node, next);
+            if (child != NIL) {
+                stack.push(child);
+                stack.push(depth);
+            }
+            return;
+        }
+        children.clear();
+        tree.pushChildren(node, children);
+        for (int i = 0; i < children.size(); i++) {
+            stack.push(children.get(i));
+            stack.push(depth);
+        }
+    }
+}
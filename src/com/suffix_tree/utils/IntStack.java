@@ -0,0 +1,101 @@
+package com.suffix_tree.utils;
+
+import java.util.Arrays;
+
+/**
+ *  Growable stack of primitive integers, meant to be reused between traversals so walking a deep
+ *  tree neither recurses nor allocates a frame per node.
+ *
+ *  @version 1.0
+ *
+ */
+public class IntStack {
+
+    // Values in the stack, the top one is at size - 1
+    private int[] values;
+
+    private int size = 0;
+
+    /**
+     * Default constructor
+     */
+    public IntStack() {
+        values = new int[64];
+    }
+
+    /**
+     * @param value to be pushed
+     */
+    public void push(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    /**
+     * @return value removed from the top
+     */
+    public int pop() {
+        return values[--size];
+    }
+
+    /**
+     * @return value at the top, without removing it
+     */
+    public int peek() {
+        return values[size - 1];
+    }
+
+    /**
+     * @param index from the bottom of the stack
+     * @return value at the index
+     */
+    public int get(int index) {
+        return values[index];
+    }
+
+    /**
+     * @param index from the bottom of the stack
+     * @param value to be stored at the index
+     */
+    public void set(int index, int value) {
+        values[index] = value;
+    }
+
+    /**
+     * Remove values from the top until the stack has the given size
+     * @param size new size of the stack
+     */
+    public void truncate(int size) {
+        this.size = size;
+    }
+
+    /**
+     * @return number of values in the stack
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return true if there are no values in the stack
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Remove all the values
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * @return copy of the values, from the bottom to the top
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
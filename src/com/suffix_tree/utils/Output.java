@@ -1,11 +1,17 @@
 package com.suffix_tree.utils;
 
 import com.suffix_tree.Main;
+import com.suffix_tree.index.Occurrence;
+import com.suffix_tree.index.Repeat;
+import com.suffix_tree.index.SharedSegment;
+import com.suffix_tree.index.TextIndex;
+import com.suffix_tree.text.SymbolText;
 import com.suffix_tree.tree.CompactSuffixTree;
 
-import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
 
 import static java.lang.System.out;
 
@@ -15,7 +21,7 @@ public class Output {
      * Prints all maximals found in the tree
      * @param maximals list where maximals are stored
      */
-    public static void printMaximals(ArrayList<String> maximals) {
+    public static void printMaximals(List<String> maximals) {
         if (!maximals.isEmpty()) {
             StringBuilder sb = new StringBuilder("Maximals are:\n\t");
             for (int i = 1; i <= maximals.size(); i++) {
@@ -31,10 +37,64 @@ public class Output {
         } else out.println("No maximals\n");
     }
 
+    /**
+     * Prints repeats one line each, as they are found
+     * @param index where the repeats were found
+     * @param repeats found in the index
+     * @param kind of repeats, e.g. maximal
+     */
+    public static void printRepeats(TextIndex index, Stream<Repeat> repeats, String kind) {
+        long[] printed = {0};
+        repeats.forEach(repeat -> {
+            if (printed[0]++ == 0) out.println(Character.toUpperCase(kind.charAt(0)) + kind.substring(1) + " repeats (occurrences):");
+            out.println('\t' + index.textOf(repeat) + " (" + repeat.occurrences() + ")");
+        });
+        out.println((printed[0] == 0) ? "No " + kind + " repeats\n" : "");
+    }
+
+    /**
+     * Prints substrings one line each, in the order given
+     * @param index where the substrings were found
+     * @param frequent substrings found in the index, most frequent first
+     */
+    public static void printFrequent(TextIndex index, List<Repeat> frequent) {
+        if (frequent.isEmpty()) {
+            out.println("No repeated substrings\n");
+            return;
+        }
+        StringBuilder sb = new StringBuilder("Most frequent substrings (occurrences):\n");
+        for (Repeat repeat : frequent) {
+            sb.append('\t').append(index.textOf(repeat)).append(" (").append(repeat.occurrences()).append(")\n");
+        }
+        out.println(sb);
+    }
+
+    /**
+     * Prints the longest segment shared with every word, one line each, in the order given
+     * @param index where the segments were found
+     * @param segments found in the index, longest first
+     * @param files names of the files of every word, may be empty
+     */
+    public static void printSegments(TextIndex index, List<SharedSegment> segments, List<String> files) {
+        if (segments.isEmpty()) {
+            out.println("No shared segments\n");
+            return;
+        }
+        StringBuilder sb = new StringBuilder("Longest shared segments (characters, offset in the file, offset in the word):\n");
+        for (SharedSegment segment : segments) {
+            Occurrence occurrence = index.occurrenceAt(segment.textPosition());
+            String name = (segment.document() < files.size()) ? files.get(segment.document()) : "word " + segment.document();
+            sb.append('\t').append(name).append(": ").append(segment.length()).append(", ")
+                    .append(segment.queryPosition()).append(", ").append(occurrence.offset()).append('\n');
+        }
+        out.println(sb);
+    }
+
     /**
      * Print a comparing table between different algorithm strategies on tree construction.
+     * @param text with all the words, shared by the trees built
      */
-    public static void printComparingTable(ArrayList<String> words) {
+    public static void printComparingTable(SymbolText text) {
         Timer timer = Timer.start();
 
         AtomicReference<CompactSuffixTree> tree = new AtomicReference<>();
@@ -46,32 +106,22 @@ public class Output {
                 "|", "us", "|", "ns", "|")).append('\n');
         table.append(aux).append('\n');
 
-        try {
-            tree.set(new CompactSuffixTree(words.toArray(new String [0]), Main.AlgorithmFeatures.N2));
-            long elapsed_ns = timer.time();
-            long elapsed_ms = timer.convertTo(TimeUnit.MILLISECONDS, elapsed_ns);
-            long elapsed_us = timer.convertTo(TimeUnit.MICROSECONDS, elapsed_ns);
+        for (Main.AlgorithmFeatures feature : Main.AlgorithmFeatures.values()) {
+            timer.reset();
+            try {
+                tree.set(new CompactSuffixTree(text, feature, Runtime.getRuntime().availableProcessors(),
+                        CompactSuffixTree.DEFAULT_KMER));
+                long elapsed_ns = timer.time();
+                long elapsed_ms = timer.convertTo(TimeUnit.MILLISECONDS, elapsed_ns);
+                long elapsed_us = timer.convertTo(TimeUnit.MICROSECONDS, elapsed_ns);
 
-            table.append(String.format("%1s%10s%2s%5d%3s%7d%2s%10d%4s", "|", "N2", "|", elapsed_ms,
-                    "|", elapsed_us, "|", elapsed_ns, "|")).append('\n');
-        } catch (OutOfMemoryError ex) {
-            System.out.println("Exceeded limit in garbage collector N2, try shorter texts.");
-        }
-
-        timer.reset();
-
-        try {
-            tree.set(new CompactSuffixTree(words.toArray(new String [0]), Main.AlgorithmFeatures.NLGN));
-            long elapsed_ns = timer.time();
-            long elapsed_ms = timer.convertTo(TimeUnit.MILLISECONDS, elapsed_ns);
-            long elapsed_us = timer.convertTo(TimeUnit.MICROSECONDS, elapsed_ns);
-
-            table.append(String.format("%1s%10s%2s%5d%3s%7d%2s%10d%4s", "|", "NLGN", "|",
-                    elapsed_ms, "|", elapsed_us, "|", elapsed_ns, "|")).append('\n');
-            table.append(aux).append('\n');
-        } catch (OutOfMemoryError ex) {
-            System.out.println("Exceeded limit in garbage collector NLGN, try shorter texts.");
+                table.append(String.format("%1s%10s%2s%5d%3s%7d%2s%10d%4s", "|", feature, "|", elapsed_ms,
+                        "|", elapsed_us, "|", elapsed_ns, "|")).append('\n');
+            } catch (OutOfMemoryError ex) {
+                System.out.println("Exceeded limit in garbage collector " + feature + ", try shorter texts.");
+            }
         }
+        table.append(aux).append('\n');
 
         System.out.println(table);
     }
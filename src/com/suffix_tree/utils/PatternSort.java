@@ -0,0 +1,120 @@
+package com.suffix_tree.utils;
+
+import java.util.List;
+
+/**
+ *  Sort of a list of patterns by multikey quicksort (Bentley and Sedgewick), which compares every
+ *  character of a shared prefix once per partition instead of once per comparison, so lists of
+ *  patterns with long common prefixes sort much faster than with String.compareTo.
+ *
+ *  @version 1.0
+ *
+ */
+public final class PatternSort {
+
+    // Ranges shorter than this are sorted by insertion
+    private static final int INSERTION_LIMIT = 12;
+
+    private PatternSort() {
+    }
+
+    /**
+     * @param patterns to be sorted, left unchanged
+     * @return indexes of the patterns in lexicographic order of the patterns
+     */
+    public static int[] order(List<String> patterns) {
+        int n = patterns.size();
+        int[] order = new int[n];
+        boolean sorted = true;
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+            if (i > 0 && sorted && patterns.get(i - 1).compareTo(patterns.get(i)) > 0) sorted = false;
+        }
+        if (sorted) return order;
+
+        // Frames of ranges still to be sorted: first, last (exclusive) and characters already equal
+        IntStack stack = new IntStack();
+        stack.push(0);
+        stack.push(n);
+        stack.push(0);
+        while (!stack.isEmpty()) {
+            int depth = stack.pop();
+            int last = stack.pop();
+            int first = stack.pop();
+
+            if (last - first < INSERTION_LIMIT) {
+                insertionSort(patterns, order, first, last, depth);
+                continue;
+            }
+
+            int pivot = charAt(patterns.get(order[(first + last) >>> 1]), depth);
+            int lower = first, upper = last - 1, i = first;
+            while (i <= upper) {
+                int c = charAt(patterns.get(order[i]), depth);
+                if (c < pivot) swap(order, lower++, i++);
+                else if (c > pivot) swap(order, i, upper--);
+                else i++;
+            }
+
+            push(stack, first, lower, depth);
+            push(stack, upper + 1, last, depth);
+            if (pivot >= 0) push(stack, lower, upper + 1, depth + 1);
+        }
+        return order;
+    }
+
+    /**
+     * @param pattern to be read
+     * @param depth index of the character
+     * @return character at depth, -1 past the end of the pattern
+     */
+    private static int charAt(String pattern, int depth) {
+        return (depth < pattern.length()) ? pattern.charAt(depth) : -1;
+    }
+
+    private static void push(IntStack stack, int first, int last, int depth) {
+        if (last - first < 2) return;
+        stack.push(first);
+        stack.push(last);
+        stack.push(depth);
+    }
+
+    private static void swap(int[] order, int i, int j) {
+        int t = order[i];
+        order[i] = order[j];
+        order[j] = t;
+    }
+
+    /**
+     * Sort a short range whose patterns share their first characters
+     * @param patterns being sorted
+     * @param order indexes of the patterns
+     * @param first first index of the range
+     * @param last last index of the range, exclusive
+     * @param depth number of characters all the patterns of the range share
+     */
+    private static void insertionSort(List<String> patterns, int[] order, int first, int last, int depth) {
+        for (int i = first + 1; i < last; i++) {
+            int current = order[i];
+            String pattern = patterns.get(current);
+            int j = i;
+            while (j > first && compareFrom(patterns.get(order[j - 1]), pattern, depth) > 0) {
+                order[j] = order[j - 1];
+                j--;
+            }
+            order[j] = current;
+        }
+    }
+
+    /**
+     * @return comparison of two patterns from a given character on
+     */
+    private static int compareFrom(String a, String b, int depth) {
+        int n = Math.min(a.length(), b.length());
+        for (int k = depth; k < n; k++) {
+            int difference = a.charAt(k) - b.charAt(k);
+            if (difference != 0) return difference;
+        }
+        return a.length() - b.length();
+    }
+}
@@ -0,0 +1,112 @@
+package com.suffix_tree.words;
+
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+
+/**
+ *  Set of words (indexes of the texts in a tree) a node belongs to.
+ *
+ *  Sets are immutable, so nodes with the same words share one instance and adding a word copies the
+ *  set only when it was not there yet. Every set picks the cheapest representation for its contents:
+ *  a single word, a small sorted array, a bitset or a list of runs of consecutive words.
+ *
+ *  @version 1.0
+ *
+ */
+public interface WordSet extends Iterable<Integer> {
+
+    /**
+     * @return number of words in the set
+     */
+    int size();
+
+    /**
+     * @return true if the set has no words
+     */
+    default boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @param word index of the word
+     * @return true if the word is in the set
+     */
+    boolean contains(int word);
+
+    /**
+     * Apply an action to every word of the set in increasing order, without boxing
+     * @param action to be applied
+     */
+    void forEachWord(IntConsumer action);
+
+    /**
+     * @return iterator over the words of the set in increasing order
+     */
+    @Override
+    PrimitiveIterator.OfInt iterator();
+
+    /**
+     * @param word to be added
+     * @return this set if it already has the word, otherwise a new set with it
+     */
+    WordSet with(int word);
+
+    /**
+     * @param other set to be joined
+     * @return set with the words of both, one of them if it already has all the words
+     */
+    WordSet union(WordSet other);
+
+    /**
+     * @return words of the set in increasing order
+     */
+    default int[] toArray() {
+        int[] result = new int[size()];
+        PrimitiveIterator.OfInt it = iterator();
+        for (int i = 0; i < result.length; i++) {
+            result[i] = it.nextInt();
+        }
+        return result;
+    }
+
+    /**
+     * @return set without words
+     */
+    static WordSet empty() {
+        return WordSets.EMPTY;
+    }
+
+    /**
+     * @param word index of the word
+     * @return set with a single word
+     */
+    static WordSet of(int word) {
+        return WordSets.single(word);
+    }
+
+    /**
+     * @param words indexes of the words, in any order and possibly repeated
+     * @return set with the given words
+     */
+    static WordSet of(int... words) {
+        int[] sorted = words.clone();
+        java.util.Arrays.sort(sorted);
+        int n = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || sorted[i] != sorted[i - 1]) sorted[n++] = sorted[i];
+        }
+        return WordSets.fromSorted(sorted, n);
+    }
+
+    /**
+     * View over words already sorted without repetitions, read in place and never copied
+     * @param words word at every index
+     * @param from first index of the set
+     * @param to last index of the set, exclusive
+     * @return set with the words between both indexes
+     */
+    static WordSet sorted(IntUnaryOperator words, int from, int to) {
+        return WordSets.range(words, from, to);
+    }
+}
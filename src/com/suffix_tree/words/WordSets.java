@@ -0,0 +1,460 @@
+package com.suffix_tree.words;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+import java.util.function.IntUnaryOperator;
+
+/**
+ *  Representations of word sets and the rules to choose among them.
+ *
+ *  @version 1.0
+ *
+ */
+final class WordSets {
+
+    // Largest set kept as a plain sorted array regardless of its density
+    private static final int INLINE_LIMIT = 8;
+
+    // Single word sets built beforehand, the most common ones in any tree
+    private static final int CACHED_SINGLES = 256;
+    private static final SingleWordSet[] SINGLES = new SingleWordSet[CACHED_SINGLES];
+
+    static {
+        for (int i = 0; i < CACHED_SINGLES; i++) {
+            SINGLES[i] = new SingleWordSet(i);
+        }
+    }
+
+    static final WordSet EMPTY = new ArrayWordSet(new int[0]);
+
+    private WordSets() {
+    }
+
+    /**
+     * @param word index of the word
+     * @return set with a single word
+     */
+    static WordSet single(int word) {
+        return (word < CACHED_SINGLES) ? SINGLES[word] : new SingleWordSet(word);
+    }
+
+    /**
+     * @param words word at every index, sorted without repetitions
+     * @param from first index of the set
+     * @param to last index of the set, exclusive
+     * @return view over the words between both indexes
+     */
+    static WordSet range(IntUnaryOperator words, int from, int to) {
+        if (from == to) return EMPTY;
+        if (to - from == 1) return single(words.applyAsInt(from));
+        return new RangeWordSet(words, from, to);
+    }
+
+    /**
+     * Build a set with the cheapest representation for some words
+     * @param words sorted without repetitions
+     * @param n number of words to be taken from the array
+     * @return set with the words
+     */
+    static WordSet fromSorted(int[] words, int n) {
+        if (n == 0) return EMPTY;
+        if (n == 1) return single(words[0]);
+        if (n <= INLINE_LIMIT) return new ArrayWordSet(Arrays.copyOf(words, n));
+
+        int runs = 1;
+        for (int i = 1; i < n; i++) {
+            if (words[i] != words[i - 1] + 1) runs++;
+        }
+
+        long arrayBytes = 4L * n;
+        long bitBytes = 8L * ((words[n - 1] >>> 6) + 1);
+        long runBytes = 8L * runs;
+
+        if (runBytes <= bitBytes && runBytes <= arrayBytes) {
+            int[] starts = new int[runs], ends = new int[runs];
+            int run = 0;
+            starts[0] = words[0];
+            for (int i = 1; i < n; i++) {
+                if (words[i] != words[i - 1] + 1) {
+                    ends[run++] = words[i - 1];
+                    starts[run] = words[i];
+                }
+            }
+            ends[run] = words[n - 1];
+            return new RunWordSet(starts, ends, n);
+        } else if (bitBytes <= arrayBytes) {
+            long[] bits = new long[(words[n - 1] >>> 6) + 1];
+            for (int i = 0; i < n; i++) {
+                bits[words[i] >>> 6] |= 1L << words[i];
+            }
+            return new BitWordSet(bits, n);
+        }
+        return new ArrayWordSet(Arrays.copyOf(words, n));
+    }
+
+    /**
+     * Common behaviour for all the representations
+     */
+    private abstract static class AbstractWordSet implements WordSet {
+
+        @Override
+        public WordSet with(int word) {
+            if (contains(word)) return this;
+            int[] words = new int[size() + 1];
+            int n = 0;
+            boolean added = false;
+            for (PrimitiveIterator.OfInt it = iterator(); it.hasNext(); ) {
+                int next = it.nextInt();
+                if (!added && word < next) {
+                    words[n++] = word;
+                    added = true;
+                }
+                words[n++] = next;
+            }
+            if (!added) words[n++] = word;
+            return fromSorted(words, n);
+        }
+
+        @Override
+        public WordSet union(WordSet other) {
+            if (other == this || other.isEmpty()) return this;
+            if (isEmpty()) return other;
+            if (other.size() <= size() && containsAll(this, other)) return this;
+            if (size() <= other.size() && containsAll(other, this)) return other;
+
+            int[] words = new int[size() + other.size()];
+            int n = 0;
+            PrimitiveIterator.OfInt a = iterator(), b = other.iterator();
+            int x = a.nextInt(), y = b.nextInt();
+            while (true) {
+                if (x < y) {
+                    words[n++] = x;
+                    if (!a.hasNext()) { words[n++] = y; break; }
+                    x = a.nextInt();
+                } else if (y < x) {
+                    words[n++] = y;
+                    if (!b.hasNext()) { words[n++] = x; break; }
+                    y = b.nextInt();
+                } else {
+                    words[n++] = x;
+                    if (!a.hasNext() || !b.hasNext()) break;
+                    x = a.nextInt();
+                    y = b.nextInt();
+                }
+            }
+            while (a.hasNext()) words[n++] = a.nextInt();
+            while (b.hasNext()) words[n++] = b.nextInt();
+            return fromSorted(words, n);
+        }
+
+        /**
+         * @return true if every word of the second set is in the first one
+         */
+        private static boolean containsAll(WordSet set, WordSet other) {
+            for (PrimitiveIterator.OfInt it = other.iterator(); it.hasNext(); ) {
+                if (!set.contains(it.nextInt())) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void forEachWord(IntConsumer action) {
+            for (PrimitiveIterator.OfInt it = iterator(); it.hasNext(); ) {
+                action.accept(it.nextInt());
+            }
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof WordSet other) || other.size() != size()) return false;
+            PrimitiveIterator.OfInt a = iterator(), b = other.iterator();
+            while (a.hasNext()) {
+                if (a.nextInt() != b.nextInt()) return false;
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 1;
+            for (PrimitiveIterator.OfInt it = iterator(); it.hasNext(); ) {
+                hash = 31 * hash + it.nextInt();
+            }
+            return hash;
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(toArray());
+        }
+    }
+
+    /**
+     * Set with only one word
+     */
+    private static final class SingleWordSet extends AbstractWordSet {
+        private final int word;
+
+        SingleWordSet(int word) {
+            this.word = word;
+        }
+
+        @Override
+        public int size() {
+            return 1;
+        }
+
+        @Override
+        public boolean contains(int word) {
+            return this.word == word;
+        }
+
+        @Override
+        public void forEachWord(IntConsumer action) {
+            action.accept(word);
+        }
+
+        @Override
+        public PrimitiveIterator.OfInt iterator() {
+            return new PrimitiveIterator.OfInt() {
+                boolean done = false;
+
+                @Override
+                public boolean hasNext() {
+                    return !done;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (done) throw new NoSuchElementException();
+                    done = true;
+                    return word;
+                }
+            };
+        }
+    }
+
+    /**
+     * Few words kept in a sorted array
+     */
+    private static final class ArrayWordSet extends AbstractWordSet {
+        private final int[] words;
+
+        ArrayWordSet(int[] words) {
+            this.words = words;
+        }
+
+        @Override
+        public int size() {
+            return words.length;
+        }
+
+        @Override
+        public boolean contains(int word) {
+            return Arrays.binarySearch(words, word) >= 0;
+        }
+
+        @Override
+        public void forEachWord(IntConsumer action) {
+            for (int word : words) {
+                action.accept(word);
+            }
+        }
+
+        @Override
+        public int[] toArray() {
+            return words.clone();
+        }
+
+        @Override
+        public PrimitiveIterator.OfInt iterator() {
+            return Arrays.stream(words).iterator();
+        }
+    }
+
+    /**
+     * Dense sets, one bit per word
+     */
+    private static final class BitWordSet extends AbstractWordSet {
+        private final long[] bits;
+        private final int size;
+
+        BitWordSet(long[] bits, int size) {
+            this.bits = bits;
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(int word) {
+            int index = word >>> 6;
+            return word >= 0 && index < bits.length && (bits[index] & (1L << word)) != 0;
+        }
+
+        @Override
+        public WordSet with(int word) {
+            if (contains(word)) return this;
+            if ((word >>> 6) >= bits.length) return super.with(word);
+            long[] copy = bits.clone();
+            copy[word >>> 6] |= 1L << word;
+            return new BitWordSet(copy, size + 1);
+        }
+
+        @Override
+        public WordSet union(WordSet other) {
+            if (!(other instanceof BitWordSet set) || other == this) return super.union(other);
+            long[] longer = (bits.length >= set.bits.length) ? bits : set.bits;
+            long[] shorter = (longer == bits) ? set.bits : bits;
+            long[] result = longer.clone();
+            int count = 0;
+            for (int i = 0; i < result.length; i++) {
+                if (i < shorter.length) result[i] |= shorter[i];
+                count += Long.bitCount(result[i]);
+            }
+            if (count == size) return this;
+            if (count == set.size) return set;
+            return new BitWordSet(result, count);
+        }
+
+        @Override
+        public PrimitiveIterator.OfInt iterator() {
+            return new PrimitiveIterator.OfInt() {
+                int index = 0;
+                long current = bits[0];
+
+                @Override
+                public boolean hasNext() {
+                    while (current == 0 && index < bits.length - 1) {
+                        current = bits[++index];
+                    }
+                    return current != 0;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    int word = (index << 6) + Long.numberOfTrailingZeros(current);
+                    current &= current - 1;
+                    return word;
+                }
+            };
+        }
+    }
+
+    /**
+     * Sets made of long runs of consecutive words
+     */
+    private static final class RunWordSet extends AbstractWordSet {
+        // First and last word of every run, both inclusive
+        private final int[] starts, ends;
+        private final int size;
+
+        RunWordSet(int[] starts, int[] ends, int size) {
+            this.starts = starts;
+            this.ends = ends;
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(int word) {
+            int run = Arrays.binarySearch(starts, word);
+            if (run >= 0) return true;
+            run = -run - 2;
+            return run >= 0 && word <= ends[run];
+        }
+
+        @Override
+        public PrimitiveIterator.OfInt iterator() {
+            return new PrimitiveIterator.OfInt() {
+                int run = 0;
+                int next = starts[0];
+
+                @Override
+                public boolean hasNext() {
+                    return run < starts.length;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    int word = next++;
+                    if (next > ends[run] && ++run < starts.length) {
+                        next = starts[run];
+                    }
+                    return word;
+                }
+            };
+        }
+    }
+
+    /**
+     * Sorted words read in place from storage that is not a set, such as the sets of an index file
+     */
+    private static final class RangeWordSet extends AbstractWordSet {
+        private final IntUnaryOperator words;
+
+        // First and last index of the words, the last one exclusive
+        private final int from, to;
+
+        RangeWordSet(IntUnaryOperator words, int from, int to) {
+            this.words = words;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public boolean contains(int word) {
+            int low = from, high = to - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int current = words.applyAsInt(mid);
+                if (current < word) low = mid + 1;
+                else if (current > word) high = mid - 1;
+                else return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachWord(IntConsumer action) {
+            for (int i = from; i < to; i++) {
+                action.accept(words.applyAsInt(i));
+            }
+        }
+
+        @Override
+        public PrimitiveIterator.OfInt iterator() {
+            return new PrimitiveIterator.OfInt() {
+                int next = from;
+
+                @Override
+                public boolean hasNext() {
+                    return next < to;
+                }
+
+                @Override
+                public int nextInt() {
+                    if (!hasNext()) throw new NoSuchElementException();
+                    return words.applyAsInt(next++);
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.suffix_tree;
+
+import com.suffix_tree.index.FMIndex;
+import com.suffix_tree.index.SuffixArrays;
+import com.suffix_tree.index.SuffixArrayIndex;
+import com.suffix_tree.index.TextIndex;
+import com.suffix_tree.text.Normalizer;
+import com.suffix_tree.text.SymbolText;
+import com.suffix_tree.text.TextLoader;
+import com.suffix_tree.tree.CompactSuffixTree;
+import com.suffix_tree.tree.IndexFile;
+import com.suffix_tree.tree.OutOfCoreBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ *  Every engine and construction answers like the tree built by the n lg n construction, the
+ *  simplest one, over corpora chosen for their corner cases.
+ *
+ *  @version 1.0
+ *
+ */
+class EngineConsistencyTest {
+
+    // Patterns taken from every word, besides the ones found in no word
+    private static final int PATTERNS_PER_WORD = 12;
+
+    // Where the engines on disk write their files
+    @TempDir
+    static Path directory;
+
+    /**
+     * @return name of every engine checked
+     */
+    static Stream<String> engines() {
+        return Stream.of("N2", "UKKONEN", "PARALLEL", "PARALLEL_K1", "PARALLEL_K6", "ARRAY", "FM", "FM_DENSE", "FROZEN",
+                "SAVED", "DISK", "DISK_SMALL");
+    }
+
+    /**
+     * @param engine name
+     * @param words of the corpus
+     * @return index of the engine over the words
+     */
+    private static TextIndex build(String engine, String[] words) throws IOException {
+        return switch (engine) {
+            case "N2" -> new CompactSuffixTree(words, Main.AlgorithmFeatures.N2);
+            case "UKKONEN" -> new CompactSuffixTree(words, Main.AlgorithmFeatures.UKKONEN);
+            case "PARALLEL" -> new CompactSuffixTree(words, Main.AlgorithmFeatures.PARALLEL, 4,
+                    CompactSuffixTree.DEFAULT_KMER);
+            // Buckets of a single symbol, and buckets long enough to leave many suffixes out of them
+            case "PARALLEL_K1" -> new CompactSuffixTree(words, Main.AlgorithmFeatures.PARALLEL, 4, 1);
+            case "PARALLEL_K6" -> new CompactSuffixTree(words, Main.AlgorithmFeatures.PARALLEL, 4, 6);
+            case "ARRAY" -> new SuffixArrayIndex(words);
+            case "FM" -> new FMIndex(words);
+            case "FM_DENSE" -> new FMIndex(words, 1);
+            case "FROZEN" -> new CompactSuffixTree(words, Main.AlgorithmFeatures.UKKONEN).freeze();
+            case "SAVED" -> {
+                Path file = Files.createTempFile(directory, "saved", ".idx");
+                IndexFile.save(new CompactSuffixTree(words, Main.AlgorithmFeatures.UKKONEN), List.of(), file);
+                yield IndexFile.load(file);
+            }
+            case "DISK", "DISK_SMALL" -> {
+                Path file = Files.createTempFile(directory, "disk", ".idx");
+                Path symbols = Files.createTempFile(directory, "disk", ".symbols");
+                SymbolText text = TextLoader.map(List.of(), List.of(words), Normalizer.of(true), symbols);
+                // The smallest budget splits the suffixes in as many groups as it can
+                long memory = engine.equals("DISK") ? OutOfCoreBuilder.DEFAULT_MEMORY : 1;
+                OutOfCoreBuilder.build(text, List.of(), file, memory);
+                yield IndexFile.load(file);
+            }
+            default -> throw new IllegalArgumentException("No engine " + engine);
+        };
+    }
+
+    @ParameterizedTest
+    @MethodSource("engines")
+    void answersLikeTheNlgnTree(String engine) throws Exception {
+        for (String[] words : corpora()) {
+            TextIndex expected = new CompactSuffixTree(words, Main.AlgorithmFeatures.NLGN);
+            TextIndex actual = build(engine, words);
+
+            for (String pattern : patterns(words)) {
+                assertEquals(expected.search(pattern), actual.search(pattern), pattern);
+                assertEquals(expected.count(pattern), actual.count(pattern), pattern);
+                assertEquals(expected.documentFrequency(pattern), actual.documentFrequency(pattern), pattern);
+                int[] positions = expected.locate(pattern);
+                assertArrayEquals(positions, actual.locate(pattern), pattern);
+                for (int position : positions) {
+                    assertEquals(expected.occurrenceAt(position), actual.occurrenceAt(position), pattern);
+                }
+            }
+            // The FM-index only counts and locates
+            if (engine.startsWith("FM")) continue;
+            assertEquals(repeats(expected.getMaximals()), repeats(actual.getMaximals()));
+            // Ties between longest repeats depend on the order of the children
+            assertEquals(expected.getLongestSubstring().length(), actual.getLongestSubstring().length());
+        }
+    }
+
+    /**
+     * Buckets of a periodic text hold suffixes sharing most of the text, quadratic if they are built
+     * one suffix at a time
+     */
+    @Test
+    @Timeout(60)
+    void parallelBuildsPeriodicTextsInLinearTime() {
+        String[] words = {"ab".repeat(200000)};
+        CompactSuffixTree tree = new CompactSuffixTree(words, Main.AlgorithmFeatures.PARALLEL, 4,
+                CompactSuffixTree.DEFAULT_KMER);
+        assertEquals(400000, tree.leafCount());
+        assertEquals(399998, tree.getLongestSubstring().length());
+    }
+
+    /**
+     * Texts long enough for the prefixes and the buckets to be found in several ranges of the suffix
+     * array, on several threads
+     */
+    @Test
+    @Timeout(60)
+    void parallelBuildsOfLongTextsMatchTheSerialOne() {
+        String[] words = randomWords(new Random(3), 500, 1000, "acgt");
+        int[] ranks = SuffixArrays.ranks(new SymbolText(words));
+        int[] sa = SuffixArrays.build(ranks, SuffixArrays.alphabetSize(new SymbolText(words)));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            assertArrayEquals(SuffixArrays.lcp(ranks, sa), SuffixArrays.lcp(ranks, sa, pool));
+        } finally {
+            pool.shutdown();
+        }
+
+        CompactSuffixTree expected = new CompactSuffixTree(words, Main.AlgorithmFeatures.NLGN);
+        CompactSuffixTree actual = new CompactSuffixTree(words, Main.AlgorithmFeatures.PARALLEL, 4,
+                CompactSuffixTree.DEFAULT_KMER);
+        assertEquals(expected.nodeCount(), actual.nodeCount());
+        assertEquals(expected.leafCount(), actual.leafCount());
+        assertEquals(repeats(expected.getMaximals()), repeats(actual.getMaximals()));
+        for (String pattern : patterns(Arrays.copyOf(words, 50))) {
+            assertArrayEquals(expected.search(pattern).toArray(), actual.search(pattern).toArray(), pattern);
+            assertEquals(expected.count(pattern), actual.count(pattern), pattern);
+            assertArrayEquals(expected.locate(pattern), actual.locate(pattern), pattern);
+        }
+    }
+
+    /**
+     * @return corpora with few symbols, periodic words, an alphabet wider than a byte, empty and
+     *          repeated words
+     */
+    static List<String[]> corpora() {
+        Random random = new Random(42);
+        ArrayList<String[]> corpora = new ArrayList<>();
+        corpora.add(randomWords(random, 12, 200, "ab"));
+        corpora.add(randomWords(random, 30, 80, "acgt"));
+        corpora.add(new String[]{"ab".repeat(700), "ba".repeat(300), "abc", "ab".repeat(700)});
+        corpora.add(new String[]{"", "banana", "", "bandana", "banana", "a"});
+
+        StringBuilder wide = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            wide.append((char) (0x100 + random.nextInt(300)));
+        }
+        corpora.add(new String[]{wide.toString(), wide.substring(500, 900), "Āā"});
+        return corpora;
+    }
+
+    /**
+     * @param random source of the symbols
+     * @param count number of words
+     * @param maxLength longest word
+     * @param symbols alphabet of the words
+     * @return words of random lengths
+     */
+    private static String[] randomWords(Random random, int count, int maxLength, String symbols) {
+        String[] words = new String[count];
+        for (int w = 0; w < count; w++) {
+            StringBuilder sb = new StringBuilder();
+            int length = random.nextInt(maxLength + 1);
+            for (int i = 0; i < length; i++) {
+                sb.append(symbols.charAt(random.nextInt(symbols.length())));
+            }
+            words[w] = sb.toString();
+        }
+        return words;
+    }
+
+    /**
+     * @param words of the corpus
+     * @return substrings of the words of up to 8 symbols, whole words and patterns in no word
+     */
+    static List<String> patterns(String[] words) {
+        Random random = new Random(words.length);
+        ArrayList<String> patterns = new ArrayList<>(List.of("zz", "ÿ", "abx"));
+        for (String word : words) {
+            if (word.isEmpty()) continue;
+            patterns.add(word);
+            for (int i = 0; i < PATTERNS_PER_WORD; i++) {
+                int start = random.nextInt(word.length());
+                patterns.add(word.substring(start, Math.min(word.length(), start + 1 + random.nextInt(8))));
+            }
+        }
+        return patterns;
+    }
+
+    /**
+     * @param maximals of an engine
+     * @return the maximals without the empty one and in order
+     */
+    private static TreeSet<String> repeats(List<String> maximals) {
+        TreeSet<String> result = new TreeSet<>(maximals);
+        result.remove("");
+        return result;
+    }
+}
@@ -0,0 +1,141 @@
+package com.suffix_tree.index;
+
+import com.suffix_tree.Main;
+import com.suffix_tree.tree.CompactSuffixTree;
+import com.suffix_tree.words.WordSet;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *  Batches searched on many threads give the results of the patterns searched one by one, in the
+ *  order of the patterns, and the frozen view answers many threads at once like the tree.
+ *
+ *  @version 1.0
+ *
+ */
+class BatchSearchTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void batchesMatchThePatternsSearchedOneByOne() throws InterruptedException {
+        String[] words = words(new Random(1));
+        CompactSuffixTree tree = new CompactSuffixTree(words, Main.AlgorithmFeatures.UKKONEN);
+        List<String> patterns = patterns(words, new Random(2));
+
+        for (TextIndex index : List.of(tree.freeze(), new SuffixArrayIndex(words))) {
+            BatchSearch batch = new BatchSearch(index, executor);
+            List<WordSet> found = batch.search(patterns);
+            List<Integer> counts = batch.count(patterns);
+
+            assertEquals(patterns.size(), found.size());
+            assertEquals(patterns.size(), counts.size());
+            for (int i = 0; i < patterns.size(); i++) {
+                String pattern = patterns.get(i);
+                assertArrayEquals(tree.search(pattern).toArray(), found.get(i).toArray(), pattern);
+                assertEquals(tree.count(pattern), counts.get(i), pattern);
+            }
+        }
+    }
+
+    @Test
+    void emptyBatchesAreEmpty() throws InterruptedException {
+        BatchSearch batch = new BatchSearch(new SuffixArrayIndex(new String[]{"banana"}), executor);
+        assertTrue(batch.search(List.of()).isEmpty());
+        assertTrue(batch.count(List.of()).isEmpty());
+    }
+
+    @Test
+    void failuresOfTheTasksAreRethrown() {
+        BatchSearch batch = new BatchSearch(new SuffixArrayIndex(new String[]{"banana"}), executor);
+        List<String> patterns = new ArrayList<>(List.of("a", "b", "boom", "n"));
+
+        assertThrows(IllegalArgumentException.class, () -> batch.apply(patterns, pattern -> {
+            if (pattern.equals("boom")) throw new IllegalArgumentException(pattern);
+            return pattern.length();
+        }));
+    }
+
+    @Test
+    void frozenViewsAreSharedByThreads() throws Exception {
+        String[] words = words(new Random(3));
+        CompactSuffixTree tree = new CompactSuffixTree(words, Main.AlgorithmFeatures.UKKONEN);
+        TextIndex frozen = tree.freeze();
+        List<String> patterns = patterns(words, new Random(4));
+
+        // The tree itself is queried from a single thread
+        ArrayList<int[]> found = new ArrayList<>(), located = new ArrayList<>();
+        for (String pattern : patterns) {
+            found.add(tree.search(pattern).toArray());
+            located.add(tree.locate(pattern));
+        }
+
+        ArrayList<Callable<Void>> tasks = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            tasks.add(() -> {
+                for (int i = 0; i < patterns.size(); i++) {
+                    String pattern = patterns.get(i);
+                    assertArrayEquals(found.get(i), frozen.search(pattern).toArray(), pattern);
+                    assertArrayEquals(located.get(i), frozen.locate(pattern), pattern);
+                }
+                return null;
+            });
+        }
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            future.get();
+        }
+    }
+
+    /**
+     * @param random source of the characters
+     * @return words of a small alphabet, some of them repeated
+     */
+    private static String[] words(Random random) {
+        String[] words = new String[60];
+        for (int w = 0; w < words.length; w++) {
+            if (w > 0 && random.nextInt(10) == 0) {
+                words[w] = words[random.nextInt(w)];
+                continue;
+            }
+            StringBuilder sb = new StringBuilder();
+            for (int i = random.nextInt(30); i > 0; i--) sb.append("abcd".charAt(random.nextInt(4)));
+            words[w] = sb.toString();
+        }
+        return words;
+    }
+
+    /**
+     * @param words of the index
+     * @param random source of the patterns
+     * @return substrings of the words, repeated ones and ones in no word, in no order
+     */
+    private static List<String> patterns(String[] words, Random random) {
+        ArrayList<String> patterns = new ArrayList<>(List.of("", "z", "abcdabcdabcd"));
+        for (int i = 0; i < 500; i++) {
+            String word = words[random.nextInt(words.length)];
+            if (word.isEmpty()) continue;
+            int start = random.nextInt(word.length());
+            patterns.add(word.substring(start, Math.min(word.length(), start + 1 + random.nextInt(6))));
+        }
+        patterns.add(patterns.get(5));
+        return patterns;
+    }
+}
@@ -0,0 +1,133 @@
+package com.suffix_tree.index;
+
+import com.suffix_tree.Main;
+import com.suffix_tree.tree.CompactSuffixTree;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *  Positions found one at a time, and occurrences taken with a limit, are the ones located, each
+ *  once, in every engine.
+ *
+ *  @version 1.0
+ *
+ */
+class OccurrencesTest {
+
+    private static final String[] WORDS = words(new Random(21));
+
+    /**
+     * @return every engine over the words
+     */
+    private static List<TextIndex> indexes() {
+        CompactSuffixTree tree = new CompactSuffixTree(WORDS, Main.AlgorithmFeatures.UKKONEN);
+        return List.of(tree, tree.freeze(), new SuffixArrayIndex(WORDS), new FMIndex(WORDS, 4));
+    }
+
+    @Test
+    void positionsAreTheOnesLocated() {
+        for (TextIndex index : indexes()) {
+            for (String pattern : patterns()) {
+                TreeSet<Integer> located = new TreeSet<>();
+                for (int position : index.locate(pattern)) located.add(position);
+                assertEquals(index.count(pattern), located.size(), pattern);
+
+                ArrayList<Integer> found = new ArrayList<>();
+                for (PrimitiveIterator.OfInt it = index.positions(pattern); it.hasNext(); ) {
+                    found.add(it.nextInt());
+                }
+                assertEquals(located.size(), found.size(), pattern);
+                assertEquals(located, new TreeSet<>(found), pattern);
+
+                for (int position : found) {
+                    Occurrence occurrence = index.occurrenceAt(position);
+                    assertTrue(WORDS[occurrence.word()].startsWith(pattern, occurrence.offset()), pattern);
+                }
+            }
+        }
+    }
+
+    @Test
+    void limitsStopTheOccurrences() {
+        for (TextIndex index : indexes()) {
+            for (String pattern : patterns()) {
+                HashSet<Occurrence> all = new HashSet<>();
+                for (int position : index.locate(pattern)) all.add(index.occurrenceAt(position));
+
+                for (int limit : new int[]{0, 1, 3, all.size(), all.size() + 5}) {
+                    List<Occurrence> limited = index.occurrences(pattern, limit);
+                    assertEquals(Math.min(limit, all.size()), limited.size(), pattern + " " + limit);
+                    assertEquals(limited.size(), new HashSet<>(limited).size(), pattern);
+                    assertTrue(all.containsAll(limited), pattern);
+
+                    List<Occurrence> streamed = index.occurrences(pattern).limit(limit).toList();
+                    assertEquals(limited.size(), streamed.size(), pattern);
+                    assertTrue(all.containsAll(streamed), pattern);
+                }
+            }
+        }
+    }
+
+    @Test
+    void absentPatternsHaveNoPositions() {
+        for (TextIndex index : indexes()) {
+            PrimitiveIterator.OfInt positions = index.positions("zzz");
+            assertFalse(positions.hasNext());
+            assertFalse(positions.hasNext());
+            assertThrows(NoSuchElementException.class, positions::nextInt);
+            assertTrue(index.occurrences("zzz", 10).isEmpty());
+            assertEquals(0, index.occurrences("abz").count());
+        }
+    }
+
+    @Test
+    void hasNextDoesNotSkipPositions() {
+        for (TextIndex index : indexes()) {
+            PrimitiveIterator.OfInt positions = index.positions("ab");
+            int found = 0;
+            while (positions.hasNext() && positions.hasNext()) {
+                positions.nextInt();
+                found++;
+            }
+            assertEquals(index.count("ab"), found);
+        }
+    }
+
+    /**
+     * @return patterns found many times, a few times, once and in no word
+     */
+    private static List<String> patterns() {
+        ArrayList<String> patterns = new ArrayList<>(List.of("a", "ab", "abc", "cab", "zzz", "d"));
+        for (String word : WORDS) {
+            if (word.length() > 3) patterns.add(word.substring(1, 4));
+        }
+        patterns.add(WORDS[0]);
+        return patterns;
+    }
+
+    /**
+     * @param random source of the characters
+     * @return words of a small alphabet
+     */
+    private static String[] words(Random random) {
+        String[] words = new String[20];
+        for (int w = 0; w < words.length; w++) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 5 + random.nextInt(40); i > 0; i--) sb.append("abc".charAt(random.nextInt(3)));
+            words[w] = sb.toString();
+        }
+        return words;
+    }
+}
@@ -0,0 +1,157 @@
+package com.suffix_tree.metrics;
+
+import com.suffix_tree.Main;
+import com.suffix_tree.index.Distance;
+import com.suffix_tree.index.WildcardPattern;
+import com.suffix_tree.text.Normalizer;
+import com.suffix_tree.tree.CompactSuffixTree;
+import org.junit.jupiter.api.Test;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *  Every query answered by a metered index is recorded under its kind, and the metrics are the same
+ *  read through JMX or written as JSON.
+ *
+ *  @version 1.0
+ *
+ */
+class IndexMetricsTest {
+
+    private static final String[] WORDS = {"banana", "bandana", "cabana"};
+
+    /**
+     * @param metrics where the queries are recorded
+     * @return tree of the words, metered
+     */
+    private static MeteredIndex metered(IndexMetrics metrics) {
+        CompactSuffixTree tree = new CompactSuffixTree(WORDS, Main.AlgorithmFeatures.UKKONEN);
+        metrics.describe(tree, WORDS.length, 22);
+        return new MeteredIndex(tree, metrics);
+    }
+
+    @Test
+    void everyKindOfQueryIsRecorded() throws IOException {
+        IndexMetrics metrics = new IndexMetrics("tree");
+        MeteredIndex index = metered(metrics);
+        WildcardPattern wildcard = WildcardPattern.parse("b?n", Normalizer.of(false));
+
+        index.search("ana");
+        index.searchAll(List.of("ana", "ban"));
+        index.count("ana");
+        index.documentFrequency("ana");
+        index.locate("ana");
+        index.searchApproximate("bonana", 1, Distance.HAMMING);
+        index.locateApproximate("bonana", 1, Distance.HAMMING);
+        index.searchWildcard(wildcard);
+        index.locateWildcard(wildcard);
+        index.matchingStatistics(new StringReader("xbanx"), 2, null);
+        // Not timed
+        index.positions("ana");
+        index.getLongestSubstring();
+
+        for (IndexMetrics.Query query : IndexMetrics.Query.values()) {
+            assertEquals(1, metrics.getQueryCounts().get(query.key()), query.key());
+            assertTrue(metrics.getLatencyMicros().containsKey(query.key() + ".p999"), query.key());
+        }
+
+        metrics.resetLatencies();
+        assertTrue(metrics.getQueryCounts().values().stream().allMatch(count -> count == 0));
+    }
+
+    @Test
+    void sizesAreTakenFromTheIndex() {
+        IndexMetrics metrics = new IndexMetrics("tree");
+        MeteredIndex index = metered(metrics);
+        CompactSuffixTree tree = (CompactSuffixTree) index.index();
+
+        assertEquals(3, metrics.getWords());
+        assertEquals(22, metrics.getTextLength());
+        assertEquals(tree.nodeCount(), metrics.getNodes());
+        assertEquals(tree.nodeCount() - 1, metrics.getEdges());
+        assertEquals(tree.leafCount(), metrics.getLeaves());
+        assertEquals(tree.bytes(), metrics.getEstimatedBytes());
+        assertEquals((double) tree.bytes() / 22, metrics.getBytesPerCharacter());
+        assertEquals(tree.buildTimes().keySet(), metrics.getBuildMillis().keySet());
+    }
+
+    @Test
+    void jsonHoldsEveryMetric() {
+        Locale locale = Locale.getDefault();
+        // Decimals are written with a point whatever the locale
+        Locale.setDefault(Locale.GERMANY);
+        try {
+            IndexMetrics metrics = new IndexMetrics("tree");
+            MeteredIndex index = metered(metrics);
+            metrics.phase("read", 1_500_000);
+            metrics.phase("read", 500_000);
+            index.search("ana");
+
+            String json = metrics.toJson();
+            assertTrue(json.startsWith("{\n  \"engine\": \"tree\",\n  \"words\": 3,\n  \"textLength\": 22,\n"), json);
+            assertTrue(json.contains("\"nodes\": " + metrics.getNodes() + ",\n"), json);
+            assertTrue(json.contains("\"phaseMillis\": {\n    \"read\": 2.000\n  }"), json);
+            assertTrue(json.contains("\"search\": {\"count\": 1, \"mean\": "), json);
+            assertTrue(json.contains("\"locateWildcard\": {\"count\": 0, \"mean\": 0.000, \"p50\": 0.000, \"p90\": 0.000, "
+                    + "\"p99\": 0.000, \"p999\": 0.000, \"max\": 0.000}"), json);
+            assertFalse(json.contains(",\n  }"), json);
+            assertEquals(json.chars().filter(c -> c == '{').count(), json.chars().filter(c -> c == '}').count());
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    void unknownSizesAreLeftOut() {
+        String json = new IndexMetrics("array").toJson();
+        assertTrue(json.contains("\"engine\": \"array\""), json);
+        assertFalse(json.contains("\"nodes\""), json);
+        assertFalse(json.contains("\"bytesPerCharacter\""), json);
+        assertTrue(json.contains("\"buildMillis\": {}"), json);
+    }
+
+    @Test
+    void metricsArePublishedAsAnMXBean() throws JMException {
+        IndexMetrics metrics = new IndexMetrics("metrics test");
+        MeteredIndex index = metered(metrics);
+        index.count("ana");
+        index.count("ban");
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = metrics.register();
+        try {
+            assertEquals(IndexMetrics.DOMAIN, name.getDomain());
+            assertEquals("metrics test", server.getAttribute(name, "Engine"));
+            assertEquals(metrics.getNodes(), server.getAttribute(name, "Nodes"));
+
+            // Maps are published as tables of key and value
+            TabularData counts = (TabularData) server.getAttribute(name, "QueryCounts");
+            assertEquals(IndexMetrics.Query.values().length, counts.size());
+            CompositeData row = counts.get(new Object[]{"count"});
+            assertEquals(2L, row.get("value"));
+
+            assertThrows(JMException.class, metrics::register);
+
+            server.invoke(name, "resetLatencies", null, null);
+            assertEquals(0L, ((TabularData) server.getAttribute(name, "QueryCounts")).get(new Object[]{"count"}).get("value"));
+            assertEquals(Map.of(), metrics.getPhaseMillis());
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.suffix_tree.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *  Percentiles of the histogram are never under the exact ones nor over them by more than the width
+ *  of a bucket, whatever the latencies recorded and the threads recording them.
+ *
+ *  @version 1.0
+ *
+ */
+class LatencyHistogramTest {
+
+    @Test
+    void emptyHistogramsAreZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.mean());
+        assertEquals(0, histogram.max());
+        assertEquals(0, histogram.percentile(50));
+    }
+
+    @Test
+    void smallLatenciesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int nanos = 1; nanos <= 20; nanos++) {
+            histogram.record(nanos);
+        }
+        histogram.record(-5);
+
+        assertEquals(21, histogram.count());
+        assertEquals(10, histogram.mean());
+        assertEquals(20, histogram.max());
+        assertEquals(0, histogram.percentile(0));
+        assertEquals(10, histogram.percentile(50));
+        assertEquals(19, histogram.percentile(95));
+        assertEquals(20, histogram.percentile(100));
+    }
+
+    @Test
+    void percentilesAreWithinABucketOfTheExactOnes() {
+        Random random = new Random(13);
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] latencies = new long[10_000];
+        for (int i = 0; i < latencies.length; i++) {
+            // From nanoseconds to seconds
+            latencies[i] = (long) Math.pow(10, 9 * random.nextDouble());
+            histogram.record(latencies[i]);
+        }
+        Arrays.sort(latencies);
+
+        for (double percentile : new double[]{1, 25, 50, 90, 99, 99.9, 100}) {
+            long exact = latencies[(int) Math.ceil(percentile / 100 * latencies.length) - 1];
+            long estimate = histogram.percentile(percentile);
+            assertTrue(estimate >= exact, percentile + ": " + estimate + " under " + exact);
+            assertTrue(estimate <= exact + exact / 16, percentile + ": " + estimate + " over " + exact);
+        }
+        assertEquals(latencies[latencies.length - 1], histogram.max());
+    }
+
+    @Test
+    void theLargestLatenciesFit() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(Long.MAX_VALUE);
+        histogram.record(1L << 62);
+
+        assertEquals(Long.MAX_VALUE, histogram.percentile(100));
+        assertTrue(histogram.percentile(50) >= 1L << 62);
+    }
+
+    @Test
+    void concurrentRecordsAreAllCounted() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            long nanos = 1000L * (t + 1);
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) histogram.record(nanos);
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(80_000, histogram.count());
+        assertEquals(4500, histogram.mean());
+        assertEquals(8000, histogram.max());
+
+        histogram.reset();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(99));
+    }
+}
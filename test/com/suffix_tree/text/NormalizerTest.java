@@ -0,0 +1,61 @@
+package com.suffix_tree.text;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ *  The table normaliser keeps and lowers the same characters as the regular expression it replaced.
+ *
+ *  @version 1.0
+ *
+ */
+class NormalizerTest {
+
+    // Characters the words are drawn from: kept ones, punctuation, and letters the normaliser drops
+    private static final String CHARACTERS = "aZ09áÉíÓú ,.¿?¡!-_\tñÑüçΩ€Āx\u0000";
+
+    @Test
+    void caseIsLoweredUnlessSensitive() {
+        assertEquals("éraseunavez1605", Normalizer.of(false).normalize("Érase una vez, 1605."));
+        assertEquals("Éraseunavez1605", Normalizer.of(true).normalize("Érase una vez, 1605."));
+        assertEquals("", Normalizer.of(false).normalize("¿?¡! ñ Ω"));
+    }
+
+    @Test
+    void alphabetsHoldEveryCharacterKeptOnce() {
+        assertEquals("abcdefghijklmnopqrstuvwxyz0123456789áéíóú", Normalizer.of(false).alphabet());
+        assertEquals(26 + 26 + 10 + 10, Normalizer.of(true).alphabet().length());
+        for (char c = 0; c < 0x300; c++) {
+            char mapped = Normalizer.of(true).map(c);
+            assertEquals(mapped != Normalizer.DROPPED, Normalizer.of(true).alphabet().indexOf(c) >= 0, "char " + (int) c);
+        }
+    }
+
+    @Test
+    void arraysAreNormalisedInPlace() {
+        char[] chars = "..Hola, Mundo..".toCharArray();
+        int end = Normalizer.of(false).normalize(chars, 2, 13);
+        assertEquals(11, end);
+        assertArrayEquals("..holamundo".toCharArray(), Arrays.copyOf(chars, end));
+    }
+
+    @Test
+    void randomWordsMatchTheRegularExpression() {
+        Random random = new Random(19);
+        for (int round = 0; round < 1000; round++) {
+            StringBuilder sb = new StringBuilder();
+            for (int i = random.nextInt(30); i > 0; i--) sb.append(CHARACTERS.charAt(random.nextInt(CHARACTERS.length())));
+            String word = sb.toString();
+
+            String kept = word.replaceAll("[^a-zA-Z0-9áéíóúÁÉÍÓÚ]+", "");
+            assertEquals(kept, Normalizer.of(true).normalize(word), word);
+            assertEquals(kept.toLowerCase(Locale.ROOT), Normalizer.of(false).normalize(word), word);
+        }
+    }
+}
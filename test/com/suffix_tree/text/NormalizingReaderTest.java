@@ -0,0 +1,93 @@
+package com.suffix_tree.text;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ *  A query streamed through the normalising reader gives the characters of the query normalised,
+ *  whatever the way it is read.
+ *
+ *  @version 1.0
+ *
+ */
+class NormalizingReaderTest {
+
+    private static final String QUERY = "¿Quién, en 1605, escribió «El Quijote»? ¡Cervantes!";
+
+    @Test
+    void charactersAreReadOneByOne() throws IOException {
+        Reader reader = new NormalizingReader(new StringReader(QUERY), Normalizer.of(false));
+        StringBuilder sb = new StringBuilder();
+        for (int c = reader.read(); c >= 0; c = reader.read()) {
+            sb.append((char) c);
+        }
+        assertEquals(Normalizer.of(false).normalize(QUERY), sb.toString());
+        assertEquals(-1, reader.read());
+    }
+
+    @Test
+    void blocksSkipRunsOfDroppedCharacters() throws IOException {
+        Random random = new Random(23);
+        for (int size = 1; size < 12; size++) {
+            // A reader giving few characters at a time, so whole reads are dropped
+            Reader reader = new NormalizingReader(new Trickle(QUERY + " ¿¡!? ", random), Normalizer.of(true));
+            char[] buffer = new char[size];
+            StringBuilder sb = new StringBuilder();
+            for (int read = reader.read(buffer, 0, size); read >= 0; read = reader.read(buffer, 0, size)) {
+                assertFalse(read == 0, "reads block until a character is kept");
+                sb.append(buffer, 0, read);
+            }
+            assertEquals(Normalizer.of(true).normalize(QUERY), sb.toString());
+        }
+    }
+
+    @Test
+    void skipCountsTheCharactersKept() throws IOException {
+        Reader reader = new NormalizingReader(new StringReader("¿a, b? c"), Normalizer.of(false));
+        assertEquals(2, reader.skip(2));
+        assertEquals('c', reader.read());
+        assertEquals(0, reader.skip(5));
+        assertFalse(reader.markSupported());
+        assertThrows(IOException.class, () -> reader.mark(1));
+    }
+
+    /**
+     * Reader of a string giving between 1 and 3 characters on every read
+     */
+    private static final class Trickle extends Reader {
+
+        private final String s;
+        private final Random random;
+        private int position;
+
+        /**
+         * @param s characters given
+         * @param random length of the reads
+         */
+        Trickle(String s, Random random) {
+            this.s = s;
+            this.random = random;
+        }
+
+        @Override
+        public int read(char[] chars, int off, int len) {
+            if (position == s.length()) return -1;
+            int n = Math.min(Math.min(len, 1 + random.nextInt(3)), s.length() - position);
+            s.getChars(position, position + n, chars, off);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
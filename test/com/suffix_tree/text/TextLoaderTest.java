@@ -0,0 +1,115 @@
+package com.suffix_tree.text;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ *  Files are decoded and normalised whatever the blocks they are read in, and files read on the heap
+ *  and files streamed to a mapped file of symbols give the same text.
+ *
+ *  @version 1.0
+ *
+ */
+class TextLoaderTest {
+
+    @TempDir
+    Path directory;
+
+    /**
+     * @param expected text on the heap
+     * @param actual text to be compared with it
+     */
+    private static void assertSameText(SymbolText expected, SymbolText actual) {
+        assertEquals(expected.length(), actual.length());
+        assertEquals(expected.words(), actual.words());
+        assertEquals(expected.alphabetSize(), actual.alphabetSize());
+        for (int i = 0; i < expected.length(); i++) {
+            assertEquals(expected.symbolAt(i), actual.symbolAt(i), "at " + i);
+            assertEquals(expected.codeAt(i), actual.codeAt(i), "at " + i);
+        }
+        for (int w = 0; w < expected.words(); w++) {
+            assertEquals(expected.terminatorOf(w), actual.terminatorOf(w));
+        }
+    }
+
+    @Test
+    void filesAreDecodedAcrossBlocks() throws IOException {
+        // Two bytes per accented vowel, so characters straddle the blocks read
+        String content = "Á, é! ".repeat(30000) + "fin";
+        Path path = Files.writeString(directory.resolve("long.txt"), content, StandardCharsets.UTF_8);
+
+        assertEquals(Normalizer.of(false).normalize(content), TextLoader.read(path, Normalizer.of(false)).toString());
+        assertEquals(Normalizer.of(true).normalize(content), TextLoader.read(path, Normalizer.of(true)).toString());
+    }
+
+    @Test
+    void bytesNotValidAreDropped() throws IOException {
+        Path broken = Files.write(directory.resolve("broken.txt"), new byte[]{'a', (byte) 0xC3, 'b', (byte) 0xFF, 'C'});
+        assertEquals("abc", TextLoader.read(broken, Normalizer.of(false)).toString());
+        assertEquals("", TextLoader.read(Files.writeString(directory.resolve("empty.txt"), ""), Normalizer.of(false)).toString());
+    }
+
+    @Test
+    void filesReadAtOnceKeepTheirOrder() throws IOException {
+        ArrayList<Path> paths = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            paths.add(Files.writeString(directory.resolve(i + ".txt"), ("Archivo " + i + ". ").repeat(1000 * i + 1)));
+        }
+        List<CharBuffer> read = TextLoader.readAll(paths, Normalizer.of(false), 4);
+
+        assertEquals(paths.size(), read.size());
+        for (int i = 0; i < paths.size(); i++) {
+            assertEquals(TextLoader.read(paths.get(i), Normalizer.of(false)).toString(), read.get(i).toString());
+        }
+        assertThrows(NoSuchFileException.class,
+                () -> TextLoader.readAll(List.of(paths.get(0), directory.resolve("missing.txt")), Normalizer.of(false), 4));
+    }
+
+    @Test
+    void mappedFilesMatchTheFilesRead() throws IOException {
+        Path first = Files.writeString(directory.resolve("first.txt"), "Érase una vez, ¿un río?", StandardCharsets.UTF_8);
+        Path empty = Files.writeString(directory.resolve("empty.txt"), "");
+        Path broken = Files.write(directory.resolve("broken.txt"), new byte[]{'a', (byte) 0xC3, 'b', (byte) 0xFF, 'C'});
+        List<Path> paths = List.of(first, empty, broken);
+        Normalizer normalizer = Normalizer.of(false);
+
+        SymbolText.Builder builder = new SymbolText.Builder();
+        for (Path path : paths) builder.addWord(TextLoader.read(path, normalizer));
+        builder.addWord("extra");
+        SymbolText mapped = TextLoader.map(paths, List.of("extra"), normalizer, directory.resolve("symbols"));
+
+        assertSameText(builder.build(), mapped);
+        assertEquals("éraseunavezunrío$$abc$extra$", mapped.substring(0, mapped.length()));
+    }
+
+    @Test
+    void wideAlphabetsAreMappedAsInts() throws IOException {
+        StringBuilder wide = new StringBuilder();
+        for (char c = 0x100; c < 0x300; c++) {
+            wide.append(c);
+        }
+        String[] words = {wide.toString(), "", "abc" + wide.reverse()};
+        SymbolText mapped = TextLoader.map(List.of(), List.of(words), Normalizer.of(true), directory.resolve("symbols"));
+
+        assertSameText(new SymbolText(words), mapped);
+        assertEquals(4L * mapped.length(), Files.size(directory.resolve("symbols")));
+    }
+
+    @Test
+    void mappedTextsCannotGrow() throws IOException {
+        SymbolText mapped = TextLoader.map(List.of(), List.of("abc"), Normalizer.of(true), directory.resolve("symbols"));
+        assertThrows(IllegalStateException.class, () -> mapped.addWord("d"));
+    }
+}
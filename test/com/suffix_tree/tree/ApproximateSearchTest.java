@@ -0,0 +1,162 @@
+package com.suffix_tree.tree;
+
+import com.suffix_tree.Main;
+import com.suffix_tree.index.ApproximateMatch;
+import com.suffix_tree.index.Distance;
+import com.suffix_tree.index.Occurrence;
+import com.suffix_tree.index.TextIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ *  Search with errors on the tree and on its frozen view agrees with the brute force over every
+ *  position of the words, for both distances.
+ *
+ *  @version 1.0
+ *
+ */
+class ApproximateSearchTest {
+
+    @Test
+    void hammingCountsMismatchesOnly() {
+        String[] words = {"banana", "bandana", "cabana"};
+        check(words, "bandana", 1, Distance.HAMMING);
+        check(words, "nan", 1, Distance.HAMMING);
+        check(words, "ana", 0, Distance.HAMMING);
+    }
+
+    @Test
+    void levenshteinTakesInsertionsAndDeletions() {
+        String[] words = {"banana", "bandana", "cabana"};
+        check(words, "bananna", 1, Distance.LEVENSHTEIN);
+        check(words, "bnana", 2, Distance.LEVENSHTEIN);
+        check(words, "xyz", 3, Distance.LEVENSHTEIN);
+    }
+
+    @Test
+    void randomPatternsMatchTheBruteForce() {
+        Random random = new Random(11);
+        for (int round = 0; round < 150; round++) {
+            String[] words = new String[1 + random.nextInt(4)];
+            for (int w = 0; w < words.length; w++) {
+                words[w] = random(random, random.nextInt(14));
+            }
+            String pattern = random(random, 1 + random.nextInt(6));
+            int k = random.nextInt(3);
+            check(words, pattern, k, Distance.HAMMING);
+            check(words, pattern, k, Distance.LEVENSHTEIN);
+        }
+    }
+
+    /**
+     * @param words of the tree
+     * @param pattern looked for
+     * @param k most errors allowed
+     * @param distance way errors are counted
+     */
+    private static void check(String[] words, String pattern, int k, Distance distance) {
+        List<String> expected = bruteForce(words, pattern, k, distance);
+        TreeSet<Integer> expectedWords = new TreeSet<>();
+        for (String match : expected) expectedWords.add(Integer.parseInt(match.substring(0, match.indexOf(':'))));
+
+        CompactSuffixTree tree = new CompactSuffixTree(words, Main.AlgorithmFeatures.UKKONEN);
+        for (TextIndex index : List.of(tree, tree.freeze())) {
+            String message = distance + " " + k + " " + pattern + " in " + String.join(",", words);
+            assertEquals(expected, matches(index, pattern, k, distance), message);
+            assertArrayEquals(expectedWords.stream().mapToInt(Integer::intValue).toArray(),
+                    index.searchApproximate(pattern, k, distance).toArray(), message);
+        }
+    }
+
+    /**
+     * @param index searched
+     * @param pattern looked for
+     * @param k most errors allowed
+     * @param distance way errors are counted
+     * @return word, offset, length and errors of every match, in the order of the words
+     */
+    private static List<String> matches(TextIndex index, String pattern, int k, Distance distance) {
+        ArrayList<String> result = new ArrayList<>();
+        for (ApproximateMatch match : index.locateApproximate(pattern, k, distance)) {
+            Occurrence occurrence = index.occurrenceAt(match.position());
+            result.add(occurrence.word() + ":" + occurrence.offset() + ":" + match.length() + ":" + match.errors());
+        }
+        return result;
+    }
+
+    /**
+     * @param words searched
+     * @param pattern looked for
+     * @param k most errors allowed
+     * @param distance way errors are counted
+     * @return word, offset, length and errors of the match with fewest errors, then shortest, of every
+     *          position of the words
+     */
+    private static List<String> bruteForce(String[] words, String pattern, int k, Distance distance) {
+        ArrayList<String> result = new ArrayList<>();
+        for (int w = 0; w < words.length; w++) {
+            String word = words[w];
+            for (int i = 0; i < word.length(); i++) {
+                int bestErrors = k + 1, bestLength = 0;
+                int longest = (distance == Distance.HAMMING) ? pattern.length() : pattern.length() + k;
+                for (int length = 1; length <= Math.min(longest, word.length() - i); length++) {
+                    String candidate = word.substring(i, i + length);
+                    int errors;
+                    if (distance == Distance.HAMMING) {
+                        if (length != pattern.length()) continue;
+                        errors = 0;
+                        for (int j = 0; j < length; j++) {
+                            if (candidate.charAt(j) != pattern.charAt(j)) errors++;
+                        }
+                    } else {
+                        errors = levenshtein(pattern, candidate);
+                    }
+                    if (errors < bestErrors) {
+                        bestErrors = errors;
+                        bestLength = length;
+                    }
+                }
+                if (bestErrors <= k) result.add(w + ":" + i + ":" + bestLength + ":" + bestErrors);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @param a one string
+     * @param b another string
+     * @return edit distance between both
+     */
+    private static int levenshtein(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) d[i][0] = i;
+        for (int j = 0; j <= b.length(); j++) d[0][j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int replace = d[i - 1][j - 1] + ((a.charAt(i - 1) == b.charAt(j - 1)) ? 0 : 1);
+                d[i][j] = Math.min(replace, Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+
+    /**
+     * @param random source of the characters
+     * @param length of the string
+     * @return random string of a small alphabet
+     */
+    private static String random(Random random, int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append("abc".charAt(random.nextInt(3)));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,143 @@
+package com.suffix_tree.tree;
+
+import com.suffix_tree.Main;
+import com.suffix_tree.index.Repeat;
+import com.suffix_tree.index.TextIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *  The most frequent substrings of the tree and of its frozen view are the most frequent of the
+ *  substrings that are the longest with their occurrences, found by brute force.
+ *
+ *  @version 1.0
+ *
+ */
+class FrequentSubstringsTest {
+
+    @Test
+    void mostFrequentComeFirst() {
+        String[] words = {"banana", "bandana", "cabana"};
+        CompactSuffixTree tree = new CompactSuffixTree(words, Main.AlgorithmFeatures.NLGN);
+        List<Repeat> top = tree.mostFrequent(3, 1, 1);
+
+        // a appears 9 times, an and n 5 times each, the longest first
+        assertEquals(List.of("a", "an", "n"), top.stream().map(tree::textOf).toList());
+        assertEquals(List.of(9, 5, 5), top.stream().map(Repeat::occurrences).toList());
+        assertTrue(tree.mostFrequent(0, 1, 1).isEmpty());
+    }
+
+    @Test
+    void limitsLeaveOutShortAndLocalSubstrings() {
+        String[] words = {"abababab", "abc", "xyzxyz"};
+        check(words, 10, 3, 1);
+        check(words, 10, 1, 2);
+        check(words, 10, 2, 3);
+    }
+
+    @Test
+    void randomWordsMatchTheBruteForce() {
+        Random random = new Random(31);
+        for (int round = 0; round < 100; round++) {
+            String[] words = new String[1 + random.nextInt(5)];
+            for (int w = 0; w < words.length; w++) {
+                StringBuilder sb = new StringBuilder();
+                for (int i = random.nextInt(20); i > 0; i--) sb.append("abc".charAt(random.nextInt(3)));
+                words[w] = sb.toString();
+            }
+            check(words, 1 + random.nextInt(8), 1 + random.nextInt(3), random.nextInt(3));
+        }
+    }
+
+    /**
+     * @param words of the tree
+     * @param k most substrings asked for
+     * @param minLength fewest characters of the substrings
+     * @param minDocuments fewest words the substrings appear in
+     */
+    private static void check(String[] words, int k, int minLength, int minDocuments) {
+        // Substrings followed by different symbols in their occurrences, the longest with their count
+        HashMap<String, Integer> candidates = new HashMap<>();
+        for (Map.Entry<String, Integer> entry : occurrences(words).entrySet()) {
+            String s = entry.getKey();
+            if (entry.getValue() >= 2 && s.length() >= minLength && documents(words, s) >= minDocuments
+                    && isRightDiverse(words, s)) {
+                candidates.put(s, entry.getValue());
+            }
+        }
+        List<Integer> counts = new ArrayList<>(candidates.values());
+        counts.sort((a, b) -> b - a);
+        List<Integer> expected = counts.subList(0, Math.min(k, counts.size()));
+
+        CompactSuffixTree tree = new CompactSuffixTree(words, Main.AlgorithmFeatures.UKKONEN);
+        for (TextIndex index : List.of(tree, tree.freeze())) {
+            String message = k + " " + minLength + " " + minDocuments + " " + String.join(",", words);
+            List<Repeat> top = index.mostFrequent(k, minLength, minDocuments);
+            assertEquals(expected, top.stream().map(Repeat::occurrences).toList(), message);
+
+            HashSet<String> found = new HashSet<>();
+            for (int i = 0; i < top.size(); i++) {
+                String s = index.textOf(top.get(i));
+                assertTrue(found.add(s), message);
+                assertEquals(candidates.get(s), top.get(i).occurrences(), s + " " + message);
+                if (i > 0 && top.get(i).occurrences() == top.get(i - 1).occurrences()) {
+                    assertTrue(top.get(i).length() <= top.get(i - 1).length(), message);
+                }
+            }
+        }
+    }
+
+    /**
+     * @param words searched
+     * @return occurrences of every substring of the words
+     */
+    private static Map<String, Integer> occurrences(String[] words) {
+        HashMap<String, Integer> occurrences = new HashMap<>();
+        for (String word : words) {
+            for (int i = 0; i < word.length(); i++) {
+                for (int j = i + 1; j <= word.length(); j++) occurrences.merge(word.substring(i, j), 1, Integer::sum);
+            }
+        }
+        return occurrences;
+    }
+
+    /**
+     * @param words searched
+     * @param s substring of the words
+     * @return number of words holding it
+     */
+    private static int documents(String[] words, String s) {
+        int documents = 0;
+        for (String word : words) {
+            if (word.contains(s)) documents++;
+        }
+        return documents;
+    }
+
+    /**
+     * @param words searched
+     * @param s substring of the words
+     * @return true if its occurrences are not all followed by the same symbol, the end of every word
+     *          being a symbol of its own
+     */
+    private static boolean isRightDiverse(String[] words, String s) {
+        Set<Integer> right = new HashSet<>();
+        for (int w = 0; w < words.length; w++) {
+            for (int i = words[w].indexOf(s); i >= 0; i = words[w].indexOf(s, i + 1)) {
+                int end = i + s.length();
+                right.add((end == words[w].length()) ? -1 - w : words[w].charAt(end));
+            }
+        }
+        return right.size() > 1;
+    }
+}
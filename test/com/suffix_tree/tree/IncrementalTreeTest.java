@@ -0,0 +1,165 @@
+package com.suffix_tree.tree;
+
+import com.suffix_tree.Main;
+import com.suffix_tree.index.Occurrence;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *  A tree where words were added and removed answers like a tree built from scratch from the words
+ *  left, removed words being empty so every word keeps its index, before and after it is compacted.
+ *
+ *  @version 1.0
+ *
+ */
+class IncrementalTreeTest {
+
+    @Test
+    void addedWordsAreFound() {
+        CompactSuffixTree tree = new CompactSuffixTree(new String[]{"banana", "bandana"}, Main.AlgorithmFeatures.UKKONEN);
+        assertEquals(2, tree.addDocument("ananas"));
+        assertEquals(3, tree.addDocument("cabana"));
+
+        assertSameAs(tree, new String[]{"banana", "bandana", "ananas", "cabana"});
+    }
+
+    @Test
+    void removedWordsAreLeftOutAndTheirNodesMerged() {
+        String[] words = {"banana", "bandana", "ananas", "cabana", "abracadabra"};
+        CompactSuffixTree tree = new CompactSuffixTree(words, Main.AlgorithmFeatures.NLGN);
+        assertTrue(tree.removeDocument(1));
+        assertFalse(tree.removeDocument(1));
+        assertTrue(tree.isRemoved(1));
+
+        words[1] = "";
+        assertSameAs(tree, words);
+    }
+
+    @Test
+    void randomAddsAndRemovesMatchTheTreeOfTheWordsLeft() {
+        Random random = new Random(3);
+        for (int round = 0; round < 30; round++) {
+            ArrayList<String> words = new ArrayList<>();
+            for (int i = 0; i < 6; i++) words.add(random(random));
+            CompactSuffixTree tree = new CompactSuffixTree(words.toArray(new String[0]), Main.AlgorithmFeatures.UKKONEN);
+
+            // Few removals, so the tree is not compacted
+            for (int step = 0; step < 8; step++) {
+                if (random.nextInt(3) == 0) {
+                    int word = random.nextInt(words.size());
+                    if (!tree.isRemoved(word) && words.get(word).length() * 8 < tree.text().length()) {
+                        tree.removeDocument(word);
+                        words.set(word, "");
+                    }
+                } else {
+                    String word = random(random);
+                    assertEquals(words.size(), tree.addDocument(word));
+                    words.add(word);
+                }
+                assertSameAs(tree, words.toArray(new String[0]));
+            }
+        }
+    }
+
+    @Test
+    @Timeout(60)
+    void compactionKeepsTheWordsChangedWhileItRuns() throws InterruptedException {
+        String[] words = {"banana", "bandana", "ananas", "cabana", "abracadabra", "mississippi"};
+        CompactSuffixTree tree = new CompactSuffixTree(words, Main.AlgorithmFeatures.UKKONEN);
+        int length = tree.text().length();
+
+        // Removed words hold more than a quarter of the text, compaction starts on the last removal
+        tree.removeDocument(4);
+        tree.removeDocument(5);
+        words[4] = "";
+        words[5] = "";
+        // Changes while it may still run
+        words = Arrays.copyOf(words, 7);
+        words[6] = "bananarama";
+        tree.addDocument(words[6]);
+        tree.removeDocument(0);
+        words[0] = "";
+
+        while (tree.text().length() >= length) {
+            Thread.sleep(10);
+        }
+        assertSameAs(tree, words);
+
+        assertEquals(7, tree.addDocument("cabanas"));
+        words = Arrays.copyOf(words, 8);
+        words[7] = "cabanas";
+        assertSameAs(tree, words);
+    }
+
+    /**
+     * @param tree after words were added and removed
+     * @param words left in it, removed ones empty
+     */
+    private static void assertSameAs(CompactSuffixTree tree, String[] words) {
+        CompactSuffixTree expected = new CompactSuffixTree(words, Main.AlgorithmFeatures.NLGN);
+
+        assertEquals(expected.nodeCount(), tree.nodeCount(), String.join(",", words));
+        assertEquals(expected.leafCount(), tree.leafCount());
+        assertEquals(new TreeSet<>(expected.getMaximals()), new TreeSet<>(tree.getMaximals()));
+        assertEquals(expected.getLongestSubstring().length(), tree.getLongestSubstring().length());
+        for (String pattern : patterns(words)) {
+            assertArrayEquals(expected.search(pattern).toArray(), tree.search(pattern).toArray(), pattern);
+            assertEquals(expected.count(pattern), tree.count(pattern), pattern);
+            assertEquals(expected.documentFrequency(pattern), tree.documentFrequency(pattern), pattern);
+            assertEquals(occurrences(expected, pattern), occurrences(tree, pattern), pattern);
+        }
+    }
+
+    /**
+     * @param tree searched
+     * @param pattern to be located
+     * @return word and offset of every occurrence, in order
+     */
+    private static List<String> occurrences(CompactSuffixTree tree, String pattern) {
+        ArrayList<String> result = new ArrayList<>();
+        for (int position : tree.locate(pattern)) {
+            Occurrence occurrence = tree.occurrenceAt(position);
+            result.add(occurrence.word() + ":" + occurrence.offset());
+        }
+        result.sort(null);
+        return result;
+    }
+
+    /**
+     * @param words of the tree
+     * @return every substring of the words, and a few in none of them
+     */
+    private static TreeSet<String> patterns(String[] words) {
+        TreeSet<String> patterns = new TreeSet<>(List.of("z", "abz", "nananan"));
+        for (String word : words) {
+            for (int i = 0; i < word.length(); i++) {
+                for (int j = i + 1; j <= word.length(); j++) patterns.add(word.substring(i, j));
+            }
+        }
+        return patterns;
+    }
+
+    /**
+     * @param random source of the characters
+     * @return word of up to 10 characters of a small alphabet
+     */
+    private static String random(Random random) {
+        StringBuilder sb = new StringBuilder();
+        int length = random.nextInt(11);
+        for (int i = 0; i < length; i++) {
+            sb.append("abc".charAt(random.nextInt(3)));
+        }
+        return sb.toString();
+    }
+}
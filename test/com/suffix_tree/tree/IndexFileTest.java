@@ -0,0 +1,132 @@
+package com.suffix_tree.tree;
+
+import com.suffix_tree.Main;
+import com.suffix_tree.text.SymbolText;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *  Trees written to index files and read back keep their shape and their names, and files that are
+ *  not complete indexes of the current version are refused.
+ *
+ *  @version 1.0
+ *
+ */
+class IndexFileTest {
+
+    private static final String[] WORDS = {"banana", "bandana", "", "ananas", "cabana"};
+    private static final List<String> FILES = List.of("a.txt", "b.txt", "empty.txt", "piña.txt", "c.txt");
+
+    @TempDir
+    Path directory;
+
+    /**
+     * @param tree to be saved with FILES as the names of its words
+     * @return index file in the temporary directory
+     */
+    private Path saved(CompactSuffixTree tree) throws IOException {
+        Path file = directory.resolve("tree.idx");
+        IndexFile.save(tree, FILES, file);
+        return file;
+    }
+
+    @Test
+    void loadKeepsTheShapeOfTheTree() throws IOException {
+        CompactSuffixTree tree = new CompactSuffixTree(WORDS, Main.AlgorithmFeatures.UKKONEN);
+        Path file = saved(tree);
+        FrozenSuffixTree loaded = IndexFile.load(file);
+
+        assertEquals(tree.nodeCount(), loaded.nodeCount());
+        assertEquals(tree.leafCount(), loaded.leafCount());
+        assertEquals(tree.text().length(), loaded.textLength());
+        assertEquals(WORDS.length, loaded.words());
+        assertEquals(FILES, loaded.files());
+        assertEquals(Files.size(file), loaded.bytes());
+        assertEquals(tree.getLongestSubstring(), loaded.getLongestSubstring());
+        assertArrayEquals(tree.locate("ana"), loaded.locate("ana"));
+    }
+
+    @Test
+    void savedFileIsTheFrozenBuffer() throws IOException {
+        CompactSuffixTree tree = new CompactSuffixTree(WORDS, Main.AlgorithmFeatures.NLGN);
+        byte[] file = Files.readAllBytes(saved(tree));
+        IndexBuffer buffer = IndexFile.encode(tree, FILES);
+
+        byte[] encoded = new byte[(int) buffer.size()];
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = buffer.get(i);
+        }
+        assertArrayEquals(file, encoded);
+    }
+
+    @Test
+    void outOfCoreFileHasTheNodesOfTheTree() throws IOException {
+        CompactSuffixTree tree = new CompactSuffixTree(WORDS, Main.AlgorithmFeatures.UKKONEN);
+        Path file = directory.resolve("disk.idx");
+        OutOfCoreBuilder.build(new SymbolText(WORDS), FILES, file, OutOfCoreBuilder.DEFAULT_MEMORY);
+        FrozenSuffixTree loaded = IndexFile.load(file);
+
+        assertEquals(tree.nodeCount(), loaded.nodeCount());
+        assertEquals(tree.leafCount(), loaded.leafCount());
+        assertEquals(FILES, loaded.files());
+        assertEquals(Files.size(saved(tree)), Files.size(file));
+    }
+
+    @Test
+    void wideAlphabetsKeepTheirSymbols() throws IOException {
+        String[] words = {"\u4e2d\u6587\u4e2d", "\u0100\u0101\u4e2d\u6587"};
+        StringBuilder wide = new StringBuilder();
+        for (char c = 0x100; c < 0x300; c++) {
+            wide.append(c);
+        }
+        words[1] += wide;
+        CompactSuffixTree tree = new CompactSuffixTree(words, Main.AlgorithmFeatures.UKKONEN);
+        Path file = directory.resolve("wide.idx");
+        IndexFile.save(tree, List.of(), file);
+        FrozenSuffixTree loaded = IndexFile.load(file);
+
+        assertEquals(tree.getLongestSubstring(), loaded.getLongestSubstring());
+        assertArrayEquals(tree.locate("\u4e2d\u6587"), loaded.locate("\u4e2d\u6587"));
+        assertEquals(tree.search("\u01ff\u0200"), loaded.search("\u01ff\u0200"));
+    }
+
+    @Test
+    void rejectsOtherVersions() throws IOException {
+        Path file = saved(new CompactSuffixTree(WORDS, Main.AlgorithmFeatures.UKKONEN));
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[7]++;
+        Files.write(file, bytes);
+
+        IOException error = assertThrows(IOException.class, () -> IndexFile.load(file));
+        assertTrue(error.getMessage().contains("version"), error.getMessage());
+    }
+
+    @Test
+    void rejectsTruncatedFiles() throws IOException {
+        Path file = saved(new CompactSuffixTree(WORDS, Main.AlgorithmFeatures.UKKONEN));
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+
+        assertThrows(IOException.class, () -> IndexFile.load(file));
+    }
+
+    @Test
+    void rejectsFilesThatAreNotIndexes() throws IOException {
+        Path empty = Files.createFile(directory.resolve("empty.idx"));
+        Path text = Files.writeString(directory.resolve("text.idx"), "banana bandana ananas cabana");
+
+        assertThrows(IOException.class, () -> IndexFile.load(empty));
+        assertThrows(IOException.class, () -> IndexFile.load(text));
+    }
+}
@@ -0,0 +1,152 @@
+package com.suffix_tree.tree;
+
+import com.suffix_tree.Main;
+import com.suffix_tree.index.Occurrence;
+import com.suffix_tree.index.SharedSegment;
+import com.suffix_tree.index.TextIndex;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *  Matching statistics of the tree and of its frozen view agree with the brute force, both for every
+ *  position of the query and for the longest segment shared with every word.
+ *
+ *  @version 1.0
+ *
+ */
+class MatchingStatisticsTest {
+
+    @Test
+    void shorterPrefixesOfLongerMatchesAreCredited() throws IOException {
+        check(new String[]{"aabcbabbb", "bbccccb"}, "ba", 1);
+        check(new String[]{"ccbcaac", "babbbabcbc", "bacacbbbbacbb"}, "cbbbacbddbb", 1);
+    }
+
+    @Test
+    void minLengthDropsShortSegments() throws IOException {
+        check(new String[]{"banana", "bandana", "ananas"}, "xbananasx", 4);
+        check(new String[]{"banana", "bandana", "ananas"}, "dan", 4);
+    }
+
+    @Test
+    void randomQueriesMatchTheBruteForce() throws IOException {
+        Random random = new Random(7);
+        for (int round = 0; round < 200; round++) {
+            String[] words = new String[1 + random.nextInt(5)];
+            for (int w = 0; w < words.length; w++) {
+                words[w] = random(random, random.nextInt(15), "abc");
+            }
+            check(words, random(random, random.nextInt(20), "abcd"), 1 + random.nextInt(3));
+        }
+    }
+
+    @Test
+    void removedWordsShareNothing() throws IOException {
+        CompactSuffixTree tree = new CompactSuffixTree(new String[]{"abcabc", "xyz", "bcx"}, Main.AlgorithmFeatures.UKKONEN);
+        tree.removeDocument(1);
+        List<SharedSegment> segments = tree.matchingStatistics(new StringReader("xyzabc"), 1, null);
+
+        assertEquals(List.of(0, 2), segments.stream().map(SharedSegment::document).sorted().toList());
+    }
+
+    /**
+     * @param words of the tree
+     * @param query compared against them
+     * @param minLength fewest characters of the segments in the summary
+     */
+    private static void check(String[] words, String query, int minLength) throws IOException {
+        CompactSuffixTree tree = new CompactSuffixTree(words, Main.AlgorithmFeatures.NLGN);
+        check(tree, words, query, minLength);
+        check(tree.freeze(), words, query, minLength);
+    }
+
+    /**
+     * @param index over the words
+     * @param words of the index
+     * @param query compared against them
+     * @param minLength fewest characters of the segments in the summary
+     */
+    private static void check(TextIndex index, String[] words, String query, int minLength) throws IOException {
+        ArrayList<Integer> lengths = new ArrayList<>();
+        List<SharedSegment> segments = index.matchingStatistics(new StringReader(query), minLength,
+                (position, length, document) -> {
+                    assertEquals(lengths.size(), position);
+                    if (length > 0) {
+                        assertTrue(words[document].contains(query.substring((int) position, (int) position + length)));
+                    }
+                    lengths.add(length);
+                });
+
+        for (int i = 0; i < query.length(); i++) {
+            assertEquals(longestPrefixIn(words, query.substring(i)), lengths.get(i), query + " at " + i);
+        }
+
+        int[] expected = new int[words.length];
+        for (int word = 0; word < words.length; word++) {
+            int longest = longestCommonSubstring(words[word], query);
+            if (longest >= minLength) expected[word] = longest;
+        }
+        int[] found = new int[words.length];
+        for (SharedSegment segment : segments) {
+            found[segment.document()] = segment.length();
+            // The segment is in the query and in the word at the offsets given
+            String shared = query.substring((int) segment.queryPosition(), (int) segment.queryPosition() + segment.length());
+            Occurrence occurrence = index.occurrenceAt(segment.textPosition());
+            assertEquals(segment.document(), occurrence.word());
+            assertEquals(shared, words[segment.document()].substring(occurrence.offset(), occurrence.offset() + segment.length()));
+        }
+        for (int word = 0; word < words.length; word++) {
+            assertEquals(expected[word], found[word], "word " + word + " of " + String.join(",", words) + " for " + query);
+        }
+    }
+
+    /**
+     * @param words searched
+     * @param query whose prefixes are searched
+     * @return characters of the longest prefix of the query in any of the words
+     */
+    private static int longestPrefixIn(String[] words, String query) {
+        int longest = 0;
+        for (String word : words) {
+            while (longest < query.length() && word.contains(query.substring(0, longest + 1))) longest++;
+        }
+        return longest;
+    }
+
+    /**
+     * @param word one string
+     * @param query another string
+     * @return characters of the longest string in both
+     */
+    private static int longestCommonSubstring(String word, String query) {
+        int longest = 0;
+        for (int i = 0; i < query.length(); i++) {
+            for (int j = i + longest + 1; j <= query.length() && word.contains(query.substring(i, j)); j++) {
+                longest = j - i;
+            }
+        }
+        return longest;
+    }
+
+    /**
+     * @param random source of the characters
+     * @param length of the string
+     * @param symbols alphabet of the string
+     * @return random string
+     */
+    private static String random(Random random, int length, String symbols) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append(symbols.charAt(random.nextInt(symbols.length())));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,86 @@
+package com.suffix_tree.tree;
+
+import com.suffix_tree.Main;
+import com.suffix_tree.index.TextIndex;
+import com.suffix_tree.words.WordSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ *  Patterns searched in one pass over the tree and over its frozen view are found in the same words
+ *  as when they are searched one by one, whatever the prefixes they share.
+ *
+ *  @version 1.0
+ *
+ */
+class MultiPatternSearchTest {
+
+    @Test
+    void sharedPrefixesAreFoundOnce() {
+        String[] words = {"banana", "bandana", "cabana", "abracadabra"};
+        check(words, List.of("ban", "banana", "band", "bandanas", "ba", "b", "", "ana", "anax",
+                "bandana", "ban", "cab", "z", "abra", "abracadabra", "abrac"));
+    }
+
+    @Test
+    void patternsLeavingAnEdgeHalfwayAreNotFound() {
+        String[] words = {"mississippi", "missouri"};
+        check(words, List.of("missi", "missx", "miss", "mississippi", "mississippix", "issi", "iss", "is"));
+    }
+
+    @Test
+    void randomBatchesMatchTheSearchesOneByOne() {
+        Random random = new Random(9);
+        for (int round = 0; round < 50; round++) {
+            String[] words = new String[1 + random.nextInt(8)];
+            for (int w = 0; w < words.length; w++) words[w] = random(random, random.nextInt(20));
+            ArrayList<String> patterns = new ArrayList<>();
+            for (int p = random.nextInt(40); p > 0; p--) {
+                String word = words[random.nextInt(words.length)];
+                // Substrings of the words, some of them extended with a symbol in no word
+                if (word.isEmpty() || random.nextInt(4) == 0) {
+                    patterns.add(random(random, 1 + random.nextInt(4)) + (random.nextBoolean() ? "d" : ""));
+                } else {
+                    int start = random.nextInt(word.length());
+                    patterns.add(word.substring(start, start + 1 + random.nextInt(word.length() - start)));
+                }
+            }
+            check(words, patterns);
+        }
+    }
+
+    /**
+     * @param words of the tree
+     * @param patterns searched at once
+     */
+    private static void check(String[] words, List<String> patterns) {
+        CompactSuffixTree tree = new CompactSuffixTree(words, Main.AlgorithmFeatures.NLGN);
+        for (TextIndex index : List.of(tree, tree.freeze())) {
+            List<WordSet> found = index.searchAll(patterns);
+            assertEquals(patterns.size(), found.size());
+            for (int i = 0; i < patterns.size(); i++) {
+                assertArrayEquals(index.search(patterns.get(i)).toArray(), found.get(i).toArray(),
+                        patterns.get(i) + " of " + patterns);
+            }
+        }
+    }
+
+    /**
+     * @param random source of the characters
+     * @param length of the string
+     * @return random string of a small alphabet
+     */
+    private static String random(Random random, int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append("abc".charAt(random.nextInt(3)));
+        }
+        return sb.toString();
+    }
+}
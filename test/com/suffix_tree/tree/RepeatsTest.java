@@ -0,0 +1,142 @@
+package com.suffix_tree.tree;
+
+import com.suffix_tree.Main;
+import com.suffix_tree.index.Repeat;
+import com.suffix_tree.index.SuffixArrayIndex;
+import com.suffix_tree.index.TextIndex;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ *  Maximal and supermaximal repeats of the tree, of its frozen view and of the suffix array agree with
+ *  the brute force over every substring of the words, the ends of every word being different symbols.
+ *
+ *  @version 1.0
+ *
+ */
+class RepeatsTest {
+
+    @Test
+    void repeatsOfAFewWords() {
+        String[] words = {"abcabxabcd", "xabc", "dabcab"};
+        check(words, 1, 2);
+        TreeMap<String, Integer> maximal = repeats(new CompactSuffixTree(words, Main.AlgorithmFeatures.NLGN), false, 1, 2);
+        assertEquals(4, maximal.get("abc"));
+        assertEquals(2, maximal.get("abcab"));
+        assertTrue(repeats(new CompactSuffixTree(words, Main.AlgorithmFeatures.NLGN), true, 1, 2).containsKey("xabc"));
+    }
+
+    @Test
+    void wholeWordsRepeatedAreMaximal() {
+        check(new String[]{"banana", "banana", "ana"}, 1, 2);
+        check(new String[]{"aaaa", "aa"}, 1, 2);
+    }
+
+    @Test
+    void limitsLeaveOutShortAndRareRepeats() {
+        String[] words = {"mississippi", "missouri", "misses"};
+        check(words, 3, 2);
+        check(words, 1, 3);
+        check(words, 2, 5);
+    }
+
+    @Test
+    void randomWordsMatchTheBruteForce() {
+        Random random = new Random(29);
+        for (int round = 0; round < 100; round++) {
+            String[] words = new String[1 + random.nextInt(5)];
+            for (int w = 0; w < words.length; w++) {
+                StringBuilder sb = new StringBuilder();
+                for (int i = random.nextInt(16); i > 0; i--) sb.append("abc".charAt(random.nextInt(3)));
+                words[w] = sb.toString();
+            }
+            check(words, 1 + random.nextInt(3), 2 + random.nextInt(2));
+        }
+    }
+
+    /**
+     * @param words of the indexes
+     * @param minLength fewest characters of the repeats
+     * @param minOccurrences fewest occurrences of the repeats
+     */
+    private static void check(String[] words, int minLength, int minOccurrences) {
+        Map<String, Integer> occurrences = occurrences(words);
+        TreeMap<String, Integer> maximal = new TreeMap<>(), supermaximal = new TreeMap<>();
+        for (Map.Entry<String, Integer> entry : occurrences.entrySet()) {
+            String s = entry.getKey();
+            if (entry.getValue() < 2 || !isMaximal(words, s)) continue;
+            // Supermaximal if no longer repeat holds it
+            boolean inLonger = occurrences.entrySet().stream()
+                    .anyMatch(other -> other.getValue() >= 2 && other.getKey().length() > s.length() && other.getKey().contains(s));
+            if (s.length() < minLength || entry.getValue() < minOccurrences) continue;
+            maximal.put(s, entry.getValue());
+            if (!inLonger) supermaximal.put(s, entry.getValue());
+        }
+
+        CompactSuffixTree tree = new CompactSuffixTree(words, Main.AlgorithmFeatures.UKKONEN);
+        for (TextIndex index : List.of(tree, tree.freeze(), new SuffixArrayIndex(words))) {
+            String message = index.getClass().getSimpleName() + " " + String.join(",", words);
+            assertEquals(maximal, repeats(index, false, minLength, minOccurrences), message);
+            assertEquals(supermaximal, repeats(index, true, minLength, minOccurrences), message);
+        }
+    }
+
+    /**
+     * @param index over the words
+     * @param supermaximal true for supermaximal repeats only
+     * @param minLength fewest characters of the repeats
+     * @param minOccurrences fewest occurrences of the repeats
+     * @return characters and occurrences of every repeat, each found once
+     */
+    private static TreeMap<String, Integer> repeats(TextIndex index, boolean supermaximal, int minLength, int minOccurrences) {
+        TreeMap<String, Integer> result = new TreeMap<>();
+        List<Repeat> repeats = (supermaximal ? index.supermaximalRepeats(minLength, minOccurrences)
+                : index.maximalRepeats(minLength, minOccurrences)).toList();
+        for (Repeat repeat : repeats) {
+            assertEquals(null, result.put(index.textOf(repeat), repeat.occurrences()), index.textOf(repeat));
+        }
+        return result;
+    }
+
+    /**
+     * @param words searched
+     * @return occurrences of every substring of the words
+     */
+    private static Map<String, Integer> occurrences(String[] words) {
+        HashMap<String, Integer> occurrences = new HashMap<>();
+        for (String word : words) {
+            for (int i = 0; i < word.length(); i++) {
+                for (int j = i + 1; j <= word.length(); j++) occurrences.merge(word.substring(i, j), 1, Integer::sum);
+            }
+        }
+        return occurrences;
+    }
+
+    /**
+     * @param words searched
+     * @param s substring appearing at least twice
+     * @return true if its occurrences are neither all preceded nor all followed by the same symbol,
+     *          the ends of every word being symbols of their own
+     */
+    private static boolean isMaximal(String[] words, String s) {
+        Set<Integer> left = new HashSet<>(), right = new HashSet<>();
+        for (int w = 0; w < words.length; w++) {
+            for (int i = words[w].indexOf(s); i >= 0; i = words[w].indexOf(s, i + 1)) {
+                left.add((i == 0) ? -1 - w : words[w].charAt(i - 1));
+                int end = i + s.length();
+                right.add((end == words[w].length()) ? -1 - w : words[w].charAt(end));
+            }
+        }
+        return left.size() > 1 && right.size() > 1;
+    }
+}
@@ -0,0 +1,128 @@
+package com.suffix_tree.tree;
+
+import com.suffix_tree.Main;
+import com.suffix_tree.index.Occurrence;
+import com.suffix_tree.index.TextIndex;
+import com.suffix_tree.index.WildcardPattern;
+import com.suffix_tree.text.Normalizer;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ *  Search of patterns with wildcards, classes and gaps on the tree and on its frozen view agrees with
+ *  the same patterns as regular expressions matched at every position of the words.
+ *
+ *  @version 1.0
+ *
+ */
+class WildcardSearchTest {
+
+    private static final Normalizer NORMALIZER = Normalizer.of(false);
+
+    @Test
+    void wildcardsClassesAndGapsMatchLikeRegularExpressions() {
+        String[] words = {"banana", "bandana", "cabana", "abracadabra"};
+        check(words, "b?n", "b.n");
+        check(words, "[bc]a", "[bc]a");
+        check(words, "a[^n]a", "a[^n]a");
+        check(words, "b*{1,3}a", "b.{1,3}a");
+        check(words, "a*{2}a", "a.{2}a");
+        check(words, "Ban", "ban");
+        check(words, "d?*{0,2}b", "d..{0,2}b");
+    }
+
+    @Test
+    void randomPatternsMatchTheBruteForce() {
+        Random random = new Random(5);
+        for (int round = 0; round < 200; round++) {
+            String[] words = new String[1 + random.nextInt(4)];
+            for (int w = 0; w < words.length; w++) {
+                StringBuilder sb = new StringBuilder();
+                for (int i = random.nextInt(15); i > 0; i--) sb.append("abc".charAt(random.nextInt(3)));
+                words[w] = sb.toString();
+            }
+
+            StringBuilder pattern = new StringBuilder(), regex = new StringBuilder();
+            for (int pieces = 1 + random.nextInt(4); pieces > 0; pieces--) {
+                switch (random.nextInt(5)) {
+                    case 0 -> {
+                        pattern.append('?');
+                        regex.append('.');
+                    }
+                    case 1 -> {
+                        String members = random.nextBoolean() ? "ab" : "^a";
+                        pattern.append('[').append(members).append(']');
+                        regex.append('[').append(members).append(']');
+                    }
+                    case 2 -> {
+                        int min = random.nextInt(2), max = min + random.nextInt(3);
+                        pattern.append("*{").append(min).append(',').append(max).append('}');
+                        regex.append(".{").append(min).append(',').append(max).append('}');
+                    }
+                    default -> {
+                        char c = "abc".charAt(random.nextInt(3));
+                        pattern.append(c);
+                        regex.append(c);
+                    }
+                }
+            }
+            // Patterns matching the empty string are refused
+            if (!Pattern.compile(regex.toString()).matcher("").matches()) check(words, pattern.toString(), regex.toString());
+        }
+    }
+
+    @Test
+    void gapsAreBounded() {
+        assertThrows(IllegalArgumentException.class, () -> WildcardPattern.parse("a*{0,100000}b", NORMALIZER));
+        assertThrows(IllegalArgumentException.class, () -> WildcardPattern.parse("*{0,2}", NORMALIZER));
+
+        // The longest gap allowed is walked without a table for every position of the pattern
+        String[] words = {"abba", "b" + "a".repeat(3000) + "b"};
+        check(words, "b*{0," + (WildcardPattern.MAX_POSITIONS - 2) + "}b", "b.{0," + (WildcardPattern.MAX_POSITIONS - 2) + "}b");
+    }
+
+    /**
+     * @param words of the tree
+     * @param pattern with wildcards
+     * @param regex matching the same strings
+     */
+    private static void check(String[] words, String pattern, String regex) {
+        List<String> expected = new ArrayList<>();
+        TreeSet<Integer> expectedWords = new TreeSet<>();
+        Pattern compiled = Pattern.compile(regex);
+        for (int w = 0; w < words.length; w++) {
+            Matcher matcher = compiled.matcher(words[w]);
+            for (int i = 0; i < words[w].length(); i++) {
+                if (matcher.region(i, words[w].length()).lookingAt()) {
+                    expected.add(w + ":" + i);
+                    expectedWords.add(w);
+                }
+            }
+        }
+
+        WildcardPattern query = WildcardPattern.parse(pattern, NORMALIZER);
+        CompactSuffixTree tree = new CompactSuffixTree(words, Main.AlgorithmFeatures.NLGN);
+        for (TextIndex index : List.of(tree, tree.freeze())) {
+            ArrayList<String> found = new ArrayList<>();
+            for (int position : index.locateWildcard(query)) {
+                Occurrence occurrence = index.occurrenceAt(position);
+                found.add(occurrence.word() + ":" + occurrence.offset());
+            }
+            found.sort(null);
+            expected.sort(null);
+            assertEquals(expected, found, pattern + " in " + String.join(",", words));
+            assertArrayEquals(expectedWords.stream().mapToInt(Integer::intValue).toArray(),
+                    index.searchWildcard(query).toArray(), pattern);
+        }
+    }
+}
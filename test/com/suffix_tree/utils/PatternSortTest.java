@@ -0,0 +1,53 @@
+package com.suffix_tree.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ *  The multikey quicksort orders patterns like String.compareTo, leaving the list unchanged.
+ *
+ *  @version 1.0
+ *
+ */
+class PatternSortTest {
+
+    @Test
+    void sortedListsKeepTheirOrder() {
+        assertArrayEquals(new int[]{0, 1, 2}, PatternSort.order(List.of("a", "ab", "b")));
+        assertArrayEquals(new int[0], PatternSort.order(List.of()));
+    }
+
+    @Test
+    void prefixesComeFirst() {
+        List<String> patterns = List.of("abc", "ab", "", "abcd", "b", "a");
+        assertArrayEquals(new int[]{2, 5, 1, 0, 3, 4}, PatternSort.order(patterns));
+    }
+
+    @Test
+    void randomListsAreSortedLikeStrings() {
+        Random random = new Random(17);
+        for (int round = 0; round < 100; round++) {
+            ArrayList<String> patterns = new ArrayList<>();
+            for (int p = random.nextInt(200); p > 0; p--) {
+                StringBuilder sb = new StringBuilder("ab".repeat(random.nextInt(3)));
+                for (int i = random.nextInt(6); i > 0; i--) sb.append((char) ('a' + random.nextInt(3)));
+                patterns.add(sb.toString());
+            }
+            List<String> copy = List.copyOf(patterns);
+
+            int[] order = PatternSort.order(patterns);
+            assertEquals(copy, patterns);
+            assertArrayEquals(IntStream.range(0, patterns.size()).toArray(), IntStream.of(order).sorted().toArray());
+            List<String> sorted = IntStream.of(order).mapToObj(patterns::get).toList();
+            assertEquals(patterns.stream().sorted(Comparator.naturalOrder()).toList(), sorted);
+        }
+    }
+}